@@ -1,12 +1,48 @@
 package com.flickfinder;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.flickfinder.controller.AdminController;
+import com.flickfinder.controller.Compression;
+import com.flickfinder.controller.ConditionalGet;
+import com.flickfinder.controller.DbExecutor;
 import com.flickfinder.controller.MovieController;
 import com.flickfinder.controller.PersonController;
+import com.flickfinder.controller.ResponseCache;
 import com.flickfinder.dao.MovieDAO;
 import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.json.ModelModule;
+import com.flickfinder.metrics.Metrics;
+import com.flickfinder.metrics.TimedJsonMapper;
+import com.flickfinder.metrics.TimedMovieDAO;
+import com.flickfinder.metrics.TimedPersonDAO;
+import com.flickfinder.shard.ShardedMovieDAO;
+import com.flickfinder.snapshot.Snapshot;
+import com.flickfinder.snapshot.SnapshotMovieDAO;
+import com.flickfinder.snapshot.SnapshotPersonDAO;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.DataVersion;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.EntityCache;
+import com.flickfinder.util.PoolConfig;
+import com.flickfinder.util.SlowQueryLog;
+
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 
 import io.javalin.Javalin;
+import io.javalin.http.Handler;
 import io.javalin.http.staticfiles.Location;
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+import io.javalin.util.LoomUtil;
 
 /**
  * This class is used to configure the Javalin web server.
@@ -18,6 +54,13 @@ import io.javalin.http.staticfiles.Location;
 
 public class AppConfig {
 
+	private static final Logger LOGGER = Logger.getLogger(AppConfig.class.getName());
+
+	/**
+	 * The smallest body Javalin's own compression gzips.
+	 */
+	private static final int JAVALIN_MIN_COMPRESSION_BYTES = 1500;
+
 	/**
 	 * Sets up the routes and the static files location.
 	 * As you can see, the routes are currently incomplete. Depending on how far you
@@ -28,18 +71,184 @@ public class AppConfig {
 	 * @return The Javalin object that represents the running server.
 	 */
 	public static Javalin startServer(int port) {
+		return startServer(port, new ServerOptions());
+	}
+
+	/**
+	 * Sets up the routes and the static files location, with the optional
+	 * features given in the options switched on.
+	 * 
+	 * @param port    The port that the server should run on.
+	 * @param options The optional features to enable.
+	 * @return The Javalin object that represents the running server.
+	 */
+	public static Javalin startServer(int port, ServerOptions options) {
+		if (options.isVirtualThreads() && !LoomUtil.INSTANCE.getLoomAvailable()) {
+			LOGGER.warning("Virtual threads need Java 21, falling back to platform threads");
+		}
+		DbExecutor dbExecutor = (options.getDbThreads() > 0)
+				? new DbExecutor(options.getDbThreads(), options.getDbQueueSize(), options.getRetryAfterSeconds())
+				: null;
+		// with ETags, Javalin's own gzip would send the same ETag on gzipped
+		// and plain bodies, so gzip the routes like it does but mark the ETag
+		// with the coding; Javalin still compresses the static files and the
+		// other paths the routes do not cover
+		Compression compression = options.isCompression()
+				? new Compression(options.getCompressionMinBytes(), true)
+				: options.isEtags() ? new Compression(JAVALIN_MIN_COMPRESSION_BYTES, false) : null;
+		Metrics metrics = options.isMetrics() ? new Metrics() : null;
+		// opened before the server, so that they are closed when it stops
+		ShardedMovieDAO shards = null;
+		if (options.getShardDir() != null && options.getSnapshotPath() == null) {
+			try {
+				shards = ShardedMovieDAO.open(Paths.get(options.getShardDir()), PoolConfig.fromSystemProperties());
+			} catch (IOException | SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not open the shards, falling back to the database", e);
+			}
+		}
+		ShardedMovieDAO shardedMovieDao = shards;
 		Javalin app = Javalin.create(config -> {
 			config.staticFiles.add("/public", Location.CLASSPATH);
+			if (options.getAdminPort() > 0) {
+				// Javalin only opens its own connector when none are added, so
+				// add the public one first, then the admin one on loopback
+				config.jetty.addConnector((server, httpConfig) -> connector(server, httpConfig, null, port));
+				config.jetty.addConnector((server, httpConfig) -> connector(server, httpConfig,
+						InetAddress.getLoopbackAddress().getHostAddress(), options.getAdminPort()));
+			}
+			// database calls stay bounded by the connection pool, which parks
+			// waiting virtual threads rather than pinning them
+			config.useVirtualThreads = options.isVirtualThreads();
+			if (options.isFastJson() || metrics != null) {
+				JsonMapper jsonMapper = new JavalinJackson(
+						options.isFastJson() ? ModelModule.mapper() : JavalinJackson.defaultMapper(),
+						options.isVirtualThreads());
+				config.jsonMapper((metrics != null) ? new TimedJsonMapper(jsonMapper, metrics) : jsonMapper);
+			}
+			if (dbExecutor != null) {
+				config.events.serverStopped(dbExecutor::close);
+			}
+			if (shardedMovieDao != null) {
+				config.events.serverStopped(shardedMovieDao::close);
+			}
 		}).start(port);
 
+		Snapshot snapshot = null;
+		if (options.getSnapshotPath() != null) {
+			try {
+				snapshot = Snapshot.open(Paths.get(options.getSnapshotPath()));
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not open the snapshot, falling back to SQL", e);
+			}
+		}
+
+		SlowQueryLog slowQueryLog = null;
+		if (options.getSlowQueryMillis() >= 0 && snapshot == null) {
+			// attached before the indexes are built, so their scans are logged too
+			slowQueryLog = new SlowQueryLog(options.getSlowQueryMillis());
+			Database.getInstance().setSlowQueryLog(slowQueryLog);
+			if (shards != null) {
+				shards.setSlowQueryLog(slowQueryLog);
+			}
+		}
+
+		boolean streaming = options.isStreamingJson();
+		if (streaming && snapshot == null && Database.getInstance().getPool().getConfig().getMaxSize() < 2) {
+			// each streamed response holds a connection until the client has
+			// read it, so on one connection a slow client would stall the server
+			LOGGER.warning("Streaming needs a pool of more than one database connection,"
+					+ " falling back to buffered responses");
+			streaming = false;
+		}
+
 		// Set up controllers
-		MovieDAO movieDao = new MovieDAO();
-		MovieController movieController = new MovieController(movieDao);
+		MovieDAO movieDao;
+		if (snapshot != null) {
+			movieDao = new SnapshotMovieDAO(snapshot);
+		} else if (shards != null) {
+			movieDao = shards;
+		} else {
+			movieDao = new MovieDAO();
+		}
+		if (options.getEntityCacheSize() > 0) {
+			movieDao.setMovieCache(new EntityCache<>(options.getEntityCacheSize()));
+		}
+		if (options.isRatingsIndex()) {
+			try {
+				movieDao.setRatingsIndex(movieDao.buildRatingsIndex());
+			} catch (SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not build the ratings index, falling back to SQL", e);
+			}
+		}
+		if (options.isTitleSearchIndex()) {
+			try {
+				movieDao.setTitleSearchIndex(movieDao.buildTitleSearchIndex());
+			} catch (SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not build the title search index, falling back to SQL", e);
+			}
+		}
+		if (metrics != null) {
+			movieDao = new TimedMovieDAO(movieDao, metrics);
+		}
+		MovieController movieController = new MovieController(movieDao, streaming);
 
 		// Uncomment the following lines as you progress through the assessment.
 		//PersonController personController = new PersonController(personDao);
-		PersonDAO personDao = new PersonDAO();
-		PersonController personController = new PersonController(personDao);
+		PersonDAO personDao = (snapshot != null) ? new SnapshotPersonDAO(snapshot) : new PersonDAO();
+		if (options.getEntityCacheSize() > 0) {
+			personDao.setPersonCache(new EntityCache<>(options.getEntityCacheSize()));
+		}
+		if (options.isNameIndex()) {
+			try {
+				personDao.setNameAutocompleteIndex(personDao.buildNameAutocompleteIndex());
+			} catch (SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not build the name index, falling back to SQL", e);
+			}
+		}
+		if (options.isCoStarGraph()) {
+			try {
+				personDao.setCoStarGraph(personDao.buildCoStarGraph());
+			} catch (SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not build the co-star graph, deferring to the first request", e);
+			}
+		}
+		if (metrics != null) {
+			personDao = new TimedPersonDAO(personDao, metrics);
+		}
+		PersonController personController = new PersonController(personDao, streaming);
+
+		ConditionalGet conditionalGet = null;
+		DataVersion version = null;
+		if (options.isEtags()) {
+			version = (snapshot != null) ? DataVersion.fixed(snapshot.getVersion())
+					: DataVersion.forDatabase(Database.getInstance(), options.getDataVersionCheckMillis());
+			conditionalGet = new ConditionalGet(version);
+			app.after(conditionalGet::dropOnError);
+		}
+		ResponseCache responseCache = null;
+		if (options.getResponseCacheMegabytes() > 0) {
+			responseCache = new ResponseCache(options.getResponseCacheMegabytes() * 1024L * 1024L,
+					options.getResponseCacheTtlMillis(), options.getResponseCacheStaleMillis(),
+					options.isResponseCacheGzip());
+			// a cached body must not go out with the ETag of newer data
+			responseCache.setDataVersion(version);
+		}
+		if (compression != null) {
+			app.after(compression::compressResult);
+		}
+		if (metrics != null) {
+			registerGauges(metrics, (snapshot == null) ? Database.getInstance().getPool() : null, dbExecutor,
+					responseCache, movieDao.getMovieCache(), personDao.getPersonCache());
+			// the last after handler, so that the time spent in the others counts
+			app.after(metrics::recordRequest);
+			app.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4; charset=utf-8")
+					.result(metrics.scrape()));
+		}
+		if (slowQueryLog != null && options.getAdminPort() > 0) {
+			AdminController adminController = new AdminController(slowQueryLog, options.getAdminPort());
+			app.get("/admin/slow-queries", adminController.onAdminPort(adminController::getSlowQueries));
+		}
+		Routes routes = new Routes(app, options, dbExecutor, conditionalGet, responseCache, compression, metrics);
 
 		/**
 		 * Below are the routes for the application.
@@ -50,17 +259,149 @@ public class AppConfig {
 		 * pattern matched in the order they are defined.
 		 * Only uncomment the routes for the functionality you have implemented.
 		 */
-		app.get("/movies/ratings/{year}", movieController::getRatingsByYear);
-		app.get("/movies", movieController::getAllMovies);
-		app.get("/movies/{id}", movieController::getMovieById);
-		app.get("/movies/{id}/stars", movieController::getPeopleByMovieId);
+		routes.get("/movies/ratings/{year}", movieController::getRatingsByYear);
+		routes.get("/movies", movieController::getAllMovies);
+		routes.get("/movies/search", movieController::searchMovies);
+		routes.get("/movies/{id}", movieController::getMovieById);
+		routes.get("/movies/{id}/stars", movieController::getPeopleByMovieId);
 
-		app.get("/people", personController::getAllPeople);
-		app.get("/people/{id}", personController::getPersonById);
-		app.get("/people/{id}/movies", personController::getMoviesStarringPerson);
+		routes.get("/people", personController::getAllPeople);
+		routes.get("/people/autocomplete", personController::autocomplete);
+		routes.get("/people/{id}", personController::getPersonById);
+		routes.get("/people/{id}/movies", personController::getMoviesStarringPerson);
+		routes.get("/people/{id}/path/{otherId}", personController::getPath);
 
 		return app;
 
 	}
 
-}
\ No newline at end of file
+	private static ServerConnector connector(Server server, HttpConfiguration httpConfig, String host, int port) {
+		ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(httpConfig));
+		connector.setHost(host);
+		connector.setPort(port);
+		return connector;
+	}
+
+	/**
+	 * Exposes the stats the server's parts already keep, for whichever of
+	 * them are switched on.
+	 */
+	private static void registerGauges(Metrics metrics, ConnectionPool pool, DbExecutor dbExecutor,
+			ResponseCache responseCache, EntityCache<?> movieCache, EntityCache<?> personCache) {
+		if (pool != null) {
+			metrics.gauge("flickfinder_db_connections", "Connections in the pool, by state.", pool::getActiveCount,
+					"state", "active");
+			metrics.gauge("flickfinder_db_connections", "Connections in the pool, by state.", pool::getIdleCount,
+					"state", "idle");
+			metrics.gauge("flickfinder_db_connection_waiters", "Threads waiting for a connection.",
+					pool::getWaitingCount);
+			metrics.counter("flickfinder_db_connection_leaks_total", "Borrows held past the leak detection threshold.",
+					pool::getLeakCount);
+		}
+		if (dbExecutor != null) {
+			metrics.gauge("flickfinder_db_executor_active", "Handlers running on the DB executor.",
+					dbExecutor::getActiveCount);
+			metrics.gauge("flickfinder_db_executor_queued", "Handlers waiting for the DB executor.",
+					dbExecutor::getQueuedCount);
+			metrics.counter("flickfinder_db_executor_rejected_total", "Requests turned away with 503.",
+					dbExecutor::getRejectedCount);
+		}
+		if (responseCache != null) {
+			String help = "Requests looked up in the response cache, by result.";
+			metrics.counter("flickfinder_response_cache_requests_total", help, responseCache::getHitCount, "result",
+					"hit");
+			metrics.counter("flickfinder_response_cache_requests_total", help, responseCache::getStaleHitCount,
+					"result", "stale");
+			metrics.counter("flickfinder_response_cache_requests_total", help, responseCache::getMissCount, "result",
+					"miss");
+			metrics.counter("flickfinder_response_cache_refreshes_total", "Background refreshes started.",
+					responseCache::getRefreshCount);
+			metrics.counter("flickfinder_response_cache_evictions_total", "Responses dropped to stay in budget.",
+					responseCache::getEvictionCount);
+			metrics.gauge("flickfinder_response_cache_bytes", "Memory used by cached responses.",
+					responseCache::getUsedBytes);
+		}
+		entityCacheGauges(metrics, "movies", movieCache);
+		entityCacheGauges(metrics, "people", personCache);
+	}
+
+	private static void entityCacheGauges(Metrics metrics, String name, EntityCache<?> cache) {
+		if (cache == null) {
+			return;
+		}
+		String help = "Lookups in an entity cache, by cache and result.";
+		metrics.counter("flickfinder_entity_cache_requests_total", help, cache::getHitCount, "cache", name, "result",
+				"hit");
+		metrics.counter("flickfinder_entity_cache_requests_total", help, cache::getMissCount, "cache", name, "result",
+				"miss");
+		metrics.counter("flickfinder_entity_cache_evictions_total", "Entries dropped from an entity cache.",
+				cache::getEvictionCount, "cache", name);
+		metrics.gauge("flickfinder_entity_cache_size", "Entries in an entity cache.", cache::size, "cache", name);
+	}
+
+	/**
+	 * Registers GET routes, wrapped in whatever the options switch on: the
+	 * conditional check comes first and then the response cache, so neither a
+	 * 304 nor a cache hit waits for the DB executor. Compression picks the
+	 * coding before any of them run, and the timing of a request starts
+	 * before everything else.
+	 */
+	private static final class Routes {
+
+		private final Javalin app;
+
+		private final ServerOptions options;
+
+		private final DbExecutor dbExecutor;
+
+		private final ConditionalGet conditionalGet;
+
+		private final ResponseCache responseCache;
+
+		private final Compression compression;
+
+		private final Metrics metrics;
+
+		Routes(Javalin app, ServerOptions options, DbExecutor dbExecutor, ConditionalGet conditionalGet,
+				ResponseCache responseCache, Compression compression, Metrics metrics) {
+			this.app = app;
+			this.options = options;
+			this.dbExecutor = dbExecutor;
+			this.conditionalGet = conditionalGet;
+			this.responseCache = responseCache;
+			this.compression = compression;
+			this.metrics = metrics;
+		}
+
+		void get(String path, Handler handler) {
+			if (responseCache != null) {
+				handler = responseCache.render(handler);
+			}
+			if (dbExecutor != null) {
+				handler = dbExecutor.offload(handler);
+			}
+			if (responseCache != null) {
+				handler = responseCache.serve(handler);
+			}
+			String cacheControl = options.getCacheControl(path);
+			if (conditionalGet != null) {
+				handler = conditionalGet.wrap(handler, cacheControl);
+			} else if (cacheControl != null) {
+				Handler inner = handler;
+				handler = ctx -> {
+					ctx.header("Cache-Control", cacheControl);
+					inner.handle(ctx);
+				};
+			}
+			if (compression != null) {
+				handler = compression.wrap(handler, options.getGzipLevel(path), options.getBrotliLevel(path));
+			}
+			if (metrics != null) {
+				handler = metrics.wrap(handler, path);
+			}
+			app.get(path, handler);
+		}
+
+	}
+
+}
@@ -1,6 +1,15 @@
 package com.flickfinder;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+import com.flickfinder.snapshot.SnapshotWriter;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.PoolConfig;
+import com.flickfinder.util.SchemaOptimizer;
 
 /**
  * Entry point of the application.
@@ -17,19 +26,52 @@ public class Main {
      * Set up a Javalin server and the database.
      * 
      * @param args The command line arguments.
+     * @throws SQLException if the connection pool cannot be opened.
+     * @throws IOException  if the snapshot cannot be written.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws SQLException, IOException {
 
         // This gives us a path to the database file, which is in the resources folder.
         final String dbPath = "src/main/resources/movies.db";
 
+        /**
+         * Before anything reads the database, create any indexes the DAOs
+         * need that it is missing and refresh the planner statistics. This
+         * does nothing on a database that has them already; run with
+         * -Dflickfinder.optimizeSchema=false to skip it.
+         */
+        if (!"false".equals(System.getProperty("flickfinder.optimizeSchema"))) {
+            SchemaOptimizer.optimize("jdbc:sqlite:" + dbPath);
+        }
+
         /**
          * This sets up the database connection and starts the server.
          * In this case, we are using a connection string to connect to the database.
          * For testing, we are using an in-memory database.
+         * Run with -Dflickfinder.pool=true to serve requests from a pool of
+         * read-only connections instead of a single shared one. Streaming
+         * needs the pool, so it is on by default with -Dflickfinder.streaming.
+         */
+        ServerOptions options = ServerOptions.fromSystemProperties();
+        if (Boolean.parseBoolean(
+                System.getProperty("flickfinder.pool", Boolean.toString(options.isStreamingJson())))) {
+            Database.getPooledInstance("jdbc:sqlite:" + dbPath, PoolConfig.fromSystemProperties());
+        } else {
+            Database.getInstance("jdbc:sqlite:" + dbPath);
+        }
+        /**
+         * Run with -Dflickfinder.snapshot=<file> to serve every request from a
+         * memory-mapped snapshot of the database. The snapshot is exported
+         * first if the file does not exist yet; delete it to export a fresh one.
          */
-        Database.getInstance("jdbc:sqlite:" + dbPath);
+        String snapshotPath = System.getProperty("flickfinder.snapshot");
+        if (snapshotPath != null) {
+            Path snapshot = Paths.get(snapshotPath);
+            if (!Files.exists(snapshot)) {
+                new SnapshotWriter(Database.getInstance()).write(snapshot);
+            }
+        }
         // start the server
-        AppConfig.startServer(port);
+        AppConfig.startServer(port, options);
     }
 }
\ No newline at end of file
@@ -0,0 +1,520 @@
+package com.flickfinder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The optional features of the server that {@link AppConfig} can switch on.
+ * Everything is off by default, which gives the original behaviour.
+ * 
+ */
+public class ServerOptions {
+
+	/**
+	 * Whether list endpoints stream JSON straight from the database cursor.
+	 * A streamed response holds its database connection until the client has
+	 * read the last row, so this needs a connection pool with room for more
+	 * than one connection; on the single shared connection the server falls
+	 * back to buffered responses.
+	 */
+	private boolean streamingJson;
+
+	/**
+	 * How many movies and how many people to cache by id. Zero turns the
+	 * caches off.
+	 */
+	private int entityCacheSize;
+
+	/**
+	 * Whether to build the in-memory ratings index at startup and answer
+	 * /movies/ratings/{year} from it.
+	 */
+	private boolean ratingsIndex;
+
+	/**
+	 * Whether to build the in-memory trigram index over movie titles at
+	 * startup and answer /movies/search from it. On by default, as without it
+	 * every search scans the movies table.
+	 */
+	private boolean titleSearchIndex = true;
+
+	/**
+	 * Whether to build the in-memory name prefix index at startup and answer
+	 * /people/autocomplete from it. On by default, as without it every
+	 * keystroke runs a leading-wildcard LIKE and counts the stars table.
+	 */
+	private boolean nameIndex = true;
+
+	/**
+	 * Whether to build the co-star graph behind /people/{id}/path/{otherId}
+	 * at startup rather than on the first request.
+	 */
+	private boolean coStarGraph;
+
+	/**
+	 * The snapshot file to serve every request from instead of the database,
+	 * or null to use the database.
+	 */
+	private String snapshotPath;
+
+	/**
+	 * The directory of year-partitioned shards to read movies from, as
+	 * written by ShardSplitter, or null to read them from the database.
+	 */
+	private String shardDir;
+
+	/**
+	 * Whether Jetty runs each request on its own virtual thread instead of a
+	 * bounded pool of platform threads. Needs Java 21.
+	 */
+	private boolean virtualThreads;
+
+	/**
+	 * How many threads run the database-bound handlers, off Jetty's request
+	 * threads. Zero runs them on the request threads.
+	 */
+	private int dbThreads;
+
+	/**
+	 * How many requests may wait for a DB executor thread before new ones are
+	 * rejected with 503.
+	 */
+	private int dbQueueSize = 256;
+
+	/**
+	 * The Retry-After, in seconds, sent with a 503 when the DB executor is
+	 * full.
+	 */
+	private int retryAfterSeconds = 1;
+
+	/**
+	 * Whether to send ETags derived from the data version and answer
+	 * If-None-Match with 304.
+	 */
+	private boolean etags;
+
+	/**
+	 * How often, in milliseconds, the data version behind the ETags is read
+	 * from the database.
+	 */
+	private long dataVersionCheckMillis = 1000;
+
+	/**
+	 * The Cache-Control header for every route without one of its own, or
+	 * null for none.
+	 */
+	private String defaultCacheControl;
+
+	/**
+	 * The Cache-Control header of each route, by route path as registered,
+	 * e.g. /movies/ratings/{year}.
+	 */
+	private Map<String, String> cacheControl = new HashMap<>();
+
+	/**
+	 * The memory budget of the rendered response cache in megabytes, or 0 to
+	 * switch it off.
+	 */
+	private int responseCacheMegabytes;
+
+	/**
+	 * How long a cached response is served before it is refreshed.
+	 */
+	private long responseCacheTtlMillis = 60_000;
+
+	/**
+	 * How much longer a cached response may be served while it is refreshed
+	 * in the background.
+	 */
+	private long responseCacheStaleMillis = 60_000;
+
+	/**
+	 * Whether cached responses are also kept gzipped.
+	 */
+	private boolean responseCacheGzip;
+
+	/**
+	 * Whether the model classes are written by the hand-written serializers
+	 * instead of Jackson's reflective bean serializers.
+	 */
+	private boolean fastJson;
+
+	/**
+	 * Whether responses are compressed with brotli or gzip by the server's
+	 * own compression instead of Javalin's.
+	 */
+	private boolean compression;
+
+	/**
+	 * The smallest response body worth compressing, in bytes.
+	 */
+	private int compressionMinBytes = 1024;
+
+	/**
+	 * The gzip level of every route without one of its own, or -1 for no
+	 * gzip.
+	 */
+	private int defaultGzipLevel = 6;
+
+	/**
+	 * The brotli quality of every route without one of its own, or -1 for no
+	 * brotli.
+	 */
+	private int defaultBrotliLevel = 4;
+
+	/**
+	 * The gzip level of each route, by route path as registered.
+	 */
+	private Map<String, Integer> gzipLevels = new HashMap<>();
+
+	/**
+	 * The brotli quality of each route, by route path as registered.
+	 */
+	private Map<String, Integer> brotliLevels = new HashMap<>();
+
+	/**
+	 * Whether requests, DAO calls and JSON serialization are timed and served
+	 * at /metrics for Prometheus.
+	 */
+	private boolean metrics;
+
+	/**
+	 * How long a statement may take before it is logged with its query plan,
+	 * in milliseconds, or -1 to not time statements.
+	 */
+	private long slowQueryMillis = -1;
+
+	/**
+	 * The port the /admin endpoints answer on, which listens on the loopback
+	 * interface only, or 0 for no admin endpoints. They report the parameters
+	 * of user queries, so they are never served on the public port.
+	 */
+	private int adminPort;
+
+	/**
+	 * Reads the options from system properties, e.g.
+	 * -Dflickfinder.streaming=true or -Dflickfinder.entityCacheSize=100000.
+	 * 
+	 * @return the server options
+	 */
+	public static ServerOptions fromSystemProperties() {
+		ServerOptions options = new ServerOptions();
+		options.setStreamingJson(Boolean.getBoolean("flickfinder.streaming"));
+		options.setEntityCacheSize(Integer.getInteger("flickfinder.entityCacheSize", 0));
+		options.setRatingsIndex(Boolean.getBoolean("flickfinder.ratingsIndex"));
+		options.setTitleSearchIndex(!"false".equals(System.getProperty("flickfinder.searchIndex")));
+		options.setNameIndex(!"false".equals(System.getProperty("flickfinder.nameIndex")));
+		options.setCoStarGraph(Boolean.getBoolean("flickfinder.coStarGraph"));
+		options.setSnapshotPath(System.getProperty("flickfinder.snapshot"));
+		options.setShardDir(System.getProperty("flickfinder.shards"));
+		options.setVirtualThreads(Boolean.getBoolean("flickfinder.virtualThreads"));
+		options.setDbThreads(Integer.getInteger("flickfinder.dbThreads", 0));
+		options.setDbQueueSize(Integer.getInteger("flickfinder.dbQueue", options.getDbQueueSize()));
+		options.setRetryAfterSeconds(Integer.getInteger("flickfinder.retryAfter", options.getRetryAfterSeconds()));
+		options.setEtags(Boolean.getBoolean("flickfinder.etags"));
+		options.setDataVersionCheckMillis(
+				Long.getLong("flickfinder.dataVersionCheckMs", options.getDataVersionCheckMillis()));
+		// -Dflickfinder.cacheControl=... for every route, or
+		// -Dflickfinder.cacheControl./movies/{id}=... for one
+		options.setDefaultCacheControl(System.getProperty("flickfinder.cacheControl"));
+		forEachRoute("flickfinder.cacheControl.", options::setCacheControl);
+		options.setResponseCacheMegabytes(Integer.getInteger("flickfinder.responseCacheMb", 0));
+		options.setResponseCacheTtlMillis(
+				Long.getLong("flickfinder.responseCacheTtlMs", options.getResponseCacheTtlMillis()));
+		options.setResponseCacheStaleMillis(
+				Long.getLong("flickfinder.responseCacheStaleMs", options.getResponseCacheStaleMillis()));
+		options.setResponseCacheGzip(Boolean.getBoolean("flickfinder.responseCacheGzip"));
+		options.setFastJson(Boolean.getBoolean("flickfinder.fastJson"));
+		options.setCompression(Boolean.getBoolean("flickfinder.compression"));
+		options.setCompressionMinBytes(
+				Integer.getInteger("flickfinder.compressionMinBytes", options.getCompressionMinBytes()));
+		options.setDefaultGzipLevel(Integer.getInteger("flickfinder.gzipLevel", options.getDefaultGzipLevel()));
+		options.setDefaultBrotliLevel(Integer.getInteger("flickfinder.brotliLevel", options.getDefaultBrotliLevel()));
+		forEachRoute("flickfinder.gzipLevel.", (route, level) -> options.setGzipLevel(route, Integer.parseInt(level)));
+		forEachRoute("flickfinder.brotliLevel.",
+				(route, level) -> options.setBrotliLevel(route, Integer.parseInt(level)));
+		options.setMetrics(Boolean.getBoolean("flickfinder.metrics"));
+		options.setSlowQueryMillis(Long.getLong("flickfinder.slowQueryMs", options.getSlowQueryMillis()));
+		options.setAdminPort(Integer.getInteger("flickfinder.adminPort", 0));
+		return options;
+	}
+
+	/**
+	 * Passes each system property named prefix + route path to an action,
+	 * e.g. flickfinder.cacheControl./movies/{id}.
+	 */
+	private static void forEachRoute(String prefix, BiConsumer<String, String> action) {
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(prefix)) {
+				action.accept(name.substring(prefix.length()), System.getProperty(name));
+			}
+		}
+	}
+
+	public boolean isStreamingJson() {
+		return streamingJson;
+	}
+
+	public void setStreamingJson(boolean streamingJson) {
+		this.streamingJson = streamingJson;
+	}
+
+	public int getEntityCacheSize() {
+		return entityCacheSize;
+	}
+
+	public void setEntityCacheSize(int entityCacheSize) {
+		this.entityCacheSize = entityCacheSize;
+	}
+
+	public boolean isRatingsIndex() {
+		return ratingsIndex;
+	}
+
+	public void setRatingsIndex(boolean ratingsIndex) {
+		this.ratingsIndex = ratingsIndex;
+	}
+
+	public boolean isTitleSearchIndex() {
+		return titleSearchIndex;
+	}
+
+	public void setTitleSearchIndex(boolean titleSearchIndex) {
+		this.titleSearchIndex = titleSearchIndex;
+	}
+
+	public boolean isNameIndex() {
+		return nameIndex;
+	}
+
+	public void setNameIndex(boolean nameIndex) {
+		this.nameIndex = nameIndex;
+	}
+
+	public boolean isCoStarGraph() {
+		return coStarGraph;
+	}
+
+	public void setCoStarGraph(boolean coStarGraph) {
+		this.coStarGraph = coStarGraph;
+	}
+
+	public String getSnapshotPath() {
+		return snapshotPath;
+	}
+
+	public void setSnapshotPath(String snapshotPath) {
+		this.snapshotPath = snapshotPath;
+	}
+
+	public String getShardDir() {
+		return shardDir;
+	}
+
+	public void setShardDir(String shardDir) {
+		this.shardDir = shardDir;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	public int getDbThreads() {
+		return dbThreads;
+	}
+
+	public void setDbThreads(int dbThreads) {
+		this.dbThreads = dbThreads;
+	}
+
+	public int getDbQueueSize() {
+		return dbQueueSize;
+	}
+
+	public void setDbQueueSize(int dbQueueSize) {
+		this.dbQueueSize = dbQueueSize;
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	public void setRetryAfterSeconds(int retryAfterSeconds) {
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public boolean isEtags() {
+		return etags;
+	}
+
+	public void setEtags(boolean etags) {
+		this.etags = etags;
+	}
+
+	public long getDataVersionCheckMillis() {
+		return dataVersionCheckMillis;
+	}
+
+	public void setDataVersionCheckMillis(long dataVersionCheckMillis) {
+		this.dataVersionCheckMillis = dataVersionCheckMillis;
+	}
+
+	public String getDefaultCacheControl() {
+		return defaultCacheControl;
+	}
+
+	public void setDefaultCacheControl(String defaultCacheControl) {
+		this.defaultCacheControl = defaultCacheControl;
+	}
+
+	/**
+	 * Returns the Cache-Control header of a route, falling back to the
+	 * default.
+	 *
+	 * @param route the route path as registered, e.g. /movies/{id}
+	 * @return the header value, or null for none
+	 */
+	public String getCacheControl(String route) {
+		return cacheControl.getOrDefault(route, defaultCacheControl);
+	}
+
+	/**
+	 * Sets the Cache-Control header of one route.
+	 *
+	 * @param route the route path as registered, e.g. /movies/{id}
+	 * @param value the header value
+	 */
+	public void setCacheControl(String route, String value) {
+		cacheControl.put(route, value);
+	}
+
+	public int getResponseCacheMegabytes() {
+		return responseCacheMegabytes;
+	}
+
+	public void setResponseCacheMegabytes(int responseCacheMegabytes) {
+		this.responseCacheMegabytes = responseCacheMegabytes;
+	}
+
+	public long getResponseCacheTtlMillis() {
+		return responseCacheTtlMillis;
+	}
+
+	public void setResponseCacheTtlMillis(long responseCacheTtlMillis) {
+		this.responseCacheTtlMillis = responseCacheTtlMillis;
+	}
+
+	public long getResponseCacheStaleMillis() {
+		return responseCacheStaleMillis;
+	}
+
+	public void setResponseCacheStaleMillis(long responseCacheStaleMillis) {
+		this.responseCacheStaleMillis = responseCacheStaleMillis;
+	}
+
+	public boolean isResponseCacheGzip() {
+		return responseCacheGzip;
+	}
+
+	public void setResponseCacheGzip(boolean responseCacheGzip) {
+		this.responseCacheGzip = responseCacheGzip;
+	}
+
+	public boolean isFastJson() {
+		return fastJson;
+	}
+
+	public void setFastJson(boolean fastJson) {
+		this.fastJson = fastJson;
+	}
+
+	public boolean isCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public int getCompressionMinBytes() {
+		return compressionMinBytes;
+	}
+
+	public void setCompressionMinBytes(int compressionMinBytes) {
+		this.compressionMinBytes = compressionMinBytes;
+	}
+
+	public int getDefaultGzipLevel() {
+		return defaultGzipLevel;
+	}
+
+	public void setDefaultGzipLevel(int defaultGzipLevel) {
+		this.defaultGzipLevel = defaultGzipLevel;
+	}
+
+	public int getDefaultBrotliLevel() {
+		return defaultBrotliLevel;
+	}
+
+	public void setDefaultBrotliLevel(int defaultBrotliLevel) {
+		this.defaultBrotliLevel = defaultBrotliLevel;
+	}
+
+	/**
+	 * Returns the gzip level of a route, falling back to the default.
+	 *
+	 * @param route the route path as registered, e.g. /movies/{id}
+	 * @return the level, or -1 for no gzip
+	 */
+	public int getGzipLevel(String route) {
+		return gzipLevels.getOrDefault(route, defaultGzipLevel);
+	}
+
+	public void setGzipLevel(String route, int level) {
+		gzipLevels.put(route, level);
+	}
+
+	/**
+	 * Returns the brotli quality of a route, falling back to the default.
+	 *
+	 * @param route the route path as registered, e.g. /movies/{id}
+	 * @return the quality, or -1 for no brotli
+	 */
+	public int getBrotliLevel(String route) {
+		return brotliLevels.getOrDefault(route, defaultBrotliLevel);
+	}
+
+	public void setBrotliLevel(String route, int level) {
+		brotliLevels.put(route, level);
+	}
+
+	public boolean isMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(boolean metrics) {
+		this.metrics = metrics;
+	}
+
+	public long getSlowQueryMillis() {
+		return slowQueryMillis;
+	}
+
+	public void setSlowQueryMillis(long slowQueryMillis) {
+		this.slowQueryMillis = slowQueryMillis;
+	}
+
+	public int getAdminPort() {
+		return adminPort;
+	}
+
+	public void setAdminPort(int adminPort) {
+		this.adminPort = adminPort;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.flickfinder.controller;
+
+import com.flickfinder.util.SlowQueryLog;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Endpoints for looking into the running server, under /admin.
+ *
+ * What they report, such as the parameters of slow queries, can include what
+ * users searched for, so they only answer requests that came in on the
+ * admin port, which listens on the loopback interface. On any other port
+ * they are a 404, as if they did not exist.
+ *
+ */
+public class AdminController {
+
+	private final SlowQueryLog slowQueryLog;
+
+	private final int adminPort;
+
+	/**
+	 * Constructs an AdminController.
+	 *
+	 * @param slowQueryLog the slow query log to report on
+	 * @param adminPort    the local port admin requests must come in on
+	 */
+	public AdminController(SlowQueryLog slowQueryLog, int adminPort) {
+		this.slowQueryLog = slowQueryLog;
+		this.adminPort = adminPort;
+	}
+
+	/**
+	 * Wraps an endpoint so that it only answers on the admin port.
+	 *
+	 * @param handler the endpoint, e.g. {@link #getSlowQueries(Context)}
+	 * @return the wrapped handler
+	 */
+	public Handler onAdminPort(Handler handler) {
+		return ctx -> {
+			// the port the connection was accepted on, not the Host header's
+			if (ctx.req().getLocalPort() != adminPort) {
+				ctx.status(HttpStatus.NOT_FOUND).result("Not found");
+				return;
+			}
+			handler.handle(ctx);
+		};
+	}
+
+	/**
+	 * Returns the SQL texts whose slowest execution took longest, slowest
+	 * first, each with its query plan, how often it was slow, its mean and
+	 * worst times and the parameters of the worst. Use ?limit= for how many,
+	 * 10 by default.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getSlowQueries(Context ctx) {
+		String limitParam = ctx.queryParam("limit");
+		int limit = 10;
+		if (limitParam != null) {
+			try {
+				limit = Integer.parseInt(limitParam);
+			} catch (NumberFormatException e) {
+				limit = 0;
+			}
+			if (limit < 1) {
+				ctx.status(400).result("Limit must be an integer greater than 0");
+				return;
+			}
+		}
+		ctx.json(slowQueryLog.top(limit));
+	}
+
+}
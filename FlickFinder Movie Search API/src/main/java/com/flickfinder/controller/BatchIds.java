@@ -0,0 +1,39 @@
+package com.flickfinder.controller;
+
+/**
+ * Parses the {@code ?ids=} parameter of the batch lookups, e.g.
+ * {@code /movies?ids=1,2,3}, which let a client fetch a whole list of
+ * entities in one request instead of one request per id.
+ *
+ */
+final class BatchIds {
+
+	/**
+	 * The most ids a single request may ask for.
+	 */
+	static final int MAX_IDS = 500;
+
+	private BatchIds() {
+	}
+
+	/**
+	 * Parses a comma separated list of ids.
+	 *
+	 * @param param the value of the ids parameter
+	 * @return the ids, in the order given
+	 * @throws IllegalArgumentException if an id is not an integer, or there
+	 *                                  are none or more than MAX_IDS
+	 */
+	static int[] parse(String param) {
+		String[] parts = param.split(",", -1);
+		if (param.isBlank() || parts.length > MAX_IDS) {
+			throw new IllegalArgumentException("Between 1 and " + MAX_IDS + " ids must be given");
+		}
+		int[] ids = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			ids[i] = Integer.parseInt(parts[i].trim());
+		}
+		return ids;
+	}
+
+}
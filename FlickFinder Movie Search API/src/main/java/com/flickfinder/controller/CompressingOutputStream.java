@@ -0,0 +1,85 @@
+package com.flickfinder.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+/**
+ * The output stream of a streamed response that may be compressed.
+ *
+ * The first bytes are held back until there are more than the minimum size
+ * for compression. If the response ends before that it is sent as it is;
+ * otherwise the Content-Encoding header is set and everything from then on
+ * goes through the compressor, so a chunked response is compressed as it is
+ * written. The response headers must not have been sent before the first
+ * write.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+	private final Context ctx;
+
+	private final Compression.Coding coding;
+
+	private byte[] pending;
+
+	private int count;
+
+	private OutputStream target;
+
+	CompressingOutputStream(Context ctx, Compression.Coding coding) {
+		this.ctx = ctx;
+		this.coding = coding;
+		this.pending = new byte[coding.minSize()];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (target == null) {
+			if (count + len <= pending.length) {
+				System.arraycopy(b, off, pending, count, len);
+				count += len;
+				return;
+			}
+			ctx.header(Header.CONTENT_ENCODING, coding.name());
+			ConditionalGet.tagCoding(ctx, coding.name());
+			target = coding.open(ctx.outputStream());
+			target.write(pending, 0, count);
+			pending = null;
+		}
+		target.write(b, off, len);
+	}
+
+	/**
+	 * Passes a flush on once compression has started; until then the bytes
+	 * are held back to decide whether to compress.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (target != null) {
+			target.flush();
+		}
+	}
+
+	/**
+	 * Ends the compressed data, or writes the held back bytes as they are,
+	 * without closing the response.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (target != null) {
+			target.close();
+			target = null;
+		} else if (pending != null) {
+			ctx.outputStream().write(pending, 0, count);
+			pending = null;
+		}
+	}
+
+}
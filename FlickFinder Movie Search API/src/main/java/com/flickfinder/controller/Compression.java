@@ -0,0 +1,274 @@
+package com.flickfinder.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+
+/**
+ * Compresses responses with brotli or gzip, whichever the client prefers in
+ * its Accept-Encoding header.
+ *
+ * Each route is wrapped with {@link #wrap(Handler, int, int)} and its own
+ * compression levels, which picks the coding for the request. A response
+ * rendered in one go is compressed afterwards by
+ * {@link #compressResult(Context)}, registered as an after handler so that it
+ * also sees responses rendered on the DB executor. A streamed response is
+ * compressed as it is written; see {@link #outputStream(Context)}. Responses
+ * smaller than the minimum size are sent as they are.
+ *
+ * Gzip deflaters are pooled and reused. Brotli encoders hold native state
+ * that cannot be reset, so one is made for each response.
+ *
+ * A wrapped route turns Javalin's own compression off for its responses, so
+ * that they are never compressed twice or with an untagged ETag. Javalin keeps
+ * compressing everything else, such as the static files.
+ *
+ */
+public class Compression {
+
+	private static final Logger LOGGER = Logger.getLogger(Compression.class.getName());
+
+	/**
+	 * The context attribute that holds the coding picked for a request.
+	 */
+	static final String CODING_ATTRIBUTE = "flickfinder.coding";
+
+	/**
+	 * How many idle deflaters to keep for each level.
+	 */
+	private static final int POOLED_DEFLATERS = 32;
+
+	private final int minSize;
+
+	private final boolean brotli;
+
+	private final DeflaterPool deflaters = new DeflaterPool(POOLED_DEFLATERS);
+
+	/**
+	 * The coding and level picked for a response, and how to compress with
+	 * them.
+	 */
+	final class Coding {
+
+		private final String name;
+
+		private final int level;
+
+		Coding(String name, int level) {
+			this.name = name;
+			this.level = level;
+		}
+
+		/**
+		 * Returns the name of the coding, for the Content-Encoding header.
+		 */
+		String name() {
+			return name;
+		}
+
+		/**
+		 * Returns the smallest body worth compressing.
+		 */
+		int minSize() {
+			return minSize;
+		}
+
+		/**
+		 * Opens a compressing stream; closing it ends the compressed data
+		 * without closing the target.
+		 */
+		OutputStream open(OutputStream target) throws IOException {
+			if (name.equals("br")) {
+				return new BrotliOutputStream(new KeepOpen(target), new Encoder.Parameters().setQuality(level));
+			}
+			return new PooledGzipOutputStream(target, deflaters, level);
+		}
+
+	}
+
+	/**
+	 * Creates the compression of a server.
+	 *
+	 * @param minSize the smallest response body to compress, in bytes
+	 * @param brotli  whether to offer brotli; it is left out with a warning if
+	 *                its native library cannot be loaded
+	 */
+	public Compression(int minSize, boolean brotli) {
+		this.minSize = minSize;
+		if (brotli && !Brotli4jLoader.isAvailable()) {
+			LOGGER.log(Level.WARNING, "Brotli is not available on this platform, falling back to gzip",
+					Brotli4jLoader.getUnavailabilityCause());
+			brotli = false;
+		}
+		this.brotli = brotli;
+	}
+
+	/**
+	 * Wraps a route's handler so that its responses are compressed here and
+	 * not by Javalin.
+	 *
+	 * @param handler     the handler
+	 * @param gzipLevel   the gzip level for the route, 1 to 9, or negative to
+	 *                    not use gzip
+	 * @param brotliLevel the brotli quality for the route, 0 to 11, or negative
+	 *                    to not use brotli
+	 * @return the wrapped handler
+	 */
+	public Handler wrap(Handler handler, int gzipLevel, int brotliLevel) {
+		if (gzipLevel > 9 || brotliLevel > 11) {
+			throw new IllegalArgumentException("Compression level out of range");
+		}
+		boolean useGzip = gzipLevel >= 0;
+		boolean useBrotli = brotli && brotliLevel >= 0;
+		if (!useGzip && !useBrotli) {
+			return ctx -> {
+				ctx.minSizeForCompression(Integer.MAX_VALUE);
+				handler.handle(ctx);
+			};
+		}
+		return ctx -> {
+			ctx.minSizeForCompression(Integer.MAX_VALUE);
+			ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+			String acceptEncoding = ctx.header(Header.ACCEPT_ENCODING);
+			double br = useBrotli ? quality(acceptEncoding, "br") : 0;
+			double gzip = useGzip ? quality(acceptEncoding, "gzip") : 0;
+			// brotli compresses JSON better, so it wins a tie
+			if (br > 0 && br >= gzip) {
+				ctx.attribute(CODING_ATTRIBUTE, new Coding("br", brotliLevel));
+			} else if (gzip > 0) {
+				ctx.attribute(CODING_ATTRIBUTE, new Coding("gzip", gzipLevel));
+			}
+			handler.handle(ctx);
+		};
+	}
+
+	/**
+	 * Compresses a response that was rendered in one go, if its request
+	 * picked a coding and it is large enough. Register it as an after
+	 * handler.
+	 *
+	 * @param ctx the context
+	 * @throws IOException if the body cannot be compressed
+	 */
+	public void compressResult(Context ctx) throws IOException {
+		Coding coding = ctx.attribute(CODING_ATTRIBUTE);
+		if (coding == null || ctx.res().containsHeader(Header.CONTENT_ENCODING)) {
+			return;
+		}
+		InputStream result = ctx.resultInputStream();
+		if (result == null) {
+			return;
+		}
+		byte[] body = result.readAllBytes();
+		if (body.length < minSize) {
+			ctx.result(body);
+			return;
+		}
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (OutputStream out = coding.open(compressed)) {
+			out.write(body);
+		}
+		ctx.header(Header.CONTENT_ENCODING, coding.name());
+		ConditionalGet.tagCoding(ctx, coding.name());
+		ctx.result(compressed.toByteArray());
+	}
+
+	/**
+	 * Returns the stream a streamed response should be written to, which
+	 * compresses it if its request picked a coding. Close it once the body is
+	 * written; that does not close the response.
+	 *
+	 * @param ctx the context
+	 * @return a compressing stream, or null to write to ctx.outputStream()
+	 */
+	static OutputStream outputStream(Context ctx) {
+		Coding coding = ctx.attribute(CODING_ATTRIBUTE);
+		if (coding == null) {
+			return null;
+		}
+		return new CompressingOutputStream(ctx, coding);
+	}
+
+	/**
+	 * Returns the quality value an Accept-Encoding header gives a coding.
+	 *
+	 * @param acceptEncoding the header, or null
+	 * @param coding         the coding, e.g. gzip
+	 * @return the q value of the coding, or of * if it is not named; 0 if
+	 *         neither is accepted
+	 */
+	static double quality(String acceptEncoding, String coding) {
+		if (acceptEncoding == null) {
+			return 0;
+		}
+		double any = 0;
+		for (String part : acceptEncoding.split(",")) {
+			String[] fields = part.split(";");
+			String name = fields[0].trim();
+			double q = 1;
+			for (int i = 1; i < fields.length; i++) {
+				String param = fields[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if (name.equalsIgnoreCase(coding)) {
+				return q;
+			}
+			if (name.equals("*")) {
+				any = q;
+			}
+		}
+		return any;
+	}
+
+	/**
+	 * Passes writes through but not close, so that brotli, which closes its
+	 * target, leaves the response open.
+	 */
+	private static final class KeepOpen extends OutputStream {
+
+		private final OutputStream out;
+
+		KeepOpen(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.flickfinder.controller;
+
+import com.flickfinder.util.DataVersion;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Answers conditional GET requests from ETags, without running the
+ * handler.
+ *
+ * The ETag of a response is a hash of the current data version, the request
+ * path and the query parameters, sorted by name. As long as the data has not
+ * changed, the same request always gets the same ETag, so a client that
+ * sends it back in If-None-Match gets 304 Not Modified before any query runs
+ * or any JSON is written.
+ *
+ * A response sent with a Content-Encoding is a different representation
+ * from the identity one, so whatever compresses it also marks its ETag with
+ * the coding, e.g. "v1-9f2c-gzip"; see {@link #tagCoding(Context, String)}.
+ * The coding is ignored when If-None-Match is compared, since the data behind
+ * every coding is the same.
+ *
+ * Only successful responses keep their ETag and Cache-Control headers; see
+ * {@link #dropOnError(Context)}.
+ *
+ */
+public class ConditionalGet {
+
+	/**
+	 * The codings an ETag may be marked with.
+	 */
+	private static final String[] CODINGS = { "gzip", "br" };
+
+	private final DataVersion version;
+
+	public ConditionalGet(DataVersion version) {
+		this.version = version;
+	}
+
+	/**
+	 * Wraps a handler so that it only runs when the client does not already
+	 * have the response.
+	 *
+	 * @param handler      the handler
+	 * @param cacheControl the Cache-Control header to send, or null for none
+	 * @return the wrapped handler
+	 */
+	public Handler wrap(Handler handler, String cacheControl) {
+		return ctx -> {
+			String etag = etag(ctx);
+			ctx.header("ETag", etag);
+			if (cacheControl != null) {
+				ctx.header("Cache-Control", cacheControl);
+			}
+			String match = match(ctx.header("If-None-Match"), etag);
+			if (match != null) {
+				// the client's own tag, so a stored coded response keeps its ETag
+				ctx.header("ETag", match.equals("*") ? etag : match);
+				ctx.status(HttpStatus.NOT_MODIFIED);
+				return;
+			}
+			handler.handle(ctx);
+		};
+	}
+
+	/**
+	 * Removes the ETag and Cache-Control headers from a response that turned
+	 * out not to be a success, e.g. a 404. Register it as an after handler.
+	 *
+	 * @param ctx the context
+	 */
+	public void dropOnError(Context ctx) {
+		int status = ctx.statusCode();
+		if (status != HttpStatus.OK.getCode() && status != HttpStatus.NOT_MODIFIED.getCode()) {
+			ctx.res().setHeader("ETag", null);
+			ctx.res().setHeader("Cache-Control", null);
+		}
+	}
+
+	/**
+	 * Marks the ETag of a response, if it has one, with the Content-Encoding
+	 * it is about to be sent with. Call it wherever that header is set, before
+	 * the headers are sent.
+	 *
+	 * @param ctx    the context
+	 * @param coding the coding, e.g. gzip
+	 */
+	static void tagCoding(Context ctx, String coding) {
+		String etag = ctx.res().getHeader("ETag");
+		if (etag != null && etag.length() > 1 && etag.endsWith("\"")) {
+			ctx.res().setHeader("ETag", etag.substring(0, etag.length() - 1) + "-" + coding + "\"");
+		}
+	}
+
+	/**
+	 * Returns the strong ETag of the response to a request.
+	 *
+	 * @param ctx the context
+	 * @return the quoted ETag
+	 */
+	String etag(Context ctx) {
+		return "\"" + version.current() + "-" + Long.toHexString(hash(RequestKeys.of(ctx))) + "\"";
+	}
+
+	/**
+	 * Checks an If-None-Match header against an ETag, using the weak
+	 * comparison that header calls for.
+	 *
+	 * @param ifNoneMatch the header, or null
+	 * @param etag        the quoted ETag of the response
+	 * @return true if the client already has the response
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		return match(ifNoneMatch, etag) != null;
+	}
+
+	/**
+	 * Finds the tag in an If-None-Match header that matches an ETag, in any
+	 * coding.
+	 *
+	 * @param ifNoneMatch the header, or null
+	 * @param etag        the quoted ETag of the response, without a coding
+	 * @return the matching tag as the client sent it, without W/, or null
+	 */
+	static String match(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return null;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || withoutCoding(tag).equals(etag)) {
+				return tag;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the coding a tag was marked with, if any. The ETags built here
+	 * end in a hex hash, so a coding suffix cannot be confused with it.
+	 */
+	private static String withoutCoding(String tag) {
+		for (String coding : CODINGS) {
+			String suffix = "-" + coding + "\"";
+			if (tag.endsWith(suffix)) {
+				return tag.substring(0, tag.length() - suffix.length()) + "\"";
+			}
+		}
+		return tag;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the chars of the key.
+	 */
+	private static long hash(CharSequence key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.flickfinder.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+/**
+ * A bounded executor that database-bound handlers run on, so that Jetty's
+ * request threads are not held for the length of a query.
+ *
+ * A handler wrapped with {@link #offload(Handler)} is queued on one of a
+ * fixed number of threads and the request is suspended with ctx.future until
+ * it has run. When every thread is busy and the queue is full the request is
+ * turned away at once with 503 Service Unavailable and a Retry-After header,
+ * so that an overloaded server answers quickly instead of letting requests
+ * pile up behind the database.
+ *
+ */
+public class DbExecutor implements AutoCloseable {
+
+	private final ThreadPoolExecutor executor;
+
+	private final int retryAfterSeconds;
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Starts the executor's threads.
+	 *
+	 * @param threads           how many handlers may run at once
+	 * @param queueSize         how many more may wait for a thread; zero means
+	 *                          none wait
+	 * @param retryAfterSeconds the Retry-After sent with a rejection
+	 */
+	public DbExecutor(int threads, int queueSize, int retryAfterSeconds) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("A DB executor needs at least one thread");
+		}
+		if (queueSize < 0) {
+			throw new IllegalArgumentException("The DB executor queue size must not be negative");
+		}
+		BlockingQueue<Runnable> queue = (queueSize == 0) ? new SynchronousQueue<>()
+				: new ArrayBlockingQueue<>(queueSize);
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "db-executor-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, factory,
+				new ThreadPoolExecutor.AbortPolicy());
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * Wraps a handler so that it runs on this executor.
+	 *
+	 * @param handler the handler to run, e.g. a controller method
+	 * @return a handler that offloads it, or rejects the request when full
+	 */
+	public Handler offload(Handler handler) {
+		return ctx -> {
+			CompletableFuture<Void> done;
+			try {
+				done = submit(ctx, handler);
+			} catch (RejectedExecutionException e) {
+				rejected.incrementAndGet();
+				ctx.header("Retry-After", Integer.toString(retryAfterSeconds));
+				ctx.status(HttpStatus.SERVICE_UNAVAILABLE);
+				ctx.result("Server is busy, try again later");
+				return;
+			}
+			ctx.future(() -> done);
+		};
+	}
+
+	private CompletableFuture<Void> submit(Context ctx, Handler handler) {
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				handler.handle(ctx);
+				done.complete(null);
+			} catch (Throwable t) {
+				// passed on to Javalin's exception handling
+				done.completeExceptionally(t);
+			}
+		});
+		return done;
+	}
+
+	/**
+	 * Returns the number of handlers running.
+	 *
+	 * @return the number of busy threads
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of handlers waiting for a thread.
+	 *
+	 * @return the queue length
+	 */
+	public int getQueuedCount() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Returns how many requests have been turned away because the executor
+	 * was full.
+	 *
+	 * @return the number of rejections
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * Stops taking new handlers; those already queued still run.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.flickfinder.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of raw deflaters for each compression level, so that compressing a
+ * response does not allocate a new deflater and its native memory.
+ *
+ * A deflater is reset when it is given back. When the pool for its level is
+ * full it is ended instead.
+ */
+final class DeflaterPool {
+
+	private final BlockingQueue<Deflater>[] idle;
+
+	// an array of a generic type can only be created raw; every slot holds a
+	// queue of deflaters
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	DeflaterPool(int perLevel) {
+		idle = new BlockingQueue[Deflater.BEST_COMPRESSION + 1];
+		for (int level = 0; level < idle.length; level++) {
+			idle[level] = new ArrayBlockingQueue<>(perLevel);
+		}
+	}
+
+	/**
+	 * Takes an idle deflater, or makes a new one.
+	 *
+	 * @param level the compression level, 0 to 9
+	 * @return a deflater that writes raw deflate data, without a zlib header
+	 */
+	Deflater acquire(int level) {
+		Deflater deflater = idle[level].poll();
+		return (deflater != null) ? deflater : new Deflater(level, true);
+	}
+
+	/**
+	 * Gives a deflater back.
+	 *
+	 * @param deflater the deflater
+	 * @param level    the level it was acquired with
+	 */
+	void release(Deflater deflater, int level) {
+		deflater.reset();
+		if (!idle[level].offer(deflater)) {
+			deflater.end();
+		}
+	}
+
+	int idleCount(int level) {
+		return idle[level].size();
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.flickfinder.controller;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import io.javalin.http.Context;
+
+/**
+ * Parses the {@code ?include=} parameter, which asks for related data to be
+ * nested into each entity of the response, e.g.
+ * {@code /movies?include=stars,rating}.
+ *
+ */
+final class Includes {
+
+	private Includes() {
+	}
+
+	/**
+	 * Reads the include parameter.
+	 *
+	 * @param ctx     the Javalin context
+	 * @param allowed the relations the endpoint can include
+	 * @return the relations asked for, empty if there is no include parameter
+	 * @throws IllegalArgumentException if a relation is not allowed
+	 */
+	static Set<String> parse(Context ctx, Set<String> allowed) {
+		String param = ctx.queryParam("include");
+		if (param == null || param.isBlank()) {
+			return Collections.emptySet();
+		}
+		Set<String> include = new LinkedHashSet<>();
+		for (String relation : param.split(",")) {
+			String name = relation.trim();
+			if (!allowed.contains(name)) {
+				throw new IllegalArgumentException("Cannot include " + name);
+			}
+			include.add(name);
+		}
+		return include;
+	}
+
+}
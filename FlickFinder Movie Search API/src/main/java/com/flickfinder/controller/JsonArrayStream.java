@@ -0,0 +1,170 @@
+package com.flickfinder.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.metrics.TimedJsonMapper;
+
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+
+/**
+ * Writes query rows to the response as a JSON array while the database
+ * cursor advances.
+ *
+ * Nothing is collected on the heap: each row is serialised straight into the
+ * response through a Jackson JsonGenerator and then dropped. As the length of
+ * the body is not known up front, Jetty sends it with chunked transfer
+ * encoding. The response is only started when the first row arrives, so a
+ * query that returns nothing can still be answered with a 404.
+ *
+ * @param <T> the type of the rows
+ */
+final class JsonArrayStream<T> implements RowCallback<T> {
+
+	private static final Logger LOGGER = Logger.getLogger(JsonArrayStream.class.getName());
+
+	/**
+	 * Used when Javalin has been configured with a JSON mapper that is not
+	 * Jackson based.
+	 */
+	private static final ObjectMapper FALLBACK_MAPPER = JavalinJackson.defaultMapper();
+
+	/**
+	 * Streams rows into a callback, e.g. one of the DAO stream methods.
+	 */
+	@FunctionalInterface
+	interface Source<T> {
+		int stream(RowCallback<T> callback) throws SQLException, IOException;
+	}
+
+	private final Context ctx;
+
+	private JsonGenerator generator;
+
+	/**
+	 * The compressing stream the rows go through, if the response is
+	 * compressed.
+	 */
+	private OutputStream compressed;
+
+	private int count;
+
+	JsonArrayStream(Context ctx) {
+		this.ctx = ctx;
+	}
+
+	/**
+	 * Streams the rows of a source to the response.
+	 *
+	 * If the source fails before the first row, nothing has been sent and the
+	 * SQLException is passed on so the caller can answer with a 500. Once rows
+	 * have gone out the status can no longer change, so the array is left
+	 * unterminated, which the client sees as a truncated body.
+	 *
+	 * @param source         produces the rows
+	 * @param writeEmptyList whether to answer with [] when there are no rows;
+	 *                       if false nothing is written and the caller decides
+	 * @return this stream, to check whether any row was written
+	 * @throws SQLException if the source failed before any row was written
+	 */
+	JsonArrayStream<T> write(Source<T> source, boolean writeEmptyList) throws SQLException {
+		try {
+			source.stream(this);
+			if (generator != null || writeEmptyList) {
+				finish();
+			}
+		} catch (SQLException e) {
+			if (generator == null) {
+				throw e;
+			}
+			LOGGER.log(Level.SEVERE, "Query failed after streaming " + count + " rows of " + ctx.path(), e);
+			abort();
+		} catch (IOException e) {
+			// the client has most likely gone away
+			LOGGER.log(Level.FINE, "Failed to stream " + ctx.path(), e);
+			abort();
+		}
+		return this;
+	}
+
+	@Override
+	public void accept(T row) throws IOException {
+		if (generator == null) {
+			start();
+		}
+		generator.writeObject(row);
+		count++;
+	}
+
+	private void start() throws IOException {
+		ctx.status(200);
+		ctx.contentType(ContentType.APPLICATION_JSON);
+		compressed = Compression.outputStream(ctx);
+		generator = mapper(ctx).getFactory()
+				.createGenerator((compressed != null) ? compressed : ctx.outputStream());
+		// a failed stream must not be closed off into valid looking JSON
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.writeStartArray();
+	}
+
+	private void finish() throws IOException {
+		if (generator == null) {
+			start();
+		}
+		generator.writeEndArray();
+		generator.close();
+		if (compressed != null) {
+			compressed.close();
+		}
+	}
+
+	private void abort() {
+		if (generator == null) {
+			return;
+		}
+		try {
+			generator.close();
+			if (compressed != null) {
+				compressed.close();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Failed to close aborted stream", e);
+		}
+	}
+
+	/**
+	 * Returns whether any row was written.
+	 *
+	 * @return true if no rows were written
+	 */
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Returns the Jackson mapper Javalin uses, so that streamed rows are
+	 * serialised exactly like ctx.json() would. With metrics on, Javalin's
+	 * mapper is a TimedJsonMapper around it.
+	 */
+	static ObjectMapper mapper(Context ctx) {
+		JsonMapper jsonMapper = ctx.jsonMapper();
+		if (jsonMapper instanceof TimedJsonMapper) {
+			jsonMapper = ((TimedJsonMapper) jsonMapper).getMapper();
+		}
+		if (jsonMapper instanceof JavalinJackson) {
+			return ((JavalinJackson) jsonMapper).getMapper();
+		}
+		return FALLBACK_MAPPER;
+	}
+
+}
@@ -3,6 +3,7 @@ package com.flickfinder.controller;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.flickfinder.dao.MovieDAO;
 import com.flickfinder.model.Movie;
@@ -36,20 +37,67 @@ public class MovieController {
 
 	private final MovieDAO movieDAO;
 
+	/**
+	 * The relations that can be nested into movies with ?include=.
+	 */
+	private static final Set<String> INCLUDES = Set.of("stars", "rating");
+
+	/**
+	 * Whether list endpoints stream rows straight from the database cursor
+	 * into the response instead of building a list first.
+	 */
+	private final boolean streaming;
+
 	/**
 	 * Constructs a MovieController object and initializes the movieDAO.
 	 */
 	public MovieController(MovieDAO movieDAO) {
+		this(movieDAO, false);
+	}
+
+	/**
+	 * Constructs a MovieController object, optionally in streaming mode.
+	 * In streaming mode the heap used by a list request stays the same no
+	 * matter how large the limit is.
+	 * 
+	 * @param movieDAO  the movie data access object
+	 * @param streaming whether to stream list responses
+	 */
+	public MovieController(MovieDAO movieDAO, boolean streaming) {
 		this.movieDAO = movieDAO;
+		this.streaming = streaming;
 	}
 
 	/**
-	 * Returns a list of all movies in the database.
+	 * Returns a page of movies in id order.
+	 * Pass the X-Next-Cursor header of one page as ?after= to get the next.
+	 * With ?ids=1,2,3 it instead returns those movies in that order, with null
+	 * for each id that does not exist.
+	 * Add ?include=stars,rating to nest each movie's stars and rating.
 	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getAllMovies(Context ctx) {
 		try {
+			Set<String> include;
+			try {
+				include = Includes.parse(ctx, INCLUDES);
+			} catch (IllegalArgumentException e) {
+				ctx.status(400).result("Invalid include");
+				return;
+			}
+			String idsParam = ctx.queryParam("ids");
+			if (idsParam != null) {
+				int[] ids;
+				try {
+					ids = BatchIds.parse(idsParam);
+				} catch (IllegalArgumentException e) {
+					ctx.status(400).result("Invalid ids");
+					return;
+				}
+				ctx.json(withIncludes(movieDAO.getMoviesByIds(ids), include));
+				return;
+			}
 			String limitParam = ctx.queryParam("limit");
 			int limit = 50;
 			if (limitParam != null) {
@@ -63,8 +111,25 @@ public class MovieController {
 					return;
 				}
 			}
-			List <Movie> movies = movieDAO.getMoviesByLimit(limit);
-			ctx.json(movies);
+			Integer after;
+			try {
+				after = Pagination.after(ctx);
+			} catch (IllegalArgumentException e) {
+				ctx.status(400).result("Invalid cursor");
+				return;
+			}
+			if (streaming && include.isEmpty()) {
+				int afterId = (after == null) ? Integer.MIN_VALUE : after;
+				int pageSize = limit;
+				// the headers go out with the first row, so look up the cursor first
+				Pagination.addNextCursor(ctx, movieDAO.getLastMovieIdOfPage(afterId, pageSize), pageSize);
+				new JsonArrayStream<Movie>(ctx).write(callback -> movieDAO.streamMoviesAfter(afterId, pageSize, callback), true);
+				return;
+			}
+			List <Movie> movies = (after == null) ? movieDAO.getMoviesByLimit(limit)
+					: movieDAO.getMoviesAfter(after, limit);
+			Pagination.addNextCursor(ctx, movies, limit, Movie::getId);
+			ctx.json(withIncludes(movies, include));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
@@ -72,14 +137,56 @@ public class MovieController {
 		}
 	}
 
+	/**
+	 * Returns the movies whose title contains ?q=, best match first.
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void searchMovies(Context ctx) {
+		String query = ctx.queryParam("q");
+		if (query == null || query.isBlank()) {
+			ctx.status(400).result("Missing search query");
+			return;
+		}
+		Set<String> include;
+		try {
+			include = Includes.parse(ctx, INCLUDES);
+		} catch (IllegalArgumentException e) {
+			ctx.status(400).result("Invalid include");
+			return;
+		}
+		try {
+			String limitParam = ctx.queryParam("limit");
+			int limit = (limitParam == null) ? 50 : Integer.parseInt(limitParam);
+			if (limit < 1) {
+				ctx.status(400).result("Limit must be an integer greater than 0");
+				return;
+			}
+			ctx.json(withIncludes(movieDAO.searchMovies(query, limit), include));
+		} catch (NumberFormatException e) {
+			ctx.status(400).result("Invalid limit");
+		} catch (SQLException e) {
+			ctx.status(500).result("Database error");
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Returns the movie with the specified id.
+	 * Add ?include=stars,rating to nest its stars and rating.
 	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getMovieById(Context ctx) {
 
 		int id = Integer.parseInt(ctx.pathParam("id"));
+		Set<String> include;
+		try {
+			include = Includes.parse(ctx, INCLUDES);
+		} catch (IllegalArgumentException e) {
+			ctx.status(400).result("Invalid include");
+			return;
+		}
 		try {
 			Movie movie = movieDAO.getMovieById(id);
 			if (movie == null) {
@@ -87,7 +194,11 @@ public class MovieController {
 				ctx.result("Movie not found");
 				return;
 			}
-			ctx.json(movieDAO.getMovieById(id));
+			if (!include.isEmpty()) {
+				ctx.json(withIncludes(List.of(movie), include).get(0));
+				return;
+			}
+			ctx.json(movie);
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
@@ -98,6 +209,14 @@ public class MovieController {
 		
 		try {
 			int movieId = Integer.parseInt(ctx.pathParam("id"));
+			if (streaming) {
+				JsonArrayStream<Person> stream = new JsonArrayStream<Person>(ctx)
+						.write(callback -> movieDAO.streamPeopleByMovieId(movieId, callback), false);
+				if (stream.isEmpty()) {
+					ctx.status(404).result("No stars found for this Movie");
+				}
+				return;
+			}
 			List<Person> stars = movieDAO.getPeopleByMovieId(movieId);
 			
 			if (stars.isEmpty() | stars == null) {
@@ -141,4 +260,15 @@ public class MovieController {
 		}
 		
 	}
+
+	/**
+	 * Nests the relations asked for with ?include= into a list of movies. All
+	 * movies share one query per relation.
+	 */
+	private List<? extends Movie> withIncludes(List<Movie> movies, Set<String> include) throws SQLException {
+		if (include.isEmpty()) {
+			return movies;
+		}
+		return movieDAO.getMovieDetails(movies, include.contains("stars"), include.contains("rating"));
+	}
 }
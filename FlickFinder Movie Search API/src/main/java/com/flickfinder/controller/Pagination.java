@@ -0,0 +1,106 @@
+package com.flickfinder.controller;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import com.flickfinder.util.Cursor;
+
+import io.javalin.http.Context;
+
+/**
+ * Helpers for the keyset-paginated list endpoints.
+ *
+ * A client pages through a list by passing the cursor from the previous
+ * response back as {@code ?after=<cursor>}. The cursor for the next page is
+ * sent in the X-Next-Cursor header, along with a ready-made Link header, so
+ * the JSON body stays a plain array.
+ *
+ */
+final class Pagination {
+
+	/**
+	 * The response header that carries the cursor of the next page.
+	 */
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private Pagination() {
+	}
+
+	/**
+	 * Reads the {@code after} query parameter.
+	 *
+	 * @param ctx the Javalin context
+	 * @return the id the page starts after, or null if no cursor was given
+	 * @throws IllegalArgumentException if the cursor is not valid
+	 */
+	static Integer after(Context ctx) {
+		String afterParam = ctx.queryParam("after");
+		if (afterParam == null) {
+			return null;
+		}
+		return Cursor.decode(afterParam);
+	}
+
+	/**
+	 * Adds the cursor of the next page to the response. A page shorter than
+	 * the limit is the last one, so it gets no cursor.
+	 *
+	 * @param <T>   the type of the rows
+	 * @param ctx   the Javalin context
+	 * @param page  the rows being returned
+	 * @param limit the page size that was asked for
+	 * @param id    reads the id of a row
+	 */
+	static <T> void addNextCursor(Context ctx, List<T> page, int limit, ToIntFunction<T> id) {
+		if (page == null || page.isEmpty() || page.size() < limit) {
+			return;
+		}
+		addNextCursor(ctx, id.applyAsInt(page.get(page.size() - 1)), limit);
+	}
+
+	/**
+	 * Adds the cursor of the next page to the response, given the id of the
+	 * last row of a full page, e.g. looked up before a page is streamed.
+	 *
+	 * @param ctx    the Javalin context
+	 * @param lastId the id of the last row, or null if the page is not full
+	 * @param limit  the page size that was asked for
+	 */
+	static void addNextCursor(Context ctx, Integer lastId, int limit) {
+		if (lastId == null) {
+			return;
+		}
+		String cursor = Cursor.encode(lastId);
+		ctx.header(NEXT_CURSOR_HEADER, cursor);
+		ctx.header("Link", "<" + nextPageUri(ctx, cursor, limit) + ">; rel=\"next\"");
+	}
+
+	/**
+	 * Builds the URI of the next page: the request's own path and query
+	 * parameters, e.g. include=, with after set to the cursor and the limit
+	 * made explicit.
+	 */
+	static String nextPageUri(Context ctx, String cursor, int limit) {
+		Map<String, List<String>> params = new LinkedHashMap<>(ctx.queryParamMap());
+		params.put("after", List.of(cursor));
+		params.put("limit", List.of(Integer.toString(limit)));
+		StringBuilder uri = new StringBuilder(ctx.path());
+		char separator = '?';
+		for (Map.Entry<String, List<String>> param : params.entrySet()) {
+			for (String value : param.getValue()) {
+				uri.append(separator).append(encode(param.getKey())).append('=').append(encode(value));
+				separator = '&';
+			}
+		}
+		return uri.toString();
+	}
+
+	private static String encode(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8);
+	}
+
+}
@@ -2,26 +2,74 @@ package com.flickfinder.controller;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 import com.flickfinder.dao.PersonDAO;
 import com.flickfinder.model.Movie;
 import com.flickfinder.model.Person;
+import com.flickfinder.model.SeparationPath;
 
 import io.javalin.http.Context;
 
 public class PersonController {
 
 	private final PersonDAO personDAO;
+
+	/**
+	 * The relations that can be nested into people with ?include=.
+	 */
+	private static final Set<String> INCLUDES = Set.of("movies");
+
+	/**
+	 * Whether list endpoints stream rows straight from the database cursor
+	 * into the response instead of building a list first.
+	 */
+	private final boolean streaming;
 	
 	public PersonController(PersonDAO personDAO) {
+		this(personDAO, false);
+	}
+
+	/**
+	 * Constructs a PersonController object, optionally in streaming mode.
+	 * 
+	 * @param personDAO the person data access object
+	 * @param streaming whether to stream list responses
+	 */
+	public PersonController(PersonDAO personDAO, boolean streaming) {
 		this.personDAO = personDAO;
+		this.streaming = streaming;
 	}
-	/**.
+	/**
+	 * Returns a page of people in id order.
+	 * Pass the X-Next-Cursor header of one page as ?after= to get the next.
+	 * With ?ids=1,2,3 it instead returns those people in that order, with null
+	 * for each id that does not exist.
+	 * Add ?include=movies to nest the movies each person stars in.
 	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getAllPeople(Context ctx) {
 		try {
+			Set<String> include;
+			try {
+				include = Includes.parse(ctx, INCLUDES);
+			} catch (IllegalArgumentException e) {
+				ctx.status(400).result("Invalid include");
+				return;
+			}
+			String idsParam = ctx.queryParam("ids");
+			if (idsParam != null) {
+				int[] ids;
+				try {
+					ids = BatchIds.parse(idsParam);
+				} catch (IllegalArgumentException e) {
+					ctx.status(400).result("Invalid ids");
+					return;
+				}
+				ctx.json(withIncludes(personDAO.getPeopleByIds(ids), include));
+				return;
+			}
 			String limitParam = ctx.queryParam("limit");
 			int limit = 50;
 			if (limitParam != null) {
@@ -35,8 +83,25 @@ public class PersonController {
 					return;
 				}
 			}
-			List <Person> person = personDAO.getPeopleByLimit(limit);
-			ctx.json(person);
+			Integer after;
+			try {
+				after = Pagination.after(ctx);
+			} catch (IllegalArgumentException e) {
+				ctx.status(400).result("Invalid cursor");
+				return;
+			}
+			if (streaming && include.isEmpty()) {
+				int afterId = (after == null) ? Integer.MIN_VALUE : after;
+				int pageSize = limit;
+				// the headers go out with the first row, so look up the cursor first
+				Pagination.addNextCursor(ctx, personDAO.getLastPersonIdOfPage(afterId, pageSize), pageSize);
+				new JsonArrayStream<Person>(ctx).write(callback -> personDAO.streamPeopleAfter(afterId, pageSize, callback), true);
+				return;
+			}
+			List <Person> person = (after == null) ? personDAO.getPeopleByLimit(limit)
+					: personDAO.getPeopleAfter(after, limit);
+			Pagination.addNextCursor(ctx, person, limit, Person::getId);
+			ctx.json(withIncludes(person, include));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
@@ -44,9 +109,50 @@ public class PersonController {
 		}
 	}
 	
+	/**
+	 * Returns the most popular people whose name, or a word in it, starts
+	 * with ?prefix=, for type-ahead.
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void autocomplete(Context ctx) {
+		String prefix = ctx.queryParam("prefix");
+		if (prefix == null || prefix.isBlank()) {
+			ctx.status(400).result("Missing prefix");
+			return;
+		}
+		try {
+			String limitParam = ctx.queryParam("limit");
+			int limit = (limitParam == null) ? 10 : Integer.parseInt(limitParam);
+			if (limit < 1) {
+				ctx.status(400).result("Limit must be an integer greater than 0");
+				return;
+			}
+			ctx.json(personDAO.autocompleteNames(prefix.stripLeading(), limit));
+		} catch (NumberFormatException e) {
+			ctx.status(400).result("Invalid limit");
+		} catch (SQLException e) {
+			ctx.status(500).result("Database error");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the person with the specified id.
+	 * Add ?include=movies to nest the movies they star in.
+	 * 
+	 * @param ctx the Javalin context
+	 */
 	public void getPersonById(Context ctx) {
 
 		int id = Integer.parseInt(ctx.pathParam("id"));
+		Set<String> include;
+		try {
+			include = Includes.parse(ctx, INCLUDES);
+		} catch (IllegalArgumentException e) {
+			ctx.status(400).result("Invalid include");
+			return;
+		}
 		try {
 			Person person = personDAO.getPersonById(id);
 			if (person == null) {
@@ -54,7 +160,11 @@ public class PersonController {
 				ctx.result("Person not found");
 				return;
 			}
-			ctx.json(personDAO.getPersonById(id));
+			if (!include.isEmpty()) {
+				ctx.json(withIncludes(List.of(person), include).get(0));
+				return;
+			}
+			ctx.json(person);
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
@@ -66,6 +176,14 @@ public class PersonController {
 		
 		try {
 			int personId = Integer.parseInt(ctx.pathParam("id"));
+			if (streaming) {
+				JsonArrayStream<Movie> stream = new JsonArrayStream<Movie>(ctx)
+						.write(callback -> personDAO.streamMoviesStarringPerson(personId, callback), false);
+				if (stream.isEmpty()) {
+					ctx.status(404).result("No movie found for this Star");
+				}
+				return;
+			}
 			List<Movie> stars = personDAO.getMoviesStarringPerson(personId);
 			
 			if (stars.isEmpty() | stars == null) {
@@ -85,6 +203,39 @@ public class PersonController {
 	// getAllPeople
 	// getPersonById
 	// you will add further methods for the more advanced tasks; however, ensure your have completed 
-	// the must have requirements before you start these.  
-	
+	// the must have requirements before you start these.
+
+	/**
+	 * Returns the shortest chain of co-stars linking two people.
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getPath(Context ctx) {
+		try {
+			int fromId = Integer.parseInt(ctx.pathParam("id"));
+			int toId = Integer.parseInt(ctx.pathParam("otherId"));
+			SeparationPath path = personDAO.findPath(fromId, toId);
+			if (path == null) {
+				ctx.status(404).result("No path found between these people");
+				return;
+			}
+			ctx.json(path);
+		} catch (NumberFormatException e) {
+			ctx.status(400).result("Invalid person ID");
+		} catch (SQLException e) {
+			ctx.status(500).result("Database error");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Nests the relations asked for with ?include= into a list of people. All
+	 * people share one query per relation.
+	 */
+	private List<? extends Person> withIncludes(List<Person> people, Set<String> include) throws SQLException {
+		if (include.isEmpty()) {
+			return people;
+		}
+		return personDAO.getPersonDetails(people, include.contains("movies"));
+	}
 }
@@ -0,0 +1,79 @@
+package com.flickfinder.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes gzip like GZIPOutputStream, but with a deflater borrowed from a
+ * {@link DeflaterPool}, which is given back on close.
+ *
+ * Closing finishes the gzip member but leaves the underlying stream open, so
+ * that the response can still be completed by Javalin.
+ */
+final class PooledGzipOutputStream extends DeflaterOutputStream {
+
+	/**
+	 * Magic number, deflate, no flags, no mtime, no extra flags, unknown OS.
+	 */
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private final DeflaterPool pool;
+
+	private final int level;
+
+	private final CRC32 crc = new CRC32();
+
+	private boolean closed;
+
+	PooledGzipOutputStream(OutputStream out, DeflaterPool pool, int level) throws IOException {
+		super(out, pool.acquire(level), 8192);
+		this.pool = pool;
+		this.level = level;
+		try {
+			out.write(HEADER);
+		} catch (IOException e) {
+			closed = true;
+			pool.release(def, level);
+			throw e;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		super.write(b, off, len);
+		crc.update(b, off, len);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		if (!def.finished()) {
+			super.finish();
+			writeIntLE((int) crc.getValue());
+			writeIntLE((int) def.getBytesRead());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			finish();
+			out.flush();
+		} finally {
+			pool.release(def, level);
+		}
+	}
+
+	private void writeIntLE(int value) throws IOException {
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+
+}
@@ -0,0 +1,277 @@
+package com.flickfinder.controller;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import io.javalin.config.Key;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JsonMapper;
+import io.javalin.plugin.ContextPlugin;
+import io.javalin.security.RouteRole;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * A context that replays a GET request in-process, outside of Jetty, so that
+ * a handler can render it again without another HTTP request.
+ *
+ * It answers with the path, path parameters and query parameters of the
+ * request it was copied from, and no request headers. The status, headers,
+ * content type and result the handler sets are kept in memory, and
+ * {@link #res()} exposes them as far as Javalin's own Context methods need.
+ * Anything else, such as streaming to {@link #outputStream()}, is not
+ * supported.
+ */
+final class RenderContext implements Context {
+
+	private final String path;
+
+	private final String queryString;
+
+	private final Map<String, List<String>> queryParams;
+
+	private final Map<String, String> pathParams;
+
+	private final JsonMapper jsonMapper;
+
+	private final Map<String, Object> attributes = new HashMap<>();
+
+	private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	private final HttpServletResponse res;
+
+	private int status = HttpStatus.OK.getCode();
+
+	private String contentType;
+
+	private String characterEncoding;
+
+	private InputStream result;
+
+	/**
+	 * Copies what a handler may read from a request.
+	 *
+	 * @param request the context of the request to replay
+	 */
+	RenderContext(Context request) {
+		this.path = request.path();
+		this.queryString = request.queryString();
+		this.queryParams = new LinkedHashMap<>(request.queryParamMap());
+		this.pathParams = new LinkedHashMap<>(request.pathParamMap());
+		this.jsonMapper = request.jsonMapper();
+		this.res = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getStatus":
+						return status;
+					case "setStatus":
+						status = (Integer) args[0];
+						return null;
+					case "getContentType":
+						return contentType;
+					case "setContentType":
+						contentType = (String) args[0];
+						return null;
+					case "getCharacterEncoding":
+						return characterEncoding;
+					case "setCharacterEncoding":
+						characterEncoding = (String) args[0];
+						return null;
+					case "getHeader":
+						return headers.get((String) args[0]);
+					case "getHeaders":
+						String value = headers.get((String) args[0]);
+						return (value == null) ? List.of() : List.of(value);
+					case "getHeaderNames":
+						return List.copyOf(headers.keySet());
+					case "containsHeader":
+						return headers.containsKey((String) args[0]);
+					case "setHeader":
+					case "addHeader":
+						if (args[1] == null) {
+							headers.remove((String) args[0]);
+						} else {
+							headers.put((String) args[0], (String) args[1]);
+						}
+						return null;
+					case "isCommitted":
+						return false;
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return "RenderContext response for " + path;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Override
+	public HttpServletRequest req() {
+		throw new UnsupportedOperationException("A replayed request has no servlet request");
+	}
+
+	@Override
+	public HttpServletResponse res() {
+		return res;
+	}
+
+	@Override
+	public HandlerType handlerType() {
+		return HandlerType.GET;
+	}
+
+	@Override
+	public HandlerType method() {
+		return HandlerType.GET;
+	}
+
+	@Override
+	public String matchedPath() {
+		return path;
+	}
+
+	@Override
+	public String endpointHandlerPath() {
+		return path;
+	}
+
+	@Override
+	public <T> T appData(Key<T> key) {
+		throw new UnsupportedOperationException("appData");
+	}
+
+	@Override
+	public JsonMapper jsonMapper() {
+		return jsonMapper;
+	}
+
+	@Override
+	public <T> T with(Class<? extends ContextPlugin<?, T>> plugin) {
+		throw new UnsupportedOperationException("with");
+	}
+
+	@Override
+	public String path() {
+		return path;
+	}
+
+	@Override
+	public String queryString() {
+		return queryString;
+	}
+
+	@Override
+	public Map<String, List<String>> queryParamMap() {
+		return Collections.unmodifiableMap(queryParams);
+	}
+
+	@Override
+	public String pathParam(String key) {
+		String value = pathParams.get(key);
+		if (value == null) {
+			throw new IllegalArgumentException("'" + key + "' is not a valid path-param for '" + path + "'.");
+		}
+		return value;
+	}
+
+	@Override
+	public Map<String, String> pathParamMap() {
+		return Collections.unmodifiableMap(pathParams);
+	}
+
+	@Override
+	public String header(String header) {
+		return null;
+	}
+
+	@Override
+	public Map<String, String> headerMap() {
+		return Map.of();
+	}
+
+	@Override
+	public void attribute(String key, Object value) {
+		attributes.put(key, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T attribute(String key) {
+		return (T) attributes.get(key);
+	}
+
+	@Override
+	public Map<String, Object> attributeMap() {
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	@Override
+	public Charset responseCharset() {
+		return (characterEncoding == null) ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding);
+	}
+
+	@Override
+	public ServletOutputStream outputStream() {
+		throw new UnsupportedOperationException("A replayed request cannot be streamed");
+	}
+
+	@Override
+	public Context minSizeForCompression(int minSizeForCompression) {
+		return this;
+	}
+
+	@Override
+	public Context result(InputStream resultStream) {
+		this.result = resultStream;
+		return this;
+	}
+
+	@Override
+	public InputStream resultInputStream() {
+		return result;
+	}
+
+	@Override
+	public void future(Supplier<? extends CompletableFuture<?>> future) {
+		throw new UnsupportedOperationException("future");
+	}
+
+	@Override
+	public void redirect(String location, HttpStatus status) {
+		throw new UnsupportedOperationException("redirect");
+	}
+
+	@Override
+	public void writeJsonStream(Stream<?> stream) {
+		throw new UnsupportedOperationException("writeJsonStream");
+	}
+
+	@Override
+	public Context skipRemainingHandlers() {
+		return this;
+	}
+
+	@Override
+	public Set<RouteRole> routeRoles() {
+		return Set.of();
+	}
+
+}
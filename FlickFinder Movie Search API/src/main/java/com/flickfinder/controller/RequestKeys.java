@@ -0,0 +1,35 @@
+package com.flickfinder.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.javalin.http.Context;
+
+/**
+ * Builds the key that identifies what a GET request asks for: its path and
+ * its query parameters sorted by name, so that ?a=1&b=2 and ?b=2&a=1 give the
+ * same key.
+ */
+final class RequestKeys {
+
+	private RequestKeys() {
+	}
+
+	/**
+	 * Returns the key of a request.
+	 *
+	 * @param ctx the context
+	 * @return the path followed by the sorted query parameters
+	 */
+	static String of(Context ctx) {
+		StringBuilder key = new StringBuilder(ctx.path());
+		for (Map.Entry<String, List<String>> param : new TreeMap<>(ctx.queryParamMap()).entrySet()) {
+			for (String value : param.getValue()) {
+				key.append('\0').append(param.getKey()).append('=').append(value);
+			}
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,421 @@
+package com.flickfinder.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import com.flickfinder.util.DataVersion;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+
+/**
+ * A cache of rendered responses, so that a repeated request is answered with
+ * the bytes of the last one instead of running the query and Jackson again.
+ *
+ * A route is cached in two halves. {@link #render(Handler)} wraps the
+ * controller method and keeps the body, content type and headers of every
+ * 200 response it produces; streamed responses are written straight to the
+ * client and are never kept. {@link #serve(Handler)} goes in front of it and
+ * writes a kept response as it is, so that a hit does not wait for the DB
+ * executor either. Entries are keyed by path and sorted query parameters.
+ *
+ * An entry is fresh for the TTL, and is then served stale for up to the
+ * stale window while it is rendered again in the background, like
+ * Cache-Control's stale-while-revalidate. The refresh replays the request
+ * in-process on a small executor of its own, so it neither waits for nor
+ * is turned away by the DB executor; if it fails the stale entry is kept
+ * until its window ends. After that it is dropped. When the rendered bytes
+ * go over the memory budget the least recently used entries are dropped
+ * first.
+ *
+ * Given a data version, e.g. the one the ETags are made from, an entry is
+ * only served while the data it was rendered from is current, so a body is
+ * never sent with the ETag of newer data.
+ *
+ * With gzip switched on each body is also kept gzipped, and sent that way to
+ * clients that accept it.
+ *
+ */
+public class ResponseCache {
+
+	private static final Logger LOGGER = Logger.getLogger(ResponseCache.class.getName());
+
+	/**
+	 * How many background refreshes may render at once.
+	 */
+	private static final int REFRESH_THREADS = 2;
+
+	/**
+	 * Bodies smaller than this are not worth gzipping.
+	 */
+	private static final int MIN_GZIP_BYTES = 256;
+
+	/**
+	 * A rough cost of an entry on top of its key and bodies.
+	 */
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final long maxBytes;
+
+	private final long ttlNanos;
+
+	private final long staleNanos;
+
+	private final boolean gzip;
+
+	private final ThreadPoolExecutor refresher;
+
+	private volatile DataVersion dataVersion;
+
+	/**
+	 * The entries in access order, guarded by itself.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long usedBytes;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder staleHits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder refreshes = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * A rendered response.
+	 */
+	private static final class Entry {
+
+		final byte[] body;
+
+		final byte[] gzipped;
+
+		final String contentType;
+
+		final Map<String, String> headers;
+
+		/**
+		 * The handler that rendered the response, which renders it again.
+		 */
+		final Handler handler;
+
+		/**
+		 * The data version the response was rendered from, or null.
+		 */
+		final String version;
+
+		final long stored = System.nanoTime();
+
+		final long size;
+
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(String key, byte[] body, byte[] gzipped, String contentType, Map<String, String> headers,
+				Handler handler, String version) {
+			this.body = body;
+			this.gzipped = gzipped;
+			this.contentType = contentType;
+			this.headers = headers;
+			this.handler = handler;
+			this.version = version;
+			this.size = ENTRY_OVERHEAD + 2L * key.length() + body.length
+					+ ((gzipped == null) ? 0 : gzipped.length);
+		}
+
+	}
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param maxBytes    the memory budget for rendered responses
+	 * @param ttlMillis   how long a response is served without refreshing it
+	 * @param staleMillis how much longer a response may be served while it is
+	 *                    refreshed in the background
+	 * @param gzip        whether to also keep each body gzipped
+	 */
+	public ResponseCache(long maxBytes, long ttlMillis, long staleMillis, boolean gzip) {
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("The response cache needs a positive memory budget");
+		}
+		this.maxBytes = maxBytes;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+		this.gzip = gzip;
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "response-cache-refresh-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.refresher = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), factory);
+		refresher.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Sets the version of the data the responses are rendered from. Entries
+	 * rendered from an older version are dropped rather than served.
+	 *
+	 * @param dataVersion the data version, e.g. the one the ETags use
+	 */
+	public void setDataVersion(DataVersion dataVersion) {
+		this.dataVersion = dataVersion;
+	}
+
+	/**
+	 * Wraps a handler so that requests with a cached response are answered
+	 * from the cache.
+	 *
+	 * @param handler the handler that renders a response on a miss, which
+	 *                should include {@link #render(Handler)}
+	 * @return the wrapped handler
+	 */
+	public Handler serve(Handler handler) {
+		return ctx -> {
+			String key = RequestKeys.of(ctx);
+			Entry entry = lookup(key);
+			if (entry == null) {
+				misses.increment();
+				handler.handle(ctx);
+				return;
+			}
+			if (System.nanoTime() - entry.stored >= ttlNanos) {
+				staleHits.increment();
+				refresh(ctx, entry);
+			} else {
+				hits.increment();
+			}
+			write(ctx, entry);
+		};
+	}
+
+	/**
+	 * Wraps a handler so that the responses it renders are kept.
+	 *
+	 * @param handler the handler, e.g. a controller method
+	 * @return the wrapped handler
+	 */
+	public Handler render(Handler handler) {
+		return ctx -> render(ctx, handler);
+	}
+
+	/**
+	 * Runs the handler and keeps its response if it is a 200 with a body.
+	 *
+	 * @return true if the response was kept
+	 */
+	private boolean render(Context ctx, Handler handler) throws Exception {
+		// read first, so that data changed while rendering gives a stale version
+		DataVersion dataVersion = this.dataVersion;
+		String version = (dataVersion == null) ? null : dataVersion.current();
+		Set<String> before = new HashSet<>(ctx.res().getHeaderNames());
+		handler.handle(ctx);
+		InputStream result = ctx.resultInputStream();
+		if (ctx.statusCode() != HttpStatus.OK.getCode() || result == null) {
+			return false;
+		}
+		byte[] body = result.readAllBytes();
+		ctx.result(body);
+		Map<String, String> headers = new LinkedHashMap<>();
+		for (String name : ctx.res().getHeaderNames()) {
+			if (!before.contains(name) && !name.equalsIgnoreCase(Header.CONTENT_TYPE)) {
+				headers.put(name, ctx.res().getHeader(name));
+			}
+		}
+		String key = RequestKeys.of(ctx);
+		byte[] gzipped = (gzip && body.length >= MIN_GZIP_BYTES) ? gzip(body) : null;
+		store(key, new Entry(key, body, gzipped, ctx.res().getContentType(), headers, handler, version));
+		return true;
+	}
+
+	private Entry lookup(String key) {
+		DataVersion dataVersion = this.dataVersion;
+		String version = (dataVersion == null) ? null : dataVersion.current();
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null && (System.nanoTime() - entry.stored >= ttlNanos + staleNanos
+					|| (version != null && !version.equals(entry.version)))) {
+				remove(key, entry);
+				return null;
+			}
+			return entry;
+		}
+	}
+
+	private void store(String key, Entry entry) {
+		if (entry.size > maxBytes) {
+			return;
+		}
+		synchronized (entries) {
+			Entry old = entries.put(key, entry);
+			if (old != null) {
+				usedBytes -= old.size;
+			}
+			usedBytes += entry.size;
+			// the new entry is the most recently used, so it is reached last
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (usedBytes > maxBytes && eldest.hasNext()) {
+				usedBytes -= eldest.next().size;
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	private void remove(String key, Entry entry) {
+		synchronized (entries) {
+			if (entries.remove(key, entry)) {
+				usedBytes -= entry.size;
+			}
+		}
+	}
+
+	private void write(Context ctx, Entry entry) {
+		entry.headers.forEach(ctx::header);
+		if (entry.contentType != null) {
+			ctx.contentType(entry.contentType);
+		}
+		if (gzip) {
+			ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+		}
+		if (entry.gzipped != null && acceptsGzip(ctx.header(Header.ACCEPT_ENCODING))) {
+			ctx.header(Header.CONTENT_ENCODING, "gzip");
+			ConditionalGet.tagCoding(ctx, "gzip");
+			ctx.result(entry.gzipped);
+		} else {
+			ctx.result(entry.body);
+		}
+	}
+
+	/**
+	 * Renders the request again in the background, unless a refresh of the
+	 * entry is already on its way. A 200 replaces the entry; anything else
+	 * leaves the stale entry to be served until its window ends.
+	 */
+	private void refresh(Context ctx, Entry entry) {
+		if (!entry.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		refreshes.increment();
+		RenderContext replay = new RenderContext(ctx);
+		refresher.execute(() -> {
+			try {
+				if (!render(replay, entry.handler)) {
+					LOGGER.fine("Kept the stale response of " + replay.path() + " after a " + replay.statusCode());
+				}
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Could not refresh the cached response of " + replay.path(), e);
+			} finally {
+				entry.refreshing.set(false);
+			}
+		});
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(body);
+		}
+		return (out.size() < body.length) ? out.toByteArray() : null;
+	}
+
+	/**
+	 * Checks whether an Accept-Encoding header allows gzip.
+	 *
+	 * @param acceptEncoding the header, or null
+	 * @return true if gzip, or any coding, is accepted with a non-zero q
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		return Compression.quality(acceptEncoding, "gzip") > 0;
+	}
+
+	/**
+	 * Returns the number of requests answered with a fresh response.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests answered with a stale response while it
+	 * was refreshed.
+	 *
+	 * @return the number of stale hits
+	 */
+	public long getStaleHitCount() {
+		return staleHits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that had to be rendered.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of background refreshes started.
+	 *
+	 * @return the number of refreshes
+	 */
+	public long getRefreshCount() {
+		return refreshes.sum();
+	}
+
+	/**
+	 * Returns the number of entries dropped to stay within the budget.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the memory used by the cached responses, roughly.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getUsedBytes() {
+		synchronized (entries) {
+			return usedBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of cached responses.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.flickfinder.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import com.flickfinder.util.EntityCache;
+
+/**
+ * Looks up a batch of entities by id, through the entity cache when there is
+ * one, with a single chunked query for everything the cache does not hold.
+ * Also holds the helpers for loading the relations of a whole page of
+ * entities at once.
+ *
+ */
+final class BatchLookup {
+
+	/**
+	 * Loads the entities with the given ids from the database.
+	 */
+	@FunctionalInterface
+	interface Loader<T> {
+		List<T> load(int[] ids) throws SQLException;
+	}
+
+	private BatchLookup() {
+	}
+
+	/**
+	 * Returns the entities in the order their ids were given, with null for
+	 * every id that does not exist. Repeated ids get the same entity.
+	 *
+	 * @param <T>    the type of the entities
+	 * @param ids    the ids to look up
+	 * @param cache  the entity cache, or null if caching is off
+	 * @param loader loads the entities the cache does not hold
+	 * @param idOf   reads the id of an entity
+	 * @return one entity or null per id, in the same order
+	 * @throws SQLException if a database error occurs
+	 */
+	static <T> List<T> byIds(int[] ids, EntityCache<T> cache, Loader<T> loader, ToIntFunction<T> idOf)
+			throws SQLException {
+		Map<Integer, T> found = new HashMap<>();
+		int[] missing = new int[ids.length];
+		int missingCount = 0;
+		for (int id : ids) {
+			if (found.containsKey(id)) {
+				continue;
+			}
+			T cached = (cache == null) ? null : cache.getIfPresent(id);
+			found.put(id, cached);
+			if (cached == null) {
+				missing[missingCount++] = id;
+			}
+		}
+		if (missingCount > 0) {
+			// sorted ids walk the primary key index in order
+			int[] toLoad = Arrays.copyOf(missing, missingCount);
+			Arrays.sort(toLoad);
+			for (T entity : loader.load(toLoad)) {
+				int id = idOf.applyAsInt(entity);
+				found.put(id, entity);
+				if (cache != null) {
+					cache.put(id, entity);
+				}
+			}
+		}
+		List<T> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(found.get(id));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the distinct ids of the entities in a list, skipping nulls.
+	 *
+	 * @param <T>      the type of the entities
+	 * @param entities the entities, which may include nulls
+	 * @param idOf     reads the id of an entity
+	 * @return the distinct ids, ascending
+	 */
+	static <T> int[] distinctIds(List<T> entities, ToIntFunction<T> idOf) {
+		return entities.stream().filter(entity -> entity != null).mapToInt(idOf).distinct().sorted().toArray();
+	}
+
+	/**
+	 * Groups keyed rows by their key, keeping the order of the rows within
+	 * each group.
+	 *
+	 * @param <T>  the type of the rows
+	 * @param rows the rows paired with the id of the entity they belong to
+	 * @return the rows of each entity
+	 */
+	static <T> Map<Integer, List<T>> groupByKey(List<Map.Entry<Integer, T>> rows) {
+		Map<Integer, List<T>> groups = new HashMap<>();
+		for (Map.Entry<Integer, T> row : rows) {
+			groups.computeIfAbsent(row.getKey(), key -> new ArrayList<>()).add(row.getValue());
+		}
+		return groups;
+	}
+
+}
@@ -1,45 +1,74 @@
 package com.flickfinder.dao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
-import com.flickfinder.controller.PersonController;
+import com.flickfinder.index.RatingsIndex;
+import com.flickfinder.index.TitleSearchIndex;
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
 import com.flickfinder.model.MovieRating;
 import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.EntityCache;
 
 /**
  * The Data Access Object for the Movie table.
- * 
+ *
  * This class is responsible for getting data from the Movies table in the
  * database.
- * 
+ *
  */
 public class MovieDAO {
 
 	/**
-	 * The connection to the database.
+	 * Runs the queries against the database.
 	 */
-	private final Connection connection;
+	private final QueryRunner queries;
 
 	/**
-	 * Constructs a SQLiteMovieDAO object and gets the database connection.
-	 * 
+	 * Caches movies by id in front of getMovieById. Null when caching is off.
+	 */
+	private EntityCache<Movie> movieCache;
+
+	/**
+	 * Answers getRatingsByYear from memory. Null when the index is off.
+	 */
+	private RatingsIndex ratingsIndex;
+
+	/**
+	 * Answers searchMovies from memory. Null when the index is off.
+	 */
+	private volatile TitleSearchIndex titleSearchIndex;
+
+	/**
+	 * Constructs a SQLiteMovieDAO object and gets the database.
+	 *
 	 */
 	public MovieDAO() {
-		Database database = Database.getInstance();
-		connection = database.getConnection();
+		this(new QueryRunner(Database.getInstance()));
+	}
+
+	/**
+	 * Constructs a MovieDAO that runs its queries through the given runner. A
+	 * subclass that serves every method from somewhere other than the
+	 * database may pass null.
+	 *
+	 * @param queries the query runner
+	 */
+	protected MovieDAO(QueryRunner queries) {
+		this.queries = queries;
 	}
 
 	/**
 	 * Returns a list of all movies in the database.
-	 * 
+	 *
 	 * @return a list of all movies in the database
 	 * @throws SQLException if a database error occurs
 	 */
@@ -47,90 +76,362 @@ public class MovieDAO {
 	public List<Movie> getAllMovies() throws SQLException {
 		return getMoviesByLimit(50);
 	}
-	
+
+	/**
+	 * Returns the first page of movies, in id order.
+	 *
+	 * @param limit the maximum number of movies to return
+	 * @return the movies with the lowest ids
+	 * @throws SQLException if a database error occurs
+	 */
 	public List<Movie> getMoviesByLimit(int limit) throws SQLException{
-		List<Movie> movies = new ArrayList<>();
-		String query = "SELECT * FROM movies LIMIT ?";
-		try (PreparedStatement statement = connection.prepareStatement(query)){
-			statement.setInt(1, limit);
-			ResultSet rs = statement.executeQuery();
-			while (rs.next()) {
-				movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
-			}
-		}
-		return movies;
+		String query = "SELECT id, title, year FROM movies ORDER BY id LIMIT ?";
+		return queries.query(query, RowMappers.MOVIE, limit);
+	}
+
+	/**
+	 * Returns the page of movies that follows the given id, in id order.
+	 * This seeks straight to the id in the primary key, so a page deep into
+	 * the table costs the same as the first one.
+	 *
+	 * @param afterId the id of the last movie on the previous page
+	 * @param limit   the maximum number of movies to return
+	 * @return the movies with ids greater than afterId
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		String query = "SELECT id, title, year FROM movies WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.query(query, RowMappers.MOVIE, afterId, limit);
+	}
+
+	/**
+	 * Streams the page of movies that follows the given id, in id order, to a
+	 * callback instead of returning a list. Pass Integer.MIN_VALUE for the
+	 * first page.
+	 *
+	 * @param afterId  the id of the last movie on the previous page
+	 * @param limit    the maximum number of movies to stream
+	 * @param callback receives each movie
+	 * @return the number of movies streamed
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public int streamMoviesAfter(int afterId, int limit, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		String query = "SELECT id, title, year FROM movies WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.forEach(query, RowMappers.MOVIE, callback, afterId, limit);
+	}
+
+	/**
+	 * Opens a cursor over the page of movies that follows the given id, in id
+	 * order. This is for subclasses that merge the pages of several
+	 * databases as they read them.
+	 *
+	 * @param afterId the id of the last movie on the previous page
+	 * @param limit   the maximum number of movies to read
+	 * @return the open cursor; the caller must close it
+	 * @throws SQLException if a database error occurs
+	 */
+	protected RowCursor<Movie> openMoviesAfter(int afterId, int limit) throws SQLException {
+		String query = "SELECT id, title, year FROM movies WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.open(query, RowMappers.MOVIE, afterId, limit);
+	}
+
+	/**
+	 * Opens a cursor over the ids of the page of movies that follows the given
+	 * id, in order. Only the primary key is read.
+	 *
+	 * @param afterId the id of the last movie on the previous page
+	 * @param limit   the maximum number of ids to read
+	 * @return the open cursor; the caller must close it
+	 * @throws SQLException if a database error occurs
+	 */
+	protected RowCursor<Integer> openMovieIdsAfter(int afterId, int limit) throws SQLException {
+		String query = "SELECT id FROM movies WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.open(query, RowMappers.ID, afterId, limit);
+	}
+
+	/**
+	 * Returns the id of the last movie on the page that follows the given
+	 * id, if that page is full. Only the primary key is read, so a streamed
+	 * page can send the cursor of the next one before its first row.
+	 *
+	 * @param afterId the id of the last movie on the previous page
+	 * @param limit   the page size
+	 * @return the id of the limit-th movie after afterId, or null if there
+	 *         are fewer
+	 * @throws SQLException if a database error occurs
+	 */
+	public Integer getLastMovieIdOfPage(int afterId, int limit) throws SQLException {
+		String query = "SELECT id FROM movies WHERE id > ? ORDER BY id LIMIT 1 OFFSET ?";
+		return queries.queryOne(query, RowMappers.ID, afterId, limit - 1);
 	}
 
 	/**
 	 * Returns the movie with the specified id.
-	 * 
+	 *
 	 * @param id the id of the movie
 	 * @return the movie with the specified id
 	 * @throws SQLException if a database error occurs
 	 */
 	public Movie getMovieById(int id) throws SQLException {
+		if (movieCache != null) {
+			return movieCache.get(id, this::loadMovieById);
+		}
+		return loadMovieById(id);
+	}
 
-		String statement = "select * from movies where id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, id);
-		ResultSet rs = ps.executeQuery();
+	private Movie loadMovieById(int id) throws SQLException {
 
-		if (rs.next()) {
+		String statement = "select id, title, year from movies where id = ?";
 
-			return new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year"));
-		}
-		
 		// return null if the id does not return a movie.
 
-		return null;
+		return queries.queryOne(statement, RowMappers.MOVIE, id);
+
+	}
 
+	/**
+	 * Returns the movies with the given ids, in the order the ids were given,
+	 * with null for every id that does not exist. Movies in the cache are
+	 * served from it; the rest come from one IN query per chunk of ids.
+	 *
+	 * @param ids the ids of the movies
+	 * @return one movie or null per id
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		return BatchLookup.byIds(ids, movieCache,
+				missing -> queries.queryIn("SELECT id, title, year FROM movies WHERE id IN (%s)", RowMappers.MOVIE,
+						missing),
+				Movie::getId);
 	}
 	public List<Person> getPeopleByMovieId(int movieId) throws SQLException{
-		String query = "SELECT p.id, p.name, p.birth FROM Stars s" + 
-				" JOIN People p ON s.person_id = p.id " +  
+		String query = "SELECT p.id, p.name, p.birth FROM Stars s" +
+				" JOIN People p ON s.person_id = p.id " +
 				" WHERE s.movie_id = ?";
-		List<Person>stars = new ArrayList<>();
-		
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setInt(1, movieId);
-			ResultSet resultSet = statement.executeQuery();
-			
-			while (resultSet.next()) {
-				int id = resultSet.getInt("id");
-				String name = resultSet.getString("name");
-				int birth = resultSet.getInt("birth");
-				stars.add(new Person(id, name, birth));
+		return queries.query(query, RowMappers.PERSON, movieId);
+
+	}
+	/**
+	 * Streams the people starring in a movie to a callback.
+	 *
+	 * @param movieId  the id of the movie
+	 * @param callback receives each person
+	 * @return the number of people streamed
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public int streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		String query = "SELECT p.id, p.name, p.birth FROM Stars s" +
+				" JOIN People p ON s.person_id = p.id " +
+				" WHERE s.movie_id = ?";
+		return queries.forEach(query, RowMappers.PERSON, callback, movieId);
+	}
+	/**
+	 * Returns the stars of each of a number of movies, using one grouped
+	 * query per chunk of ids rather than one query per movie.
+	 *
+	 * @param movieIds the ids of the movies
+	 * @return the stars of each movie that has any, by movie id
+	 * @throws SQLException if a database error occurs
+	 */
+	public Map<Integer, List<Person>> getStarsByMovieIds(int[] movieIds) throws SQLException {
+		String query = "SELECT p.id, p.name, p.birth, s.movie_id FROM stars s" +
+				" JOIN people p ON p.id = s.person_id" +
+				" WHERE s.movie_id IN (%s)";
+		return BatchLookup.groupByKey(queries.queryIn(query, RowMappers.keyed(RowMappers.PERSON, 4), movieIds));
+	}
+
+	/**
+	 * Returns the rating of each of a number of movies.
+	 *
+	 * @param movieIds the ids of the movies
+	 * @return the rating of each movie that has one, by movie id
+	 * @throws SQLException if a database error occurs
+	 */
+	public Map<Integer, Rating> getRatingsByMovieIds(int[] movieIds) throws SQLException {
+		String query = "SELECT rating, votes, movie_id FROM ratings WHERE movie_id IN (%s)";
+		Map<Integer, Rating> ratings = new HashMap<>();
+		for (Map.Entry<Integer, Rating> row : queries.queryIn(query, RowMappers.keyed(RowMappers.RATING, 3),
+				movieIds)) {
+			ratings.put(row.getKey(), row.getValue());
+		}
+		return ratings;
+	}
+
+	/**
+	 * Adds the requested relations to a list of movies, e.g. a page of
+	 * /movies. Each relation costs one query for the whole list, however many
+	 * movies it holds.
+	 *
+	 * @param movies the movies, which may include nulls for missing ids
+	 * @param stars  whether to include the stars of each movie
+	 * @param rating whether to include the rating of each movie
+	 * @return the movies with their relations, in the same order, with nulls
+	 *         kept
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<MovieDetails> getMovieDetails(List<Movie> movies, boolean stars, boolean rating)
+			throws SQLException {
+		int[] ids = BatchLookup.distinctIds(movies, Movie::getId);
+		Map<Integer, List<Person>> starsByMovie = (stars && ids.length > 0) ? getStarsByMovieIds(ids) : null;
+		Map<Integer, Rating> ratingsByMovie = (rating && ids.length > 0) ? getRatingsByMovieIds(ids) : null;
+		List<MovieDetails> details = new ArrayList<>(movies.size());
+		for (Movie movie : movies) {
+			if (movie == null) {
+				details.add(null);
+				continue;
 			}
+			MovieDetails detail = new MovieDetails(movie);
+			if (starsByMovie != null) {
+				detail.setStars(starsByMovie.getOrDefault(movie.getId(), new ArrayList<>()));
+			}
+			if (ratingsByMovie != null) {
+				detail.setRating(ratingsByMovie.get(movie.getId()));
+			}
+			details.add(detail);
+		}
+		return details;
+	}
+
+	/**
+	 * Returns the movies whose title contains the query, ignoring case. Exact
+	 * titles come first, then titles starting with the query, then titles
+	 * with a word starting with it, then any other match; within each of
+	 * those shorter titles come first, then lower ids.
+	 *
+	 * Without a title search index this scans the whole movies table, and
+	 * case is only ignored for ASCII letters.
+	 *
+	 * @param query the text to look for
+	 * @param limit the maximum number of movies to return
+	 * @return the matching movies, best match first
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> searchMovies(String query, int limit) throws SQLException {
+		if (titleSearchIndex != null) {
+			return titleSearchIndex.search(query, limit);
 		}
-		return stars;
-				
+		String q = query.toLowerCase(Locale.ROOT);
+		String sql = "SELECT id, title, year FROM movies " +
+				"WHERE instr(lower(title), ?) > 0 " +
+				"ORDER BY CASE WHEN lower(title) = ? THEN 0 " +
+				"WHEN instr(lower(title), ?) = 1 THEN 1 " +
+				"WHEN instr(lower(title), ' ' || ?) > 0 THEN 2 ELSE 3 END, " +
+				"length(title), id " +
+				"LIMIT ?";
+		return queries.query(sql, RowMappers.MOVIE, q, q, q, q, limit);
+	}
+
+	/**
+	 * Reads every movie title into a TitleSearchIndex.
+	 *
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public TitleSearchIndex buildTitleSearchIndex() throws SQLException {
+		String query = "SELECT id, title, year FROM movies ORDER BY id";
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		try {
+			queries.forEach(query, RowMappers.MOVIE, builder::add);
+		} catch (IOException e) {
+			// the builder only collects rows in memory and never does I/O
+			throw new IllegalStateException(e);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Answers searchMovies from an in-memory trigram index instead of
+	 * scanning the database. Pass null to go back to querying the database.
+	 *
+	 * @param titleSearchIndex the index to use
+	 */
+	public void setTitleSearchIndex(TitleSearchIndex titleSearchIndex) {
+		this.titleSearchIndex = titleSearchIndex;
+	}
+
+	public TitleSearchIndex getTitleSearchIndex() {
+		return titleSearchIndex;
 	}
+
 	public List<MovieRating> getRatingsByYear(int year, int limit, int minVotes) throws SQLException {
+		if (ratingsIndex != null) {
+			return ratingsIndex.getRatingsByYear(year, limit, minVotes);
+		}
 		String query = "SELECT m.id, m.title, r.rating, r.votes,  m.year " +
 				"FROM movies m " +
 				"JOIN ratings r ON m.id = r.movie_id " +
 				"WHERE m.year = ? AND r.votes > ? " +
 				"ORDER BY r.rating DESC " +
 				"LIMIT ?";
-		
-		List<MovieRating> movieRatings = new ArrayList<>();
-		try (PreparedStatement statement = connection.prepareStatement(query)){
-			statement.setInt(1, year);
-			statement.setInt(2, minVotes);
-			statement.setInt(3, limit);
-
-			ResultSet resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				int id = resultSet.getInt("id");
-				String title = resultSet.getString("title");
-				float rating = resultSet.getFloat("rating");
-				int votes = resultSet.getInt("votes");
-				int movieYear = resultSet.getInt("year");
-				
-				movieRatings.add(new MovieRating(id, title, rating, votes, movieYear));
-			}
+		return queries.query(query, RowMappers.MOVIE_RATING, year, minVotes, limit);
+	}
+
+	/**
+	 * Reads every rated movie, grouped by year and highest rating first, into
+	 * a RatingsIndex.
+	 *
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public RatingsIndex buildRatingsIndex() throws SQLException {
+		RatingsIndex.Builder builder = new RatingsIndex.Builder();
+		try {
+			streamRatedMovies(builder::add);
+		} catch (IOException e) {
+			// the builder only collects rows in memory and never does I/O
+			throw new IllegalStateException(e);
 		}
-		return movieRatings;
+		return builder.build();
+	}
+
+	/**
+	 * Streams every rated movie to a callback, grouped by year and highest
+	 * rating first, then by id, which is the order a RatingsIndex is built
+	 * in.
+	 *
+	 * @param callback receives each movie and its rating
+	 * @return the number of movies streamed
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public int streamRatedMovies(RowCallback<MovieRating> callback) throws SQLException, IOException {
+		String query = "SELECT m.id, m.title, r.rating, r.votes, m.year " +
+				"FROM movies m " +
+				"JOIN ratings r ON m.id = r.movie_id " +
+				"ORDER BY m.year, r.rating DESC, m.id";
+		return queries.forEach(query, RowMappers.MOVIE_RATING, callback);
+	}
+
+	/**
+	 * Answers getRatingsByYear from an in-memory index instead of the
+	 * database. Pass null to go back to querying the database.
+	 *
+	 * @param ratingsIndex the index to use
+	 */
+	public void setRatingsIndex(RatingsIndex ratingsIndex) {
+		this.ratingsIndex = ratingsIndex;
+	}
+
+	public RatingsIndex getRatingsIndex() {
+		return ratingsIndex;
+	}
+
+	/**
+	 * Puts a read-through cache in front of getMovieById, so that popular
+	 * movies are served without touching the database. Pass null to turn the
+	 * cache off.
+	 *
+	 * @param movieCache the cache to use
+	 */
+	public void setMovieCache(EntityCache<Movie> movieCache) {
+		this.movieCache = movieCache;
+	}
+
+	public EntityCache<Movie> getMovieCache() {
+		return movieCache;
 	}
 
 }
@@ -1,86 +1,375 @@
 package com.flickfinder.dao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.flickfinder.index.CoStarGraph;
+import com.flickfinder.index.NameAutocompleteIndex;
 import com.flickfinder.model.Movie;
 import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.SeparationPath;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.EntityCache;
 
 /**
- * TODO: Implement this class
- * 
+ * The Data Access Object for the People table.
+ *
  */
 public class PersonDAO {
-	
-	private final Connection connection;
-	
+
+	private final QueryRunner queries;
+
+	/**
+	 * Caches people by id in front of getPersonById. Null when caching is off.
+	 */
+	private EntityCache<Person> personCache;
+
+	/**
+	 * Answers autocompleteNames from memory. Null when the index is off.
+	 */
+	private volatile NameAutocompleteIndex nameIndex;
+
+	/**
+	 * The stars table as a graph, for findPath. Built on first use if it has
+	 * not been set.
+	 */
+	private volatile CoStarGraph coStarGraph;
+
+	/**
+	 * Held while the co-star graph is built. A lock rather than a monitor, so
+	 * that a virtual thread waiting on the build does not pin its carrier.
+	 */
+	private final ReentrantLock coStarGraphLock = new ReentrantLock();
+
 	public PersonDAO() {
-		Database database = Database.getInstance();
-		connection = database.getConnection();
+		this(new QueryRunner(Database.getInstance()));
+	}
+
+	/**
+	 * Constructs a PersonDAO that runs its queries through the given runner. A
+	 * subclass that serves every method from somewhere other than the
+	 * database may pass null.
+	 *
+	 * @param queries the query runner
+	 */
+	protected PersonDAO(QueryRunner queries) {
+		this.queries = queries;
 	}
-	
+
 	public List<Person> getAllPeople() throws SQLException {
 		return getPeopleByLimit(50);
 	}
-		public List<Person> getPeopleByLimit(int limit) throws SQLException{
-			List<Person> person = new ArrayList<>();
-			String query = "SELECT * FROM people LIMIT ?";
-			try (PreparedStatement statement = connection.prepareStatement(query)){
-				statement.setInt(1, limit);
-				ResultSet rs = statement.executeQuery();
-				while (rs.next()) {
-					person.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
-				}
-			}
-			return person;
-		}
-	
-	public Person getPersonById (int id) throws SQLException {
 
-		String statement = "select * from people where id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, id);
-		ResultSet rs = ps.executeQuery();
+	/**
+	 * Returns the first page of people, in id order.
+	 *
+	 * @param limit the maximum number of people to return
+	 * @return the people with the lowest ids
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> getPeopleByLimit(int limit) throws SQLException{
+		String query = "SELECT id, name, birth FROM people ORDER BY id LIMIT ?";
+		return queries.query(query, RowMappers.PERSON, limit);
+	}
 
-		if (rs.next()) {
+	/**
+	 * Returns the page of people that follows the given id, in id order.
+	 *
+	 * @param afterId the id of the last person on the previous page
+	 * @param limit   the maximum number of people to return
+	 * @return the people with ids greater than afterId
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> getPeopleAfter(int afterId, int limit) throws SQLException {
+		String query = "SELECT id, name, birth FROM people WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.query(query, RowMappers.PERSON, afterId, limit);
+	}
 
-			return new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth"));
+	/**
+	 * Streams the page of people that follows the given id, in id order, to a
+	 * callback instead of returning a list. Pass Integer.MIN_VALUE for the
+	 * first page.
+	 *
+	 * @param afterId  the id of the last person on the previous page
+	 * @param limit    the maximum number of people to stream
+	 * @param callback receives each person
+	 * @return the number of people streamed
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public int streamPeopleAfter(int afterId, int limit, RowCallback<Person> callback)
+			throws SQLException, IOException {
+		String query = "SELECT id, name, birth FROM people WHERE id > ? ORDER BY id LIMIT ?";
+		return queries.forEach(query, RowMappers.PERSON, callback, afterId, limit);
+	}
+
+	/**
+	 * Returns the id of the last person on the page that follows the given
+	 * id, if that page is full; see {@link MovieDAO#getLastMovieIdOfPage}.
+	 *
+	 * @param afterId the id of the last person on the previous page
+	 * @param limit   the page size
+	 * @return the id of the limit-th person after afterId, or null if there
+	 *         are fewer
+	 * @throws SQLException if a database error occurs
+	 */
+	public Integer getLastPersonIdOfPage(int afterId, int limit) throws SQLException {
+		String query = "SELECT id FROM people WHERE id > ? ORDER BY id LIMIT 1 OFFSET ?";
+		return queries.queryOne(query, RowMappers.ID, afterId, limit - 1);
+	}
+
+	public Person getPersonById (int id) throws SQLException {
+		if (personCache != null) {
+			return personCache.get(id, this::loadPersonById);
 		}
-		
-		// return null if the id does not return a movie.
+		return loadPersonById(id);
+	}
+
+	private Person loadPersonById(int id) throws SQLException {
+
+		String statement = "select id, name, birth from people where id = ?";
+
+		// return null if the id does not return a person.
 
-		return null;
+		return queries.queryOne(statement, RowMappers.PERSON, id);
+	}
+
+	/**
+	 * Returns the people with the given ids, in the order the ids were given,
+	 * with null for every id that does not exist. People in the cache are
+	 * served from it; the rest come from one IN query per chunk of ids.
+	 *
+	 * @param ids the ids of the people
+	 * @return one person or null per id
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> getPeopleByIds(int[] ids) throws SQLException {
+		return BatchLookup.byIds(ids, personCache,
+				missing -> queries.queryIn("SELECT id, name, birth FROM people WHERE id IN (%s)", RowMappers.PERSON,
+						missing),
+				Person::getId);
 	}
 	public List<Movie> getMoviesStarringPerson(int personId) throws SQLException{
-		String query = "SELECT m.id, m.title, m.year FROM Movies m" + 
-				" JOIN Stars s ON s.movie_id = m.id " +  
+		String query = "SELECT m.id, m.title, m.year FROM Movies m" +
+				" JOIN Stars s ON s.movie_id = m.id " +
 				" WHERE s.person_id = ?";
-		List<Movie>stars = new ArrayList<>();
-		
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setInt(1, personId);
-			ResultSet resultSet = statement.executeQuery();
-			
-			while (resultSet.next()) {
-				int id = resultSet.getInt("id");
-				String title = resultSet.getString("title");
-				int year = resultSet.getInt("year");
-				stars.add(new Movie(id, title, year));
+		return queries.query(query, RowMappers.MOVIE, personId);
+	}
+
+	/**
+	 * Streams the movies a person has starred in to a callback.
+	 *
+	 * @param personId the id of the person
+	 * @param callback receives each movie
+	 * @return the number of movies streamed
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public int streamMoviesStarringPerson(int personId, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		String query = "SELECT m.id, m.title, m.year FROM Movies m" +
+				" JOIN Stars s ON s.movie_id = m.id " +
+				" WHERE s.person_id = ?";
+		return queries.forEach(query, RowMappers.MOVIE, callback, personId);
+	}
+
+	/**
+	 * Returns the movies each of a number of people star in, using one
+	 * grouped query per chunk of ids rather than one query per person.
+	 *
+	 * @param personIds the ids of the people
+	 * @return the movies of each person that stars in any, by person id
+	 * @throws SQLException if a database error occurs
+	 */
+	public Map<Integer, List<Movie>> getMoviesByPersonIds(int[] personIds) throws SQLException {
+		String query = "SELECT m.id, m.title, m.year, s.person_id FROM stars s" +
+				" JOIN movies m ON m.id = s.movie_id" +
+				" WHERE s.person_id IN (%s)";
+		return BatchLookup.groupByKey(queries.queryIn(query, RowMappers.keyed(RowMappers.MOVIE, 4), personIds));
+	}
+
+	/**
+	 * Adds the requested relations to a list of people, e.g. a page of
+	 * /people. Each relation costs one query for the whole list, however many
+	 * people it holds.
+	 *
+	 * @param people the people, which may include nulls for missing ids
+	 * @param movies whether to include the movies each person stars in
+	 * @return the people with their relations, in the same order, with nulls
+	 *         kept
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<PersonDetails> getPersonDetails(List<Person> people, boolean movies) throws SQLException {
+		int[] ids = BatchLookup.distinctIds(people, Person::getId);
+		Map<Integer, List<Movie>> moviesByPerson = (movies && ids.length > 0) ? getMoviesByPersonIds(ids) : null;
+		List<PersonDetails> details = new ArrayList<>(people.size());
+		for (Person person : people) {
+			if (person == null) {
+				details.add(null);
+				continue;
+			}
+			PersonDetails detail = new PersonDetails(person);
+			if (moviesByPerson != null) {
+				detail.setMovies(moviesByPerson.getOrDefault(person.getId(), new ArrayList<>()));
+			}
+			details.add(detail);
+		}
+		return details;
+	}
+
+	/**
+	 * Returns the people with a word of their name starting with the prefix,
+	 * ignoring case, most popular first. A person's popularity is the number
+	 * of movies they star in; people with the same popularity are returned by
+	 * name, then id.
+	 *
+	 * Without a name index this scans the people table and counts the stars
+	 * of every match, and case is only ignored for ASCII letters.
+	 *
+	 * @param prefix the start of a name or of a word in it
+	 * @param limit  the maximum number of people to return
+	 * @return the matching people, most popular first
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> autocompleteNames(String prefix, int limit) throws SQLException {
+		if (nameIndex != null) {
+			return nameIndex.complete(prefix, limit);
+		}
+		String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+		String query = "SELECT p.id, p.name, p.birth FROM people p" +
+				" LEFT JOIN stars s ON s.person_id = p.id" +
+				" WHERE p.name LIKE ? ESCAPE '\\' OR p.name LIKE ? ESCAPE '\\'" +
+				" GROUP BY p.id" +
+				" ORDER BY COUNT(s.person_id) DESC, lower(p.name), p.id" +
+				" LIMIT ?";
+		return queries.query(query, RowMappers.PERSON, pattern, "% " + pattern, limit);
+	}
+
+	/**
+	 * Reads every person and how many movies they star in into a
+	 * NameAutocompleteIndex.
+	 *
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public NameAutocompleteIndex buildNameAutocompleteIndex() throws SQLException {
+		NameAutocompleteIndex.Builder builder = new NameAutocompleteIndex.Builder();
+		try {
+			queries.forEach("SELECT id, name, birth FROM people ORDER BY id", RowMappers.PERSON, builder::add);
+			queries.forEach("SELECT person_id, COUNT(*) FROM stars GROUP BY person_id",
+					rs -> new int[] { rs.getInt(1), rs.getInt(2) },
+					count -> builder.setPopularity(count[0], count[1]));
+		} catch (IOException e) {
+			// the builder only collects rows in memory and never does I/O
+			throw new IllegalStateException(e);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Answers autocompleteNames from an in-memory prefix index instead of the
+	 * database. Pass null to go back to querying the database.
+	 *
+	 * @param nameIndex the index to use
+	 */
+	public void setNameAutocompleteIndex(NameAutocompleteIndex nameIndex) {
+		this.nameIndex = nameIndex;
+	}
+
+	public NameAutocompleteIndex getNameAutocompleteIndex() {
+		return nameIndex;
+	}
+
+	/**
+	 * Returns the shortest chain of co-stars linking two people, like "six
+	 * degrees of Kevin Bacon". The search runs over the in-memory co-star
+	 * graph; only the people and movies on the chain are read from the
+	 * database.
+	 *
+	 * @param fromPersonId the id of the first person
+	 * @param toPersonId   the id of the last person
+	 * @return the chain, or null if the two are not connected
+	 * @throws SQLException if a database error occurs
+	 */
+	public SeparationPath findPath(int fromPersonId, int toPersonId) throws SQLException {
+		CoStarGraph.Path path = getCoStarGraph().findPath(fromPersonId, toPersonId);
+		if (path == null) {
+			return null;
+		}
+		List<Person> people = getPeopleByIds(path.getPersonIds());
+		List<Movie> movies = BatchLookup.byIds(path.getMovieIds(), null,
+				missing -> queries.queryIn("SELECT id, title, year FROM movies WHERE id IN (%s)", RowMappers.MOVIE,
+						missing),
+				Movie::getId);
+		return new SeparationPath(people, movies);
+	}
+
+	/**
+	 * Reads the stars table into a CoStarGraph.
+	 *
+	 * @return the graph
+	 * @throws SQLException if a database error occurs
+	 */
+	public CoStarGraph buildCoStarGraph() throws SQLException {
+		CoStarGraph.Builder builder = new CoStarGraph.Builder();
+		try {
+			queries.forEach("SELECT movie_id, person_id FROM stars", rs -> new int[] { rs.getInt(1), rs.getInt(2) },
+					row -> builder.add(row[0], row[1]));
+		} catch (IOException e) {
+			// the builder only collects rows in memory and never does I/O
+			throw new IllegalStateException(e);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Sets the graph findPath searches, e.g. one built at startup.
+	 *
+	 * @param coStarGraph the graph to use
+	 */
+	public void setCoStarGraph(CoStarGraph coStarGraph) {
+		this.coStarGraph = coStarGraph;
+	}
+
+	/**
+	 * Returns the graph findPath searches, building it if it has not been set.
+	 *
+	 * @return the graph
+	 * @throws SQLException if a database error occurs
+	 */
+	public CoStarGraph getCoStarGraph() throws SQLException {
+		CoStarGraph graph = coStarGraph;
+		if (graph == null) {
+			coStarGraphLock.lock();
+			try {
+				graph = coStarGraph;
+				if (graph == null) {
+					graph = buildCoStarGraph();
+					coStarGraph = graph;
+				}
+			} finally {
+				coStarGraphLock.unlock();
 			}
 		}
-		return stars;
-
-	// for the must have requirements, you will need to implement the following
-	// methods:
-	// - getAllPeople()
-	// - getPersonById(int id)
-	// you will add further methods for the more advanced tasks; however, ensure your have completed 
-	// the must have requirements before you start these. 
+		return graph;
+	}
+
+	/**
+	 * Puts a read-through cache in front of getPersonById. Pass null to turn
+	 * the cache off.
+	 *
+	 * @param personCache the cache to use
+	 */
+	public void setPersonCache(EntityCache<Person> personCache) {
+		this.personCache = personCache;
+	}
+
+	public EntityCache<Person> getPersonCache() {
+		return personCache;
 	}
 }
@@ -0,0 +1,264 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.PooledConnection;
+import com.flickfinder.util.SlowQueryLog;
+
+/**
+ * Runs the DAOs' queries.
+ *
+ * Every query borrows a connection, takes the prepared statement for its SQL
+ * from that connection's statement cache, binds the parameters and maps the
+ * rows. The result set is always closed and the connection always returned,
+ * even if mapping a row fails. Statements are never closed here; they stay in
+ * the cache for the next call with the same SQL.
+ *
+ * When the database has a {@link SlowQueryLog}, each statement is timed from
+ * binding its parameters until its last row has been mapped, and handed to
+ * the log while the connection is still borrowed.
+ *
+ */
+public class QueryRunner {
+
+	/**
+	 * The number of placeholders an IN list is padded to. Keeping to a few
+	 * fixed sizes means a batch of any length reuses a handful of cached
+	 * statements instead of preparing new SQL for every length.
+	 */
+	static final int[] IN_LIST_SIZES = { 1, 4, 16, 64, 256 };
+
+	/**
+	 * The database to borrow connections from.
+	 */
+	private final Database database;
+
+	/**
+	 * Constructs a QueryRunner for a database.
+	 *
+	 * @param database the database to query
+	 */
+	public QueryRunner(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * Runs a query and maps every row it returns.
+	 *
+	 * @param <T>    the type of the mapped rows
+	 * @param sql    the SQL text, with ? placeholders
+	 * @param mapper maps each row
+	 * @param params the values for the placeholders, in order
+	 * @return the mapped rows, in the order the database returned them
+	 * @throws SQLException if a database error occurs
+	 */
+	public <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+		SlowQueryLog slowQueries = database.getSlowQueryLog();
+		try (PooledConnection lease = database.acquire()) {
+			long start = (slowQueries == null) ? 0 : System.nanoTime();
+			PreparedStatement statement = prepare(lease, sql, params);
+			List<T> rows = new ArrayList<>();
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					rows.add(mapper.map(rs));
+				}
+			} catch (SQLException e) {
+				lease.getStatementCache().evict(sql);
+				throw e;
+			}
+			if (slowQueries != null) {
+				slowQueries.record(lease, sql, params, System.nanoTime() - start);
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * Runs a query and maps the first row it returns.
+	 *
+	 * @param <T>    the type of the mapped row
+	 * @param sql    the SQL text, with ? placeholders
+	 * @param mapper maps the row
+	 * @param params the values for the placeholders, in order
+	 * @return the mapped row, or null if the query returned no rows
+	 * @throws SQLException if a database error occurs
+	 */
+	public <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+		SlowQueryLog slowQueries = database.getSlowQueryLog();
+		try (PooledConnection lease = database.acquire()) {
+			long start = (slowQueries == null) ? 0 : System.nanoTime();
+			PreparedStatement statement = prepare(lease, sql, params);
+			T row;
+			try (ResultSet rs = statement.executeQuery()) {
+				row = rs.next() ? mapper.map(rs) : null;
+			} catch (SQLException e) {
+				lease.getStatementCache().evict(sql);
+				throw e;
+			}
+			if (slowQueries != null) {
+				slowQueries.record(lease, sql, params, System.nanoTime() - start);
+			}
+			return row;
+		}
+	}
+
+	/**
+	 * Runs a query and hands each row to a callback as the cursor advances,
+	 * without keeping the rows. The connection stays borrowed until the last
+	 * row has been handled, so the callback should not block for long. Time
+	 * spent in the callback does not count towards the slow query log.
+	 *
+	 * @param <T>      the type of the mapped rows
+	 * @param sql      the SQL text, with ? placeholders
+	 * @param mapper   maps each row
+	 * @param callback receives each mapped row
+	 * @param params   the values for the placeholders, in order
+	 * @return the number of rows handled
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback fails
+	 */
+	public <T> int forEach(String sql, RowMapper<T> mapper, RowCallback<T> callback, Object... params)
+			throws SQLException, IOException {
+		SlowQueryLog slowQueries = database.getSlowQueryLog();
+		try (PooledConnection lease = database.acquire()) {
+			long start = (slowQueries == null) ? 0 : System.nanoTime();
+			long callbackNanos = 0;
+			PreparedStatement statement = prepare(lease, sql, params);
+			int count = 0;
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					T row = mapper.map(rs);
+					if (slowQueries == null) {
+						callback.accept(row);
+					} else {
+						// a slow client is not a slow query
+						long before = System.nanoTime();
+						callback.accept(row);
+						callbackNanos += System.nanoTime() - before;
+					}
+					count++;
+				}
+			} catch (SQLException e) {
+				lease.getStatementCache().evict(sql);
+				throw e;
+			}
+			if (slowQueries != null) {
+				slowQueries.record(lease, sql, params, System.nanoTime() - start - callbackNanos);
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Runs a query and returns a cursor over its rows, for callers that read
+	 * several queries side by side. The connection is borrowed until the
+	 * cursor is closed.
+	 *
+	 * @param <T>    the type of the mapped rows
+	 * @param sql    the SQL text, with ? placeholders
+	 * @param mapper maps each row
+	 * @param params the values for the placeholders, in order
+	 * @return the open cursor; the caller must close it
+	 * @throws SQLException if a database error occurs
+	 */
+	public <T> RowCursor<T> open(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+		SlowQueryLog slowQueries = database.getSlowQueryLog();
+		PooledConnection lease = database.acquire();
+		try {
+			PreparedStatement statement = prepare(lease, sql, params);
+			try {
+				return new RowCursor<>(lease, sql, params, mapper, slowQueries, statement);
+			} catch (SQLException e) {
+				lease.getStatementCache().evict(sql);
+				throw e;
+			}
+		} catch (SQLException | RuntimeException e) {
+			lease.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs a query once per chunk of ids and maps every row the chunks return.
+	 * The SQL must contain a single {@code %s}, which is replaced by the
+	 * placeholders of an IN list, e.g. {@code WHERE id IN (%s)}. Each chunk is
+	 * padded to one of the IN_LIST_SIZES by repeating its last id, and the ids
+	 * are bound after any other parameters.
+	 *
+	 * @param <T>    the type of the mapped rows
+	 * @param sql    the SQL text, with %s for the IN list
+	 * @param mapper maps each row
+	 * @param ids    the ids to look up; should not contain duplicates
+	 * @param params the values for any placeholders before the IN list
+	 * @return the mapped rows of every chunk, in no particular order
+	 * @throws SQLException if a database error occurs
+	 */
+	public <T> List<T> queryIn(String sql, RowMapper<T> mapper, int[] ids, Object... params) throws SQLException {
+		List<T> rows = new ArrayList<>();
+		int largest = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+		for (int from = 0; from < ids.length; from += largest) {
+			int count = Math.min(largest, ids.length - from);
+			int size = inListSize(count);
+			Object[] bound = new Object[params.length + size];
+			System.arraycopy(params, 0, bound, 0, params.length);
+			for (int i = 0; i < size; i++) {
+				bound[params.length + i] = ids[from + Math.min(i, count - 1)];
+			}
+			rows.addAll(query(String.format(sql, placeholders(size)), mapper, bound));
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the smallest of the IN_LIST_SIZES that holds count ids.
+	 */
+	static int inListSize(int count) {
+		for (int size : IN_LIST_SIZES) {
+			if (size >= count) {
+				return size;
+			}
+		}
+		return IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+	}
+
+	private static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ",?");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Takes the cached statement for the SQL and binds the parameters to it.
+	 */
+	private static PreparedStatement prepare(PooledConnection lease, String sql, Object... params)
+			throws SQLException {
+		PreparedStatement statement = lease.prepare(sql);
+		try {
+			for (int i = 0; i < params.length; i++) {
+				Object param = params[i];
+				if (param instanceof Integer) {
+					statement.setInt(i + 1, (Integer) param);
+				} else {
+					statement.setObject(i + 1, param);
+				}
+			}
+		} catch (SQLException e) {
+			lease.getStatementCache().evict(sql);
+			throw e;
+		}
+		return statement;
+	}
+
+	public Database getDatabase() {
+		return database;
+	}
+
+}
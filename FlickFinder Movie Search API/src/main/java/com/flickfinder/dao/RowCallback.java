@@ -0,0 +1,22 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a query one at a time, while the cursor is still
+ * open. Used to stream results without collecting them into a list first.
+ *
+ * @param <T> the type of the mapped rows
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+	/**
+	 * Handles one row.
+	 *
+	 * @param row the mapped row
+	 * @throws IOException if the row cannot be written out
+	 */
+	void accept(T row) throws IOException;
+
+}
@@ -0,0 +1,93 @@
+package com.flickfinder.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.flickfinder.util.PooledConnection;
+import com.flickfinder.util.SlowQueryLog;
+
+/**
+ * An open query whose rows are read one at a time by the caller, as opened
+ * by {@link QueryRunner#open}. Where forEach pushes every row to a callback,
+ * a cursor lets the caller decide when to take the next one, so that the
+ * rows of several queries can be merged as they are read.
+ *
+ * The connection stays borrowed until the cursor is closed, which must
+ * always happen. Only the time spent in {@link #next()} counts towards the
+ * slow query log.
+ *
+ * @param <T> the type of the mapped rows
+ */
+public final class RowCursor<T> implements AutoCloseable {
+
+	private final PooledConnection lease;
+
+	private final String sql;
+
+	private final Object[] params;
+
+	private final RowMapper<T> mapper;
+
+	private final SlowQueryLog slowQueries;
+
+	private final ResultSet rs;
+
+	private long nanos;
+
+	private boolean failed;
+
+	RowCursor(PooledConnection lease, String sql, Object[] params, RowMapper<T> mapper, SlowQueryLog slowQueries,
+			PreparedStatement statement) throws SQLException {
+		this.lease = lease;
+		this.sql = sql;
+		this.params = params;
+		this.mapper = mapper;
+		this.slowQueries = slowQueries;
+		long start = (slowQueries == null) ? 0 : System.nanoTime();
+		this.rs = statement.executeQuery();
+		if (slowQueries != null) {
+			nanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Moves to the next row and maps it.
+	 *
+	 * @return the mapped row, or null once every row has been read
+	 * @throws SQLException if a database error occurs
+	 */
+	public T next() throws SQLException {
+		long start = (slowQueries == null) ? 0 : System.nanoTime();
+		try {
+			T row = rs.next() ? mapper.map(rs) : null;
+			if (slowQueries != null) {
+				nanos += System.nanoTime() - start;
+			}
+			return row;
+		} catch (SQLException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the result set and returns the connection.
+	 *
+	 * @throws SQLException if the result set cannot be closed
+	 */
+	@Override
+	public void close() throws SQLException {
+		try {
+			rs.close();
+			if (failed) {
+				lease.getStatementCache().evict(sql);
+			} else if (slowQueries != null) {
+				slowQueries.record(lease, sql, params, nanos);
+			}
+		} finally {
+			lease.close();
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.flickfinder.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Turns the current row of a result set into an object.
+ *
+ * @param <T> the type of object the row becomes
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+	/**
+	 * Maps the row the result set is positioned on. Implementations should not
+	 * move the cursor.
+	 *
+	 * @param rs the result set
+	 * @return the mapped row
+	 * @throws SQLException if a column cannot be read
+	 */
+	T map(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,63 @@
+package com.flickfinder.dao;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+
+/**
+ * The row mappers shared by the DAOs.
+ *
+ * They read columns by position, so each query must select the columns in
+ * the order given here.
+ *
+ */
+final class RowMappers {
+
+	/**
+	 * Maps a row of id, title and year columns to a Movie.
+	 */
+	static final RowMapper<Movie> MOVIE = rs -> new Movie(rs.getInt(1), rs.getString(2), rs.getInt(3));
+
+	/**
+	 * Maps a row of a single id column to the id.
+	 */
+	static final RowMapper<Integer> ID = rs -> rs.getInt(1);
+
+	/**
+	 * Maps a row of id, name and birth columns to a Person.
+	 */
+	static final RowMapper<Person> PERSON = rs -> new Person(rs.getInt(1), rs.getString(2), rs.getInt(3));
+
+	/**
+	 * Maps a row of id, title, rating, votes and year columns to a MovieRating.
+	 */
+	static final RowMapper<MovieRating> MOVIE_RATING = rs -> new MovieRating(rs.getInt(1), rs.getString(2),
+			rs.getFloat(3), rs.getInt(4), rs.getInt(5));
+
+	/**
+	 * Maps a row of rating and votes columns to a Rating.
+	 */
+	static final RowMapper<Rating> RATING = rs -> new Rating(rs.getFloat(1), rs.getInt(2));
+
+	/**
+	 * Maps a row with another mapper and pairs the result with the integer in
+	 * a later column, e.g. the id of the parent row it belongs to. The key
+	 * column must come after the columns the mapper reads.
+	 *
+	 * @param <T>       the type of the mapped rows
+	 * @param mapper    maps the leading columns
+	 * @param keyColumn the position of the key column
+	 * @return a mapper to key and row pairs
+	 */
+	static <T> RowMapper<Map.Entry<Integer, T>> keyed(RowMapper<T> mapper, int keyColumn) {
+		return rs -> new AbstractMap.SimpleImmutableEntry<>(rs.getInt(keyColumn), mapper.map(rs));
+	}
+
+	private RowMappers() {
+	}
+
+}
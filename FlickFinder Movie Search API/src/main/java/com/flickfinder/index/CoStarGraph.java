@@ -0,0 +1,420 @@
+package com.flickfinder.index;
+
+import java.util.Arrays;
+
+/**
+ * The stars table as an in-memory graph of people and the movies they star
+ * in, for finding the shortest chain of co-stars between two people.
+ *
+ * Both directions are held in compressed sparse row form: the movies of the
+ * person at index p are personMovies[personStart[p]] up to
+ * personMovies[personStart[p + 1]], and likewise for the people of a movie.
+ * Ids are mapped to dense indexes by binary search over the sorted ids, so
+ * the whole graph is a handful of int arrays.
+ *
+ * A path search runs a breadth-first search from both ends at once, always
+ * growing the smaller frontier by a full level, and stops as soon as the two
+ * meet. Each search tracks what it has visited in its own bitmaps, so any
+ * number of searches can run at the same time.
+ *
+ * The graph is a snapshot of the database at the time it was built; rebuild
+ * it to pick up changes.
+ *
+ */
+public class CoStarGraph {
+
+	private final int[] personIds;
+
+	private final int[] movieIds;
+
+	private final int[] personStart;
+
+	private final int[] personMovies;
+
+	private final int[] movieStart;
+
+	private final int[] moviePeople;
+
+	private CoStarGraph(int[] personIds, int[] movieIds, int[] personStart, int[] personMovies, int[] movieStart,
+			int[] moviePeople) {
+		this.personIds = personIds;
+		this.movieIds = movieIds;
+		this.personStart = personStart;
+		this.personMovies = personMovies;
+		this.movieStart = movieStart;
+		this.moviePeople = moviePeople;
+	}
+
+	/**
+	 * A chain of people linked by movies they starred in together: movie i
+	 * stars both person i and person i + 1.
+	 */
+	public static final class Path {
+
+		private final int[] personIds;
+
+		private final int[] movieIds;
+
+		Path(int[] personIds, int[] movieIds) {
+			this.personIds = personIds;
+			this.movieIds = movieIds;
+		}
+
+		/**
+		 * Returns the ids of the people on the path, from the first person to
+		 * the last.
+		 *
+		 * @return the person ids
+		 */
+		public int[] getPersonIds() {
+			return personIds;
+		}
+
+		/**
+		 * Returns the ids of the movies linking the people on the path.
+		 *
+		 * @return the movie ids, one fewer than the person ids
+		 */
+		public int[] getMovieIds() {
+			return movieIds;
+		}
+	}
+
+	/**
+	 * Finds a shortest chain of co-stars from one person to another.
+	 *
+	 * @param fromPersonId the id of the first person
+	 * @param toPersonId   the id of the last person
+	 * @return the path, or null if either person stars in nothing or the two
+	 *         are not connected
+	 */
+	public Path findPath(int fromPersonId, int toPersonId) {
+		int from = Arrays.binarySearch(personIds, fromPersonId);
+		int to = Arrays.binarySearch(personIds, toPersonId);
+		if (from < 0 || to < 0) {
+			return null;
+		}
+		if (from == to) {
+			return new Path(new int[] { fromPersonId }, new int[0]);
+		}
+		Search forward = new Search(from);
+		Search backward = new Search(to);
+		while (!forward.isExhausted() && !backward.isExhausted()) {
+			Search side = (forward.frontierWork() <= backward.frontierWork()) ? forward : backward;
+			Search other = (side == forward) ? backward : forward;
+			int meeting = side.expand(other);
+			if (meeting >= 0) {
+				return path(forward, backward, meeting);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Joins the chain from the start to the meeting person with the chain
+	 * from there to the end.
+	 */
+	private Path path(Search forward, Search backward, int meeting) {
+		int forwardLength = forward.depthOf(meeting);
+		int backwardLength = backward.depthOf(meeting);
+		int[] people = new int[forwardLength + backwardLength + 1];
+		int[] movies = new int[forwardLength + backwardLength];
+
+		int person = meeting;
+		for (int i = forwardLength; i > 0; i--) {
+			people[i] = personIds[person];
+			movies[i - 1] = movieIds[forward.viaMovie(person)];
+			person = forward.parent(person);
+		}
+		people[0] = personIds[person];
+
+		person = meeting;
+		for (int i = forwardLength; i < people.length - 1; i++) {
+			movies[i] = movieIds[backward.viaMovie(person)];
+			person = backward.parent(person);
+			people[i + 1] = personIds[person];
+		}
+		return new Path(people, movies);
+	}
+
+	/**
+	 * Returns the number of people who star in at least one movie.
+	 *
+	 * @return the number of people
+	 */
+	public int personCount() {
+		return personIds.length;
+	}
+
+	/**
+	 * Returns the number of movies with at least one star.
+	 *
+	 * @return the number of movies
+	 */
+	public int movieCount() {
+		return movieIds.length;
+	}
+
+	/**
+	 * Returns the number of stars rows, i.e. edges, in the graph.
+	 *
+	 * @return the number of edges
+	 */
+	public int edgeCount() {
+		return personMovies.length;
+	}
+
+	/**
+	 * One side of a bidirectional search.
+	 */
+	private final class Search {
+
+		private final long[] visitedPeople = new long[(personIds.length + 63) >>> 6];
+
+		private final long[] visitedMovies = new long[(movieIds.length + 63) >>> 6];
+
+		/**
+		 * How each visited person was reached: the person before them in the
+		 * upper half and the movie they share in the lower half.
+		 */
+		private final IntLongMap parents = new IntLongMap();
+
+		private int[] frontier;
+
+		private int frontierSize;
+
+		Search(int start) {
+			frontier = new int[] { start };
+			frontierSize = 1;
+			mark(visitedPeople, start);
+		}
+
+		boolean isExhausted() {
+			return frontierSize == 0;
+		}
+
+		/**
+		 * Estimates the cost of expanding the frontier by the number of movies
+		 * it would look at.
+		 */
+		long frontierWork() {
+			long work = 0;
+			for (int i = 0; i < frontierSize; i++) {
+				work += personStart[frontier[i] + 1] - personStart[frontier[i]];
+			}
+			return work;
+		}
+
+		/**
+		 * Visits every person one movie away from the frontier.
+		 *
+		 * @return a person the other side has visited too, or -1 if the sides
+		 *         have not met
+		 */
+		int expand(Search other) {
+			int[] next = new int[Math.max(16, frontierSize)];
+			int nextSize = 0;
+			for (int i = 0; i < frontierSize; i++) {
+				int person = frontier[i];
+				for (int e = personStart[person]; e < personStart[person + 1]; e++) {
+					int movie = personMovies[e];
+					if (isMarked(visitedMovies, movie)) {
+						continue;
+					}
+					mark(visitedMovies, movie);
+					for (int f = movieStart[movie]; f < movieStart[movie + 1]; f++) {
+						int costar = moviePeople[f];
+						if (isMarked(visitedPeople, costar)) {
+							continue;
+						}
+						mark(visitedPeople, costar);
+						parents.put(costar, ((long) person << 32) | movie);
+						if (isMarked(other.visitedPeople, costar)) {
+							return costar;
+						}
+						if (nextSize == next.length) {
+							next = Arrays.copyOf(next, nextSize * 2);
+						}
+						next[nextSize++] = costar;
+					}
+				}
+			}
+			frontier = next;
+			frontierSize = nextSize;
+			return -1;
+		}
+
+		int parent(int person) {
+			return (int) (parents.get(person) >>> 32);
+		}
+
+		int viaMovie(int person) {
+			return (int) parents.get(person);
+		}
+
+		/**
+		 * Returns how many movies away from the start a visited person is.
+		 */
+		int depthOf(int person) {
+			int depth = 0;
+			while (parents.containsKey(person)) {
+				person = parent(person);
+				depth++;
+			}
+			return depth;
+		}
+	}
+
+	private static boolean isMarked(long[] bitmap, int index) {
+		return (bitmap[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static void mark(long[] bitmap, int index) {
+		bitmap[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * An open-addressing hash map from int to long, so that a search only
+	 * pays for the people it reaches rather than for an array sized to the
+	 * whole graph.
+	 */
+	private static final class IntLongMap {
+
+		private int[] keys = new int[64];
+
+		private long[] values = new long[64];
+
+		private boolean[] used = new boolean[64];
+
+		private int size;
+
+		void put(int key, long value) {
+			if (size * 2 >= keys.length) {
+				grow();
+			}
+			int slot = slot(key, keys.length);
+			while (used[slot] && keys[slot] != key) {
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			if (!used[slot]) {
+				used[slot] = true;
+				keys[slot] = key;
+				size++;
+			}
+			values[slot] = value;
+		}
+
+		long get(int key) {
+			int slot = find(key);
+			return (slot < 0) ? -1 : values[slot];
+		}
+
+		boolean containsKey(int key) {
+			return find(key) >= 0;
+		}
+
+		private int find(int key) {
+			int slot = slot(key, keys.length);
+			while (used[slot]) {
+				if (keys[slot] == key) {
+					return slot;
+				}
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			return -1;
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			long[] oldValues = values;
+			boolean[] oldUsed = used;
+			keys = new int[oldKeys.length * 2];
+			values = new long[oldKeys.length * 2];
+			used = new boolean[oldKeys.length * 2];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldUsed[i]) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		private static int slot(int key, int length) {
+			int hash = key * 0x9E3779B9;
+			return (hash ^ (hash >>> 16)) & (length - 1);
+		}
+	}
+
+	/**
+	 * Collects stars rows and builds a CoStarGraph from them, in any order.
+	 */
+	public static class Builder {
+
+		private int size;
+
+		private int[] movieColumn = new int[1024];
+
+		private int[] personColumn = new int[1024];
+
+		/**
+		 * Adds a stars row.
+		 *
+		 * @param movieId  the id of the movie
+		 * @param personId the id of the person starring in it
+		 */
+		public void add(int movieId, int personId) {
+			if (size == movieColumn.length) {
+				movieColumn = Arrays.copyOf(movieColumn, size * 2);
+				personColumn = Arrays.copyOf(personColumn, size * 2);
+			}
+			movieColumn[size] = movieId;
+			personColumn[size] = personId;
+			size++;
+		}
+
+		/**
+		 * Builds the graph. The builder should not be used afterwards.
+		 *
+		 * @return the graph
+		 */
+		public CoStarGraph build() {
+			int[] personIds = distinct(personColumn, size);
+			int[] movieIds = distinct(movieColumn, size);
+			int[] people = new int[size];
+			int[] movies = new int[size];
+			for (int i = 0; i < size; i++) {
+				people[i] = Arrays.binarySearch(personIds, personColumn[i]);
+				movies[i] = Arrays.binarySearch(movieIds, movieColumn[i]);
+			}
+			int[] personStart = new int[personIds.length + 1];
+			int[] personMovies = new int[size];
+			fill(people, movies, personStart, personMovies);
+			int[] movieStart = new int[movieIds.length + 1];
+			int[] moviePeople = new int[size];
+			fill(movies, people, movieStart, moviePeople);
+			return new CoStarGraph(personIds, movieIds, personStart, personMovies, movieStart, moviePeople);
+		}
+
+		private static int[] distinct(int[] column, int size) {
+			return Arrays.stream(column, 0, size).sorted().distinct().toArray();
+		}
+
+		/**
+		 * Lays out the edges in compressed sparse row form: a counting sort of
+		 * the edges by their source.
+		 */
+		private void fill(int[] sources, int[] targets, int[] start, int[] adjacency) {
+			for (int i = 0; i < size; i++) {
+				start[sources[i] + 1]++;
+			}
+			for (int i = 1; i < start.length; i++) {
+				start[i] += start[i - 1];
+			}
+			int[] next = Arrays.copyOf(start, start.length - 1);
+			for (int i = 0; i < size; i++) {
+				adjacency[next[sources[i]]++] = targets[i];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,365 @@
+package com.flickfinder.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import com.flickfinder.model.Person;
+
+/**
+ * An in-memory prefix index over people's names that answers type-ahead
+ * requests, most popular person first, without touching the database.
+ *
+ * Every word of every lower-cased name is an entry, so "fre" finds Morgan
+ * Freeman as well as Fred Astaire. An entry is just a person and the offset
+ * of the word in their name; the entries are sorted by the rest of the name
+ * from that word on, so the entries matching a prefix are one contiguous run
+ * found with two binary searches.
+ *
+ * A person's popularity is the number of movies they star in. A segment tree
+ * over the entries holds, for every range, the entry of the most popular
+ * person in it, so the top k people of a run of any length come out of a
+ * best-first walk that touches O(k log n) nodes rather than the whole run.
+ *
+ * The index is a snapshot of the database at the time it was built; rebuild
+ * it to pick up changes.
+ *
+ */
+public class NameAutocompleteIndex {
+
+	private final int[] ids;
+
+	private final String[] names;
+
+	private final int[] births;
+
+	/**
+	 * The lower-cased names the entries point into.
+	 */
+	private final String[] normalized;
+
+	private final int[] popularity;
+
+	/**
+	 * Each person's position when sorted by lower-cased name, then id. Breaks
+	 * ties between equally popular people.
+	 */
+	private final int[] nameOrder;
+
+	/**
+	 * The person of each entry, in entry order.
+	 */
+	private final int[] entryPerson;
+
+	/**
+	 * Where each entry's word starts in its person's name.
+	 */
+	private final int[] entryOffset;
+
+	/**
+	 * An iterative segment tree over the entries: node i holds the best entry
+	 * of its children 2i and 2i + 1, and the leaves start at entryPerson.length.
+	 */
+	private final int[] tree;
+
+	private NameAutocompleteIndex(int[] ids, String[] names, int[] births, String[] normalized, int[] popularity,
+			int[] nameOrder, int[] entryPerson, int[] entryOffset) {
+		this.ids = ids;
+		this.names = names;
+		this.births = births;
+		this.normalized = normalized;
+		this.popularity = popularity;
+		this.nameOrder = nameOrder;
+		this.entryPerson = entryPerson;
+		this.entryOffset = entryOffset;
+
+		int n = entryPerson.length;
+		tree = new int[2 * n];
+		for (int i = 0; i < n; i++) {
+			tree[n + i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+		}
+	}
+
+	/**
+	 * Returns the most popular people with a word of their name starting with
+	 * the prefix, ignoring case. People starring in the same number of movies
+	 * are returned by name, then id.
+	 *
+	 * @param prefix the start of a name or of a word in it
+	 * @param limit  the maximum number of people to return
+	 * @return the matching people, most popular first
+	 */
+	public List<Person> complete(String prefix, int limit) {
+		String p = normalize(prefix);
+		List<Person> people = new ArrayList<>();
+		int from = lowerBound(p, false);
+		int to = lowerBound(p, true);
+		if (p.isEmpty() || limit < 1 || from >= to) {
+			return people;
+		}
+
+		// each queued range is {best entry, from, to}, best first
+		PriorityQueue<int[]> ranges = new PriorityQueue<>(
+				Comparator.comparingInt((int[] range) -> -popularity[entryPerson[range[0]]])
+						.thenComparingInt(range -> nameOrder[entryPerson[range[0]]]));
+		ranges.add(new int[] { best(from, to), from, to });
+		int[] seen = new int[Math.min(limit, to - from)];
+		while (!ranges.isEmpty() && people.size() < limit) {
+			int[] range = ranges.poll();
+			int entry = range[0];
+			int person = entryPerson[entry];
+			// a person with two words matching the prefix has two entries
+			if (!contains(seen, people.size(), person)) {
+				seen[people.size()] = person;
+				people.add(new Person(ids[person], names[person], births[person]));
+			}
+			if (range[1] < entry) {
+				ranges.add(new int[] { best(range[1], entry), range[1], entry });
+			}
+			if (entry + 1 < range[2]) {
+				ranges.add(new int[] { best(entry + 1, range[2]), entry + 1, range[2] });
+			}
+		}
+		return people;
+	}
+
+	private static boolean contains(int[] values, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the first entry whose key is not less than the prefix or, if
+	 * past is true, the first entry whose key is greater than the prefix and
+	 * does not start with it.
+	 */
+	private int lowerBound(String prefix, boolean past) {
+		int lo = 0;
+		int hi = entryPerson.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = comparePrefix(mid, prefix);
+			if (cmp < 0 || (past && cmp == 0)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Compares an entry's key with a prefix, returning 0 if the key starts
+	 * with it.
+	 */
+	private int comparePrefix(int entry, String prefix) {
+		String name = normalized[entryPerson[entry]];
+		int offset = entryOffset[entry];
+		int length = Math.min(name.length() - offset, prefix.length());
+		for (int i = 0; i < length; i++) {
+			int diff = name.charAt(offset + i) - prefix.charAt(i);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return (name.length() - offset < prefix.length()) ? -1 : 0;
+	}
+
+	/**
+	 * Returns the entry of the most popular person in [from, to).
+	 */
+	private int best(int from, int to) {
+		int n = entryPerson.length;
+		int result = -1;
+		for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) {
+				result = (result < 0) ? tree[l] : better(result, tree[l]);
+				l++;
+			}
+			if ((r & 1) == 1) {
+				r--;
+				result = (result < 0) ? tree[r] : better(result, tree[r]);
+			}
+		}
+		return result;
+	}
+
+	private int better(int a, int b) {
+		int pa = entryPerson[a];
+		int pb = entryPerson[b];
+		if (popularity[pa] != popularity[pb]) {
+			return (popularity[pa] > popularity[pb]) ? a : b;
+		}
+		return (nameOrder[pa] <= nameOrder[pb]) ? a : b;
+	}
+
+	/**
+	 * Returns the number of people in the index.
+	 *
+	 * @return the number of people
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the number of entries, i.e. the number of words in all names.
+	 *
+	 * @return the number of entries
+	 */
+	public int entryCount() {
+		return entryPerson.length;
+	}
+
+	static String normalize(String text) {
+		return (text == null) ? "" : text.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Collects people and builds a NameAutocompleteIndex from them. The people
+	 * must be added in ascending id order, and their popularity set after.
+	 */
+	public static class Builder {
+
+		private int size;
+
+		private int[] ids = new int[1024];
+
+		private String[] names = new String[1024];
+
+		private int[] births = new int[1024];
+
+		private int[] popularity = new int[1024];
+
+		/**
+		 * Adds the next person, with a popularity of zero.
+		 *
+		 * @param person the person
+		 * @throws IllegalArgumentException if the person is out of order
+		 */
+		public void add(Person person) {
+			if (size > 0 && person.getId() <= ids[size - 1]) {
+				throw new IllegalArgumentException("People must be added in ascending id order: " + person);
+			}
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				names = Arrays.copyOf(names, capacity);
+				births = Arrays.copyOf(births, capacity);
+				popularity = Arrays.copyOf(popularity, capacity);
+			}
+			ids[size] = person.getId();
+			names[size] = (person.getName() == null) ? "" : person.getName();
+			births[size] = person.getBirth();
+			size++;
+		}
+
+		/**
+		 * Sets the popularity of a person already added. Unknown ids are
+		 * ignored.
+		 *
+		 * @param id         the id of the person
+		 * @param popularity the number of movies they star in
+		 */
+		public void setPopularity(int id, int popularity) {
+			int person = Arrays.binarySearch(ids, 0, size, id);
+			if (person >= 0) {
+				this.popularity[person] = popularity;
+			}
+		}
+
+		/**
+		 * Builds the index. The builder should not be used afterwards.
+		 *
+		 * @return the index
+		 */
+		public NameAutocompleteIndex build() {
+			String[] normalized = new String[size];
+			int entries = 0;
+			for (int i = 0; i < size; i++) {
+				normalized[i] = normalize(names[i]);
+				entries += wordStarts(normalized[i], null);
+			}
+			int[] entryPerson = new int[entries];
+			int[] entryOffset = new int[entries];
+			int[] starts = new int[16];
+			int e = 0;
+			for (int i = 0; i < size; i++) {
+				if (starts.length < normalized[i].length()) {
+					starts = new int[normalized[i].length()];
+				}
+				int count = wordStarts(normalized[i], starts);
+				for (int w = 0; w < count; w++) {
+					entryPerson[e] = i;
+					entryOffset[e] = starts[w];
+					e++;
+				}
+			}
+
+			Integer[] order = new Integer[entries];
+			for (int i = 0; i < entries; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> {
+				int cmp = normalized[entryPerson[a]].substring(entryOffset[a])
+						.compareTo(normalized[entryPerson[b]].substring(entryOffset[b]));
+				return (cmp != 0) ? cmp : Integer.compare(entryPerson[a], entryPerson[b]);
+			});
+			int[] sortedPerson = new int[entries];
+			int[] sortedOffset = new int[entries];
+			for (int i = 0; i < entries; i++) {
+				sortedPerson[i] = entryPerson[order[i]];
+				sortedOffset[i] = entryOffset[order[i]];
+			}
+
+			Integer[] byName = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				byName[i] = i;
+			}
+			Arrays.sort(byName, (a, b) -> {
+				int cmp = normalized[a].compareTo(normalized[b]);
+				return (cmp != 0) ? cmp : Integer.compare(ids[a], ids[b]);
+			});
+			int[] nameOrder = new int[size];
+			for (int i = 0; i < size; i++) {
+				nameOrder[byName[i]] = i;
+			}
+
+			return new NameAutocompleteIndex(Arrays.copyOf(ids, size), Arrays.copyOf(names, size),
+					Arrays.copyOf(births, size), normalized, Arrays.copyOf(popularity, size), nameOrder,
+					sortedPerson, sortedOffset);
+		}
+
+		/**
+		 * Finds where the words of a name start, i.e. every non-space
+		 * character after a space or at the start.
+		 *
+		 * @param name   the name
+		 * @param starts receives the offsets, or null to only count them
+		 * @return the number of words
+		 */
+		private static int wordStarts(String name, int[] starts) {
+			int count = 0;
+			for (int i = 0; i < name.length(); i++) {
+				if (name.charAt(i) != ' ' && (i == 0 || name.charAt(i - 1) == ' ')) {
+					if (starts != null) {
+						starts[count] = i;
+					}
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+
+}
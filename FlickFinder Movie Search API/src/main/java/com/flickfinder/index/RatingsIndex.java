@@ -0,0 +1,179 @@
+package com.flickfinder.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.flickfinder.model.MovieRating;
+
+/**
+ * An in-memory index of rated movies, grouped by year and pre-sorted by
+ * rating, that answers getRatingsByYear without touching the database.
+ *
+ * Each year's movies sit in one contiguous run of parallel primitive arrays
+ * (id, rating, votes, plus the title), highest rating first. A request is a
+ * linear scan of its year's run that skips movies under the vote threshold
+ * and stops as soon as it has {@code limit} results, so no request ever
+ * sorts anything.
+ *
+ * The index is a snapshot of the database at the time it was built; rebuild
+ * it to pick up changes.
+ *
+ */
+public class RatingsIndex {
+
+	/**
+	 * The distinct years, ascending.
+	 */
+	private final int[] years;
+
+	/**
+	 * Where each year's run starts in the row arrays; the run of years[i]
+	 * ends where the run of years[i + 1] starts.
+	 */
+	private final int[] yearStarts;
+
+	private final int[] ids;
+
+	private final float[] ratings;
+
+	private final int[] votes;
+
+	private final String[] titles;
+
+	private RatingsIndex(int[] years, int[] yearStarts, int[] ids, float[] ratings, int[] votes,
+			String[] titles) {
+		this.years = years;
+		this.yearStarts = yearStarts;
+		this.ids = ids;
+		this.ratings = ratings;
+		this.votes = votes;
+		this.titles = titles;
+	}
+
+	/**
+	 * Returns the highest rated movies of a year, like
+	 * {@code MovieDAO.getRatingsByYear}. Movies with the same rating are
+	 * returned in id order.
+	 *
+	 * @param year     the release year
+	 * @param limit    the maximum number of movies to return
+	 * @param minVotes only movies with more votes than this are returned
+	 * @return the movies, highest rating first
+	 */
+	public List<MovieRating> getRatingsByYear(int year, int limit, int minVotes) {
+		int y = Arrays.binarySearch(years, year);
+		if (y < 0 || limit < 1) {
+			return Collections.emptyList();
+		}
+		int end = yearStarts[y + 1];
+		List<MovieRating> result = new ArrayList<>(Math.min(limit, end - yearStarts[y]));
+		for (int i = yearStarts[y]; i < end; i++) {
+			if (votes[i] > minVotes) {
+				result.add(new MovieRating(ids[i], titles[i], ratings[i], votes[i], year));
+				if (result.size() == limit) {
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of rated movies in the index.
+	 *
+	 * @return the number of movies
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the number of distinct years in the index.
+	 *
+	 * @return the number of years
+	 */
+	public int yearCount() {
+		return years.length;
+	}
+
+	/**
+	 * Collects rated movies and builds a RatingsIndex from them. The movies
+	 * must be added ordered by year, then by rating from highest to lowest,
+	 * then by id.
+	 */
+	public static class Builder {
+
+		private int size;
+
+		private int[] ids = new int[1024];
+
+		private float[] ratings = new float[1024];
+
+		private int[] votes = new int[1024];
+
+		private int[] rowYears = new int[1024];
+
+		private String[] titles = new String[1024];
+
+		/**
+		 * Adds the next movie.
+		 *
+		 * @param movie the movie and its rating
+		 * @throws IllegalArgumentException if the movie is out of order
+		 */
+		public void add(MovieRating movie) {
+			if (size > 0) {
+				int previousYear = rowYears[size - 1];
+				if (movie.getYear() < previousYear
+						|| (movie.getYear() == previousYear && movie.getRating() > ratings[size - 1])) {
+					throw new IllegalArgumentException("Movies must be added by year, then by rating descending: "
+							+ movie);
+				}
+			}
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				ratings = Arrays.copyOf(ratings, capacity);
+				votes = Arrays.copyOf(votes, capacity);
+				rowYears = Arrays.copyOf(rowYears, capacity);
+				titles = Arrays.copyOf(titles, capacity);
+			}
+			ids[size] = movie.getId();
+			ratings[size] = movie.getRating();
+			votes[size] = movie.getVotes();
+			rowYears[size] = movie.getYear();
+			titles[size] = movie.getTitle();
+			size++;
+		}
+
+		/**
+		 * Builds the index. The builder should not be used afterwards.
+		 *
+		 * @return the index
+		 */
+		public RatingsIndex build() {
+			int yearCount = 0;
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || rowYears[i] != rowYears[i - 1]) {
+					yearCount++;
+				}
+			}
+			int[] years = new int[yearCount];
+			int[] yearStarts = new int[yearCount + 1];
+			int y = 0;
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || rowYears[i] != rowYears[i - 1]) {
+					years[y] = rowYears[i];
+					yearStarts[y] = i;
+					y++;
+				}
+			}
+			yearStarts[yearCount] = size;
+			return new RatingsIndex(years, yearStarts, Arrays.copyOf(ids, size), Arrays.copyOf(ratings, size),
+					Arrays.copyOf(votes, size), Arrays.copyOf(titles, size));
+		}
+	}
+
+}
@@ -0,0 +1,475 @@
+package com.flickfinder.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.flickfinder.model.Movie;
+
+/**
+ * An in-memory trigram index over movie titles that answers substring
+ * searches without scanning the movies table.
+ *
+ * Every lower-cased title is broken into its overlapping three character
+ * sequences, and each trigram maps to the sorted list of movies whose title
+ * contains it. The lists are stored back to back in one byte array as
+ * varint-encoded gaps between neighbouring entries, which keeps the index a
+ * fraction of the size of plain int lists. A query intersects the lists of
+ * its own trigrams, shortest first, then checks the few remaining candidates
+ * really contain the query.
+ *
+ * Matches are ranked exact title first, then titles starting with the query,
+ * then titles with a word starting with it, then any other match; within a
+ * rank shorter titles come first, then lower ids.
+ *
+ * The index is a snapshot of the database at the time it was built; rebuild
+ * it to pick up changes.
+ *
+ */
+public class TitleSearchIndex {
+
+	/**
+	 * Queries shorter than this have no trigrams and scan every title.
+	 */
+	private static final int GRAM = 3;
+
+	private static final int EXACT = 0;
+
+	private static final int PREFIX = 1;
+
+	private static final int WORD_START = 2;
+
+	private static final int SUBSTRING = 3;
+
+	private final int[] ids;
+
+	private final String[] titles;
+
+	private final int[] years;
+
+	/**
+	 * The lower-cased titles the trigrams were taken from.
+	 */
+	private final String[] normalized;
+
+	/**
+	 * The distinct trigrams, ascending.
+	 */
+	private final long[] grams;
+
+	/**
+	 * Where each trigram's posting list starts in postings; the list of
+	 * grams[i] ends where the list of grams[i + 1] starts.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * How many movies each trigram's posting list holds.
+	 */
+	private final int[] counts;
+
+	/**
+	 * The posting lists, as varint-encoded gaps between movie positions.
+	 */
+	private final byte[] postings;
+
+	private TitleSearchIndex(int[] ids, String[] titles, int[] years, String[] normalized, long[] grams,
+			int[] offsets, int[] counts, byte[] postings) {
+		this.ids = ids;
+		this.titles = titles;
+		this.years = years;
+		this.normalized = normalized;
+		this.grams = grams;
+		this.offsets = offsets;
+		this.counts = counts;
+		this.postings = postings;
+	}
+
+	/**
+	 * Returns the movies whose title contains the query, ignoring case, best
+	 * match first.
+	 *
+	 * @param query the text to look for
+	 * @param limit the maximum number of movies to return
+	 * @return the matching movies, ranked
+	 */
+	public List<Movie> search(String query, int limit) {
+		String q = normalize(query);
+		if (q.isEmpty() || limit < 1) {
+			return new ArrayList<>();
+		}
+		TopK top;
+		if (q.length() < GRAM) {
+			top = new TopK(Math.min(limit, normalized.length));
+			for (int doc = 0; doc < normalized.length; doc++) {
+				offer(top, q, doc);
+			}
+		} else {
+			int[] candidates = candidates(q);
+			top = new TopK(Math.min(limit, candidates.length));
+			for (int doc : candidates) {
+				offer(top, q, doc);
+			}
+		}
+		long[] keys = top.sorted();
+		List<Movie> movies = new ArrayList<>(keys.length);
+		for (long key : keys) {
+			int doc = (int) key;
+			movies.add(new Movie(ids[doc], titles[doc], years[doc]));
+		}
+		return movies;
+	}
+
+	/**
+	 * Returns the positions of the movies whose title contains every trigram
+	 * of the query, in ascending order.
+	 */
+	private int[] candidates(String q) {
+		long[] queryGrams = trigrams(q);
+		int[] lists = new int[queryGrams.length];
+		for (int i = 0; i < queryGrams.length; i++) {
+			int g = Arrays.binarySearch(grams, queryGrams[i]);
+			if (g < 0) {
+				return new int[0];
+			}
+			lists[i] = g;
+		}
+		// start from the rarest trigram so the candidate set is small from the outset
+		Integer[] order = new Integer[lists.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = lists[i];
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(counts[a], counts[b]));
+
+		int[] result = decode(order[0]);
+		int size = result.length;
+		for (int i = 1; i < order.length && size > 0; i++) {
+			size = intersect(result, size, order[i]);
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Decodes the posting list of a trigram.
+	 */
+	private int[] decode(int g) {
+		int[] docs = new int[counts[g]];
+		int pos = offsets[g];
+		int doc = 0;
+		for (int i = 0; i < docs.length; i++) {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = postings[pos++];
+				gap |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			doc += gap;
+			docs[i] = doc;
+		}
+		return docs;
+	}
+
+	/**
+	 * Keeps the first size entries of docs that also appear in the posting
+	 * list of a trigram, decoding the list as it goes.
+	 *
+	 * @return the number of entries kept
+	 */
+	private int intersect(int[] docs, int size, int g) {
+		int pos = offsets[g];
+		int end = (g + 1 < offsets.length) ? offsets[g + 1] : postings.length;
+		int doc = 0;
+		int kept = 0;
+		int i = 0;
+		while (i < size && pos < end) {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = postings[pos++];
+				gap |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			doc += gap;
+			while (i < size && docs[i] < doc) {
+				i++;
+			}
+			if (i < size && docs[i] == doc) {
+				docs[kept++] = doc;
+				i++;
+			}
+		}
+		return kept;
+	}
+
+	private void offer(TopK top, String q, int doc) {
+		String title = normalized[doc];
+		int at = title.indexOf(q);
+		if (at < 0) {
+			return;
+		}
+		int rank;
+		if (at == 0) {
+			rank = (title.length() == q.length()) ? EXACT : PREFIX;
+		} else if (title.charAt(at - 1) == ' ' || title.contains(" " + q)) {
+			rank = WORD_START;
+		} else {
+			rank = SUBSTRING;
+		}
+		// rank, then title length, then position (which follows id order)
+		long key = ((long) rank << 48) | ((long) Math.min(title.length(), 0xFFFF) << 32) | doc;
+		top.offer(key);
+	}
+
+	/**
+	 * Returns the number of movies in the index.
+	 *
+	 * @return the number of movies
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the number of distinct trigrams in the index.
+	 *
+	 * @return the number of trigrams
+	 */
+	public int trigramCount() {
+		return grams.length;
+	}
+
+	/**
+	 * Returns the size of the compressed posting lists.
+	 *
+	 * @return the size in bytes
+	 */
+	public int postingBytes() {
+		return postings.length;
+	}
+
+	/**
+	 * Normalises a title or query the way the index compares them.
+	 *
+	 * @param text the title or query
+	 * @return the lower-cased text
+	 */
+	static String normalize(String text) {
+		return (text == null) ? "" : text.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the distinct trigrams of a normalised string, ascending. Each
+	 * trigram is its three UTF-16 chars packed into a long.
+	 */
+	static long[] trigrams(String s) {
+		if (s.length() < GRAM) {
+			return new long[0];
+		}
+		long[] result = new long[s.length() - GRAM + 1];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+		}
+		Arrays.sort(result);
+		int distinct = 0;
+		for (int i = 0; i < result.length; i++) {
+			if (i == 0 || result[i] != result[i - 1]) {
+				result[distinct++] = result[i];
+			}
+		}
+		return Arrays.copyOf(result, distinct);
+	}
+
+	/**
+	 * Keeps the smallest keys offered, in a bounded max-heap.
+	 */
+	private static final class TopK {
+
+		private final long[] heap;
+
+		private int size;
+
+		TopK(int limit) {
+			heap = new long[limit];
+		}
+
+		void offer(long key) {
+			if (heap.length == 0) {
+				return;
+			}
+			if (size < heap.length) {
+				heap[size] = key;
+				siftUp(size++);
+			} else if (key < heap[0]) {
+				heap[0] = key;
+				siftDown(0);
+			}
+		}
+
+		long[] sorted() {
+			long[] result = Arrays.copyOf(heap, size);
+			Arrays.sort(result);
+			return result;
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heap[parent] >= heap[i]) {
+					return;
+				}
+				swap(parent, i);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int largest = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < size && heap[left] > heap[largest]) {
+					largest = left;
+				}
+				if (right < size && heap[right] > heap[largest]) {
+					largest = right;
+				}
+				if (largest == i) {
+					return;
+				}
+				swap(i, largest);
+				i = largest;
+			}
+		}
+
+		private void swap(int a, int b) {
+			long t = heap[a];
+			heap[a] = heap[b];
+			heap[b] = t;
+		}
+	}
+
+	/**
+	 * Collects movies and builds a TitleSearchIndex from them. The movies
+	 * must be added in ascending id order.
+	 */
+	public static class Builder {
+
+		private int size;
+
+		private int[] ids = new int[1024];
+
+		private String[] titles = new String[1024];
+
+		private int[] years = new int[1024];
+
+		/**
+		 * Adds the next movie.
+		 *
+		 * @param movie the movie
+		 * @throws IllegalArgumentException if the movie is out of order
+		 */
+		public void add(Movie movie) {
+			if (size > 0 && movie.getId() <= ids[size - 1]) {
+				throw new IllegalArgumentException("Movies must be added in ascending id order: " + movie);
+			}
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				titles = Arrays.copyOf(titles, capacity);
+				years = Arrays.copyOf(years, capacity);
+			}
+			ids[size] = movie.getId();
+			titles[size] = movie.getTitle();
+			years[size] = movie.getYear();
+			size++;
+		}
+
+		/**
+		 * Builds the index. The builder should not be used afterwards.
+		 *
+		 * @return the index
+		 */
+		public TitleSearchIndex build() {
+			String[] normalized = new String[size];
+			Map<Long, Postings> lists = new HashMap<>();
+			for (int doc = 0; doc < size; doc++) {
+				normalized[doc] = normalize(titles[doc]);
+				for (long gram : trigrams(normalized[doc])) {
+					lists.computeIfAbsent(gram, k -> new Postings()).add(doc);
+				}
+			}
+
+			long[] grams = new long[lists.size()];
+			int g = 0;
+			for (long gram : lists.keySet()) {
+				grams[g++] = gram;
+			}
+			Arrays.sort(grams);
+
+			int[] offsets = new int[grams.length];
+			int[] counts = new int[grams.length];
+			VarintWriter out = new VarintWriter();
+			for (g = 0; g < grams.length; g++) {
+				Postings list = lists.get(grams[g]);
+				offsets[g] = out.bytes;
+				counts[g] = list.size;
+				int previous = 0;
+				for (int i = 0; i < list.size; i++) {
+					out.write(list.docs[i] - previous);
+					previous = list.docs[i];
+				}
+			}
+			return new TitleSearchIndex(Arrays.copyOf(ids, size), Arrays.copyOf(titles, size),
+					Arrays.copyOf(years, size), normalized, grams, offsets, counts, out.toByteArray());
+		}
+	}
+
+	/**
+	 * The movies containing one trigram, while the index is being built.
+	 */
+	private static final class Postings {
+
+		private int[] docs = new int[4];
+
+		private int size;
+
+		void add(int doc) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+			}
+			docs[size++] = doc;
+		}
+	}
+
+	/**
+	 * A growable byte buffer that varint-encoded posting lists are written to.
+	 */
+	private static final class VarintWriter {
+
+		private byte[] buffer = new byte[4096];
+
+		private int bytes;
+
+		void write(int value) {
+			if (bytes + 5 > buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			while ((value & ~0x7F) != 0) {
+				buffer[bytes++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[bytes++] = (byte) value;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, bytes);
+		}
+	}
+
+}
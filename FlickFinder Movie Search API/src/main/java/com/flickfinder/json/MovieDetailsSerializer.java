@@ -0,0 +1,56 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.MovieDetails;
+
+/**
+ * Writes a {@link MovieDetails}, leaving out null fields as its
+ * {@code @JsonInclude(NON_NULL)} asks.
+ */
+public class MovieDetailsSerializer extends StdSerializer<MovieDetails> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString STARS = new SerializedString("stars");
+
+	public MovieDetailsSerializer() {
+		super(MovieDetails.class);
+	}
+
+	@Override
+	public void serialize(MovieDetails movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(movie);
+		MovieSerializer.writeFields(movie, gen, false);
+		writeList(STARS, movie.getStars(), gen, provider);
+		if (movie.getRating() != null) {
+			gen.writeFieldName(RatingSerializer.RATING);
+			provider.defaultSerializeValue(movie.getRating(), gen);
+		}
+		gen.writeEndObject();
+	}
+
+	/**
+	 * Writes a nested list field, if it is not null, with the serializers
+	 * registered for its elements.
+	 */
+	static void writeList(SerializableString name, List<?> values, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		if (values == null) {
+			return;
+		}
+		gen.writeFieldName(name);
+		gen.writeStartArray(values, values.size());
+		for (Object value : values) {
+			provider.defaultSerializeValue(value, gen);
+		}
+		gen.writeEndArray();
+	}
+
+}
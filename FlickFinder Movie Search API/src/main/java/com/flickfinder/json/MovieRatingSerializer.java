@@ -0,0 +1,33 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.MovieRating;
+
+/**
+ * Writes a {@link MovieRating}: the movie's fields followed by its rating and
+ * votes.
+ */
+public class MovieRatingSerializer extends StdSerializer<MovieRating> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MovieRatingSerializer() {
+		super(MovieRating.class);
+	}
+
+	@Override
+	public void serialize(MovieRating movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(movie);
+		MovieSerializer.writeFields(movie, gen, true);
+		gen.writeFieldName(RatingSerializer.RATING);
+		gen.writeNumber(movie.getRating());
+		gen.writeFieldName(RatingSerializer.VOTES);
+		gen.writeNumber(movie.getVotes());
+		gen.writeEndObject();
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.Movie;
+
+/**
+ * Writes a {@link Movie} the way Jackson's bean serializer does, without
+ * introspection or reflective getter calls.
+ */
+public class MovieSerializer extends StdSerializer<Movie> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString ID = new SerializedString("id");
+
+	static final SerializableString TITLE = new SerializedString("title");
+
+	static final SerializableString YEAR = new SerializedString("year");
+
+	public MovieSerializer() {
+		super(Movie.class);
+	}
+
+	@Override
+	public void serialize(Movie movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(movie);
+		writeFields(movie, gen, true);
+		gen.writeEndObject();
+	}
+
+	/**
+	 * Writes the fields every movie has.
+	 *
+	 * @param movie     the movie
+	 * @param gen       the generator, inside the movie's object
+	 * @param nullTitle whether a null title is written, rather than left out
+	 */
+	static void writeFields(Movie movie, JsonGenerator gen, boolean nullTitle) throws IOException {
+		gen.writeFieldName(ID);
+		gen.writeNumber(movie.getId());
+		if (nullTitle || movie.getTitle() != null) {
+			gen.writeFieldName(TITLE);
+			gen.writeString(movie.getTitle());
+		}
+		gen.writeFieldName(YEAR);
+		gen.writeNumber(movie.getYear());
+	}
+
+}
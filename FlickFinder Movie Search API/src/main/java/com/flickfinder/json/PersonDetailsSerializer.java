@@ -0,0 +1,34 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.PersonDetails;
+
+/**
+ * Writes a {@link PersonDetails}, leaving out null fields as its
+ * {@code @JsonInclude(NON_NULL)} asks.
+ */
+public class PersonDetailsSerializer extends StdSerializer<PersonDetails> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString MOVIES = new SerializedString("movies");
+
+	public PersonDetailsSerializer() {
+		super(PersonDetails.class);
+	}
+
+	@Override
+	public void serialize(PersonDetails person, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(person);
+		PersonSerializer.writeFields(person, gen, false);
+		MovieDetailsSerializer.writeList(MOVIES, person.getMovies(), gen, provider);
+		gen.writeEndObject();
+	}
+
+}
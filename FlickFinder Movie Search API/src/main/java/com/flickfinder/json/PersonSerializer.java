@@ -0,0 +1,53 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.Person;
+
+/**
+ * Writes a {@link Person} the way Jackson's bean serializer does, without
+ * introspection or reflective getter calls.
+ */
+public class PersonSerializer extends StdSerializer<Person> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString NAME = new SerializedString("name");
+
+	static final SerializableString BIRTH = new SerializedString("birth");
+
+	public PersonSerializer() {
+		super(Person.class);
+	}
+
+	@Override
+	public void serialize(Person person, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(person);
+		writeFields(person, gen, true);
+		gen.writeEndObject();
+	}
+
+	/**
+	 * Writes the fields every person has.
+	 *
+	 * @param person   the person
+	 * @param gen      the generator, inside the person's object
+	 * @param nullName whether a null name is written, rather than left out
+	 */
+	static void writeFields(Person person, JsonGenerator gen, boolean nullName) throws IOException {
+		gen.writeFieldName(MovieSerializer.ID);
+		gen.writeNumber(person.getId());
+		if (nullName || person.getName() != null) {
+			gen.writeFieldName(NAME);
+			gen.writeString(person.getName());
+		}
+		gen.writeFieldName(BIRTH);
+		gen.writeNumber(person.getBirth());
+	}
+
+}
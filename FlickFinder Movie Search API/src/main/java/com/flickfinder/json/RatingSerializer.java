@@ -0,0 +1,37 @@
+package com.flickfinder.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flickfinder.model.Rating;
+
+/**
+ * Writes a {@link Rating}.
+ */
+public class RatingSerializer extends StdSerializer<Rating> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString RATING = new SerializedString("rating");
+
+	static final SerializableString VOTES = new SerializedString("votes");
+
+	public RatingSerializer() {
+		super(Rating.class);
+	}
+
+	@Override
+	public void serialize(Rating rating, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(rating);
+		gen.writeFieldName(RATING);
+		gen.writeNumber(rating.getRating());
+		gen.writeFieldName(VOTES);
+		gen.writeNumber(rating.getVotes());
+		gen.writeEndObject();
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.flickfinder.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with fixed Prometheus-style buckets, from half a
+ * millisecond to ten seconds.
+ *
+ * Recording increments two striped counters and adds to a third, with no
+ * locks, so threads recording at the same time do not contend on a single
+ * cache line. Reading sums them, which is only done when /metrics is
+ * scraped.
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The upper bounds of the buckets in seconds, as written in the le label.
+	 */
+	static final String[] BOUNDS = { "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25",
+			"0.5", "1", "2.5", "5", "10" };
+
+	/**
+	 * The same bounds in nanoseconds.
+	 */
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS.length; i++) {
+			BOUNDS_NANOS[i] = (long) (Double.parseDouble(BOUNDS[i]) * 1e9);
+		}
+	}
+
+	/**
+	 * The count of each bucket alone, with the last for everything above the
+	 * largest bound.
+	 */
+	private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+	private final LongAdder sumNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		int i = 0;
+		while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * Records the time since a start.
+	 *
+	 * @param startNanos the start, by System.nanoTime
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Returns the cumulative count of each bucket, the last being the total.
+	 *
+	 * @return the counts, one more than there are bounds
+	 */
+	long[] cumulativeCounts() {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			total += buckets[i].sum();
+			counts[i] = total;
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the sum of the recorded durations.
+	 *
+	 * @return the sum in seconds
+	 */
+	double sumSeconds() {
+		return sumNanos.sum() / 1e9;
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		long total = 0;
+		for (LongAdder bucket : buckets) {
+			total += bucket.sum();
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,348 @@
+package com.flickfinder.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+/**
+ * The server's metrics, written in the Prometheus text format by
+ * {@link #scrape()}.
+ *
+ * Requests are timed per route from when the route's handler starts until
+ * the last after handler has run, including any time on the DB executor, and
+ * counted by status. DAO calls are timed and their rows counted per method;
+ * see {@link TimedMovieDAO} and {@link TimedPersonDAO}. JSON written by
+ * ctx.json is timed by {@link TimedJsonMapper}. Everything else, such as
+ * the connection pool and the caches, is read when scraped from gauges and
+ * counters registered with {@link #gauge} and {@link #counter}, along with
+ * the JVM's memory, garbage collection and threads.
+ *
+ * Recording only touches LongAdders and never locks, so it does not become
+ * a point of contention under load.
+ *
+ */
+public class Metrics {
+
+	/**
+	 * The context attribute that holds the timing of a request.
+	 */
+	static final String TIMING_ATTRIBUTE = "flickfinder.metrics";
+
+	private static final String REQUEST_SECONDS = "flickfinder_http_request_duration_seconds";
+
+	private static final String REQUESTS = "flickfinder_http_requests_total";
+
+	private static final String DAO_SECONDS = "flickfinder_dao_call_duration_seconds";
+
+	private static final String DAO_ROWS = "flickfinder_dao_rows_total";
+
+	private static final String JSON_SECONDS = "flickfinder_json_serialization_seconds";
+
+	/**
+	 * The timings and statuses of a route.
+	 */
+	private static final class RouteStats {
+
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		final ConcurrentHashMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+	}
+
+	/**
+	 * When a request started and which route it is on.
+	 */
+	private static final class Timing {
+
+		final RouteStats route;
+
+		final long start;
+
+		Timing(RouteStats route, long start) {
+			this.route = route;
+			this.start = start;
+		}
+
+	}
+
+	/**
+	 * The timings and row counts of one DAO method.
+	 */
+	public static final class DaoMethod {
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private final LongAdder rows = new LongAdder();
+
+		/**
+		 * Records a call that has just returned.
+		 *
+		 * @param startNanos when the call started, by System.nanoTime
+		 * @param rows       how many rows it returned
+		 */
+		public void record(long startNanos, int rows) {
+			latency.recordSince(startNanos);
+			this.rows.add(rows);
+		}
+
+	}
+
+	/**
+	 * Gauges or counters that share a name, each with its own labels.
+	 */
+	private static final class Family {
+
+		final String type;
+
+		final String help;
+
+		final List<String> labels = new ArrayList<>();
+
+		final List<DoubleSupplier> values = new ArrayList<>();
+
+		Family(String type, String help) {
+			this.type = type;
+			this.help = help;
+		}
+
+	}
+
+	private final ConcurrentHashMap<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+	/**
+	 * By dao and method, joined by a dot.
+	 */
+	private final ConcurrentHashMap<String, DaoMethod> daoMethods = new ConcurrentHashMap<>();
+
+	private final LatencyHistogram json = new LatencyHistogram();
+
+	/**
+	 * Guarded by itself.
+	 */
+	private final Map<String, Family> families = new LinkedHashMap<>();
+
+	/**
+	 * Wraps a route's handler so that its requests are timed and counted.
+	 * The timing ends in {@link #recordRequest(Context)}.
+	 *
+	 * @param handler the handler
+	 * @param route   the route path, as registered
+	 * @return the wrapped handler
+	 */
+	public Handler wrap(Handler handler, String route) {
+		RouteStats stats = routes.computeIfAbsent(route, key -> new RouteStats());
+		return ctx -> {
+			ctx.attribute(TIMING_ATTRIBUTE, new Timing(stats, System.nanoTime()));
+			handler.handle(ctx);
+		};
+	}
+
+	/**
+	 * Records a request on a wrapped route. Register it as the last after
+	 * handler, so that the others are timed too.
+	 *
+	 * @param ctx the context
+	 */
+	public void recordRequest(Context ctx) {
+		Timing timing = ctx.attribute(TIMING_ATTRIBUTE);
+		if (timing == null) {
+			return;
+		}
+		timing.route.latency.recordSince(timing.start);
+		timing.route.statuses.computeIfAbsent(ctx.statusCode(), key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Returns the timings of a DAO method, creating them on first use.
+	 *
+	 * @param dao    the DAO, e.g. MovieDAO
+	 * @param method the method, e.g. getMovieById
+	 * @return the timings
+	 */
+	public DaoMethod daoMethod(String dao, String method) {
+		return daoMethods.computeIfAbsent(dao + "." + method, key -> new DaoMethod());
+	}
+
+	/**
+	 * Returns the timings of JSON serialization.
+	 *
+	 * @return the histogram
+	 */
+	public LatencyHistogram getJsonSerialization() {
+		return json;
+	}
+
+	/**
+	 * Registers a gauge, read whenever the metrics are scraped.
+	 *
+	 * @param name   the metric name
+	 * @param help   what it measures
+	 * @param value  reads the current value
+	 * @param labels label names and values, in pairs
+	 */
+	public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+		register("gauge", name, help, value, labels);
+	}
+
+	/**
+	 * Registers a counter kept elsewhere, read whenever the metrics are
+	 * scraped. The name should end in _total.
+	 *
+	 * @param name   the metric name
+	 * @param help   what it counts
+	 * @param value  reads the current count
+	 * @param labels label names and values, in pairs
+	 */
+	public void counter(String name, String help, DoubleSupplier value, String... labels) {
+		register("counter", name, help, value, labels);
+	}
+
+	private void register(String type, String name, String help, DoubleSupplier value, String... labels) {
+		synchronized (families) {
+			Family family = families.computeIfAbsent(name, key -> new Family(type, help));
+			if (!family.type.equals(type)) {
+				throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+			}
+			family.labels.add(labels(labels));
+			family.values.add(value);
+		}
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text format, version 0.0.4.
+	 *
+	 * @return the metrics
+	 */
+	public String scrape() {
+		StringBuilder out = new StringBuilder(16 * 1024);
+
+		Map<String, RouteStats> byRoute = new TreeMap<>(routes);
+		header(out, REQUESTS, "counter", "Requests handled, by route and status.");
+		byRoute.forEach((route, stats) -> new TreeMap<>(stats.statuses).forEach((status, count) -> sample(out,
+				REQUESTS, labels("route", route, "status", Integer.toString(status)), count.sum())));
+		header(out, REQUEST_SECONDS, "histogram", "Time to handle a request, by route.");
+		byRoute.forEach((route, stats) -> histogram(out, REQUEST_SECONDS, "route=\"" + escape(route) + "\"",
+				stats.latency));
+
+		Map<String, DaoMethod> byMethod = new TreeMap<>(daoMethods);
+		header(out, DAO_SECONDS, "histogram", "Time taken by a DAO call, by DAO and method.");
+		byMethod.forEach((key, method) -> histogram(out, DAO_SECONDS, daoLabels(key), method.latency));
+		header(out, DAO_ROWS, "counter", "Rows returned by DAO calls, by DAO and method.");
+		byMethod.forEach((key, method) -> sample(out, DAO_ROWS, "{" + daoLabels(key) + "}", method.rows.sum()));
+
+		header(out, JSON_SECONDS, "histogram", "Time to serialize a response body to JSON.");
+		histogram(out, JSON_SECONDS, "", json);
+
+		synchronized (families) {
+			families.forEach((name, family) -> {
+				header(out, name, family.type, family.help);
+				for (int i = 0; i < family.values.size(); i++) {
+					sample(out, name, family.labels.get(i), family.values.get(i).getAsDouble());
+				}
+			});
+		}
+
+		jvm(out);
+		return out.toString();
+	}
+
+	private static void jvm(StringBuilder out) {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+		header(out, "jvm_memory_used_bytes", "gauge", "Memory in use, by area.");
+		sample(out, "jvm_memory_used_bytes", labels("area", "heap"), heap.getUsed());
+		sample(out, "jvm_memory_used_bytes", labels("area", "nonheap"), nonHeap.getUsed());
+		header(out, "jvm_memory_committed_bytes", "gauge", "Memory committed by the JVM, by area.");
+		sample(out, "jvm_memory_committed_bytes", labels("area", "heap"), heap.getCommitted());
+		sample(out, "jvm_memory_committed_bytes", labels("area", "nonheap"), nonHeap.getCommitted());
+		header(out, "jvm_memory_max_bytes", "gauge", "The most memory the heap may grow to.");
+		sample(out, "jvm_memory_max_bytes", labels("area", "heap"), heap.getMax());
+
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		header(out, "jvm_gc_collections_total", "counter", "Garbage collections, by collector.");
+		for (GarbageCollectorMXBean gc : collectors) {
+			sample(out, "jvm_gc_collections_total", labels("gc", gc.getName()), gc.getCollectionCount());
+		}
+		header(out, "jvm_gc_collection_seconds_total", "counter", "Time spent collecting garbage, by collector.");
+		for (GarbageCollectorMXBean gc : collectors) {
+			sample(out, "jvm_gc_collection_seconds_total", labels("gc", gc.getName()), gc.getCollectionTime() / 1e3);
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		header(out, "jvm_threads", "gauge", "Live threads, by kind.");
+		sample(out, "jvm_threads", labels("kind", "all"), threads.getThreadCount());
+		sample(out, "jvm_threads", labels("kind", "daemon"), threads.getDaemonThreadCount());
+		header(out, "jvm_uptime_seconds", "gauge", "Time since the JVM started.");
+		sample(out, "jvm_uptime_seconds", "", ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+	}
+
+	private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+		long[] counts = histogram.cumulativeCounts();
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		for (int i = 0; i < LatencyHistogram.BOUNDS.length; i++) {
+			sample(out, name + "_bucket", "{" + prefix + "le=\"" + LatencyHistogram.BOUNDS[i] + "\"}", counts[i]);
+		}
+		long count = counts[counts.length - 1];
+		sample(out, name + "_bucket", "{" + prefix + "le=\"+Inf\"}", count);
+		String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+		sample(out, name + "_sum", braces, histogram.sumSeconds());
+		sample(out, name + "_count", braces, count);
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, double value) {
+		out.append(name).append(labels).append(' ');
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+		out.append('\n');
+	}
+
+	private static String daoLabels(String key) {
+		int dot = key.indexOf('.');
+		return "dao=\"" + escape(key.substring(0, dot)) + "\",method=\"" + escape(key.substring(dot + 1)) + "\"";
+	}
+
+	/**
+	 * Joins label names and values, in pairs, into {name="value",...}.
+	 */
+	private static String labels(String... pairs) {
+		if (pairs.length == 0) {
+			return "";
+		}
+		if (pairs.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must come in name and value pairs");
+		}
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < pairs.length; i += 2) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"');
+		}
+		return sb.append('}').toString();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+}
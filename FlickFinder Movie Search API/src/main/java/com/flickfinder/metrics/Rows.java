@@ -0,0 +1,39 @@
+package com.flickfinder.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the rows in what the DAOs return, for the row counters.
+ */
+final class Rows {
+
+	private Rows() {
+	}
+
+	/**
+	 * Counts the entries of a list that may hold nulls for missing ids.
+	 */
+	static int nonNull(List<?> rows) {
+		int count = 0;
+		for (Object row : rows) {
+			if (row != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the rows of a batch lookup, grouped into a list per id.
+	 */
+	static int inLists(Map<Integer, ? extends Collection<?>> rows) {
+		int count = 0;
+		for (Collection<?> list : rows.values()) {
+			count += list.size();
+		}
+		return count;
+	}
+
+}
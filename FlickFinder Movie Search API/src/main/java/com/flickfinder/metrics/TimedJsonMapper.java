@@ -0,0 +1,72 @@
+package com.flickfinder.metrics;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.stream.Stream;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * Times the JSON a JsonMapper writes for ctx.json, which goes through
+ * {@link #toJsonString(Object, Type)}. Everything else is passed through
+ * untimed, including the streamed lists, which are written as they are read
+ * from the database.
+ *
+ */
+public class TimedJsonMapper implements JsonMapper {
+
+	private final JsonMapper mapper;
+
+	private final LatencyHistogram histogram;
+
+	/**
+	 * Wraps a mapper.
+	 *
+	 * @param mapper  the mapper that does the work
+	 * @param metrics where to record the timings
+	 */
+	public TimedJsonMapper(JsonMapper mapper, Metrics metrics) {
+		this.mapper = mapper;
+		this.histogram = metrics.getJsonSerialization();
+	}
+
+	/**
+	 * Returns the wrapped mapper, e.g. for the streamed lists, which write
+	 * through its Jackson ObjectMapper directly.
+	 *
+	 * @return the mapper that does the work
+	 */
+	public JsonMapper getMapper() {
+		return mapper;
+	}
+
+	@Override
+	public String toJsonString(Object obj, Type type) {
+		long start = System.nanoTime();
+		String json = mapper.toJsonString(obj, type);
+		histogram.recordSince(start);
+		return json;
+	}
+
+	@Override
+	public InputStream toJsonStream(Object obj, Type type) {
+		return mapper.toJsonStream(obj, type);
+	}
+
+	@Override
+	public void writeToOutputStream(Stream<?> stream, OutputStream outputStream) {
+		mapper.writeToOutputStream(stream, outputStream);
+	}
+
+	@Override
+	public <T> T fromJsonString(String json, Type targetType) {
+		return mapper.fromJsonString(json, targetType);
+	}
+
+	@Override
+	public <T> T fromJsonStream(InputStream json, Type targetType) {
+		return mapper.fromJsonStream(json, targetType);
+	}
+
+}
@@ -0,0 +1,256 @@
+package com.flickfinder.metrics;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.index.RatingsIndex;
+import com.flickfinder.index.TitleSearchIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+import com.flickfinder.util.EntityCache;
+
+/**
+ * A MovieDAO that times every read of another one and counts the rows it
+ * returns, per method. Calls that throw are not recorded.
+ *
+ * Everything is passed to the wrapped DAO, including its caches and
+ * indexes, so it behaves exactly as the DAO does on its own; a call that
+ * one method makes to another inside the wrapped DAO is timed as part of
+ * the outer one only.
+ *
+ */
+public class TimedMovieDAO extends MovieDAO {
+
+	private static final String DAO = "MovieDAO";
+
+	private final MovieDAO dao;
+
+	private final Metrics.DaoMethod getAllMovies;
+
+	private final Metrics.DaoMethod getMoviesByLimit;
+
+	private final Metrics.DaoMethod getMoviesAfter;
+
+	private final Metrics.DaoMethod streamMoviesAfter;
+
+	private final Metrics.DaoMethod getLastMovieIdOfPage;
+
+	private final Metrics.DaoMethod getMovieById;
+
+	private final Metrics.DaoMethod getMoviesByIds;
+
+	private final Metrics.DaoMethod getPeopleByMovieId;
+
+	private final Metrics.DaoMethod streamPeopleByMovieId;
+
+	private final Metrics.DaoMethod getStarsByMovieIds;
+
+	private final Metrics.DaoMethod getRatingsByMovieIds;
+
+	private final Metrics.DaoMethod getMovieDetails;
+
+	private final Metrics.DaoMethod searchMovies;
+
+	private final Metrics.DaoMethod getRatingsByYear;
+
+	/**
+	 * Wraps a DAO.
+	 *
+	 * @param dao     the DAO that does the work
+	 * @param metrics where to record the timings
+	 */
+	public TimedMovieDAO(MovieDAO dao, Metrics metrics) {
+		super(null);
+		this.dao = dao;
+		this.getAllMovies = metrics.daoMethod(DAO, "getAllMovies");
+		this.getMoviesByLimit = metrics.daoMethod(DAO, "getMoviesByLimit");
+		this.getMoviesAfter = metrics.daoMethod(DAO, "getMoviesAfter");
+		this.streamMoviesAfter = metrics.daoMethod(DAO, "streamMoviesAfter");
+		this.getLastMovieIdOfPage = metrics.daoMethod(DAO, "getLastMovieIdOfPage");
+		this.getMovieById = metrics.daoMethod(DAO, "getMovieById");
+		this.getMoviesByIds = metrics.daoMethod(DAO, "getMoviesByIds");
+		this.getPeopleByMovieId = metrics.daoMethod(DAO, "getPeopleByMovieId");
+		this.streamPeopleByMovieId = metrics.daoMethod(DAO, "streamPeopleByMovieId");
+		this.getStarsByMovieIds = metrics.daoMethod(DAO, "getStarsByMovieIds");
+		this.getRatingsByMovieIds = metrics.daoMethod(DAO, "getRatingsByMovieIds");
+		this.getMovieDetails = metrics.daoMethod(DAO, "getMovieDetails");
+		this.searchMovies = metrics.daoMethod(DAO, "searchMovies");
+		this.getRatingsByYear = metrics.daoMethod(DAO, "getRatingsByYear");
+	}
+
+	@Override
+	public List<Movie> getAllMovies() throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.getAllMovies();
+		getAllMovies.record(start, movies.size());
+		return movies;
+	}
+
+	@Override
+	public List<Movie> getMoviesByLimit(int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.getMoviesByLimit(limit);
+		getMoviesByLimit.record(start, movies.size());
+		return movies;
+	}
+
+	@Override
+	public List<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.getMoviesAfter(afterId, limit);
+		getMoviesAfter.record(start, movies.size());
+		return movies;
+	}
+
+	@Override
+	public int streamMoviesAfter(int afterId, int limit, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		long start = System.nanoTime();
+		int count = dao.streamMoviesAfter(afterId, limit, callback);
+		streamMoviesAfter.record(start, count);
+		return count;
+	}
+
+	@Override
+	public Integer getLastMovieIdOfPage(int afterId, int limit) throws SQLException {
+		long start = System.nanoTime();
+		Integer id = dao.getLastMovieIdOfPage(afterId, limit);
+		getLastMovieIdOfPage.record(start, (id == null) ? 0 : 1);
+		return id;
+	}
+
+	@Override
+	public Movie getMovieById(int id) throws SQLException {
+		long start = System.nanoTime();
+		Movie movie = dao.getMovieById(id);
+		getMovieById.record(start, (movie == null) ? 0 : 1);
+		return movie;
+	}
+
+	@Override
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.getMoviesByIds(ids);
+		getMoviesByIds.record(start, Rows.nonNull(movies));
+		return movies;
+	}
+
+	@Override
+	public List<Person> getPeopleByMovieId(int movieId) throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.getPeopleByMovieId(movieId);
+		getPeopleByMovieId.record(start, people.size());
+		return people;
+	}
+
+	@Override
+	public int streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		long start = System.nanoTime();
+		int count = dao.streamPeopleByMovieId(movieId, callback);
+		streamPeopleByMovieId.record(start, count);
+		return count;
+	}
+
+	@Override
+	public Map<Integer, List<Person>> getStarsByMovieIds(int[] movieIds) throws SQLException {
+		long start = System.nanoTime();
+		Map<Integer, List<Person>> stars = dao.getStarsByMovieIds(movieIds);
+		getStarsByMovieIds.record(start, Rows.inLists(stars));
+		return stars;
+	}
+
+	@Override
+	public Map<Integer, Rating> getRatingsByMovieIds(int[] movieIds) throws SQLException {
+		long start = System.nanoTime();
+		Map<Integer, Rating> ratings = dao.getRatingsByMovieIds(movieIds);
+		getRatingsByMovieIds.record(start, ratings.size());
+		return ratings;
+	}
+
+	@Override
+	public List<MovieDetails> getMovieDetails(List<Movie> movies, boolean stars, boolean rating)
+			throws SQLException {
+		long start = System.nanoTime();
+		List<MovieDetails> details = dao.getMovieDetails(movies, stars, rating);
+		getMovieDetails.record(start, Rows.nonNull(details));
+		return details;
+	}
+
+	@Override
+	public List<Movie> searchMovies(String query, int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.searchMovies(query, limit);
+		searchMovies.record(start, movies.size());
+		return movies;
+	}
+
+	@Override
+	public List<MovieRating> getRatingsByYear(int year, int limit, int minVotes) throws SQLException {
+		long start = System.nanoTime();
+		List<MovieRating> ratings = dao.getRatingsByYear(year, limit, minVotes);
+		getRatingsByYear.record(start, ratings.size());
+		return ratings;
+	}
+
+	@Override
+	public TitleSearchIndex buildTitleSearchIndex() throws SQLException {
+		return dao.buildTitleSearchIndex();
+	}
+
+	@Override
+	public void setTitleSearchIndex(TitleSearchIndex titleSearchIndex) {
+		dao.setTitleSearchIndex(titleSearchIndex);
+	}
+
+	@Override
+	public TitleSearchIndex getTitleSearchIndex() {
+		return dao.getTitleSearchIndex();
+	}
+
+	@Override
+	public RatingsIndex buildRatingsIndex() throws SQLException {
+		return dao.buildRatingsIndex();
+	}
+
+	@Override
+	public int streamRatedMovies(RowCallback<MovieRating> callback) throws SQLException, IOException {
+		return dao.streamRatedMovies(callback);
+	}
+
+	@Override
+	public void setRatingsIndex(RatingsIndex ratingsIndex) {
+		dao.setRatingsIndex(ratingsIndex);
+	}
+
+	@Override
+	public RatingsIndex getRatingsIndex() {
+		return dao.getRatingsIndex();
+	}
+
+	@Override
+	public void setMovieCache(EntityCache<Movie> movieCache) {
+		dao.setMovieCache(movieCache);
+	}
+
+	@Override
+	public EntityCache<Movie> getMovieCache() {
+		return dao.getMovieCache();
+	}
+
+	/**
+	 * Returns the wrapped DAO.
+	 *
+	 * @return the DAO
+	 */
+	public MovieDAO getDao() {
+		return dao;
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.flickfinder.metrics;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.index.CoStarGraph;
+import com.flickfinder.index.NameAutocompleteIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.SeparationPath;
+import com.flickfinder.util.EntityCache;
+
+/**
+ * A PersonDAO that times every read of another one and counts the rows it
+ * returns, per method; see {@link TimedMovieDAO}.
+ *
+ */
+public class TimedPersonDAO extends PersonDAO {
+
+	private static final String DAO = "PersonDAO";
+
+	private final PersonDAO dao;
+
+	private final Metrics.DaoMethod getAllPeople;
+
+	private final Metrics.DaoMethod getPeopleByLimit;
+
+	private final Metrics.DaoMethod getPeopleAfter;
+
+	private final Metrics.DaoMethod streamPeopleAfter;
+
+	private final Metrics.DaoMethod getLastPersonIdOfPage;
+
+	private final Metrics.DaoMethod getPersonById;
+
+	private final Metrics.DaoMethod getPeopleByIds;
+
+	private final Metrics.DaoMethod getMoviesStarringPerson;
+
+	private final Metrics.DaoMethod streamMoviesStarringPerson;
+
+	private final Metrics.DaoMethod getMoviesByPersonIds;
+
+	private final Metrics.DaoMethod getPersonDetails;
+
+	private final Metrics.DaoMethod autocompleteNames;
+
+	private final Metrics.DaoMethod findPath;
+
+	/**
+	 * Wraps a DAO.
+	 *
+	 * @param dao     the DAO that does the work
+	 * @param metrics where to record the timings
+	 */
+	public TimedPersonDAO(PersonDAO dao, Metrics metrics) {
+		super(null);
+		this.dao = dao;
+		this.getAllPeople = metrics.daoMethod(DAO, "getAllPeople");
+		this.getPeopleByLimit = metrics.daoMethod(DAO, "getPeopleByLimit");
+		this.getPeopleAfter = metrics.daoMethod(DAO, "getPeopleAfter");
+		this.streamPeopleAfter = metrics.daoMethod(DAO, "streamPeopleAfter");
+		this.getLastPersonIdOfPage = metrics.daoMethod(DAO, "getLastPersonIdOfPage");
+		this.getPersonById = metrics.daoMethod(DAO, "getPersonById");
+		this.getPeopleByIds = metrics.daoMethod(DAO, "getPeopleByIds");
+		this.getMoviesStarringPerson = metrics.daoMethod(DAO, "getMoviesStarringPerson");
+		this.streamMoviesStarringPerson = metrics.daoMethod(DAO, "streamMoviesStarringPerson");
+		this.getMoviesByPersonIds = metrics.daoMethod(DAO, "getMoviesByPersonIds");
+		this.getPersonDetails = metrics.daoMethod(DAO, "getPersonDetails");
+		this.autocompleteNames = metrics.daoMethod(DAO, "autocompleteNames");
+		this.findPath = metrics.daoMethod(DAO, "findPath");
+	}
+
+	@Override
+	public List<Person> getAllPeople() throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.getAllPeople();
+		getAllPeople.record(start, people.size());
+		return people;
+	}
+
+	@Override
+	public List<Person> getPeopleByLimit(int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.getPeopleByLimit(limit);
+		getPeopleByLimit.record(start, people.size());
+		return people;
+	}
+
+	@Override
+	public List<Person> getPeopleAfter(int afterId, int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.getPeopleAfter(afterId, limit);
+		getPeopleAfter.record(start, people.size());
+		return people;
+	}
+
+	@Override
+	public int streamPeopleAfter(int afterId, int limit, RowCallback<Person> callback)
+			throws SQLException, IOException {
+		long start = System.nanoTime();
+		int count = dao.streamPeopleAfter(afterId, limit, callback);
+		streamPeopleAfter.record(start, count);
+		return count;
+	}
+
+	@Override
+	public Integer getLastPersonIdOfPage(int afterId, int limit) throws SQLException {
+		long start = System.nanoTime();
+		Integer id = dao.getLastPersonIdOfPage(afterId, limit);
+		getLastPersonIdOfPage.record(start, (id == null) ? 0 : 1);
+		return id;
+	}
+
+	@Override
+	public Person getPersonById(int id) throws SQLException {
+		long start = System.nanoTime();
+		Person person = dao.getPersonById(id);
+		getPersonById.record(start, (person == null) ? 0 : 1);
+		return person;
+	}
+
+	@Override
+	public List<Person> getPeopleByIds(int[] ids) throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.getPeopleByIds(ids);
+		getPeopleByIds.record(start, Rows.nonNull(people));
+		return people;
+	}
+
+	@Override
+	public List<Movie> getMoviesStarringPerson(int personId) throws SQLException {
+		long start = System.nanoTime();
+		List<Movie> movies = dao.getMoviesStarringPerson(personId);
+		getMoviesStarringPerson.record(start, movies.size());
+		return movies;
+	}
+
+	@Override
+	public int streamMoviesStarringPerson(int personId, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		long start = System.nanoTime();
+		int count = dao.streamMoviesStarringPerson(personId, callback);
+		streamMoviesStarringPerson.record(start, count);
+		return count;
+	}
+
+	@Override
+	public Map<Integer, List<Movie>> getMoviesByPersonIds(int[] personIds) throws SQLException {
+		long start = System.nanoTime();
+		Map<Integer, List<Movie>> movies = dao.getMoviesByPersonIds(personIds);
+		getMoviesByPersonIds.record(start, Rows.inLists(movies));
+		return movies;
+	}
+
+	@Override
+	public List<PersonDetails> getPersonDetails(List<Person> people, boolean movies) throws SQLException {
+		long start = System.nanoTime();
+		List<PersonDetails> details = dao.getPersonDetails(people, movies);
+		getPersonDetails.record(start, Rows.nonNull(details));
+		return details;
+	}
+
+	@Override
+	public List<Person> autocompleteNames(String prefix, int limit) throws SQLException {
+		long start = System.nanoTime();
+		List<Person> people = dao.autocompleteNames(prefix, limit);
+		autocompleteNames.record(start, people.size());
+		return people;
+	}
+
+	@Override
+	public SeparationPath findPath(int fromPersonId, int toPersonId) throws SQLException {
+		long start = System.nanoTime();
+		SeparationPath path = dao.findPath(fromPersonId, toPersonId);
+		findPath.record(start, (path == null) ? 0 : 1);
+		return path;
+	}
+
+	@Override
+	public NameAutocompleteIndex buildNameAutocompleteIndex() throws SQLException {
+		return dao.buildNameAutocompleteIndex();
+	}
+
+	@Override
+	public void setNameAutocompleteIndex(NameAutocompleteIndex nameIndex) {
+		dao.setNameAutocompleteIndex(nameIndex);
+	}
+
+	@Override
+	public NameAutocompleteIndex getNameAutocompleteIndex() {
+		return dao.getNameAutocompleteIndex();
+	}
+
+	@Override
+	public CoStarGraph buildCoStarGraph() throws SQLException {
+		return dao.buildCoStarGraph();
+	}
+
+	@Override
+	public void setCoStarGraph(CoStarGraph coStarGraph) {
+		dao.setCoStarGraph(coStarGraph);
+	}
+
+	@Override
+	public CoStarGraph getCoStarGraph() throws SQLException {
+		return dao.getCoStarGraph();
+	}
+
+	@Override
+	public void setPersonCache(EntityCache<Person> personCache) {
+		dao.setPersonCache(personCache);
+	}
+
+	@Override
+	public EntityCache<Person> getPersonCache() {
+		return dao.getPersonCache();
+	}
+
+	/**
+	 * Returns the wrapped DAO.
+	 *
+	 * @return the DAO
+	 */
+	public PersonDAO getDao() {
+		return dao;
+	}
+
+}
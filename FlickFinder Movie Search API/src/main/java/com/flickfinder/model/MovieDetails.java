@@ -0,0 +1,44 @@
+package com.flickfinder.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A movie together with the related data a client asked to include, e.g.
+ * through {@code ?include=stars,rating}. Relations that were not asked for
+ * are null and left out of the JSON, as is the rating of an unrated movie.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieDetails extends Movie {
+
+	private List<Person> stars;
+	private Rating rating;
+
+	/**
+	 * Constructs a MovieDetails object with the fields of a movie and no
+	 * relations.
+	 *
+	 * @param movie the movie
+	 */
+	public MovieDetails(Movie movie) {
+		super(movie.getId(), movie.getTitle(), movie.getYear());
+	}
+
+	public List<Person> getStars() {
+		return stars;
+	}
+
+	public void setStars(List<Person> stars) {
+		this.stars = stars;
+	}
+
+	public Rating getRating() {
+		return rating;
+	}
+
+	public void setRating(Rating rating) {
+		this.rating = rating;
+	}
+
+}
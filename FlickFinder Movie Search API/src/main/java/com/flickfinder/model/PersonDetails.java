@@ -0,0 +1,35 @@
+package com.flickfinder.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A person together with the related data a client asked to include, e.g.
+ * through {@code ?include=movies}. Relations that were not asked for are
+ * null and left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PersonDetails extends Person {
+
+	private List<Movie> movies;
+
+	/**
+	 * Constructs a PersonDetails object with the fields of a person and no
+	 * relations.
+	 *
+	 * @param person the person
+	 */
+	public PersonDetails(Person person) {
+		super(person.getId(), person.getName(), person.getBirth());
+	}
+
+	public List<Movie> getMovies() {
+		return movies;
+	}
+
+	public void setMovies(List<Movie> movies) {
+		this.movies = movies;
+	}
+
+}
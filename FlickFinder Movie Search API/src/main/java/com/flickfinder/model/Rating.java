@@ -0,0 +1,43 @@
+package com.flickfinder.model;
+
+/**
+ * Represents the IMDb rating of a movie and the number of votes behind it.
+ */
+public class Rating {
+
+	private float rating;
+	private int votes;
+
+	/**
+	 * Constructs a Rating object with the specified rating and votes.
+	 *
+	 * @param rating the average rating
+	 * @param votes  the number of votes
+	 */
+	public Rating(float rating, int votes) {
+		this.rating = rating;
+		this.votes = votes;
+	}
+
+	public float getRating() {
+		return rating;
+	}
+
+	public void setRating(float rating) {
+		this.rating = rating;
+	}
+
+	public int getVotes() {
+		return votes;
+	}
+
+	public void setVotes(int votes) {
+		this.votes = votes;
+	}
+
+	@Override
+	public String toString() {
+		return "Rating [rating=" + rating + ", votes=" + votes + "]";
+	}
+
+}
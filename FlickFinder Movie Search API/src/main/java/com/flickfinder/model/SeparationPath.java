@@ -0,0 +1,58 @@
+package com.flickfinder.model;
+
+import java.util.List;
+
+/**
+ * Represents the shortest chain of co-stars linking two people: movie i of
+ * the chain stars both person i and person i + 1.
+ */
+public class SeparationPath {
+
+	private int degrees;
+	private List<Person> people;
+	private List<Movie> movies;
+
+	/**
+	 * Constructs a SeparationPath object with the people and movies of the
+	 * chain.
+	 *
+	 * @param people the people, from the first person to the last
+	 * @param movies the movies linking them, one fewer than the people
+	 */
+	public SeparationPath(List<Person> people, List<Movie> movies) {
+		this.degrees = movies.size();
+		this.people = people;
+		this.movies = movies;
+	}
+
+	/**
+	 * Returns the degrees of separation, i.e. the number of movies in the
+	 * chain.
+	 *
+	 * @return the degrees of separation
+	 */
+	public int getDegrees() {
+		return degrees;
+	}
+
+	public void setDegrees(int degrees) {
+		this.degrees = degrees;
+	}
+
+	public List<Person> getPeople() {
+		return people;
+	}
+
+	public void setPeople(List<Person> people) {
+		this.people = people;
+	}
+
+	public List<Movie> getMovies() {
+		return movies;
+	}
+
+	public void setMovies(List<Movie> movies) {
+		this.movies = movies;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.flickfinder.shard;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Describes a directory of shards: where the years are split, and the
+ * database the shards were split from, which still holds the people.
+ *
+ * It is kept in shards.properties next to the shard files, which are named
+ * shard-0.db, shard-1.db and so on.
+ *
+ */
+public class ShardManifest {
+
+	/**
+	 * The name of the manifest file in a shard directory.
+	 */
+	public static final String FILE_NAME = "shards.properties";
+
+	private final Path dir;
+
+	private final ShardRouter router;
+
+	private final Path home;
+
+	/**
+	 * Constructs a manifest.
+	 *
+	 * @param dir    the directory of the shards
+	 * @param router where the years are split
+	 * @param home   the database the shards were split from
+	 */
+	public ShardManifest(Path dir, ShardRouter router, Path home) {
+		this.dir = dir;
+		this.router = router;
+		this.home = home;
+	}
+
+	/**
+	 * Reads the manifest of a shard directory.
+	 *
+	 * @param dir the directory of the shards
+	 * @return the manifest
+	 * @throws IOException if the manifest cannot be read or is incomplete
+	 */
+	public static ShardManifest read(Path dir) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(dir.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		String boundaries = properties.getProperty("boundaries");
+		String home = properties.getProperty("home");
+		if (boundaries == null || home == null) {
+			throw new IOException(dir.resolve(FILE_NAME) + " needs both boundaries and home");
+		}
+		try {
+			int[] years = boundaries.isBlank() ? new int[0]
+					: Arrays.stream(boundaries.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+			return new ShardManifest(dir, new ShardRouter(years), dir.resolve(home));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid boundaries in " + dir.resolve(FILE_NAME) + ": " + boundaries, e);
+		}
+	}
+
+	/**
+	 * Writes the manifest into its directory, replacing any there.
+	 *
+	 * @throws IOException if it cannot be written
+	 */
+	public void write() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("boundaries",
+				Arrays.stream(router.getBoundaries()).mapToObj(Integer::toString).collect(Collectors.joining(",")));
+		properties.setProperty("home", home.toAbsolutePath().toString());
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+			properties.store(writer, "Year-partitioned shards of " + home.getFileName());
+		}
+	}
+
+	/**
+	 * Returns the file of a shard.
+	 *
+	 * @param shard the index of the shard
+	 * @return the path of the shard's database
+	 */
+	public Path shardFile(int shard) {
+		return dir.resolve("shard-" + shard + ".db");
+	}
+
+	public Path getDir() {
+		return dir;
+	}
+
+	public ShardRouter getRouter() {
+		return router;
+	}
+
+	public Path getHome() {
+		return home;
+	}
+
+}
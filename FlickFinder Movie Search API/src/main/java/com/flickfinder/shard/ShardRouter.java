@@ -0,0 +1,84 @@
+package com.flickfinder.shard;
+
+import java.util.Arrays;
+
+/**
+ * Decides which shard holds the movies of a year.
+ *
+ * The shards split the years at a list of ascending boundaries: with
+ * boundaries 1980 and 2000, shard 0 holds everything before 1980, shard 1
+ * the years from 1980 up to but not including 2000, and shard 2 the rest.
+ * Movies without a year, which read as year 0, go to shard 0.
+ *
+ */
+public class ShardRouter {
+
+	private final int[] boundaries;
+
+	/**
+	 * Constructs a router.
+	 *
+	 * @param boundaries the first year of every shard but the first, in
+	 *                   ascending order; empty for a single shard
+	 * @throws IllegalArgumentException if the boundaries are not strictly
+	 *                                  ascending
+	 */
+	public ShardRouter(int[] boundaries) {
+		for (int i = 1; i < boundaries.length; i++) {
+			if (boundaries[i] <= boundaries[i - 1]) {
+				throw new IllegalArgumentException("Shard boundaries must be strictly ascending: "
+						+ Arrays.toString(boundaries));
+			}
+		}
+		this.boundaries = boundaries.clone();
+	}
+
+	/**
+	 * Returns the shard that holds the movies of a year.
+	 *
+	 * @param year the year
+	 * @return the index of the shard
+	 */
+	public int shardOf(int year) {
+		int shard = 0;
+		while (shard < boundaries.length && year >= boundaries[shard]) {
+			shard++;
+		}
+		return shard;
+	}
+
+	/**
+	 * Returns the SQL condition on a year column that selects the rows of a
+	 * shard, e.g. for splitting a database.
+	 *
+	 * @param shard  the index of the shard
+	 * @param column the year column
+	 * @return the condition
+	 */
+	public String condition(int shard, String column) {
+		if (boundaries.length == 0) {
+			return "1";
+		}
+		if (shard == 0) {
+			return "(" + column + " IS NULL OR " + column + " < " + boundaries[0] + ")";
+		}
+		if (shard == boundaries.length) {
+			return column + " >= " + boundaries[shard - 1];
+		}
+		return "(" + column + " >= " + boundaries[shard - 1] + " AND " + column + " < " + boundaries[shard] + ")";
+	}
+
+	/**
+	 * Returns the number of shards, one more than there are boundaries.
+	 *
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return boundaries.length + 1;
+	}
+
+	public int[] getBoundaries() {
+		return boundaries.clone();
+	}
+
+}
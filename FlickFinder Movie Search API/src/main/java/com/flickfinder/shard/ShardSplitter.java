@@ -0,0 +1,130 @@
+package com.flickfinder.shard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.flickfinder.util.SchemaOptimizer;
+
+/**
+ * Splits the movies, ratings and stars of a database into shard files by
+ * the year of each movie, for {@link ShardedMovieDAO}.
+ *
+ * Each shard gets the movies of its years, with their ratings and stars,
+ * in tables created from the source's own schema. Stars keep the order they
+ * have in the source. The people stay in the source database, which the
+ * shards ATTACH, and the source itself is not changed, so the people side
+ * of the API keeps reading it as before. The indexes each shard needs are
+ * created by the {@link SchemaOptimizer}.
+ *
+ */
+public class ShardSplitter {
+
+	private static final Logger LOGGER = Logger.getLogger(ShardSplitter.class.getName());
+
+	/**
+	 * The tables that are split, movies first.
+	 */
+	private static final List<String> TABLES = List.of("movies", "ratings", "stars");
+
+	/**
+	 * Splits a database from the command line.
+	 *
+	 * @param args the database, the directory to write the shards to, and the
+	 *             boundary years, e.g. movies.db shards 1980,2000,2010
+	 * @throws SQLException if the database cannot be read or a shard written
+	 * @throws IOException  if the directory or manifest cannot be written
+	 */
+	public static void main(String[] args) throws SQLException, IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: ShardSplitter <movies.db> <shard directory> <year,year,...>");
+			System.exit(2);
+		}
+		int[] boundaries = Arrays.stream(args[2].split(",")).map(String::trim).mapToInt(Integer::parseInt)
+				.toArray();
+		ShardManifest manifest = split(Paths.get(args[0]), Paths.get(args[1]), new ShardRouter(boundaries));
+		for (int shard = 0; shard < manifest.getRouter().getShardCount(); shard++) {
+			Path file = manifest.shardFile(shard);
+			System.out.println("Wrote " + Files.size(file) + " bytes to " + file);
+		}
+	}
+
+	/**
+	 * Splits a database into shards, replacing any shards already in the
+	 * directory.
+	 *
+	 * @param source the database to split
+	 * @param dir    the directory to write the shards and manifest to
+	 * @param router where to split the years
+	 * @return the manifest of the new shards
+	 * @throws SQLException if the database cannot be read or a shard written
+	 * @throws IOException  if the directory or manifest cannot be written
+	 */
+	public static ShardManifest split(Path source, Path dir, ShardRouter router) throws SQLException, IOException {
+		if (!Files.isRegularFile(source)) {
+			throw new IOException(source + " is not a database file");
+		}
+		Files.createDirectories(dir);
+		ShardManifest manifest = new ShardManifest(dir, router, source.toAbsolutePath());
+		for (int shard = 0; shard < router.getShardCount(); shard++) {
+			Path file = manifest.shardFile(shard);
+			Files.deleteIfExists(file);
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+				writeShard(connection, source.toAbsolutePath(), router.condition(shard, "year"));
+			}
+			LOGGER.info("Wrote shard " + shard + " to " + file);
+		}
+		manifest.write();
+		return manifest;
+	}
+
+	private static void writeShard(Connection connection, Path source, String condition) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ATTACH DATABASE '" + source.toString().replace("'", "''") + "' AS src");
+			for (String sql : schema(statement)) {
+				statement.execute(sql);
+			}
+			connection.setAutoCommit(false);
+			statement.execute("INSERT INTO movies SELECT * FROM src.movies WHERE " + condition + " ORDER BY id");
+			statement.execute("INSERT INTO ratings SELECT * FROM src.ratings"
+					+ " WHERE movie_id IN (SELECT id FROM movies) ORDER BY rowid");
+			statement.execute("INSERT INTO stars SELECT * FROM src.stars"
+					+ " WHERE movie_id IN (SELECT id FROM movies) ORDER BY rowid");
+			connection.commit();
+			connection.setAutoCommit(true);
+			// planned with the source attached, so that people resolves to it
+			// as it will to the home database when serving
+			new SchemaOptimizer(connection).optimize();
+			statement.execute("DETACH DATABASE src");
+		}
+	}
+
+	/**
+	 * Reads the CREATE TABLE statements of the split tables from the source.
+	 */
+	private static List<String> schema(Statement statement) throws SQLException {
+		List<String> tables = new ArrayList<>();
+		for (String table : TABLES) {
+			try (ResultSet rs = statement
+					.executeQuery("SELECT sql FROM src.sqlite_master WHERE type = 'table' AND name = '" + table
+							+ "' COLLATE NOCASE")) {
+				if (!rs.next()) {
+					throw new SQLException("The source database has no " + table + " table");
+				}
+				tables.add(rs.getString(1));
+			}
+		}
+		return tables;
+	}
+
+}
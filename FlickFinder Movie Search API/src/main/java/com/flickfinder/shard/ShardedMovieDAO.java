@@ -0,0 +1,574 @@
+package com.flickfinder.shard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.QueryRunner;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.dao.RowCursor;
+import com.flickfinder.index.TitleSearchIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.EntityCache;
+import com.flickfinder.util.PoolConfig;
+import com.flickfinder.util.SlowQueryLog;
+
+/**
+ * A MovieDAO over movies split by year into several SQLite files, as written
+ * by {@link ShardSplitter}.
+ *
+ * Each shard is read by a plain MovieDAO on its own connection pool, so every
+ * query is the one MovieDAO runs against a single database. A query on one
+ * year, getRatingsByYear, goes to the one shard that holds that year. Every
+ * other query is sent to all shards at once, on a thread pool shared by all
+ * requests with the calling thread taking the first shard itself, and the
+ * results are merged: pages by id, search results by the order searchMovies
+ * ranks them in, and lookups by id by putting together what each shard found.
+ * Streamed pages are merged by id as the shards' cursors are read, holding
+ * one row of each shard at a time.
+ *
+ * The shards hold the movies, their ratings and their stars. The people stay
+ * in the database the shards were split from, which every shard connection
+ * ATTACHes, so the stars of a movie are joined to them as before.
+ *
+ * The caches and indexes of MovieDAO work as they do there, in front of the
+ * shards.
+ *
+ */
+public class ShardedMovieDAO extends MovieDAO implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(ShardedMovieDAO.class.getName());
+
+	/**
+	 * Orders movies by id, for merging pages.
+	 */
+	private static final Comparator<Movie> BY_ID = Comparator.comparingInt(Movie::getId);
+
+	private final ShardRouter router;
+
+	private final List<Shard> shards;
+
+	private final List<Database> databases;
+
+	private final ExecutorService executor;
+
+	/**
+	 * The MovieDAO of one shard, which lets the sharded DAO open cursors on
+	 * it.
+	 */
+	private static final class Shard extends MovieDAO {
+
+		Shard(Database database) {
+			super(new QueryRunner(database));
+		}
+
+		RowCursor<Movie> moviesAfter(int afterId, int limit) throws SQLException {
+			return openMoviesAfter(afterId, limit);
+		}
+
+		RowCursor<Integer> movieIdsAfter(int afterId, int limit) throws SQLException {
+			return openMovieIdsAfter(afterId, limit);
+		}
+
+	}
+
+	/**
+	 * The next row of one shard's cursor, while merging.
+	 */
+	private static final class Head<T> {
+
+		final RowCursor<T> cursor;
+
+		T row;
+
+		Head(RowCursor<T> cursor, T row) {
+			this.cursor = cursor;
+			this.row = row;
+		}
+
+	}
+
+	/**
+	 * Opens a cursor on one shard.
+	 */
+	@FunctionalInterface
+	private interface CursorQuery<T> {
+
+		RowCursor<T> open(Shard shard) throws SQLException;
+
+	}
+
+	/**
+	 * A query run on one shard.
+	 */
+	@FunctionalInterface
+	private interface ShardQuery<T> {
+
+		T run(MovieDAO shard) throws SQLException, IOException;
+
+	}
+
+	/**
+	 * Constructs a sharded DAO over open databases, one per shard in the
+	 * router's order.
+	 *
+	 * @param router    where the years are split
+	 * @param databases the database of each shard
+	 */
+	public ShardedMovieDAO(ShardRouter router, List<Database> databases) {
+		super(null);
+		if (databases.size() != router.getShardCount()) {
+			throw new IllegalArgumentException(
+					"Expected " + router.getShardCount() + " shard databases, got " + databases.size());
+		}
+		this.router = router;
+		this.databases = List.copyOf(databases);
+		List<Shard> shards = new ArrayList<>();
+		for (Database database : databases) {
+			shards.add(new Shard(database));
+		}
+		this.shards = Collections.unmodifiableList(shards);
+		int threads = 0;
+		for (Database database : databases) {
+			threads += database.getPool().getConfig().getMaxSize();
+		}
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "shard-query-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		// no more threads than there are connections to give them
+		this.executor = (shards.size() > 1) ? Executors.newFixedThreadPool(threads, factory) : null;
+	}
+
+	/**
+	 * Opens the shards in a directory written by {@link ShardSplitter}, each
+	 * with a pool of read-only connections that ATTACH the database they were
+	 * split from.
+	 *
+	 * @param dir    the directory of the shards
+	 * @param config the settings of each shard's pool
+	 * @return the DAO; close it to close the pools
+	 * @throws IOException  if the manifest cannot be read or a shard is missing
+	 * @throws SQLException if a shard cannot be opened
+	 */
+	public static ShardedMovieDAO open(Path dir, PoolConfig config) throws IOException, SQLException {
+		ShardManifest manifest = ShardManifest.read(dir);
+		if (!Files.isRegularFile(manifest.getHome())) {
+			throw new IOException("The home database " + manifest.getHome() + " does not exist");
+		}
+		String attach = "ATTACH DATABASE '" + manifest.getHome().toString().replace("'", "''") + "' AS home";
+		List<Database> databases = new ArrayList<>();
+		try {
+			for (int shard = 0; shard < manifest.getRouter().getShardCount(); shard++) {
+				Path file = manifest.shardFile(shard);
+				if (!Files.isRegularFile(file)) {
+					throw new IOException("Shard " + shard + " is missing: " + file);
+				}
+				databases.add(Database.forPool(ConnectionPool.forSQLite("jdbc:sqlite:" + file, config, attach)));
+			}
+		} catch (IOException | SQLException e) {
+			for (Database database : databases) {
+				database.getPool().close();
+			}
+			throw e;
+		}
+		LOGGER.info("Opened " + databases.size() + " shards from " + dir + " split at "
+				+ Arrays.toString(manifest.getRouter().getBoundaries()));
+		return new ShardedMovieDAO(manifest.getRouter(), databases);
+	}
+
+	@Override
+	public List<Movie> getMoviesByLimit(int limit) throws SQLException {
+		return mergeById(scatter(shard -> shard.getMoviesByLimit(limit)), limit);
+	}
+
+	@Override
+	public List<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		return mergeById(scatter(shard -> shard.getMoviesAfter(afterId, limit)), limit);
+	}
+
+	@Override
+	public int streamMoviesAfter(int afterId, int limit, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		List<RowCursor<Movie>> cursors = openAll(shard -> shard.moviesAfter(afterId, limit));
+		try {
+			return merge(cursors, BY_ID, limit, callback);
+		} finally {
+			closeAll(cursors);
+		}
+	}
+
+	@Override
+	public Integer getLastMovieIdOfPage(int afterId, int limit) throws SQLException {
+		List<RowCursor<Integer>> cursors = openAll(shard -> shard.movieIdsAfter(afterId, limit));
+		try {
+			Integer[] last = new Integer[1];
+			int count = merge(cursors, Comparator.naturalOrder(), limit, id -> last[0] = id);
+			return (count < limit) ? null : last[0];
+		} catch (IOException e) {
+			// the callback only keeps the id and never does I/O
+			throw new IllegalStateException(e);
+		} finally {
+			closeAll(cursors);
+		}
+	}
+
+	@Override
+	public Movie getMovieById(int id) throws SQLException {
+		EntityCache<Movie> movieCache = getMovieCache();
+		if (movieCache != null) {
+			return movieCache.get(id, this::loadMovieById);
+		}
+		return loadMovieById(id);
+	}
+
+	private Movie loadMovieById(int id) throws SQLException {
+		for (Movie movie : scatter(shard -> shard.getMovieById(id))) {
+			if (movie != null) {
+				return movie;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		EntityCache<Movie> movieCache = getMovieCache();
+		Map<Integer, Movie> found = new HashMap<>();
+		Set<Integer> missing = new LinkedHashSet<>();
+		for (int id : ids) {
+			Movie cached = (movieCache != null) ? movieCache.getIfPresent(id) : null;
+			if (cached != null) {
+				found.put(id, cached);
+			} else {
+				missing.add(id);
+			}
+		}
+		if (!missing.isEmpty()) {
+			int[] lookup = missing.stream().mapToInt(Integer::intValue).toArray();
+			for (List<Movie> movies : scatter(shard -> shard.getMoviesByIds(lookup))) {
+				for (Movie movie : movies) {
+					if (movie != null) {
+						found.put(movie.getId(), movie);
+						if (movieCache != null) {
+							movieCache.put(movie.getId(), movie);
+						}
+					}
+				}
+			}
+		}
+		List<Movie> movies = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			movies.add(found.get(id));
+		}
+		return movies;
+	}
+
+	@Override
+	public List<Person> getPeopleByMovieId(int movieId) throws SQLException {
+		// a movie lives in one shard, so at most one list is not empty
+		List<Person> people = new ArrayList<>();
+		for (List<Person> shardPeople : scatter(shard -> shard.getPeopleByMovieId(movieId))) {
+			people.addAll(shardPeople);
+		}
+		return people;
+	}
+
+	@Override
+	public int streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		// a movie lives in one shard, so the first shard with stars has them all
+		for (MovieDAO shard : shards) {
+			int count = shard.streamPeopleByMovieId(movieId, callback);
+			if (count > 0) {
+				return count;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public Map<Integer, List<Person>> getStarsByMovieIds(int[] movieIds) throws SQLException {
+		Map<Integer, List<Person>> stars = new HashMap<>();
+		for (Map<Integer, List<Person>> shardStars : scatter(shard -> shard.getStarsByMovieIds(movieIds))) {
+			stars.putAll(shardStars);
+		}
+		return stars;
+	}
+
+	@Override
+	public Map<Integer, Rating> getRatingsByMovieIds(int[] movieIds) throws SQLException {
+		Map<Integer, Rating> ratings = new HashMap<>();
+		for (Map<Integer, Rating> shardRatings : scatter(shard -> shard.getRatingsByMovieIds(movieIds))) {
+			ratings.putAll(shardRatings);
+		}
+		return ratings;
+	}
+
+	@Override
+	public List<Movie> searchMovies(String query, int limit) throws SQLException {
+		if (getTitleSearchIndex() != null) {
+			return getTitleSearchIndex().search(query, limit);
+		}
+		List<Movie> matches = new ArrayList<>();
+		for (List<Movie> shardMatches : scatter(shard -> shard.searchMovies(query, limit))) {
+			matches.addAll(shardMatches);
+		}
+		matches.sort(searchOrder(query.toLowerCase(Locale.ROOT)));
+		return (matches.size() > limit) ? new ArrayList<>(matches.subList(0, limit)) : matches;
+	}
+
+	/**
+	 * Orders search results the way MovieDAO's search query does: exact
+	 * titles, then titles starting with the query, then titles with a word
+	 * starting with it, then the rest; then shorter titles, then lower ids.
+	 * Like SQLite's lower(), only ASCII letters are folded.
+	 */
+	static Comparator<Movie> searchOrder(String q) {
+		return Comparator.<Movie>comparingInt(movie -> searchRank(asciiLower(movie.getTitle()), q))
+				.thenComparingInt(movie -> movie.getTitle().codePointCount(0, movie.getTitle().length()))
+				.thenComparingInt(Movie::getId);
+	}
+
+	private static int searchRank(String title, String q) {
+		if (title.equals(q)) {
+			return 0;
+		}
+		if (title.startsWith(q)) {
+			return 1;
+		}
+		return title.contains(" " + q) ? 2 : 3;
+	}
+
+	private static String asciiLower(String s) {
+		char[] chars = s.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (chars[i] >= 'A' && chars[i] <= 'Z') {
+				chars[i] += 'a' - 'A';
+			}
+		}
+		return new String(chars);
+	}
+
+	@Override
+	public TitleSearchIndex buildTitleSearchIndex() throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+		for (List<Movie> shardMovies : scatter(shard -> {
+			List<Movie> all = new ArrayList<>();
+			shard.streamMoviesAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, all::add);
+			return all;
+		})) {
+			movies.addAll(shardMovies);
+		}
+		// the builder takes the titles in id order
+		movies.sort(BY_ID);
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		movies.forEach(builder::add);
+		return builder.build();
+	}
+
+	@Override
+	public List<MovieRating> getRatingsByYear(int year, int limit, int minVotes) throws SQLException {
+		if (getRatingsIndex() != null) {
+			return getRatingsIndex().getRatingsByYear(year, limit, minVotes);
+		}
+		return shards.get(router.shardOf(year)).getRatingsByYear(year, limit, minVotes);
+	}
+
+	@Override
+	public int streamRatedMovies(RowCallback<MovieRating> callback) throws SQLException, IOException {
+		// the shards are in year order, so reading them one after the other
+		// keeps the movies grouped by year
+		int count = 0;
+		for (MovieDAO shard : shards) {
+			count += shard.streamRatedMovies(callback);
+		}
+		return count;
+	}
+
+	/**
+	 * Runs a query on every shard in parallel, with the calling thread taking
+	 * the first shard, and returns the results in shard order.
+	 */
+	private <T> List<T> scatter(ShardQuery<T> query) throws SQLException {
+		if (executor == null) {
+			return Collections.singletonList(run(query, shards.get(0)));
+		}
+		List<Future<T>> futures = new ArrayList<>(shards.size() - 1);
+		for (MovieDAO shard : shards.subList(1, shards.size())) {
+			futures.add(executor.submit(() -> run(query, shard)));
+		}
+		List<T> results = new ArrayList<>(shards.size());
+		try {
+			results.add(run(query, shards.get(0)));
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for the shards", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new SQLException("A shard query failed", cause);
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	private static <T> T run(ShardQuery<T> query, MovieDAO shard) throws SQLException {
+		try {
+			return query.run(shard);
+		} catch (IOException e) {
+			// only collecting callbacks are run on the shards, which never do I/O
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Merges the pages of the shards, each in id order, into the first page
+	 * of them all.
+	 */
+	private static List<Movie> mergeById(List<List<Movie>> pages, int limit) {
+		List<Movie> movies = new ArrayList<>();
+		for (List<Movie> page : pages) {
+			movies.addAll(page);
+		}
+		movies.sort(BY_ID);
+		return (movies.size() > limit) ? new ArrayList<>(movies.subList(0, limit)) : movies;
+	}
+
+	/**
+	 * Opens a cursor on every shard, on the calling thread, closing the ones
+	 * already open if one fails.
+	 */
+	private <T> List<RowCursor<T>> openAll(CursorQuery<T> query) throws SQLException {
+		List<RowCursor<T>> cursors = new ArrayList<>(shards.size());
+		try {
+			for (Shard shard : shards) {
+				cursors.add(query.open(shard));
+			}
+		} catch (SQLException | RuntimeException e) {
+			try {
+				closeAll(cursors);
+			} catch (SQLException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+		return cursors;
+	}
+
+	/**
+	 * Closes every cursor, even if closing one fails.
+	 */
+	private static <T> void closeAll(List<RowCursor<T>> cursors) throws SQLException {
+		SQLException failure = null;
+		for (RowCursor<T> cursor : cursors) {
+			try {
+				cursor.close();
+			} catch (SQLException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Merges cursors that each read their rows in the given order, handing
+	 * the first limit rows of them all to the callback in that order. Only
+	 * the next row of each cursor is held.
+	 */
+	private static <T> int merge(List<RowCursor<T>> cursors, Comparator<? super T> order, int limit,
+			RowCallback<T> callback) throws SQLException, IOException {
+		PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, cursors.size()),
+				(a, b) -> order.compare(a.row, b.row));
+		for (RowCursor<T> cursor : cursors) {
+			T row = cursor.next();
+			if (row != null) {
+				heads.add(new Head<>(cursor, row));
+			}
+		}
+		int count = 0;
+		while (count < limit && !heads.isEmpty()) {
+			Head<T> head = heads.poll();
+			callback.accept(head.row);
+			count++;
+			head.row = head.cursor.next();
+			if (head.row != null) {
+				heads.add(head);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Times the statements of every shard in a slow query log. Pass null to
+	 * stop timing them.
+	 *
+	 * @param slowQueryLog the log
+	 */
+	public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		for (Database database : databases) {
+			database.setSlowQueryLog(slowQueryLog);
+		}
+	}
+
+	/**
+	 * Stops the shard threads and closes the shards' connection pools.
+	 */
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		for (Database database : databases) {
+			database.getPool().close();
+		}
+	}
+
+	public ShardRouter getRouter() {
+		return router;
+	}
+
+}
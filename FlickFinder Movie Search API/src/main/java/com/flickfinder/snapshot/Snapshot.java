@@ -0,0 +1,358 @@
+package com.flickfinder.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped columnar copy of the movies, people, ratings
+ * and stars tables, as written by {@link SnapshotWriter}.
+ *
+ * Opening a snapshot only maps the file, so it takes next to no time and the
+ * data stays off the Java heap in the page cache. Every column is a run of
+ * fixed-width values read in place by row number; titles and names are
+ * UTF-8 bytes in a shared heap, found through a column of start offsets. A
+ * value only becomes a Java object when a DAO builds the row it returns.
+ *
+ * Rows are numbered from 0 in id order, so an id is found by binary search
+ * over its id column. The file layout is described in SnapshotWriter.
+ *
+ */
+public class Snapshot {
+
+	/**
+	 * Marks the start of a snapshot file, followed by the format version.
+	 */
+	static final long MAGIC = 0x464653_4E41_5001L;
+
+	/**
+	 * The size of the header: the magic number and four counts.
+	 */
+	static final int HEADER_BYTES = 8 + 4 * 4;
+
+	private final Path file;
+
+	/**
+	 * Identifies this copy of the file, from its size and modification time.
+	 */
+	private final String version;
+
+	private final ByteBuffer data;
+
+	private final int movieCount;
+
+	private final int personCount;
+
+	private final int starCount;
+
+	private final int ratedCount;
+
+	private final int movieIds;
+
+	private final int movieYears;
+
+	private final int movieRatings;
+
+	private final int movieVotes;
+
+	private final int movieTitleStarts;
+
+	private final int personIds;
+
+	private final int personBirths;
+
+	private final int personNameStarts;
+
+	private final int movieStarStarts;
+
+	private final int movieStarPeople;
+
+	private final int personStarStarts;
+
+	private final int personStarMovies;
+
+	private final int ratedByYear;
+
+	private final int heap;
+
+	private Snapshot(Path file, String version, ByteBuffer data) throws IOException {
+		this.file = file;
+		this.version = version;
+		this.data = data;
+		if (data.limit() < HEADER_BYTES || data.getLong(0) != MAGIC) {
+			throw new IOException(file + " is not a FlickFinder snapshot");
+		}
+		movieCount = data.getInt(8);
+		personCount = data.getInt(12);
+		starCount = data.getInt(16);
+		ratedCount = data.getInt(20);
+
+		int at = HEADER_BYTES;
+		movieIds = at;
+		at += 4 * movieCount;
+		movieYears = at;
+		at += 4 * movieCount;
+		movieRatings = at;
+		at += 4 * movieCount;
+		movieVotes = at;
+		at += 4 * movieCount;
+		movieTitleStarts = at;
+		at += 4 * (movieCount + 1);
+		personIds = at;
+		at += 4 * personCount;
+		personBirths = at;
+		at += 4 * personCount;
+		personNameStarts = at;
+		at += 4 * (personCount + 1);
+		movieStarStarts = at;
+		at += 4 * (movieCount + 1);
+		movieStarPeople = at;
+		at += 4 * starCount;
+		personStarStarts = at;
+		at += 4 * (personCount + 1);
+		personStarMovies = at;
+		at += 4 * starCount;
+		ratedByYear = at;
+		at += 4 * ratedCount;
+		heap = at;
+		if (heap > data.limit() || heap + data.getInt(personNameStarts + 4 * personCount) > data.limit()) {
+			throw new IOException(file + " is truncated");
+		}
+	}
+
+	/**
+	 * Memory-maps a snapshot file.
+	 *
+	 * @param file the snapshot file
+	 * @return the snapshot
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public static Snapshot open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map");
+			}
+			String version = Long.toString(channel.size(), 36) + "-"
+					+ Long.toString(Files.getLastModifiedTime(file).toMillis(), 36);
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new Snapshot(file, version, data);
+		}
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns a stamp that identifies this copy of the snapshot file, e.g. for
+	 * ETags. A newly exported file gets a different stamp.
+	 *
+	 * @return the version stamp
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	public int getMovieCount() {
+		return movieCount;
+	}
+
+	public int getPersonCount() {
+		return personCount;
+	}
+
+	public int getStarCount() {
+		return starCount;
+	}
+
+	public int getRatedCount() {
+		return ratedCount;
+	}
+
+	public int movieId(int row) {
+		return data.getInt(movieIds + 4 * row);
+	}
+
+	public int movieYear(int row) {
+		return data.getInt(movieYears + 4 * row);
+	}
+
+	public String movieTitle(int row) {
+		return string(data.getInt(movieTitleStarts + 4 * row), data.getInt(movieTitleStarts + 4 * row + 4));
+	}
+
+	/**
+	 * Returns the rating of a movie.
+	 *
+	 * @param row the row of the movie
+	 * @return the rating, or NaN if the movie is not rated
+	 */
+	public float movieRating(int row) {
+		return data.getFloat(movieRatings + 4 * row);
+	}
+
+	public int movieVotes(int row) {
+		return data.getInt(movieVotes + 4 * row);
+	}
+
+	/**
+	 * Finds the row of a movie.
+	 *
+	 * @param id the id of the movie
+	 * @return the row, or -1 if there is no such movie
+	 */
+	public int findMovie(int id) {
+		int row = lowerBound(movieIds, movieCount, id);
+		return (row < movieCount && movieId(row) == id) ? row : -1;
+	}
+
+	/**
+	 * Returns the row of the first movie with an id greater than the given
+	 * one.
+	 *
+	 * @param id the id to start after
+	 * @return the row, or the movie count if there is none
+	 */
+	public int firstMovieAfter(int id) {
+		return (id == Integer.MAX_VALUE) ? movieCount : lowerBound(movieIds, movieCount, id + 1);
+	}
+
+	public int personId(int row) {
+		return data.getInt(personIds + 4 * row);
+	}
+
+	public int personBirth(int row) {
+		return data.getInt(personBirths + 4 * row);
+	}
+
+	public String personName(int row) {
+		return string(data.getInt(personNameStarts + 4 * row), data.getInt(personNameStarts + 4 * row + 4));
+	}
+
+	/**
+	 * Finds the row of a person.
+	 *
+	 * @param id the id of the person
+	 * @return the row, or -1 if there is no such person
+	 */
+	public int findPerson(int id) {
+		int row = lowerBound(personIds, personCount, id);
+		return (row < personCount && personId(row) == id) ? row : -1;
+	}
+
+	/**
+	 * Returns the row of the first person with an id greater than the given
+	 * one.
+	 *
+	 * @param id the id to start after
+	 * @return the row, or the person count if there is none
+	 */
+	public int firstPersonAfter(int id) {
+		return (id == Integer.MAX_VALUE) ? personCount : lowerBound(personIds, personCount, id + 1);
+	}
+
+	/**
+	 * Returns where the stars of a movie start in the movie star columns; they
+	 * end where those of the next row start.
+	 *
+	 * @param row the row of the movie, or the movie count for the end
+	 * @return the first star index
+	 */
+	public int movieStarsStart(int row) {
+		return data.getInt(movieStarStarts + 4 * row);
+	}
+
+	/**
+	 * Returns the person row of a star of a movie.
+	 *
+	 * @param index a star index from movieStarsStart
+	 * @return the row of the person
+	 */
+	public int movieStar(int index) {
+		return data.getInt(movieStarPeople + 4 * index);
+	}
+
+	/**
+	 * Returns where the movies of a person start in the person star columns;
+	 * they end where those of the next row start.
+	 *
+	 * @param row the row of the person, or the person count for the end
+	 * @return the first star index
+	 */
+	public int personStarsStart(int row) {
+		return data.getInt(personStarStarts + 4 * row);
+	}
+
+	/**
+	 * Returns the movie row of a movie a person stars in.
+	 *
+	 * @param index a star index from personStarsStart
+	 * @return the row of the movie
+	 */
+	public int personStar(int index) {
+		return data.getInt(personStarMovies + 4 * index);
+	}
+
+	/**
+	 * Returns the row of the i-th rated movie when they are sorted by year,
+	 * then by rating from highest to lowest, then by id.
+	 *
+	 * @param i the position in that order
+	 * @return the row of the movie
+	 */
+	public int ratedMovie(int i) {
+		return data.getInt(ratedByYear + 4 * i);
+	}
+
+	/**
+	 * Returns the position in the rated order of the first movie released in
+	 * the given year or later.
+	 *
+	 * @param year the year
+	 * @return the position, or the rated count if there is none
+	 */
+	public int firstRatedFrom(int year) {
+		int lo = 0;
+		int hi = ratedCount;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (movieYear(ratedMovie(mid)) < year) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the first row of an id column holding a value not less than the
+	 * key.
+	 */
+	private int lowerBound(int column, int count, int key) {
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (data.getInt(column + 4 * mid) < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private String string(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		data.get(heap + start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.flickfinder.snapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.index.RatingsIndex;
+import com.flickfinder.index.TitleSearchIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+
+/**
+ * A MovieDAO that serves every request from a memory-mapped
+ * {@link Snapshot} instead of the database.
+ *
+ * Lookups are binary searches over the id column and pages are runs of
+ * rows, so only the movies that are returned are ever turned into objects.
+ * Results follow the same order as the SQL queries: stars keep the order of
+ * the stars table, and movies with the same rating are returned by id.
+ *
+ * The entity cache is not consulted, since a lookup here is already cheaper
+ * than a cache miss. Searches use a TitleSearchIndex, built from the
+ * snapshot on the first search if one has not been set.
+ *
+ */
+public class SnapshotMovieDAO extends MovieDAO {
+
+	private final Snapshot snapshot;
+
+	/**
+	 * Held while the title search index is built on first use. A lock rather than a
+	 * monitor, so that a virtual thread waiting on the build does not pin its
+	 * carrier.
+	 */
+	private final ReentrantLock titleSearchIndexLock = new ReentrantLock();
+
+	public SnapshotMovieDAO(Snapshot snapshot) {
+		super(null);
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public List<Movie> getMoviesByLimit(int limit) {
+		return getMoviesAfter(Integer.MIN_VALUE, limit);
+	}
+
+	@Override
+	public List<Movie> getMoviesAfter(int afterId, int limit) {
+		List<Movie> movies = new ArrayList<>();
+		int start = snapshot.firstMovieAfter(afterId);
+		int end = end(start, limit, snapshot.getMovieCount());
+		for (int row = start; row < end; row++) {
+			movies.add(movie(row));
+		}
+		return movies;
+	}
+
+	@Override
+	public int streamMoviesAfter(int afterId, int limit, RowCallback<Movie> callback) throws IOException {
+		int start = snapshot.firstMovieAfter(afterId);
+		int end = end(start, limit, snapshot.getMovieCount());
+		for (int row = start; row < end; row++) {
+			callback.accept(movie(row));
+		}
+		return end - start;
+	}
+
+	@Override
+	public Integer getLastMovieIdOfPage(int afterId, int limit) {
+		int start = snapshot.firstMovieAfter(afterId);
+		int end = end(start, limit, snapshot.getMovieCount());
+		return (end - start < limit) ? null : snapshot.movieId(end - 1);
+	}
+
+	@Override
+	public Movie getMovieById(int id) {
+		int row = snapshot.findMovie(id);
+		return (row < 0) ? null : movie(row);
+	}
+
+	@Override
+	public List<Movie> getMoviesByIds(int[] ids) {
+		List<Movie> movies = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			movies.add(getMovieById(id));
+		}
+		return movies;
+	}
+
+	@Override
+	public List<Person> getPeopleByMovieId(int movieId) {
+		List<Person> people = new ArrayList<>();
+		int row = snapshot.findMovie(movieId);
+		if (row >= 0) {
+			for (int i = snapshot.movieStarsStart(row); i < snapshot.movieStarsStart(row + 1); i++) {
+				people.add(person(snapshot.movieStar(i)));
+			}
+		}
+		return people;
+	}
+
+	@Override
+	public int streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws IOException {
+		int row = snapshot.findMovie(movieId);
+		if (row < 0) {
+			return 0;
+		}
+		int start = snapshot.movieStarsStart(row);
+		int end = snapshot.movieStarsStart(row + 1);
+		for (int i = start; i < end; i++) {
+			callback.accept(person(snapshot.movieStar(i)));
+		}
+		return end - start;
+	}
+
+	@Override
+	public Map<Integer, List<Person>> getStarsByMovieIds(int[] movieIds) {
+		Map<Integer, List<Person>> stars = new HashMap<>();
+		for (int id : movieIds) {
+			List<Person> people = getPeopleByMovieId(id);
+			if (!people.isEmpty()) {
+				stars.put(id, people);
+			}
+		}
+		return stars;
+	}
+
+	@Override
+	public Map<Integer, Rating> getRatingsByMovieIds(int[] movieIds) {
+		Map<Integer, Rating> ratings = new HashMap<>();
+		for (int id : movieIds) {
+			int row = snapshot.findMovie(id);
+			if (row >= 0 && !Float.isNaN(snapshot.movieRating(row))) {
+				ratings.put(id, new Rating(snapshot.movieRating(row), snapshot.movieVotes(row)));
+			}
+		}
+		return ratings;
+	}
+
+	@Override
+	public List<Movie> searchMovies(String query, int limit) {
+		TitleSearchIndex index = getTitleSearchIndex();
+		if (index == null) {
+			titleSearchIndexLock.lock();
+			try {
+				index = getTitleSearchIndex();
+				if (index == null) {
+					index = buildTitleSearchIndex();
+					setTitleSearchIndex(index);
+				}
+			} finally {
+				titleSearchIndexLock.unlock();
+			}
+		}
+		return index.search(query, limit);
+	}
+
+	@Override
+	public TitleSearchIndex buildTitleSearchIndex() {
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		for (int row = 0; row < snapshot.getMovieCount(); row++) {
+			builder.add(movie(row));
+		}
+		return builder.build();
+	}
+
+	@Override
+	public List<MovieRating> getRatingsByYear(int year, int limit, int minVotes) {
+		if (getRatingsIndex() != null) {
+			return getRatingsIndex().getRatingsByYear(year, limit, minVotes);
+		}
+		List<MovieRating> movies = new ArrayList<>();
+		for (int i = snapshot.firstRatedFrom(year); i < snapshot.getRatedCount() && movies.size() < limit; i++) {
+			int row = snapshot.ratedMovie(i);
+			if (snapshot.movieYear(row) != year) {
+				break;
+			}
+			if (snapshot.movieVotes(row) > minVotes) {
+				movies.add(movieRating(row));
+			}
+		}
+		return movies;
+	}
+
+	@Override
+	public RatingsIndex buildRatingsIndex() {
+		RatingsIndex.Builder builder = new RatingsIndex.Builder();
+		for (int i = 0; i < snapshot.getRatedCount(); i++) {
+			builder.add(movieRating(snapshot.ratedMovie(i)));
+		}
+		return builder.build();
+	}
+
+	@Override
+	public int streamRatedMovies(RowCallback<MovieRating> callback) throws IOException {
+		for (int i = 0; i < snapshot.getRatedCount(); i++) {
+			callback.accept(movieRating(snapshot.ratedMovie(i)));
+		}
+		return snapshot.getRatedCount();
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private Movie movie(int row) {
+		return new Movie(snapshot.movieId(row), snapshot.movieTitle(row), snapshot.movieYear(row));
+	}
+
+	private MovieRating movieRating(int row) {
+		return new MovieRating(snapshot.movieId(row), snapshot.movieTitle(row), snapshot.movieRating(row),
+				snapshot.movieVotes(row), snapshot.movieYear(row));
+	}
+
+	private Person person(int row) {
+		return new Person(snapshot.personId(row), snapshot.personName(row), snapshot.personBirth(row));
+	}
+
+	/**
+	 * Returns the row a page of at most limit rows from start ends at.
+	 */
+	static int end(int start, int limit, int count) {
+		return (int) Math.min(count, (long) start + Math.max(0, limit));
+	}
+
+}
@@ -0,0 +1,212 @@
+package com.flickfinder.snapshot;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.index.CoStarGraph;
+import com.flickfinder.index.NameAutocompleteIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.SeparationPath;
+
+/**
+ * A PersonDAO that serves every request from a memory-mapped
+ * {@link Snapshot} instead of the database.
+ *
+ * Like SnapshotMovieDAO, it only turns the people it returns into objects,
+ * and it does not consult the entity cache. Autocomplete uses a
+ * NameAutocompleteIndex, built from the snapshot on the first request if one
+ * has not been set; the co-star graph is built from the snapshot's star
+ * columns.
+ *
+ */
+public class SnapshotPersonDAO extends PersonDAO {
+
+	private final Snapshot snapshot;
+
+	/**
+	 * Held while the name index is built on first use. A lock rather than a
+	 * monitor, so that a virtual thread waiting on the build does not pin its
+	 * carrier.
+	 */
+	private final ReentrantLock nameIndexLock = new ReentrantLock();
+
+	public SnapshotPersonDAO(Snapshot snapshot) {
+		super(null);
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public List<Person> getPeopleByLimit(int limit) {
+		return getPeopleAfter(Integer.MIN_VALUE, limit);
+	}
+
+	@Override
+	public List<Person> getPeopleAfter(int afterId, int limit) {
+		List<Person> people = new ArrayList<>();
+		int start = snapshot.firstPersonAfter(afterId);
+		int end = SnapshotMovieDAO.end(start, limit, snapshot.getPersonCount());
+		for (int row = start; row < end; row++) {
+			people.add(person(row));
+		}
+		return people;
+	}
+
+	@Override
+	public int streamPeopleAfter(int afterId, int limit, RowCallback<Person> callback) throws IOException {
+		int start = snapshot.firstPersonAfter(afterId);
+		int end = SnapshotMovieDAO.end(start, limit, snapshot.getPersonCount());
+		for (int row = start; row < end; row++) {
+			callback.accept(person(row));
+		}
+		return end - start;
+	}
+
+	@Override
+	public Integer getLastPersonIdOfPage(int afterId, int limit) {
+		int start = snapshot.firstPersonAfter(afterId);
+		int end = SnapshotMovieDAO.end(start, limit, snapshot.getPersonCount());
+		return (end - start < limit) ? null : snapshot.personId(end - 1);
+	}
+
+	@Override
+	public Person getPersonById(int id) {
+		int row = snapshot.findPerson(id);
+		return (row < 0) ? null : person(row);
+	}
+
+	@Override
+	public List<Person> getPeopleByIds(int[] ids) {
+		List<Person> people = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			people.add(getPersonById(id));
+		}
+		return people;
+	}
+
+	@Override
+	public List<Movie> getMoviesStarringPerson(int personId) {
+		List<Movie> movies = new ArrayList<>();
+		int row = snapshot.findPerson(personId);
+		if (row >= 0) {
+			for (int i = snapshot.personStarsStart(row); i < snapshot.personStarsStart(row + 1); i++) {
+				movies.add(movie(snapshot.personStar(i)));
+			}
+		}
+		return movies;
+	}
+
+	@Override
+	public int streamMoviesStarringPerson(int personId, RowCallback<Movie> callback) throws IOException {
+		int row = snapshot.findPerson(personId);
+		if (row < 0) {
+			return 0;
+		}
+		int start = snapshot.personStarsStart(row);
+		int end = snapshot.personStarsStart(row + 1);
+		for (int i = start; i < end; i++) {
+			callback.accept(movie(snapshot.personStar(i)));
+		}
+		return end - start;
+	}
+
+	@Override
+	public Map<Integer, List<Movie>> getMoviesByPersonIds(int[] personIds) {
+		Map<Integer, List<Movie>> movies = new HashMap<>();
+		for (int id : personIds) {
+			List<Movie> starring = getMoviesStarringPerson(id);
+			if (!starring.isEmpty()) {
+				movies.put(id, starring);
+			}
+		}
+		return movies;
+	}
+
+	@Override
+	public List<Person> autocompleteNames(String prefix, int limit) {
+		NameAutocompleteIndex index = getNameAutocompleteIndex();
+		if (index == null) {
+			nameIndexLock.lock();
+			try {
+				index = getNameAutocompleteIndex();
+				if (index == null) {
+					index = buildNameAutocompleteIndex();
+					setNameAutocompleteIndex(index);
+				}
+			} finally {
+				nameIndexLock.unlock();
+			}
+		}
+		return index.complete(prefix, limit);
+	}
+
+	@Override
+	public NameAutocompleteIndex buildNameAutocompleteIndex() {
+		NameAutocompleteIndex.Builder builder = new NameAutocompleteIndex.Builder();
+		for (int row = 0; row < snapshot.getPersonCount(); row++) {
+			builder.add(person(row));
+		}
+		for (int row = 0; row < snapshot.getPersonCount(); row++) {
+			int starring = snapshot.personStarsStart(row + 1) - snapshot.personStarsStart(row);
+			if (starring > 0) {
+				builder.setPopularity(snapshot.personId(row), starring);
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public SeparationPath findPath(int fromPersonId, int toPersonId) {
+		CoStarGraph.Path path = getCoStarGraph().findPath(fromPersonId, toPersonId);
+		if (path == null) {
+			return null;
+		}
+		List<Movie> movies = new ArrayList<>(path.getMovieIds().length);
+		for (int id : path.getMovieIds()) {
+			int row = snapshot.findMovie(id);
+			movies.add((row < 0) ? null : movie(row));
+		}
+		return new SeparationPath(getPeopleByIds(path.getPersonIds()), movies);
+	}
+
+	@Override
+	public CoStarGraph buildCoStarGraph() {
+		CoStarGraph.Builder builder = new CoStarGraph.Builder();
+		for (int row = 0; row < snapshot.getPersonCount(); row++) {
+			for (int i = snapshot.personStarsStart(row); i < snapshot.personStarsStart(row + 1); i++) {
+				builder.add(snapshot.movieId(snapshot.personStar(i)), snapshot.personId(row));
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public CoStarGraph getCoStarGraph() {
+		try {
+			return super.getCoStarGraph();
+		} catch (SQLException e) {
+			// buildCoStarGraph reads the snapshot and never touches the database
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private Person person(int row) {
+		return new Person(snapshot.personId(row), snapshot.personName(row), snapshot.personBirth(row));
+	}
+
+	private Movie movie(int row) {
+		return new Movie(snapshot.movieId(row), snapshot.movieTitle(row), snapshot.movieYear(row));
+	}
+
+}
@@ -0,0 +1,256 @@
+package com.flickfinder.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.PooledConnection;
+
+/**
+ * Exports the movies, people, ratings and stars tables into a columnar
+ * snapshot file that {@link Snapshot} can memory-map.
+ *
+ * The file is big-endian and laid out as follows, where m is the number of
+ * movies, p the number of people, s the number of stars and r the number of
+ * rated movies:
+ *
+ * <pre>
+ * header          magic and version (8 bytes), m, p, s, r
+ * movies          id[m], year[m], rating[m] (NaN if unrated), votes[m], titleStart[m + 1]
+ * people          id[p], birth[p], nameStart[p + 1]
+ * stars by movie  start[m + 1], person row[s]
+ * stars by person start[p + 1], movie row[s]
+ * rated by year   movie row[r], by year, then rating descending, then id
+ * heap            UTF-8 titles and names, back to back
+ * </pre>
+ *
+ * Movies and people are sorted by id. A star is kept only if both its movie
+ * and its person exist, and the stars of a movie or person keep the order
+ * they have in the stars table. Null titles and names are written as empty
+ * strings.
+ *
+ * The file is written to a temporary file next to the target and then moved
+ * into place, so a server never maps a half-written snapshot.
+ *
+ */
+public class SnapshotWriter {
+
+	private final Database database;
+
+	public SnapshotWriter(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * Exports a SQLite database to a snapshot file.
+	 *
+	 * @param args the database file and the snapshot file
+	 * @throws SQLException if the database cannot be read
+	 * @throws IOException  if the snapshot cannot be written
+	 */
+	public static void main(String[] args) throws SQLException, IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: SnapshotWriter <movies.db> <snapshot file>");
+			System.exit(2);
+		}
+		Path file = Paths.get(args[1]);
+		new SnapshotWriter(Database.getInstance("jdbc:sqlite:" + args[0])).write(file);
+		System.out.println("Wrote " + Files.size(file) + " bytes to " + file);
+	}
+
+	/**
+	 * Reads the tables and writes them to a snapshot file, replacing any file
+	 * already there.
+	 *
+	 * @param file the snapshot file
+	 * @throws SQLException if the database cannot be read
+	 * @throws IOException  if the file cannot be written
+	 */
+	public void write(Path file) throws SQLException, IOException {
+		IntColumn movieIds = new IntColumn();
+		IntColumn movieYears = new IntColumn();
+		IntColumn personIds = new IntColumn();
+		IntColumn personBirths = new IntColumn();
+		IntColumn starMovies = new IntColumn();
+		IntColumn starPeople = new IntColumn();
+		ByteArrayOutputStream heap = new ByteArrayOutputStream();
+		IntColumn titleStarts = new IntColumn();
+		IntColumn nameStarts = new IntColumn();
+		float[] ratings;
+		int[] votes;
+
+		try (PooledConnection lease = database.acquire();
+				Statement statement = lease.getConnection().createStatement()) {
+			try (ResultSet rs = statement.executeQuery("SELECT id, title, year FROM movies ORDER BY id")) {
+				while (rs.next()) {
+					movieIds.add(rs.getInt(1));
+					titleStarts.add(heap.size());
+					writeString(heap, rs.getString(2));
+					movieYears.add(rs.getInt(3));
+				}
+			}
+			titleStarts.add(heap.size());
+
+			ratings = new float[movieIds.size];
+			votes = new int[movieIds.size];
+			Arrays.fill(ratings, Float.NaN);
+			try (ResultSet rs = statement.executeQuery("SELECT movie_id, rating, votes FROM ratings")) {
+				while (rs.next()) {
+					int row = Arrays.binarySearch(movieIds.values, 0, movieIds.size, rs.getInt(1));
+					if (row >= 0) {
+						ratings[row] = rs.getFloat(2);
+						votes[row] = rs.getInt(3);
+					}
+				}
+			}
+
+			try (ResultSet rs = statement.executeQuery("SELECT id, name, birth FROM people ORDER BY id")) {
+				while (rs.next()) {
+					personIds.add(rs.getInt(1));
+					nameStarts.add(heap.size());
+					writeString(heap, rs.getString(2));
+					personBirths.add(rs.getInt(3));
+				}
+			}
+			nameStarts.add(heap.size());
+
+			try (ResultSet rs = statement.executeQuery("SELECT movie_id, person_id FROM stars")) {
+				while (rs.next()) {
+					int movie = Arrays.binarySearch(movieIds.values, 0, movieIds.size, rs.getInt(1));
+					int person = Arrays.binarySearch(personIds.values, 0, personIds.size, rs.getInt(2));
+					if (movie >= 0 && person >= 0) {
+						starMovies.add(movie);
+						starPeople.add(person);
+					}
+				}
+			}
+		}
+
+		int movieCount = movieIds.size;
+		int personCount = personIds.size;
+		int starCount = starMovies.size;
+		int[] movieStarStarts = new int[movieCount + 1];
+		int[] movieStarPeople = new int[starCount];
+		groupBy(starMovies, starPeople, movieStarStarts, movieStarPeople);
+		int[] personStarStarts = new int[personCount + 1];
+		int[] personStarMovies = new int[starCount];
+		groupBy(starPeople, starMovies, personStarStarts, personStarMovies);
+		int[] ratedByYear = ratedByYear(movieIds.values, movieYears.values, ratings, movieCount);
+
+		Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+				out.writeLong(Snapshot.MAGIC);
+				out.writeInt(movieCount);
+				out.writeInt(personCount);
+				out.writeInt(starCount);
+				out.writeInt(ratedByYear.length);
+				writeInts(out, movieIds.values, movieCount);
+				writeInts(out, movieYears.values, movieCount);
+				for (int i = 0; i < movieCount; i++) {
+					out.writeFloat(ratings[i]);
+				}
+				writeInts(out, votes, movieCount);
+				writeInts(out, titleStarts.values, titleStarts.size);
+				writeInts(out, personIds.values, personCount);
+				writeInts(out, personBirths.values, personCount);
+				writeInts(out, nameStarts.values, nameStarts.size);
+				writeInts(out, movieStarStarts, movieStarStarts.length);
+				writeInts(out, movieStarPeople, starCount);
+				writeInts(out, personStarStarts, personStarStarts.length);
+				writeInts(out, personStarMovies, starCount);
+				writeInts(out, ratedByYear, ratedByYear.length);
+				heap.writeTo(out);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Lays out the stars grouped by one side in compressed sparse row form:
+	 * a stable counting sort, so each group keeps the table order.
+	 */
+	private static void groupBy(IntColumn sources, IntColumn targets, int[] start, int[] grouped) {
+		for (int i = 0; i < sources.size; i++) {
+			start[sources.values[i] + 1]++;
+		}
+		for (int i = 1; i < start.length; i++) {
+			start[i] += start[i - 1];
+		}
+		int[] next = Arrays.copyOf(start, start.length - 1);
+		for (int i = 0; i < sources.size; i++) {
+			grouped[next[sources.values[i]]++] = targets.values[i];
+		}
+	}
+
+	/**
+	 * Returns the rows of the rated movies, by year, then highest rating
+	 * first, then id.
+	 */
+	private static int[] ratedByYear(int[] ids, int[] years, float[] ratings, int movieCount) {
+		Integer[] rated = new Integer[movieCount];
+		int count = 0;
+		for (int row = 0; row < movieCount; row++) {
+			if (!Float.isNaN(ratings[row])) {
+				rated[count++] = row;
+			}
+		}
+		Arrays.sort(rated, 0, count, (a, b) -> {
+			if (years[a] != years[b]) {
+				return Integer.compare(years[a], years[b]);
+			}
+			int cmp = Float.compare(ratings[b], ratings[a]);
+			return (cmp != 0) ? cmp : Integer.compare(ids[a], ids[b]);
+		});
+		int[] rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = rated[i];
+		}
+		return rows;
+	}
+
+	private static void writeString(OutputStream heap, String value) throws IOException {
+		if (value != null) {
+			heap.write(value.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * A growable int array that a column is collected into.
+	 */
+	private static final class IntColumn {
+
+		private int[] values = new int[1024];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+}
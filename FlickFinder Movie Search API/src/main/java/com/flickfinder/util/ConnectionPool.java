@@ -0,0 +1,418 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * A bounded pool of database connections.
+ *
+ * SQLite serialises every call made on a single connection, so sharing one
+ * connection between all of Jetty's worker threads means only one request
+ * can read at a time. The pool hands each request its own connection
+ * instead. For a database file the connections are opened read-only and the
+ * file is switched to WAL mode first, which lets any number of readers run
+ * side by side.
+ *
+ * The pool opens {@code minSize} connections up front and grows on demand up
+ * to {@code maxSize}. When every connection is in use, callers wait up to
+ * the acquire timeout and then get an {@link SQLTimeoutException}. Connections
+ * that are held for longer than the leak detection threshold are logged
+ * together with the stack trace of the code that borrowed them.
+ *
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+	/**
+	 * Opens a new JDBC connection for the pool.
+	 */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		Connection create() throws SQLException;
+	}
+
+	private final ConnectionFactory factory;
+
+	private final PoolConfig config;
+
+	/**
+	 * Connections that are open and waiting to be borrowed. Guarded by
+	 * {@link #lock}.
+	 */
+	private final ArrayDeque<PooledConnection.Entry> idle = new ArrayDeque<>();
+
+	/**
+	 * Connections that are currently out on loan.
+	 */
+	private final Set<PooledConnection.Entry> borrowed = ConcurrentHashMap.newKeySet();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition available = lock.newCondition();
+
+	/**
+	 * The number of connections that are open or being opened. Guarded by
+	 * {@link #lock}.
+	 */
+	private int total;
+
+	/**
+	 * The number of callers blocked in {@link #acquire()}. Guarded by
+	 * {@link #lock}.
+	 */
+	private int waiting;
+
+	private boolean closed;
+
+	private final AtomicLong leakCount = new AtomicLong();
+
+	private final ScheduledExecutorService leakDetector;
+
+	/**
+	 * Creates a pool and opens the minimum number of connections.
+	 *
+	 * @param factory opens new connections for the pool
+	 * @param config  the pool settings
+	 * @throws SQLException if one of the initial connections cannot be opened
+	 */
+	public ConnectionPool(ConnectionFactory factory, PoolConfig config) throws SQLException {
+		if (config.getMinSize() > config.getMaxSize()) {
+			throw new IllegalArgumentException("Minimum pool size is larger than the maximum: " + config);
+		}
+		this.factory = factory;
+		this.config = config;
+
+		for (int i = 0; i < config.getMinSize(); i++) {
+			idle.add(new PooledConnection.Entry(factory.create(), config.getStatementCacheSize()));
+			total++;
+		}
+
+		long threshold = config.getLeakDetectionThresholdMillis();
+		if (threshold > 0) {
+			leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "connection-leak-detector");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long period = Math.max(threshold / 2, 10);
+			leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			leakDetector = null;
+		}
+	}
+
+	/**
+	 * Creates a pool of read-only connections to an SQLite database file.
+	 * Before the pool opens, the database is switched to WAL mode so that the
+	 * readers do not block one another.
+	 *
+	 * @param url    the JDBC url of the database, e.g. jdbc:sqlite:movies.db
+	 * @param config the pool settings
+	 * @return the pool
+	 * @throws SQLException if the database cannot be opened
+	 */
+	public static ConnectionPool forSQLite(String url, PoolConfig config) throws SQLException {
+		return forSQLite(url, config, new String[0]);
+	}
+
+	/**
+	 * Creates a pool of read-only connections to an SQLite database file, and
+	 * runs some statements on each connection as it is opened, e.g. to ATTACH
+	 * another database.
+	 *
+	 * @param url    the JDBC url of the database, e.g. jdbc:sqlite:movies.db
+	 * @param config the pool settings
+	 * @param setup  the statements to run on each new connection
+	 * @return the pool
+	 * @throws SQLException if the database cannot be opened
+	 */
+	public static ConnectionPool forSQLite(String url, PoolConfig config, String... setup) throws SQLException {
+		enableWriteAheadLog(url);
+
+		SQLiteConfig sqliteConfig = new SQLiteConfig();
+		sqliteConfig.setReadOnly(true);
+		sqliteConfig.setBusyTimeout((int) Math.min(Integer.MAX_VALUE, config.getAcquireTimeoutMillis()));
+		return new ConnectionPool(() -> {
+			Connection connection = sqliteConfig.createConnection(url);
+			try (Statement statement = connection.createStatement()) {
+				for (String sql : setup) {
+					statement.execute(sql);
+				}
+			} catch (SQLException e) {
+				connection.close();
+				throw e;
+			}
+			return connection;
+		}, config);
+	}
+
+	/**
+	 * Creates a pool around a single existing connection. Callers take turns
+	 * with the connection, so at most one statement runs at a time. This is
+	 * how the in-memory test databases are shared.
+	 *
+	 * @param connection the connection to share
+	 * @return the pool
+	 */
+	public static ConnectionPool forConnection(Connection connection) {
+		PoolConfig config = new PoolConfig();
+		config.setMinSize(1);
+		config.setMaxSize(1);
+		config.setLeakDetectionThresholdMillis(0);
+		try {
+			return new ConnectionPool(() -> connection, config);
+		} catch (SQLException e) {
+			// the factory hands back an already open connection and cannot fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Switches the database file to WAL mode. The journal mode is stored in
+	 * the file itself, so it only has to be set once, and it needs a writable
+	 * connection to do so.
+	 */
+	private static void enableWriteAheadLog(String url) {
+		try (Connection connection = DriverManager.getConnection(url);
+				Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA journal_mode=WAL");
+		} catch (SQLException e) {
+			LOGGER.log(Level.WARNING, "Could not switch " + url + " to WAL mode, readers may block each other", e);
+		}
+	}
+
+	/**
+	 * Borrows a connection from the pool, waiting for one to be returned if
+	 * they are all in use.
+	 *
+	 * @return the borrowed connection, to be closed once the caller is done
+	 * @throws SQLException if no connection became free within the acquire
+	 *                      timeout, or a new connection could not be opened
+	 */
+	public PooledConnection acquire() throws SQLException {
+		long remaining = TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+		boolean open = false;
+
+		lock.lock();
+		try {
+			while (true) {
+				if (closed) {
+					throw new SQLException("Connection pool is closed");
+				}
+				PooledConnection.Entry entry = idle.pollFirst();
+				if (entry != null) {
+					return lend(entry);
+				}
+				if (total < config.getMaxSize()) {
+					// reserve the slot now, open the connection outside the lock
+					total++;
+					open = true;
+					break;
+				}
+				if (remaining <= 0) {
+					throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeoutMillis()
+							+ "ms waiting for a database connection (" + total + " in use)");
+				}
+				waiting++;
+				try {
+					remaining = available.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a database connection", e);
+				} finally {
+					waiting--;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (open) {
+			try {
+				return lend(new PooledConnection.Entry(factory.create(), config.getStatementCacheSize()));
+			} catch (SQLException | RuntimeException e) {
+				lock.lock();
+				try {
+					total--;
+					available.signal();
+				} finally {
+					lock.unlock();
+				}
+				throw e;
+			}
+		}
+		throw new IllegalStateException("unreachable");
+	}
+
+	/**
+	 * Hands out a connection under a new lease, so that closing an earlier
+	 * lease of the same connection cannot return it.
+	 */
+	private PooledConnection lend(PooledConnection.Entry entry) {
+		entry.markBorrowed(leakDetector != null);
+		borrowed.add(entry);
+		return new PooledConnection(this, entry);
+	}
+
+	/**
+	 * Takes a connection back from a caller.
+	 */
+	void release(PooledConnection.Entry connection) {
+		if (!borrowed.remove(connection)) {
+			return;
+		}
+		connection.markReturned();
+
+		lock.lock();
+		try {
+			if (closed) {
+				total--;
+				closeQuietly(connection);
+				return;
+			}
+			// most recently used first, so a quiet pool keeps reusing warm connections
+			idle.addFirst(connection);
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Logs every connection that has been borrowed for longer than the leak
+	 * detection threshold. Each borrow is only reported once.
+	 */
+	private void detectLeaks() {
+		long threshold = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+		long now = System.nanoTime();
+		for (PooledConnection.Entry connection : borrowed) {
+			if (!connection.leakReported && now - connection.borrowedAt > threshold) {
+				connection.leakReported = true;
+				leakCount.incrementAndGet();
+				LOGGER.log(Level.WARNING, "Database connection held for more than "
+						+ config.getLeakDetectionThresholdMillis() + "ms, it may have leaked",
+						connection.borrowSite);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of connections currently borrowed.
+	 *
+	 * @return the number of active connections
+	 */
+	public int getActiveCount() {
+		return borrowed.size();
+	}
+
+	/**
+	 * Returns the number of open connections waiting to be borrowed.
+	 *
+	 * @return the number of idle connections
+	 */
+	public int getIdleCount() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of callers waiting for a connection.
+	 *
+	 * @return the number of waiting callers
+	 */
+	public int getWaitingCount() {
+		lock.lock();
+		try {
+			return waiting;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of connections the pool has open.
+	 *
+	 * @return the number of open connections
+	 */
+	public int getTotalCount() {
+		lock.lock();
+		try {
+			return total;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns how many borrows have been reported as possible leaks.
+	 *
+	 * @return the number of leak reports
+	 */
+	public long getLeakCount() {
+		return leakCount.get();
+	}
+
+	public PoolConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Closes the idle connections and stops handing out new ones. Borrowed
+	 * connections are closed as they are returned.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			PooledConnection.Entry connection;
+			while ((connection = idle.pollFirst()) != null) {
+				total--;
+				closeQuietly(connection);
+			}
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (leakDetector != null) {
+			leakDetector.shutdownNow();
+		}
+	}
+
+	private static void closeQuietly(PooledConnection.Entry connection) {
+		connection.statements.clear();
+		try {
+			connection.connection.close();
+		} catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Failed to close pooled connection", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool [active=" + getActiveCount() + ", idle=" + getIdleCount() + ", waiting="
+				+ getWaitingCount() + ", total=" + getTotalCount() + "]";
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.flickfinder.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursor tokens used for keyset pagination.
+ *
+ * A cursor records the id of the last row on a page, and the next page
+ * starts right after it with a {@code WHERE id > ?} seek. Unlike an OFFSET,
+ * the seek goes straight to the right place in the primary key index, so
+ * every page costs the same no matter how deep into the table it is.
+ *
+ * Clients should treat the token as opaque; it is versioned so that the
+ * format can change later without misreading old tokens.
+ *
+ */
+public final class Cursor {
+
+	private static final String PREFIX = "v1:";
+
+	private Cursor() {
+	}
+
+	/**
+	 * Encodes the id of the last row of a page as a cursor token.
+	 *
+	 * @param lastId the id of the last row returned
+	 * @return the cursor token
+	 */
+	public static String encode(int lastId) {
+		byte[] bytes = (PREFIX + lastId).getBytes(StandardCharsets.US_ASCII);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	/**
+	 * Decodes a cursor token back to the id the next page starts after.
+	 *
+	 * @param token the cursor token
+	 * @return the id of the last row of the previous page
+	 * @throws IllegalArgumentException if the token is not a valid cursor
+	 */
+	public static int decode(String token) {
+		String value;
+		try {
+			value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+		if (!value.startsWith(PREFIX)) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		try {
+			return Integer.parseInt(value.substring(PREFIX.length()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.flickfinder.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A stamp that changes whenever the data being served changes, for building
+ * ETags.
+ *
+ * For a database the stamp is the size and modification time of its file,
+ * like a snapshot's, followed by a generation number. The same file gives
+ * the same stamp after a restart, and on every replica that serves a copy
+ * made with its timestamps kept, so ETags that clients and CDNs hold stay
+ * valid. An in-memory database has no file and starts from the time the
+ * server started instead. The generation goes up whenever SQLite's
+ * {@code PRAGMA data_version} reports that another connection has committed
+ * since it was last read. That pragma only means something relative to the
+ * connection it is read on, so the last value seen is kept per connection.
+ * It is read at most once per check interval, so most requests only read a
+ * field.
+ *
+ * For data that cannot change, such as a snapshot file, the stamp is fixed.
+ *
+ */
+public class DataVersion {
+
+	private static final Logger LOGGER = Logger.getLogger(DataVersion.class.getName());
+
+	private final Database database;
+
+	private final long checkIntervalNanos;
+
+	private final String epoch;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * When the data version may next be read, by System.nanoTime.
+	 */
+	private final AtomicLong nextCheck = new AtomicLong(System.nanoTime());
+
+	/**
+	 * The last data_version read on each connection.
+	 */
+	private final Map<Connection, Long> seen = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private DataVersion(Database database, long checkIntervalMillis, String epoch) {
+		this.database = database;
+		this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+		this.epoch = epoch;
+	}
+
+	/**
+	 * Creates a data version that follows commits to a database.
+	 *
+	 * @param database            the database
+	 * @param checkIntervalMillis how often to read the data version; zero
+	 *                            reads it on every call
+	 * @return the data version
+	 */
+	public static DataVersion forDatabase(Database database, long checkIntervalMillis) {
+		return new DataVersion(database, checkIntervalMillis, epoch(database));
+	}
+
+	/**
+	 * Reads the stamp of the database's file, or the current time if it has
+	 * none or the file cannot be read.
+	 */
+	static String epoch(Database database) {
+		try (PooledConnection lease = database.acquire();
+				ResultSet rs = lease.prepare("PRAGMA database_list").executeQuery()) {
+			while (rs.next()) {
+				String file = rs.getString("file");
+				if ("main".equals(rs.getString("name")) && file != null && !file.isEmpty()) {
+					Path path = Paths.get(file);
+					return Long.toString(Files.size(path), 36) + "-"
+							+ Long.toString(Files.getLastModifiedTime(path).toMillis(), 36);
+				}
+			}
+		} catch (SQLException | IOException e) {
+			LOGGER.log(Level.WARNING, "Could not stamp the database file, ETags will change on restart", e);
+		}
+		return Long.toString(System.currentTimeMillis(), 36);
+	}
+
+	/**
+	 * Creates a data version that never changes.
+	 *
+	 * @param stamp the stamp, e.g. derived from a snapshot file
+	 * @return the data version
+	 */
+	public static DataVersion fixed(String stamp) {
+		return new DataVersion(null, 0, stamp);
+	}
+
+	/**
+	 * Returns the current stamp, first checking the database for commits if
+	 * the check interval has passed.
+	 *
+	 * @return the stamp
+	 */
+	public String current() {
+		if (database == null) {
+			return epoch;
+		}
+		long now = System.nanoTime();
+		long next = nextCheck.get();
+		// one caller checks per interval; the rest use the stamp as it is
+		if (now - next >= 0 && nextCheck.compareAndSet(next, now + checkIntervalNanos)) {
+			check();
+		}
+		return epoch + "." + generation.get();
+	}
+
+	private void check() {
+		try (PooledConnection lease = database.acquire();
+				ResultSet rs = lease.prepare("PRAGMA data_version").executeQuery()) {
+			if (rs.next()) {
+				long version = rs.getLong(1);
+				Long previous = seen.put(lease.getConnection(), version);
+				if (previous != null && previous != version) {
+					generation.incrementAndGet();
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.log(Level.WARNING, "Could not read the data version, keeping the current ETags", e);
+		}
+	}
+
+}
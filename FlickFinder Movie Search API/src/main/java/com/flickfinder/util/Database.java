@@ -3,15 +3,24 @@ package com.flickfinder.util;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A class to handle the database connection.
- * You should not need to modify this class.
+ * 
+ * Every caller borrows a connection with {@link #acquire()} and returns it by
+ * closing the lease. By default all callers take turns on a single
+ * connection. In pooled mode (see {@link #getPooledInstance(String, PoolConfig)})
+ * each caller gets its own read-only connection from a {@link ConnectionPool},
+ * so concurrent requests can read at the same time.
  * 
  */
 
 public class Database {
 
+	private static final Logger LOGGER = Logger.getLogger(Database.class.getName());
+
 	/**
 	 * The instance of the database.
 	 */
@@ -24,14 +33,40 @@ public class Database {
 	 */
 	Connection connection;
 
+	/**
+	 * The pool that callers borrow connections from.
+	 */
+	ConnectionPool pool;
+
+	/**
+	 * Where statements that run too long are logged. Null when off.
+	 */
+	private volatile SlowQueryLog slowQueryLog;
+
 	private Database(String path) {
 		try {
 			this.connection = DriverManager.getConnection(path);
+			this.pool = ConnectionPool.forConnection(connection);
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Opens a pool of read-only connections to the database.
+	 * 
+	 * @param path   the JDBC url of the database
+	 * @param config the pool settings
+	 * @throws SQLException if the database cannot be opened
+	 */
+	private Database(String path, PoolConfig config) throws SQLException {
+		this.pool = ConnectionPool.forSQLite(path, config);
+	}
+
+	private Database(ConnectionPool pool) {
+		this.pool = pool;
+	}
+
 	/**
 	 * This allows use to pass in an existing database connection.
 	 * This is useful for testing.
@@ -41,6 +76,7 @@ public class Database {
 
 	private Database(Connection connection) {
 		this.connection = connection;
+		this.pool = ConnectionPool.forConnection(connection);
 	}
 
 	/**
@@ -58,6 +94,35 @@ public class Database {
 		return instance;
 	}
 
+	/**
+	 * Returns the instance of the database, backed by a pool of read-only
+	 * connections. Use this when serving a database file to many concurrent
+	 * requests. Any previous instance is replaced.
+	 * 
+	 * @param path   the JDBC url of the database file
+	 * @param config the pool settings
+	 * @return the instance of the database
+	 * @throws SQLException if the database cannot be opened
+	 */
+	public static Database getPooledInstance(String path, PoolConfig config) throws SQLException {
+		Database database = new Database(path, config);
+		LOGGER.log(Level.INFO, "Opened connection pool for {0} with {1}", new Object[] { path, config });
+		instance = database;
+		return instance;
+	}
+
+	/**
+	 * Returns a database that borrows its connections from the given pool,
+	 * without making it the instance. Use this for a database besides the
+	 * main one, such as a shard.
+	 * 
+	 * @param pool the pool to borrow connections from
+	 * @return the database
+	 */
+	public static Database forPool(ConnectionPool pool) {
+		return new Database(pool);
+	}
+
 	/**
 	 * Returns the instance of the database. However, this methods allows us 
 	 * to pass in the connection to an instance of an in-memory database.
@@ -98,14 +163,54 @@ public class Database {
 		return instance;
 	}
 
+	/**
+	 * Borrows a connection. Close the returned lease to give it back, ideally
+	 * with a try-with-resources block.
+	 * 
+	 * @return the borrowed connection
+	 * @throws SQLException if no connection became free in time
+	 */
+	public PooledConnection acquire() throws SQLException {
+		return pool.acquire();
+	}
+
+	/**
+	 * Returns the pool that connections are borrowed from, e.g. to read its
+	 * active, idle and waiting counts.
+	 * 
+	 * @return the connection pool
+	 */
+	public ConnectionPool getPool() {
+		return pool;
+	}
+
 	/**
 	 * Returns the connection to the database.
+	 * This bypasses the pool, so it is only available when the database is not
+	 * in pooled mode; prefer {@link #acquire()}.
 	 * 
 	 * @return
 	 */
 
 	public Connection getConnection() {
+		if (this.connection == null) {
+			throw new IllegalStateException("Database is in pooled mode, use acquire() instead");
+		}
 		return this.connection;
 	}
 
+	/**
+	 * Has every statement the DAOs run timed, and the slow ones logged. Pass
+	 * null to turn it off.
+	 * 
+	 * @param slowQueryLog the log to use
+	 */
+	public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	public SlowQueryLog getSlowQueryLog() {
+		return slowQueryLog;
+	}
+
 }
@@ -0,0 +1,493 @@
+package com.flickfinder.util;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size-bounded, read-through cache of entities keyed by their integer id.
+ *
+ * Eviction follows the W-TinyLFU design. New entries land in a small LRU
+ * "window". When the window overflows, its oldest entry has to win a place
+ * in the main area by being requested more often than the entry the main
+ * area would evict; the request counts come from a compact count-min
+ * sketch, so ids that have already been evicted are still remembered. The
+ * main area is a segmented LRU: entries start in "probation" and move to
+ * "protected" when they are read again. The result is that a burst of
+ * one-off lookups (a crawler walking the ids, say) cannot push the popular
+ * titles out.
+ *
+ * The cache is split into independently locked segments by id, so
+ * concurrent readers only contend when they hit the same segment.
+ *
+ * @param <V> the type of the cached entities
+ */
+public class EntityCache<V> {
+
+	/**
+	 * Loads an entity that is not in the cache.
+	 *
+	 * @param <V> the type of the entity
+	 * @param <E> the exception the loader may throw
+	 */
+	@FunctionalInterface
+	public interface Loader<V, E extends Exception> {
+		V load(int id) throws E;
+	}
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment<V>[] segments;
+
+	private final int segmentMask;
+
+	private final int capacity;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param capacity the maximum number of entities to keep
+	 */
+	// an array of a generic type can only be created raw; it is filled with
+	// Segment<V> alone, and an array keeps segmentFor to one index
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public EntityCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cache capacity must be at least 1");
+		}
+		this.capacity = capacity;
+
+		int segmentCount = 1;
+		while (segmentCount * 2 <= MAX_SEGMENTS && segmentCount * 2 * 8 <= capacity) {
+			segmentCount *= 2;
+		}
+		segments = new Segment[segmentCount];
+		segmentMask = segmentCount - 1;
+		int perSegment = capacity / segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			// spread the remainder so the segments add up to the capacity exactly
+			int segmentCapacity = perSegment + (i < capacity % segmentCount ? 1 : 0);
+			segments[i] = new Segment<>(segmentCapacity, evictions);
+		}
+	}
+
+	/**
+	 * Returns the cached entity, or loads and caches it if it is not cached.
+	 * Two threads missing on the same id at the same time may both load it.
+	 * Null results are not cached.
+	 *
+	 * @param <E>    the exception the loader may throw
+	 * @param id     the id of the entity
+	 * @param loader loads the entity on a miss
+	 * @return the entity, or null if the loader found none
+	 * @throws E if the loader fails
+	 */
+	public <E extends Exception> V get(int id, Loader<V, E> loader) throws E {
+		V value = getIfPresent(id);
+		if (value != null) {
+			return value;
+		}
+		value = loader.load(id);
+		if (value != null) {
+			put(id, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the cached entity without loading it.
+	 *
+	 * @param id the id of the entity
+	 * @return the entity, or null if it is not cached
+	 */
+	public V getIfPresent(int id) {
+		int hash = spread(id);
+		V value = segmentFor(hash).get(id, hash);
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Adds or replaces an entity. The new entity may be rejected straight away
+	 * if it is requested less often than the ones already cached.
+	 *
+	 * @param id    the id of the entity
+	 * @param value the entity
+	 */
+	public void put(int id, V value) {
+		int hash = spread(id);
+		segmentFor(hash).put(id, hash, value);
+	}
+
+	/**
+	 * Removes every entity. The frequency history is kept.
+	 */
+	public void invalidateAll() {
+		for (Segment<V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of cached entities.
+	 *
+	 * @return the number of entities
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the share of lookups that were served from the cache.
+	 *
+	 * @return the hit rate between 0 and 1
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	private Segment<V> segmentFor(int hash) {
+		// the low bits pick the counters in the sketch, so use the high bits here
+		return segments[(hash >>> 16) & segmentMask];
+	}
+
+	/**
+	 * Scrambles the id so that sequential ids spread over segments and
+	 * sketch counters.
+	 */
+	static int spread(int id) {
+		int h = id * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityCache [size=" + size() + ", capacity=" + capacity + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * The queue an entry is currently in.
+	 */
+	private static final byte WINDOW = 0;
+	private static final byte PROBATION = 1;
+	private static final byte PROTECTED = 2;
+
+	private static final class Node<V> {
+		final int id;
+		final int hash;
+		V value;
+		byte queue;
+		Node<V> prev;
+		Node<V> next;
+
+		Node(int id, int hash, V value) {
+			this.id = id;
+			this.hash = hash;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A doubly linked list of nodes in least to most recently used order.
+	 */
+	private static final class AccessOrder<V> {
+		Node<V> head;
+		Node<V> tail;
+		int size;
+
+		void addLast(Node<V> node) {
+			node.prev = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			size++;
+		}
+
+		void remove(Node<V> node) {
+			if (node.prev == null) {
+				head = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+			size--;
+		}
+
+		void moveToLast(Node<V> node) {
+			if (tail != node) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			head = null;
+			tail = null;
+			size = 0;
+		}
+	}
+
+	/**
+	 * One independently locked part of the cache, with its own window,
+	 * segmented LRU and frequency sketch.
+	 */
+	private static final class Segment<V> {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final HashMap<Integer, Node<V>> nodes;
+		private final AccessOrder<V> window = new AccessOrder<>();
+		private final AccessOrder<V> probation = new AccessOrder<>();
+		private final AccessOrder<V> protectedOrder = new AccessOrder<>();
+		private final FrequencySketch sketch;
+		private final int windowCapacity;
+		private final int mainCapacity;
+		private final int protectedCapacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			this.nodes = new HashMap<>(Math.max(16, capacity * 4 / 3 + 1));
+			// W-TinyLFU's recommended split: 1% window, and 80% of the rest protected
+			this.windowCapacity = Math.max(1, capacity / 100);
+			this.mainCapacity = capacity - windowCapacity;
+			this.protectedCapacity = mainCapacity * 8 / 10;
+			this.sketch = new FrequencySketch(capacity);
+			this.evictions = evictions;
+		}
+
+		V get(int id, int hash) {
+			lock.lock();
+			try {
+				sketch.increment(hash);
+				Node<V> node = nodes.get(id);
+				if (node == null) {
+					return null;
+				}
+				onAccess(node);
+				return node.value;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void put(int id, int hash, V value) {
+			lock.lock();
+			try {
+				Node<V> node = nodes.get(id);
+				if (node != null) {
+					node.value = value;
+					onAccess(node);
+					return;
+				}
+				node = new Node<>(id, hash, value);
+				nodes.put(id, node);
+				node.queue = WINDOW;
+				window.addLast(node);
+				if (window.size > windowCapacity) {
+					admitFromWindow();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void onAccess(Node<V> node) {
+			switch (node.queue) {
+			case WINDOW:
+				window.moveToLast(node);
+				break;
+			case PROBATION:
+				// a second hit while on probation earns a protected slot
+				probation.remove(node);
+				node.queue = PROTECTED;
+				protectedOrder.addLast(node);
+				if (protectedOrder.size > protectedCapacity) {
+					Node<V> demoted = protectedOrder.head;
+					protectedOrder.remove(demoted);
+					demoted.queue = PROBATION;
+					probation.addLast(demoted);
+				}
+				break;
+			default:
+				protectedOrder.moveToLast(node);
+				break;
+			}
+		}
+
+		/**
+		 * Moves the oldest window entry into the main area if it is requested
+		 * more often than the main area's eviction victim, and evicts whichever
+		 * of the two loses.
+		 */
+		private void admitFromWindow() {
+			Node<V> candidate = window.head;
+			window.remove(candidate);
+
+			if (probation.size + protectedOrder.size < mainCapacity) {
+				candidate.queue = PROBATION;
+				probation.addLast(candidate);
+				return;
+			}
+
+			Node<V> victim = probation.head != null ? probation.head : protectedOrder.head;
+			if (victim == null) {
+				evict(candidate);
+				return;
+			}
+			if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+				if (victim.queue == PROBATION) {
+					probation.remove(victim);
+				} else {
+					protectedOrder.remove(victim);
+				}
+				evict(victim);
+				candidate.queue = PROBATION;
+				probation.addLast(candidate);
+			} else {
+				evict(candidate);
+			}
+		}
+
+		private void evict(Node<V> node) {
+			nodes.remove(node.id);
+			evictions.increment();
+		}
+
+		int size() {
+			lock.lock();
+			try {
+				return nodes.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				nodes.clear();
+				window.clear();
+				probation.clear();
+				protectedOrder.clear();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * A count-min sketch of 4-bit counters that estimates how often each id
+	 * has been requested recently. Every counter is halved once the number of
+	 * recorded requests reaches ten times the capacity, so the estimates
+	 * follow changes in popularity.
+	 */
+	static final class FrequencySketch {
+		private static final long RESET_MASK = 0x7777777777777777L;
+		private static final int[] SEEDS = { 0x97CB3127, 0xB492B66F, 0x9AE16A3B, 0xC3A5C85C };
+
+		private final long[] table;
+		private final int tableMask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int capacity) {
+			int length = Integer.highestOneBit(Math.max(4, capacity - 1)) << 1;
+			this.table = new long[length];
+			this.tableMask = length - 1;
+			this.sampleSize = Math.max(10, capacity * 10);
+		}
+
+		/**
+		 * Returns the estimated number of recent requests, at most 15.
+		 */
+		int frequency(int hash) {
+			int frequency = Integer.MAX_VALUE;
+			for (int i = 0; i < 4; i++) {
+				frequency = Math.min(frequency, counter(hash, i));
+			}
+			return frequency;
+		}
+
+		void increment(int hash) {
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = offsetOf(hash, i);
+				if (((table[index] >>> offset) & 0xFL) != 0xFL) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				reset();
+			}
+		}
+
+		private int counter(int hash, int i) {
+			return (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xFL);
+		}
+
+		private int indexOf(int hash, int i) {
+			int h = (hash ^ SEEDS[i]) * SEEDS[i];
+			h ^= h >>> 17;
+			return h & tableMask;
+		}
+
+		private static int offsetOf(int hash, int i) {
+			// each long holds sixteen 4-bit counters
+			return (((hash >>> (i * 8)) & 0xF)) << 2;
+		}
+
+		private void reset() {
+			for (int i = 0; i < table.length; i++) {
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			}
+			additions /= 2;
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.flickfinder.util;
+
+/**
+ * The settings for a {@link ConnectionPool}.
+ *
+ * The defaults are sized for a read-mostly API server: one connection is
+ * opened eagerly and the pool grows on demand up to twice the number of
+ * available cores.
+ *
+ */
+public class PoolConfig {
+
+	/**
+	 * The number of connections opened when the pool starts and never closed
+	 * while the pool is open.
+	 */
+	private int minSize = 1;
+
+	/**
+	 * The maximum number of connections the pool will ever open.
+	 */
+	private int maxSize = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+	/**
+	 * How long a caller waits for a free connection before giving up.
+	 */
+	private long acquireTimeoutMillis = 30_000;
+
+	/**
+	 * How long a connection may be borrowed before it is reported as a leak.
+	 * Zero disables leak detection.
+	 */
+	private long leakDetectionThresholdMillis = 60_000;
+
+	/**
+	 * How many prepared statements each connection keeps open.
+	 */
+	private int statementCacheSize = 64;
+
+	/**
+	 * Reads the pool settings from system properties, falling back to the
+	 * defaults for anything that is not set.
+	 *
+	 * The properties are flickfinder.pool.min, flickfinder.pool.max,
+	 * flickfinder.pool.acquireTimeoutMs, flickfinder.pool.leakThresholdMs and
+	 * flickfinder.pool.statementCacheSize.
+	 *
+	 * @return the pool settings
+	 */
+	public static PoolConfig fromSystemProperties() {
+		PoolConfig config = new PoolConfig();
+		config.setMinSize(Integer.getInteger("flickfinder.pool.min", config.getMinSize()));
+		config.setMaxSize(Integer.getInteger("flickfinder.pool.max", config.getMaxSize()));
+		config.setAcquireTimeoutMillis(
+				Long.getLong("flickfinder.pool.acquireTimeoutMs", config.getAcquireTimeoutMillis()));
+		config.setLeakDetectionThresholdMillis(
+				Long.getLong("flickfinder.pool.leakThresholdMs", config.getLeakDetectionThresholdMillis()));
+		config.setStatementCacheSize(
+				Integer.getInteger("flickfinder.pool.statementCacheSize", config.getStatementCacheSize()));
+		return config;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public void setMinSize(int minSize) {
+		if (minSize < 0) {
+			throw new IllegalArgumentException("Minimum pool size must not be negative");
+		}
+		this.minSize = minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Maximum pool size must be at least 1");
+		}
+		this.maxSize = maxSize;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	public long getLeakDetectionThresholdMillis() {
+		return leakDetectionThresholdMillis;
+	}
+
+	public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+		this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		if (statementCacheSize < 1) {
+			throw new IllegalArgumentException("Statement cache size must be at least 1");
+		}
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolConfig [minSize=" + minSize + ", maxSize=" + maxSize + ", acquireTimeoutMillis="
+				+ acquireTimeoutMillis + ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis
+				+ ", statementCacheSize=" + statementCacheSize + "]";
+	}
+
+}
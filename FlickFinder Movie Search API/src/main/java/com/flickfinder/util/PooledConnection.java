@@ -0,0 +1,140 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}.
+ *
+ * Closing the lease hands the connection back to the pool; the underlying
+ * JDBC connection stays open. Use it in a try-with-resources block so the
+ * connection is always returned:
+ *
+ * <pre>
+ * try (PooledConnection lease = database.acquire()) {
+ * 	Connection connection = lease.getConnection();
+ * 	...
+ * }
+ * </pre>
+ *
+ */
+public class PooledConnection implements AutoCloseable {
+
+	/**
+	 * The pool that owns this connection.
+	 */
+	private final ConnectionPool pool;
+
+	/**
+	 * The pooled connection this lease is for, which outlives it.
+	 */
+	private final Entry entry;
+
+	/**
+	 * Whether this lease has been closed. A lease is only ever handed to one
+	 * borrower, so once it is closed it can never release the connection
+	 * again, even after the pool has lent it to someone else.
+	 */
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * A connection the pool holds, with the state it keeps from one borrow
+	 * to the next. Each borrow gets its own lease around it.
+	 */
+	static final class Entry {
+
+		/**
+		 * The underlying JDBC connection.
+		 */
+		final Connection connection;
+
+		/**
+		 * The statements prepared on this connection. They outlive each lease
+		 * and are reused by whoever borrows the connection next.
+		 */
+		final StatementCache statements;
+
+		/**
+		 * When the connection was last borrowed, in nanoseconds.
+		 */
+		volatile long borrowedAt;
+
+		/**
+		 * Where the connection was last borrowed from. Only captured when
+		 * leak detection is enabled.
+		 */
+		volatile Throwable borrowSite;
+
+		/**
+		 * Whether the current borrow has already been reported as a leak.
+		 */
+		volatile boolean leakReported;
+
+		Entry(Connection connection, int statementCacheSize) {
+			this.connection = connection;
+			this.statements = new StatementCache(connection, statementCacheSize);
+		}
+
+		void markBorrowed(boolean captureSite) {
+			this.borrowedAt = System.nanoTime();
+			this.borrowSite = captureSite ? new Throwable("Connection borrowed here") : null;
+			this.leakReported = false;
+		}
+
+		void markReturned() {
+			this.borrowSite = null;
+		}
+
+	}
+
+	PooledConnection(ConnectionPool pool, Entry entry) {
+		this.pool = pool;
+		this.entry = entry;
+	}
+
+	/**
+	 * Returns the JDBC connection. It must not be used after the lease is
+	 * closed.
+	 *
+	 * @return the JDBC connection
+	 */
+	public Connection getConnection() {
+		return entry.connection;
+	}
+
+	/**
+	 * Returns a cached prepared statement for the SQL, preparing it on first
+	 * use. The statement belongs to the connection, so do not close it; close
+	 * the result sets it produces instead.
+	 *
+	 * @param sql the SQL text
+	 * @return the prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		return entry.statements.prepare(sql);
+	}
+
+	/**
+	 * Returns the statement cache of this connection.
+	 *
+	 * @return the statement cache
+	 */
+	public StatementCache getStatementCache() {
+		return entry.statements;
+	}
+
+	/**
+	 * Returns the connection to the pool. Closing a lease twice has no
+	 * effect, even if the connection has been borrowed again in between.
+	 */
+	@Override
+	public void close() {
+		if (closed.compareAndSet(false, true)) {
+			pool.release(entry);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads SQLite's query plans.
+ */
+final class QueryPlans {
+
+	private QueryPlans() {
+	}
+
+	/**
+	 * Runs {@code EXPLAIN QUERY PLAN} for a statement.
+	 *
+	 * @param connection the connection to plan on
+	 * @param sql        the SQL text
+	 * @param params     the values for the placeholders; any left out are
+	 *                   planned as null
+	 * @return the steps of the plan, each indented by its depth in the plan's
+	 *         tree
+	 * @throws SQLException if the statement cannot be planned
+	 */
+	static List<String> explain(Connection connection, String sql, Object... params) throws SQLException {
+		List<String> plan = new ArrayList<>();
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			for (int i = 0; i < params.length; i++) {
+				statement.setObject(i + 1, params[i]);
+			}
+			Map<Integer, Integer> depths = new HashMap<>();
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					int depth = depths.getOrDefault(rs.getInt("parent"), -1) + 1;
+					depths.put(rs.getInt("id"), depth);
+					plan.add("  ".repeat(depth) + rs.getString("detail"));
+				}
+			}
+		}
+		return List.copyOf(plan);
+	}
+
+}
@@ -0,0 +1,268 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes sure a database has the indexes the DAOs' queries need, so that none
+ * of them falls back to scanning a whole table.
+ *
+ * Each access path the DAOs rely on names the table and the columns of a
+ * covering index for it, so the lookup is answered from the index alone. If
+ * the table already has an index that starts with those columns, in that
+ * order, nothing is done for the path; otherwise the index is created. The
+ * planner statistics are then refreshed, with ANALYZE when an index was
+ * created or there are no statistics yet, and with the much cheaper
+ * {@code PRAGMA optimize} otherwise. The plan of each path's query is logged
+ * before and after.
+ *
+ * Running it again finds every index in place, so it is safe on every start.
+ * Paths whose tables do not exist are skipped, and a database that cannot be
+ * written to is left as it is with a warning.
+ *
+ */
+public class SchemaOptimizer {
+
+	private static final Logger LOGGER = Logger.getLogger(SchemaOptimizer.class.getName());
+
+	/**
+	 * A way the DAOs read a table, and the index that serves it.
+	 */
+	static final class AccessPath {
+
+		final String name;
+
+		final String table;
+
+		final List<String> columns;
+
+		final String query;
+
+		AccessPath(String name, String table, List<String> columns, String query) {
+			this.name = name;
+			this.table = table;
+			this.columns = columns;
+			this.query = query;
+		}
+
+		String indexName() {
+			return "idx_" + table + "_" + String.join("_", columns);
+		}
+
+	}
+
+	/**
+	 * The access paths of MovieDAO and PersonDAO, each with one of the
+	 * queries that uses it.
+	 */
+	static final List<AccessPath> ACCESS_PATHS = List.of(
+			new AccessPath("stars by movie", "stars", List.of("movie_id", "person_id"),
+					"SELECT p.id, p.name, p.birth FROM stars s JOIN people p ON s.person_id = p.id"
+							+ " WHERE s.movie_id = ?"),
+			new AccessPath("stars by person", "stars", List.of("person_id", "movie_id"),
+					"SELECT m.id, m.title, m.year FROM movies m JOIN stars s ON s.movie_id = m.id"
+							+ " WHERE s.person_id = ?"),
+			new AccessPath("ratings by movie", "ratings", List.of("movie_id", "rating", "votes"),
+					"SELECT rating, votes, movie_id FROM ratings WHERE movie_id IN (?,?,?,?)"),
+			new AccessPath("movies by year", "movies", List.of("year", "title"),
+					"SELECT m.id, m.title, r.rating, r.votes, m.year FROM movies m"
+							+ " JOIN ratings r ON m.id = r.movie_id WHERE m.year = ? AND r.votes > ?"
+							+ " ORDER BY r.rating DESC LIMIT ?"));
+
+	private final Connection connection;
+
+	/**
+	 * What a run found and did.
+	 */
+	public static final class Report {
+
+		private final List<String> createdIndexes = new ArrayList<>();
+
+		private boolean analyzed;
+
+		private final Map<String, List<String>> plansBefore = new LinkedHashMap<>();
+
+		private final Map<String, List<String>> plansAfter = new LinkedHashMap<>();
+
+		/**
+		 * Returns the indexes that were missing and have been created.
+		 *
+		 * @return the index names
+		 */
+		public List<String> getCreatedIndexes() {
+			return createdIndexes;
+		}
+
+		/**
+		 * Returns whether ANALYZE ran, rather than PRAGMA optimize.
+		 *
+		 * @return true if the statistics were rebuilt
+		 */
+		public boolean isAnalyzed() {
+			return analyzed;
+		}
+
+		/**
+		 * Returns the plan of each access path's query before any index was
+		 * created.
+		 *
+		 * @return the plans, by access path
+		 */
+		public Map<String, List<String>> getPlansBefore() {
+			return plansBefore;
+		}
+
+		/**
+		 * Returns the plan of each access path's query at the end.
+		 *
+		 * @return the plans, by access path
+		 */
+		public Map<String, List<String>> getPlansAfter() {
+			return plansAfter;
+		}
+
+	}
+
+	/**
+	 * Constructs an optimizer for a database.
+	 *
+	 * @param connection a connection that may create indexes
+	 */
+	public SchemaOptimizer(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Opens a database, optimizes it and closes it again, logging any failure
+	 * rather than throwing it so that the server still starts.
+	 *
+	 * @param url the JDBC url of the database, e.g. jdbc:sqlite:movies.db
+	 */
+	public static void optimize(String url) {
+		try (Connection connection = DriverManager.getConnection(url)) {
+			new SchemaOptimizer(connection).optimize();
+		} catch (SQLException e) {
+			LOGGER.log(Level.WARNING, "Could not optimize the schema of " + url + ", serving it as it is", e);
+		}
+	}
+
+	/**
+	 * Creates any missing indexes and refreshes the planner statistics.
+	 *
+	 * @return what was found and done
+	 * @throws SQLException if the schema cannot be read or changed
+	 */
+	public Report optimize() throws SQLException {
+		Report report = new Report();
+		List<AccessPath> paths = new ArrayList<>();
+		Set<String> tables = new LinkedHashSet<>();
+		for (AccessPath path : ACCESS_PATHS) {
+			if (!tableExists(path.table)) {
+				LOGGER.info("No " + path.table + " table, skipping " + path.name);
+				continue;
+			}
+			try {
+				report.plansBefore.put(path.name, plan(path));
+			} catch (SQLException e) {
+				// e.g. a table the query joins is missing
+				LOGGER.info("Cannot plan " + path.name + ", skipping it: " + e.getMessage());
+				continue;
+			}
+			paths.add(path);
+			tables.add(path.table);
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			for (AccessPath path : paths) {
+				if (hasIndex(path.table, path.columns)) {
+					continue;
+				}
+				LOGGER.info("Creating " + path.indexName() + " for " + path.name);
+				statement.execute("CREATE INDEX IF NOT EXISTS " + path.indexName() + " ON " + path.table + " ("
+						+ String.join(", ", path.columns) + ")");
+				report.createdIndexes.add(path.indexName());
+			}
+			if (!report.createdIndexes.isEmpty() || !tableExists("sqlite_stat1")) {
+				for (String table : tables) {
+					statement.execute("ANALYZE " + table);
+				}
+				report.analyzed = true;
+			} else {
+				statement.execute("PRAGMA optimize");
+			}
+		}
+
+		for (AccessPath path : paths) {
+			List<String> after = plan(path);
+			report.plansAfter.put(path.name, after);
+			List<String> before = report.plansBefore.get(path.name);
+			if (before.equals(after)) {
+				LOGGER.info("Plan for " + path.name + ": " + String.join("; ", after));
+			} else {
+				LOGGER.info("Plan for " + path.name + " was: " + String.join("; ", before) + ", now: "
+						+ String.join("; ", after));
+			}
+		}
+		return report;
+	}
+
+	private List<String> plan(AccessPath path) throws SQLException {
+		return QueryPlans.explain(connection, path.query);
+	}
+
+	private boolean tableExists(String table) throws SQLException {
+		try (PreparedStatement statement = connection
+				.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ? COLLATE NOCASE")) {
+			statement.setString(1, table);
+			try (ResultSet rs = statement.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a table has a full index whose leading columns are the
+	 * given ones, in order.
+	 */
+	boolean hasIndex(String table, List<String> columns) throws SQLException {
+		List<String> indexes = new ArrayList<>();
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("PRAGMA index_list(" + table + ")")) {
+			while (rs.next()) {
+				if (rs.getInt("partial") == 0) {
+					indexes.add(rs.getString("name"));
+				}
+			}
+		}
+		for (String index : indexes) {
+			List<String> indexed = new ArrayList<>();
+			try (Statement statement = connection.createStatement();
+					ResultSet rs = statement.executeQuery("PRAGMA index_info(\"" + index.replace("\"", "\"\"")
+							+ "\")")) {
+				while (rs.next()) {
+					// null for an expression, which never matches a column
+					String column = rs.getString("name");
+					indexed.add((column == null) ? "" : column.toLowerCase(Locale.ROOT));
+				}
+			}
+			if (indexed.size() >= columns.size() && indexed.subList(0, columns.size()).equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,203 @@
+package com.flickfinder.util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs statements that take longer than a threshold, with their bound
+ * parameters and SQLite's query plan, and keeps the slowest of each SQL text
+ * for /admin/slow-queries.
+ *
+ * The plan comes from {@code EXPLAIN QUERY PLAN}, run on the connection the
+ * statement ran on the first time that SQL is slow, and is kept with it
+ * after that. The DAOs only run a fixed set of SQL texts, with IN lists
+ * padded to a few sizes, so there is one entry per query shape and the
+ * entries do not need a bound.
+ *
+ * Attach it to a {@link Database} to have the QueryRunner time every
+ * statement; without one nothing is timed.
+ *
+ */
+public class SlowQueryLog {
+
+	private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+
+	/**
+	 * The most parameters written out for a statement; long IN lists are cut
+	 * short.
+	 */
+	private static final int MAX_LOGGED_PARAMS = 16;
+
+	private final long thresholdNanos;
+
+	private final ConcurrentHashMap<String, Shape> shapes = new ConcurrentHashMap<>();
+
+	/**
+	 * The slow executions of one SQL text.
+	 */
+	public static final class Shape {
+
+		private final String sql;
+
+		private final List<String> plan;
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private volatile String slowestParams;
+
+		Shape(String sql, List<String> plan) {
+			this.sql = sql;
+			this.plan = plan;
+		}
+
+		void record(long nanos, String params) {
+			count.increment();
+			totalNanos.add(nanos);
+			long max = maxNanos.get();
+			while (nanos > max) {
+				if (maxNanos.compareAndSet(max, nanos)) {
+					slowestParams = params;
+					break;
+				}
+				max = maxNanos.get();
+			}
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		/**
+		 * Returns the query plan, one step per line, indented under the step
+		 * it belongs to.
+		 *
+		 * @return the plan, empty if it could not be read
+		 */
+		public List<String> getPlan() {
+			return plan;
+		}
+
+		/**
+		 * Returns how many times the SQL went over the threshold.
+		 *
+		 * @return the number of slow executions
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		public double getMaxMillis() {
+			return maxNanos.get() / 1e6;
+		}
+
+		public double getMeanMillis() {
+			long count = getCount();
+			return (count == 0) ? 0 : totalNanos.sum() / 1e6 / count;
+		}
+
+		/**
+		 * Returns the parameters of the slowest execution.
+		 *
+		 * @return the parameters, as logged
+		 */
+		public String getSlowestParams() {
+			return slowestParams;
+		}
+
+	}
+
+	/**
+	 * Creates a log.
+	 *
+	 * @param thresholdMillis how long a statement may take before it is
+	 *                        logged; zero logs every statement
+	 */
+	public SlowQueryLog(long thresholdMillis) {
+		if (thresholdMillis < 0) {
+			throw new IllegalArgumentException("The slow query threshold cannot be negative");
+		}
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	/**
+	 * Records a statement that has just run, if it went over the threshold.
+	 * Call it before the lease is closed, so that the plan can be read on the
+	 * same connection.
+	 *
+	 * @param lease  the connection the statement ran on
+	 * @param sql    the SQL text
+	 * @param params the parameters that were bound
+	 * @param nanos  how long the statement took
+	 */
+	public void record(PooledConnection lease, String sql, Object[] params, long nanos) {
+		if (nanos < thresholdNanos) {
+			return;
+		}
+		Shape shape = shapes.get(sql);
+		if (shape == null) {
+			// read outside the map, so a slow plan does not hold up other SQL
+			Shape created = new Shape(sql, explain(lease, sql, params));
+			shape = shapes.putIfAbsent(sql, created);
+			if (shape == null) {
+				shape = created;
+			}
+		}
+		String logged = format(params);
+		shape.record(nanos, logged);
+		if (LOGGER.isLoggable(Level.WARNING)) {
+			LOGGER.warning(String.format("Slow query took %.1f ms: %s %s%n%s", nanos / 1e6, sql, logged,
+					String.join(System.lineSeparator(), shape.getPlan())));
+		}
+	}
+
+	/**
+	 * Returns the SQL texts with the slowest executions, slowest first.
+	 *
+	 * @param limit the most to return
+	 * @return the slow query shapes
+	 */
+	public List<Shape> top(int limit) {
+		List<Shape> slowest = new ArrayList<>(shapes.values());
+		slowest.sort(Comparator.comparingDouble(Shape::getMaxMillis).reversed());
+		return slowest.subList(0, Math.min(limit, slowest.size()));
+	}
+
+	/**
+	 * Reads the plan of a statement, or an empty plan if it cannot be read.
+	 */
+	static List<String> explain(PooledConnection lease, String sql, Object[] params) {
+		try {
+			return QueryPlans.explain(lease.getConnection(), sql, params);
+		} catch (SQLException e) {
+			LOGGER.log(Level.WARNING, "Could not read the query plan of " + sql, e);
+			return List.of();
+		}
+	}
+
+	private static String format(Object[] params) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < params.length && i < MAX_LOGGED_PARAMS; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(params[i]);
+		}
+		if (params.length > MAX_LOGGED_PARAMS) {
+			sb.append(", ... ").append(params.length - MAX_LOGGED_PARAMS).append(" more");
+		}
+		return sb.append(']').toString();
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The prepared statements of one connection, keyed by their SQL text.
+ *
+ * Preparing a statement makes SQLite parse the SQL and plan the query, which
+ * costs more than running most of our lookups. The cache keeps each
+ * statement around after its first use so that later calls only bind new
+ * parameters. When it is full, the least recently used statement is closed.
+ *
+ * A cache belongs to a single connection and is only used by whoever has
+ * borrowed that connection, so it is not thread-safe.
+ *
+ */
+public class StatementCache {
+
+	private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+
+	private final Connection connection;
+
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Creates an empty cache for a connection.
+	 *
+	 * @param connection the connection to prepare statements on
+	 * @param capacity   the maximum number of statements to keep open
+	 */
+	public StatementCache(Connection connection, int capacity) {
+		this.connection = connection;
+		// access order, so iteration starts at the least recently used statement
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > capacity) {
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a prepared statement for the SQL, preparing it only if it is not
+	 * already cached. The caller must not close the statement, but must close
+	 * any result set it opens.
+	 *
+	 * @param sql the SQL text
+	 * @return the prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement != null && !statement.isClosed()) {
+			hits++;
+			return statement;
+		}
+		misses++;
+		statement = connection.prepareStatement(sql);
+		statements.put(sql, statement);
+		return statement;
+	}
+
+	/**
+	 * Closes and forgets a statement, e.g. after it failed part way through.
+	 *
+	 * @param sql the SQL text of the statement
+	 */
+	public void evict(String sql) {
+		PreparedStatement statement = statements.remove(sql);
+		if (statement != null) {
+			closeQuietly(statement);
+		}
+	}
+
+	/**
+	 * Returns the number of statements that are cached.
+	 *
+	 * @return the number of cached statements
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Closes every cached statement.
+	 */
+	public void clear() {
+		Iterator<PreparedStatement> iterator = statements.values().iterator();
+		while (iterator.hasNext()) {
+			closeQuietly(iterator.next());
+			iterator.remove();
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Failed to close cached statement", e);
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.SeededPool;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for compressing responses with gzip and brotli.
+ */
+class CompressionIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	/**
+	 * The database of the streaming tests, which need a pool.
+	 */
+	SeededPool pool;
+
+	int port = 6006;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+	}
+
+	private void start(boolean streaming) {
+		start(streaming, false);
+	}
+
+	private void start(boolean streaming, boolean etags) {
+		ServerOptions options = new ServerOptions();
+		options.setEtags(etags);
+		options.setCompression(true);
+		options.setCompressionMinBytes(100);
+		options.setGzipLevel("/people", -1);
+		options.setBrotliLevel("/people", -1);
+		options.setStreamingJson(streaming);
+		options.setDbThreads(2);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void gzips_large_responses() {
+		start(false);
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/movies").then().assertThat()
+				.statusCode(200)
+				.header("Content-Encoding", equalTo("gzip"))
+				.header("Vary", equalTo("Accept-Encoding"))
+				.body("id", contains(1, 2, 3, 4, 5));
+	}
+
+	@Test
+	void marks_the_etag_with_the_coding() throws Exception {
+		start(false, true);
+		HttpResponse<byte[]> plain = get("/movies", null, null);
+		HttpResponse<byte[]> gzipped = get("/movies", "gzip", null);
+		String plainTag = plain.headers().firstValue("ETag").orElseThrow();
+		String gzipTag = gzipped.headers().firstValue("ETag").orElseThrow();
+		assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+		assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+		assertEquals(plainTag.substring(0, plainTag.length() - 1) + "-gzip\"", gzipTag);
+
+		HttpResponse<byte[]> revalidated = get("/movies", "gzip", gzipTag);
+		assertEquals(304, revalidated.statusCode());
+		assertEquals(gzipTag, revalidated.headers().firstValue("ETag").orElse(null));
+		assertEquals(304, get("/movies", null, plainTag).statusCode());
+	}
+
+	private HttpResponse<byte[]> get(String path, String acceptEncoding, String ifNoneMatch) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseURL + path));
+		if (acceptEncoding != null) {
+			request.header("Accept-Encoding", acceptEncoding);
+		}
+		if (ifNoneMatch != null) {
+			request.header("If-None-Match", ifNoneMatch);
+		}
+		return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	@Test
+	void prefers_brotli() throws Exception {
+		start(false);
+		HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create(baseURL + "/movies")).header("Accept-Encoding", "gzip, br").build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+
+		assertEquals("br", response.headers().firstValue("Content-Encoding").orElse(null));
+		try (InputStream in = new BrotliInputStream(new ByteArrayInputStream(response.body()))) {
+			String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			assertTrue(json.startsWith("[{\"id\":1,"), json);
+		}
+	}
+
+	@Test
+	void leaves_small_responses_and_excluded_routes() throws Exception {
+		start(false);
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/movies/1").then().assertThat()
+				.statusCode(200)
+				.header("Content-Encoding", nullValue());
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/people").then().assertThat()
+				.statusCode(200)
+				.header("Content-Encoding", nullValue());
+		// RestAssured always asks for gzip, so ask without it directly
+		HttpResponse<String> plain = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create(baseURL + "/movies")).header("Accept-Encoding", "identity").build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, plain.statusCode());
+		assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+		assertTrue(plain.body().startsWith("[{\"id\":1,"), plain.body());
+	}
+
+	@Test
+	void leaves_other_paths_to_javalin() throws Exception {
+		start(false);
+		HttpResponse<byte[]> page = get("/", "gzip", null);
+		assertEquals(200, page.statusCode());
+		assertEquals("gzip", page.headers().firstValue("Content-Encoding").orElse(null));
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(page.body()))) {
+			String html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			assertTrue(html.contains("<html"), html);
+		}
+	}
+
+	@Test
+	void gzips_streamed_responses() throws Exception {
+		pool = new SeededPool();
+		start(true);
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/movies").then().assertThat()
+				.statusCode(200)
+				.header("Content-Encoding", equalTo("gzip"))
+				.body("id", contains(1, 2, 3, 4, 5));
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/movies?limit=1").then().assertThat()
+				.statusCode(200)
+				.header("Content-Encoding", nullValue())
+				.body("id", contains(1));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		app.stop();
+		seeder.closeConnection();
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for ETags and Cache-Control headers.
+ */
+class ConditionalGetIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6004;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ServerOptions options = new ServerOptions();
+		options.setEtags(true);
+		options.setDbThreads(2);
+		options.setDefaultCacheControl("max-age=60");
+		options.setCacheControl("/movies/{id}", "max-age=3600");
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void sends_etag_and_cache_control() {
+		given().when().get(baseURL + "/movies?limit=2").then().assertThat().statusCode(200)
+				.header("ETag", not(emptyString()))
+				.header("Cache-Control", equalTo("max-age=60"))
+				.body("id", contains(1, 2));
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200)
+				.header("Cache-Control", equalTo("max-age=3600"));
+	}
+
+	@Test
+	void answers_if_none_match_with_not_modified() {
+		String etag = given().when().get(baseURL + "/people/1").then().statusCode(200).extract().header("ETag");
+
+		given().header("If-None-Match", etag).when().get(baseURL + "/people/1").then().assertThat()
+				.statusCode(304)
+				.header("ETag", equalTo(etag))
+				.body(emptyString());
+	}
+
+	@Test
+	void different_parameters_get_different_etags() {
+		String first = given().when().get(baseURL + "/movies?limit=1").then().extract().header("ETag");
+		String second = given().when().get(baseURL + "/movies?limit=2").then().extract().header("ETag");
+
+		assertNotEquals(first, second);
+		given().header("If-None-Match", first).when().get(baseURL + "/movies?limit=2").then().assertThat()
+				.statusCode(200);
+	}
+
+	@Test
+	void errors_have_no_etag() {
+		given().when().get(baseURL + "/movies/1000").then().assertThat().statusCode(404)
+				.header("ETag", nullValue())
+				.header("Cache-Control", nullValue());
+		given().when().get(baseURL + "/movies/ratings/abc").then().assertThat().statusCode(400)
+				.header("ETag", nullValue());
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for running the handlers on the DB executor. The
+ * responses must be the same as when they run on Jetty's threads.
+ */
+class DbExecutorIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6003;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ServerOptions options = new ServerOptions();
+		options.setDbThreads(2);
+		options.setDbQueueSize(16);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void retrieves_ratings_by_year() {
+		given().when().get(baseURL + "/movies/ratings/1994").then().assertThat().statusCode(200)
+				.body("id", contains(1));
+	}
+
+	@Test
+	void retrieves_a_page_of_people() {
+		given().when().get(baseURL + "/people?limit=2").then().assertThat().statusCode(200)
+				.body("id", contains(1, 2));
+	}
+
+	@Test
+	void keeps_error_responses() {
+		given().when().get(baseURL + "/movies/1000").then().assertThat().statusCode(404);
+		given().when().get(baseURL + "/movies/ratings/abc").then().assertThat().statusCode(400);
+		given().when().get(baseURL + "/people/1/path/2").then().assertThat().statusCode(200)
+				.body("degrees", equalTo(1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.flickfinder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.SeededPool;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the hand-written serializers: every route must
+ * answer with the same bytes as a server using Jackson's bean serializers.
+ * The servers read a seeded database file, as streaming needs a pool.
+ */
+class FastJsonIntegrationTests {
+
+	Javalin beans;
+
+	Javalin fast;
+
+	Javalin streamed;
+
+	SeededPool pool;
+
+	int beansPort = 6007;
+
+	int fastPort = 6008;
+
+	int streamedPort = 6012;
+
+	HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() throws IOException, SQLException {
+		pool = new SeededPool();
+		beans = AppConfig.startServer(beansPort);
+		ServerOptions options = new ServerOptions();
+		options.setFastJson(true);
+		fast = AppConfig.startServer(fastPort, options);
+		ServerOptions streaming = new ServerOptions();
+		streaming.setFastJson(true);
+		streaming.setStreamingJson(true);
+		streaming.setMetrics(true);
+		streamed = AppConfig.startServer(streamedPort, streaming);
+	}
+
+	@Test
+	void movie_routes_are_byte_identical() throws Exception {
+		assertSameBody("/movies");
+		assertSameBody("/movies?include=stars,rating");
+		assertSameBody("/movies?ids=1,1000,2");
+		assertSameBody("/movies/1");
+		assertSameBody("/movies/1?include=stars,rating");
+		assertSameBody("/movies/1/stars");
+		assertSameBody("/movies/ratings/1994");
+		assertSameBody("/movies/search?q=god");
+	}
+
+	@Test
+	void people_routes_are_byte_identical() throws Exception {
+		assertSameBody("/people");
+		assertSameBody("/people?include=movies");
+		assertSameBody("/people/1");
+		assertSameBody("/people/1/movies");
+		assertSameBody("/people/1/path/2");
+		assertSameBody("/people/autocomplete?q=m");
+	}
+
+	@Test
+	void streamed_routes_are_byte_identical_with_metrics_on() throws Exception {
+		assertSameStreamedBody("/movies");
+		assertSameStreamedBody("/movies?limit=2");
+		assertSameStreamedBody("/movies/1/stars");
+		assertSameStreamedBody("/people");
+		assertSameStreamedBody("/people/4/movies");
+	}
+
+	private void assertSameStreamedBody(String path) throws Exception {
+		assertEquals(get(beansPort, path), get(streamedPort, path), path);
+	}
+
+	private void assertSameBody(String path) throws Exception {
+		assertEquals(get(beansPort, path), get(fastPort, path), path);
+	}
+
+	private String get(int port, String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		return response.statusCode() + " " + response.body();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		beans.stop();
+		fast.stop();
+		streamed.stop();
+		pool.close();
+	}
+
+}
@@ -6,6 +6,9 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.notNullValue;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -152,6 +155,108 @@ class IntegrationTests {
 				body(equalTo("Invalid limit"));
 	}
 	
+	@Test
+	void pages_through_movies_with_cursor() {
+		String cursor = given().when().get(baseURL + "/movies?limit=2").then().assertThat().statusCode(200)
+				.body("id", contains(1, 2))
+				.extract().header("X-Next-Cursor");
+
+		given().when().get(baseURL + "/movies?limit=2&after=" + cursor).then().assertThat().statusCode(200)
+				.body("id", contains(3, 4));
+	}
+	
+	@Test
+	void next_link_keeps_the_other_query_parameters() {
+		String cursor = given().when().get(baseURL + "/movies?include=stars&limit=2").then().assertThat()
+				.statusCode(200)
+				.header("Link", containsString("</movies?include=stars&limit=2&after="))
+				.extract().header("X-Next-Cursor");
+		given().when().get(baseURL + "/movies?include=stars&limit=2&after=" + cursor).then().assertThat()
+				.statusCode(200).body("id", contains(3, 4)).body("[0].stars", notNullValue());
+	}
+	
+	@Test
+	void last_page_has_no_cursor() {
+		given().when().get(baseURL + "/movies?limit=10").then().assertThat().statusCode(200)
+				.header("X-Next-Cursor", nullValue());
+	}
+	
+	@Test
+	void returns_400_for_invalid_cursor() {
+		given().when().get(baseURL + "/people?after=garbage").then().assertThat().statusCode(400)
+				.body(equalTo("Invalid cursor"));
+	}
+	
+	@Test
+	void searches_movies_by_title() {
+		given().when().get(baseURL + "/movies/search?q=godfather").then().assertThat().statusCode(200)
+				.body("id", contains(2, 3));
+	}
+	
+	@Test
+	void returns_400_for_missing_search_query() {
+		given().when().get(baseURL + "/movies/search").then().assertThat().statusCode(400);
+	}
+	
+	@Test
+	void autocompletes_people_by_name() {
+		given().when().get(baseURL + "/people/autocomplete?prefix=mor").then().assertThat().statusCode(200)
+				.body("name", contains("Morgan Freeman"));
+	}
+	
+	@Test
+	void retrieves_movies_by_ids_in_request_order() {
+		given().when().get(baseURL + "/movies?ids=3,999,1").then().assertThat().statusCode(200)
+				.body("size()", equalTo(3))
+				.body("[0].id", equalTo(3))
+				.body("[1]", nullValue())
+				.body("[2].id", equalTo(1));
+	}
+	
+	@Test
+	void returns_400_for_too_many_ids() {
+		StringBuilder ids = new StringBuilder("1");
+		for (int i = 2; i <= 501; i++) {
+			ids.append(',').append(i);
+		}
+		given().when().get(baseURL + "/people?ids=" + ids).then().assertThat().statusCode(400)
+				.body(equalTo("Invalid ids"));
+	}
+	
+	@Test
+	void includes_stars_and_rating_of_movies() {
+		given().when().get(baseURL + "/movies?limit=2&include=stars,rating").then().assertThat().statusCode(200)
+				.body("[0].stars.name", contains("Tim Robbins", "Morgan Freeman"))
+				.body("[0].rating.votes", equalTo(2200000))
+				.body("[1].stars.name", contains("Al Pacino"));
+	}
+	
+	@Test
+	void includes_movies_of_a_person() {
+		given().when().get(baseURL + "/people/4?include=movies").then().assertThat().statusCode(200)
+				.body("movies.id", contains(2, 3));
+	}
+	
+	@Test
+	void leaves_out_relations_not_included() {
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200)
+				.body("stars", nullValue())
+				.body("rating", nullValue());
+	}
+	
+	@Test
+	void finds_path_between_co_stars() {
+		given().when().get(baseURL + "/people/1/path/2").then().assertThat().statusCode(200)
+				.body("degrees", equalTo(1))
+				.body("people.name", contains("Tim Robbins", "Morgan Freeman"))
+				.body("movies.id", contains(1));
+	}
+	
+	@Test
+	void returns_404_when_no_path() {
+		given().when().get(baseURL + "/people/1/path/4").then().assertThat().statusCode(404);
+	}
+	
 	@Test
 	void retrieves_a_list_of_people_by_default_limit() {
 
@@ -0,0 +1,80 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the /metrics endpoint.
+ */
+class MetricsIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6009;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ServerOptions options = new ServerOptions();
+		options.setMetrics(true);
+		options.setDbThreads(2);
+		options.setEntityCacheSize(16);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void counts_requests_by_route_and_status() {
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/movies/1000").then().assertThat().statusCode(404);
+		given().when().get(baseURL + "/metrics").then().assertThat().statusCode(200)
+				.contentType(startsWith("text/plain; version=0.0.4"))
+				.body(containsString("flickfinder_http_requests_total{route=\"/movies/{id}\",status=\"200\"} 2\n"))
+				.body(containsString("flickfinder_http_requests_total{route=\"/movies/{id}\",status=\"404\"} 1\n"))
+				.body(containsString("flickfinder_http_request_duration_seconds_count{route=\"/movies/{id}\"} 3\n"));
+	}
+
+	@Test
+	void times_dao_calls_and_serialization() {
+		given().when().get(baseURL + "/movies?limit=3").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/metrics").then().assertThat().statusCode(200)
+				.body(containsString("flickfinder_dao_call_duration_seconds_count{dao=\"MovieDAO\","
+						+ "method=\"getMoviesByLimit\"} 1\n"))
+				.body(containsString("flickfinder_dao_rows_total{dao=\"MovieDAO\",method=\"getMoviesByLimit\"} 3\n"))
+				.body(containsString("flickfinder_json_serialization_seconds_count 1\n"));
+	}
+
+	@Test
+	void exposes_connection_cache_and_jvm_stats() {
+		given().when().get(baseURL + "/people/1").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/metrics").then().assertThat().statusCode(200)
+				.body(containsString("flickfinder_db_connections{state=\"active\"} "))
+				.body(containsString("flickfinder_db_executor_rejected_total 0\n"))
+				.body(containsString(
+						"flickfinder_entity_cache_requests_total{cache=\"people\",result=\"miss\"} 1\n"))
+				.body(containsString("jvm_memory_used_bytes{area=\"heap\"} "))
+				.body(containsString("jvm_gc_collections_total{gc="));
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
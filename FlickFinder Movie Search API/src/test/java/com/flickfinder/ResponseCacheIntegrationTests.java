@@ -0,0 +1,126 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the cache of rendered responses.
+ */
+class ResponseCacheIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6005;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+	}
+
+	private void start(long ttlMillis) {
+		ServerOptions options = new ServerOptions();
+		options.setResponseCacheMegabytes(1);
+		options.setResponseCacheTtlMillis(ttlMillis);
+		options.setResponseCacheStaleMillis(60_000);
+		options.setResponseCacheGzip(true);
+		options.setDbThreads(2);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void serves_the_cached_response_until_it_expires() throws SQLException {
+		start(60_000);
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200)
+				.body("title", equalTo("The Shawshank Redemption"));
+		rename(1, "Rita Hayworth and Shawshank Redemption");
+
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200)
+				.body("title", equalTo("The Shawshank Redemption"));
+	}
+
+	@Test
+	void refreshes_stale_responses_in_the_background() throws Exception {
+		start(0);
+		given().when().get(baseURL + "/movies/1").then().statusCode(200);
+		rename(1, "Rita Hayworth and Shawshank Redemption");
+
+		// served stale once, while the refresh is on its way
+		given().when().get(baseURL + "/movies/1").then().assertThat().statusCode(200)
+				.body("title", equalTo("The Shawshank Redemption"));
+		String title = null;
+		for (int i = 0; i < 50 && !"Rita Hayworth and Shawshank Redemption".equals(title); i++) {
+			Thread.sleep(100);
+			title = given().when().get(baseURL + "/movies/1").then().statusCode(200).extract().path("title");
+		}
+		assertEquals("Rita Hayworth and Shawshank Redemption", title);
+	}
+
+	@Test
+	void replays_headers_on_a_hit() {
+		start(60_000);
+		String cursor = given().when().get(baseURL + "/movies?limit=2").then().statusCode(200).extract()
+				.header("X-Next-Cursor");
+
+		given().when().get(baseURL + "/movies?limit=2").then().assertThat().statusCode(200)
+				.header("X-Next-Cursor", equalTo(cursor))
+				.body("id", contains(1, 2));
+	}
+
+	@Test
+	void sends_gzipped_hits() {
+		start(60_000);
+		given().when().get(baseURL + "/movies?include=stars,rating").then().statusCode(200);
+
+		given().header("Accept-Encoding", "gzip").when().get(baseURL + "/movies?include=stars,rating").then()
+				.assertThat().statusCode(200)
+				.header("Content-Encoding", equalTo("gzip"))
+				.header("Vary", equalTo("Accept-Encoding"))
+				.body("id", contains(1, 2, 3, 4, 5));
+	}
+
+	@Test
+	void does_not_cache_errors() throws SQLException {
+		start(60_000);
+		given().when().get(baseURL + "/movies/1000").then().assertThat().statusCode(404)
+				.header("Content-Encoding", nullValue());
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(1000, 'Heat', 1995)");
+		}
+
+		given().when().get(baseURL + "/movies/1000").then().assertThat().statusCode(200)
+				.body("title", equalTo("Heat"));
+	}
+
+	private void rename(int id, String title) throws SQLException {
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("UPDATE movies SET title = '" + title + "' WHERE id = " + id);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flickfinder.shard.ShardRouter;
+import com.flickfinder.shard.ShardSplitter;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for serving movies from year shards.
+ */
+class ShardIntegrationTests {
+
+	@TempDir
+	Path dir;
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6011;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() throws SQLException, IOException {
+		Path file = dir.resolve("movies.db");
+		seeder = new Seeder("jdbc:sqlite:" + file);
+		Database.getInstance(seeder.getConnection());
+		// movie 5 goes to the first shard, 1 to 3 to the second, 4 to the last
+		ShardSplitter.split(file, dir.resolve("shards"), new ShardRouter(new int[] { 1970, 2000 }));
+		ServerOptions options = new ServerOptions();
+		options.setShardDir(dir.resolve("shards").toString());
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void pages_merge_the_shards_in_id_order() {
+		given().when().get(baseURL + "/movies").then().assertThat().statusCode(200)
+				.body("id", contains(1, 2, 3, 4, 5));
+		String cursor = given().when().get(baseURL + "/movies?limit=3").then().assertThat().statusCode(200)
+				.body("id", contains(1, 2, 3)).extract().header("X-Next-Cursor");
+		given().when().get(baseURL + "/movies?limit=3&after=" + cursor).then().assertThat().statusCode(200)
+				.body("id", contains(4, 5));
+	}
+
+	@Test
+	void movies_and_their_stars_are_found_in_any_shard() {
+		given().when().get(baseURL + "/movies/5").then().assertThat().statusCode(200)
+				.body("title", equalTo("12 Angry Men"));
+		given().when().get(baseURL + "/movies/4").then().assertThat().statusCode(200)
+				.body("title", equalTo("The Dark Knight"));
+		given().when().get(baseURL + "/movies/9").then().assertThat().statusCode(404);
+		given().when().get(baseURL + "/movies/1/stars").then().assertThat().statusCode(200)
+				.body("id", contains(1, 2));
+		given().when().get(baseURL + "/movies/search?q=godfather").then().assertThat().statusCode(200)
+				.body("id", contains(2, 3));
+	}
+
+	@Test
+	void ratings_of_a_year_come_from_its_shard() {
+		given().when().get(baseURL + "/movies/ratings/2008").then().assertThat().statusCode(200)
+				.body("id", contains(4));
+		given().when().get(baseURL + "/movies/ratings/1957").then().assertThat().statusCode(200)
+				.body("id", contains(5));
+	}
+
+	@Test
+	void people_are_still_read_from_the_database() {
+		given().when().get(baseURL + "/people/4/movies").then().assertThat().statusCode(200)
+				.body("id", contains(2, 3));
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the slow query log and /admin/slow-queries, which
+ * is only served on the admin port.
+ */
+class SlowQueryIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6010;
+
+	String baseURL = "http://localhost:" + port;
+
+	int adminPort = 6013;
+
+	String adminURL = "http://127.0.0.1:" + adminPort;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ServerOptions options = new ServerOptions();
+		options.setSlowQueryMillis(0);
+		options.setAdminPort(adminPort);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void lists_the_slowest_queries_with_their_plans() {
+		given().when().get(baseURL + "/people/1/movies").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/movies/ratings/1994").then().assertThat().statusCode(200);
+		given().when().get(adminURL + "/admin/slow-queries").then().assertThat().statusCode(200)
+				.body("sql", hasItem(containsString("JOIN ratings")))
+				.body("count", everyItem(greaterThan(0)))
+				.body("plan", everyItem(not(hasSize(0))));
+		given().when().get(adminURL + "/admin/slow-queries?limit=1").then().assertThat().statusCode(200)
+				.body("$", hasSize(1));
+	}
+
+	@Test
+	void rejects_an_invalid_limit() {
+		given().when().get(adminURL + "/admin/slow-queries?limit=0").then().assertThat().statusCode(400);
+		given().when().get(adminURL + "/admin/slow-queries?limit=abc").then().assertThat().statusCode(400);
+	}
+
+	@Test
+	void is_not_served_on_the_public_port() {
+		given().when().get(baseURL + "/people/1/movies").then().assertThat().statusCode(200);
+		given().when().get(baseURL + "/admin/slow-queries").then().assertThat().statusCode(404);
+		given().header("Host", "127.0.0.1:" + adminPort).when().get(baseURL + "/admin/slow-queries").then()
+				.assertThat().statusCode(404);
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Cursor;
+import com.flickfinder.util.SeededPool;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the streaming JSON mode.
+ * The responses must look exactly like the buffered ones to a client.
+ * Streaming needs a connection pool, so these read a seeded database file.
+ * The seeded lists are small enough for Jetty to buffer whole, so they are
+ * not sent chunked.
+ */
+class StreamingIntegrationTests {
+
+	Javalin app;
+
+	SeededPool pool;
+
+	int port = 6001;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() throws IOException, SQLException {
+		pool = new SeededPool();
+		ServerOptions options = new ServerOptions();
+		options.setStreamingJson(true);
+		app = AppConfig.startServer(port, options);
+	}
+
+	@Test
+	void streams_a_list_of_movies() {
+		given().when().get(baseURL + "/movies").then().assertThat().statusCode(200)
+				.contentType("application/json")
+				.body("id", contains(1, 2, 3, 4, 5))
+				.body("title", hasItems("The Shawshank Redemption", "12 Angry Men"));
+	}
+
+	@Test
+	void streams_a_page_after_a_cursor() {
+		given().when().get(baseURL + "/people?limit=2&after=" + Cursor.encode(2)).then().assertThat()
+				.statusCode(200)
+				.body("id", contains(3, 4));
+	}
+
+	@Test
+	void streams_an_empty_page_as_an_empty_array() {
+		given().when().get(baseURL + "/movies?after=" + Cursor.encode(5)).then().assertThat().statusCode(200)
+				.body("size()", equalTo(0));
+	}
+
+	@Test
+	void streams_stars_of_a_movie() {
+		given().when().get(baseURL + "/movies/1/stars").then().assertThat().statusCode(200)
+				.body("name", contains("Tim Robbins", "Morgan Freeman"));
+	}
+
+	@Test
+	void streams_movies_of_a_person() {
+		given().when().get(baseURL + "/people/4/movies").then().assertThat().statusCode(200)
+				.body("title", contains("The Godfather", "The Godfather: Part II"));
+	}
+
+	@Test
+	void returns_404_when_nothing_to_stream() {
+		given().when().get(baseURL + "/movies/4/stars").then().assertThat().statusCode(404)
+				.body(equalTo("No stars found for this Movie"));
+	}
+
+	@Test
+	void sends_next_cursor_as_headers() {
+		given().when().get(baseURL + "/movies?limit=2").then().assertThat().statusCode(200)
+				.header("X-Next-Cursor", equalTo(Cursor.encode(2)))
+				.header("Link", startsWith("</movies?limit=2&after="))
+				.body("id", contains(1, 2));
+	}
+
+	@Test
+	void sends_no_cursor_on_the_last_page() {
+		given().when().get(baseURL + "/people?limit=10").then().assertThat().statusCode(200)
+				.header("X-Next-Cursor", nullValue())
+				.body("size()", equalTo(5));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		app.stop();
+		pool.close();
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.flickfinder;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Integration tests for the virtual thread mode. On a JVM without virtual
+ * threads the server falls back to platform threads and must behave the
+ * same. A test route reports which kind of thread its handler ran on.
+ */
+class VirtualThreadIntegrationTests {
+
+	Javalin app;
+
+	Seeder seeder;
+
+	int port = 6002;
+
+	String baseURL = "http://localhost:" + port;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ServerOptions options = new ServerOptions();
+		options.setVirtualThreads(true);
+		app = AppConfig.startServer(port, options);
+		app.get("/test/thread", ctx -> ctx.result(Boolean.toString(isVirtual(Thread.currentThread()))));
+	}
+
+	@Test
+	void runs_handlers_on_virtual_threads() {
+		assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21");
+		given().when().get(baseURL + "/test/thread").then().assertThat().statusCode(200).body(equalTo("true"));
+	}
+
+	@Test
+	void falls_back_to_platform_threads_before_java_21() {
+		assumeTrue(Runtime.version().feature() < 21, "Virtual threads are available");
+		given().when().get(baseURL + "/test/thread").then().assertThat().statusCode(200).body(equalTo("false"));
+	}
+
+	@Test
+	void serves_requests() {
+		given().when().get(baseURL + "/movies/1/stars").then().assertThat().statusCode(200)
+				.body("name", contains("Tim Robbins", "Morgan Freeman"));
+	}
+
+	@Test
+	void serves_many_concurrent_requests_over_one_connection() {
+		HttpClient client = HttpClient.newHttpClient();
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseURL + "/people/" + (1 + i % 5))).build();
+			responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+		}
+		for (CompletableFuture<HttpResponse<String>> response : responses) {
+			assertEquals(200, response.join().statusCode());
+			assertTrue(response.join().body().contains("\"id\""));
+		}
+	}
+
+	/**
+	 * Calls Thread.isVirtual, which the Java 17 this builds against does not
+	 * have.
+	 */
+	private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+		if (Runtime.version().feature() < 21) {
+			return false;
+		}
+		return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
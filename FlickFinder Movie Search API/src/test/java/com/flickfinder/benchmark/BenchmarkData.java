@@ -0,0 +1,99 @@
+package com.flickfinder.benchmark;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Random;
+
+import com.flickfinder.util.DatasetGenerator;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.SchemaOptimizer;
+import com.flickfinder.util.Seeder;
+
+/**
+ * The dataset a benchmark runs against.
+ *
+ * With a size of 0 this is the full movies.db, falling back to the small
+ * seeded test database when the file is missing or empty. With a positive
+ * size it is an in-memory {@link DatasetGenerator} dataset with that many
+ * movies and people, generated from the same seed every time, so that
+ * results can be compared between runs and between sizes. Either way the
+ * {@link SchemaOptimizer} runs first, as it does when the server starts.
+ */
+final class BenchmarkData implements AutoCloseable {
+
+	private static final long SEED = 42;
+
+	private final Seeder seeder;
+
+	private final int movies;
+
+	private final int people;
+
+	private BenchmarkData(Seeder seeder, int movies, int people) {
+		this.seeder = seeder;
+		this.movies = movies;
+		this.people = people;
+	}
+
+	/**
+	 * Opens the dataset and makes it the database instance.
+	 *
+	 * @param db     the path of movies.db, used when the size is 0
+	 * @param movies the number of generated movies, or 0 for movies.db
+	 * @return the dataset
+	 * @throws SQLException if it cannot be opened or generated
+	 */
+	static BenchmarkData open(String db, int movies) throws SQLException {
+		if (movies == 0) {
+			File file = new File(db);
+			if (file.isFile() && file.length() > 0) {
+				SchemaOptimizer.optimize("jdbc:sqlite:" + file.getPath());
+				Database.getInstance("jdbc:sqlite:" + file.getPath());
+				return new BenchmarkData(null, 0, 0);
+			}
+			System.err.println(db + " is missing or empty, benchmarking the seeded test database instead");
+			Seeder seeder = new Seeder("jdbc:sqlite::memory:");
+			Database.getInstance(seeder.getConnection());
+			return new BenchmarkData(seeder, 0, 0);
+		}
+		DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite::memory:", SEED);
+		generator.setMovies(movies);
+		generator.generate();
+		new SchemaOptimizer(generator.getConnection()).optimize();
+		Database.getInstance(generator.getConnection());
+		return new BenchmarkData(generator, movies, generator.getPeople());
+	}
+
+	/**
+	 * Returns ids to look up. In a generated dataset they are spread over the
+	 * generated rows, which all have stars. Otherwise they are all one movie
+	 * or person that is known to have them.
+	 *
+	 * @param count  how many ids
+	 * @param people whether to pick person ids rather than movie ids
+	 * @return the ids
+	 */
+	int[] ids(int count, boolean people) {
+		int max = people ? this.people : this.movies;
+		int[] ids = new int[count];
+		Random random = new Random(7);
+		for (int i = 0; i < count; i++) {
+			if (max > 0) {
+				ids[i] = DatasetGenerator.SEEDED + 1 + random.nextInt(max - DatasetGenerator.SEEDED);
+			} else if (seeder != null) {
+				ids[i] = 1;
+			} else {
+				ids[i] = people ? 151 : 111161;
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public void close() {
+		if (seeder != null) {
+			seeder.closeConnection();
+		}
+	}
+
+}
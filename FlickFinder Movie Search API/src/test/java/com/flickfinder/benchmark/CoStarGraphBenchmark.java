@@ -0,0 +1,78 @@
+package com.flickfinder.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flickfinder.index.CoStarGraph;
+
+/**
+ * Measures shortest co-star path searches between random people, on a
+ * generated graph of roughly the size of the full stars table. Casts are
+ * drawn with a skew towards a few prolific actors, as in the real data.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="CoStarGraph"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CoStarGraphBenchmark {
+
+	@Param({ "500000" })
+	public int people;
+
+	@Param({ "250000" })
+	public int movies;
+
+	@Param({ "4" })
+	public int castSize;
+
+	private CoStarGraph graph;
+
+	private int[] from;
+
+	private int[] to;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		CoStarGraph.Builder builder = new CoStarGraph.Builder();
+		for (int movie = 1; movie <= movies; movie++) {
+			for (int i = 0; i < castSize; i++) {
+				int person = 1 + (int) (people * Math.pow(random.nextDouble(), 3));
+				builder.add(movie, person);
+			}
+		}
+		graph = builder.build();
+		from = new int[1024];
+		to = new int[1024];
+		for (int i = 0; i < from.length; i++) {
+			from[i] = 1 + (int) (people * Math.pow(random.nextDouble(), 3));
+			to[i] = 1 + (int) (people * Math.pow(random.nextDouble(), 3));
+		}
+	}
+
+	@Benchmark
+	public CoStarGraph.Path findPath() {
+		int i = next++ & (from.length - 1);
+		return graph.findPath(from[i], to[i]);
+	}
+
+}
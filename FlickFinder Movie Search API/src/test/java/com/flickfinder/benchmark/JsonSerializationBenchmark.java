@@ -0,0 +1,102 @@
+package com.flickfinder.benchmark;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flickfinder.json.ModelModule;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+
+import io.javalin.json.JavalinJackson;
+
+/**
+ * Compares Jackson's reflective bean serializers with the hand-written ones
+ * in {@link ModelModule}, on the path ctx.json takes: JavalinJackson's
+ * toJsonString over a list like a route returns. The lists are ratings as
+ * from /movies/ratings/{year}, plain movies as from /movies, and movies with
+ * four stars and a rating each as from /movies?include=stars,rating.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="JsonSerialization -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	@Param({ "ratings", "movies", "details" })
+	public String type;
+
+	@Param({ "50", "1000" })
+	public int size;
+
+	private List<Object> rows;
+
+	private JavalinJackson beans;
+
+	private JavalinJackson model;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		rows = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int id = 100_000 + i;
+			String title = "Movie title number " + i;
+			float rating = 1 + random.nextInt(90) / 10f;
+			int votes = random.nextInt(2_000_000);
+			int year = 1920 + random.nextInt(100);
+			switch (type) {
+			case "ratings":
+				rows.add(new MovieRating(id, title, rating, votes, year));
+				break;
+			case "movies":
+				rows.add(new Movie(id, title, year));
+				break;
+			default:
+				MovieDetails details = new MovieDetails(new Movie(id, title, year));
+				List<Person> stars = new ArrayList<>(4);
+				for (int j = 0; j < 4; j++) {
+					stars.add(new Person(random.nextInt(5_000_000), "Person name " + j, 1900 + random.nextInt(100)));
+				}
+				details.setStars(stars);
+				details.setRating(new Rating(rating, votes));
+				rows.add(details);
+			}
+		}
+		beans = new JavalinJackson(JavalinJackson.defaultMapper(), false);
+		model = new JavalinJackson(ModelModule.mapper(), false);
+	}
+
+	@Benchmark
+	public String beanSerializers() {
+		return beans.toJsonString(rows, (Type) List.class);
+	}
+
+	@Benchmark
+	public String modelSerializers() {
+		return model.toJsonString(rows, (Type) List.class);
+	}
+
+}
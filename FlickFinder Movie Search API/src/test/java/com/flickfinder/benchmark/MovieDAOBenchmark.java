@@ -0,0 +1,156 @@
+package com.flickfinder.benchmark;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.Rating;
+
+/**
+ * Times each read of MovieDAO straight against SQLite, with its in-memory
+ * indexes and caches off, so that a change to a query shows up here before
+ * it is hidden behind HTTP and JSON.
+ *
+ * Lookups cycle through ids spread over the whole dataset. Pages and batches
+ * are the sizes the controllers use by default.
+ *
+ * The movies parameter is the size of a generated dataset, see
+ * {@link com.flickfinder.util.DatasetGenerator}; 0 runs against
+ * src/main/resources/movies.db, or the seeded test database if it is missing
+ * or empty. Pass e.g. -p movies=1000000 for a larger one. Results are written
+ * to target/jmh-result.json.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="MovieDAO"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieDAOBenchmark {
+
+	private static final int PAGE = 50;
+
+	@Param("src/main/resources/movies.db")
+	public String db;
+
+	@Param({ "0", "10000", "100000" })
+	public int movies;
+
+	private BenchmarkData data;
+
+	private MovieDAO dao;
+
+	private int[] keys;
+
+	private int[] batch;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		data = BenchmarkData.open(db, movies);
+		dao = new MovieDAO();
+		keys = data.ids(1024, false);
+		batch = Arrays.copyOf(keys, PAGE);
+	}
+
+	private int key() {
+		return keys[next++ & (keys.length - 1)];
+	}
+
+	@Benchmark
+	public List<Movie> getAllMovies() throws SQLException {
+		return dao.getAllMovies();
+	}
+
+	@Benchmark
+	public List<Movie> getMoviesByLimit() throws SQLException {
+		return dao.getMoviesByLimit(PAGE);
+	}
+
+	@Benchmark
+	public List<Movie> getMoviesAfter() throws SQLException {
+		return dao.getMoviesAfter(key(), PAGE);
+	}
+
+	@Benchmark
+	public int streamMoviesAfter(Blackhole bh) throws SQLException, IOException {
+		return dao.streamMoviesAfter(key(), PAGE, bh::consume);
+	}
+
+	@Benchmark
+	public Movie getMovieById() throws SQLException {
+		return dao.getMovieById(key());
+	}
+
+	@Benchmark
+	public List<Movie> getMoviesByIds() throws SQLException {
+		return dao.getMoviesByIds(batch);
+	}
+
+	@Benchmark
+	public List<Person> getPeopleByMovieId() throws SQLException {
+		return dao.getPeopleByMovieId(key());
+	}
+
+	@Benchmark
+	public int streamPeopleByMovieId(Blackhole bh) throws SQLException, IOException {
+		return dao.streamPeopleByMovieId(key(), bh::consume);
+	}
+
+	@Benchmark
+	public Map<Integer, List<Person>> getStarsByMovieIds() throws SQLException {
+		return dao.getStarsByMovieIds(batch);
+	}
+
+	@Benchmark
+	public Map<Integer, Rating> getRatingsByMovieIds() throws SQLException {
+		return dao.getRatingsByMovieIds(batch);
+	}
+
+	@Benchmark
+	public List<MovieDetails> getMovieDetails() throws SQLException {
+		return dao.getMovieDetails(dao.getMoviesAfter(key(), PAGE), true, true);
+	}
+
+	@Benchmark
+	public List<Movie> searchMovies() throws SQLException {
+		return dao.searchMovies("the", 10);
+	}
+
+	@Benchmark
+	public List<MovieRating> getRatingsByYear() throws SQLException {
+		return dao.getRatingsByYear(1994, PAGE, 1000);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		data.close();
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.flickfinder.benchmark;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.SeparationPath;
+
+/**
+ * Times each read of PersonDAO straight against SQLite, with its in-memory
+ * indexes and caches off. The co-star graph is built once in the setup, as
+ * the server does on the first path request, so findPath times the search
+ * alone.
+ *
+ * The movies parameter works as in {@link MovieDAOBenchmark}; generated
+ * datasets have as many people as movies.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="PersonDAO"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonDAOBenchmark {
+
+	private static final int PAGE = 50;
+
+	@Param("src/main/resources/movies.db")
+	public String db;
+
+	@Param({ "0", "10000", "100000" })
+	public int movies;
+
+	private BenchmarkData data;
+
+	private PersonDAO dao;
+
+	private int[] keys;
+
+	private int[] batch;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		data = BenchmarkData.open(db, movies);
+		dao = new PersonDAO();
+		keys = data.ids(1024, true);
+		batch = Arrays.copyOf(keys, PAGE);
+		dao.getCoStarGraph();
+	}
+
+	private int key() {
+		return keys[next++ & (keys.length - 1)];
+	}
+
+	@Benchmark
+	public List<Person> getAllPeople() throws SQLException {
+		return dao.getAllPeople();
+	}
+
+	@Benchmark
+	public List<Person> getPeopleByLimit() throws SQLException {
+		return dao.getPeopleByLimit(PAGE);
+	}
+
+	@Benchmark
+	public List<Person> getPeopleAfter() throws SQLException {
+		return dao.getPeopleAfter(key(), PAGE);
+	}
+
+	@Benchmark
+	public int streamPeopleAfter(Blackhole bh) throws SQLException, IOException {
+		return dao.streamPeopleAfter(key(), PAGE, bh::consume);
+	}
+
+	@Benchmark
+	public Person getPersonById() throws SQLException {
+		return dao.getPersonById(key());
+	}
+
+	@Benchmark
+	public List<Person> getPeopleByIds() throws SQLException {
+		return dao.getPeopleByIds(batch);
+	}
+
+	@Benchmark
+	public List<Movie> getMoviesStarringPerson() throws SQLException {
+		return dao.getMoviesStarringPerson(key());
+	}
+
+	@Benchmark
+	public int streamMoviesStarringPerson(Blackhole bh) throws SQLException, IOException {
+		return dao.streamMoviesStarringPerson(key(), bh::consume);
+	}
+
+	@Benchmark
+	public Map<Integer, List<Movie>> getMoviesByPersonIds() throws SQLException {
+		return dao.getMoviesByPersonIds(batch);
+	}
+
+	@Benchmark
+	public List<PersonDetails> getPersonDetails() throws SQLException {
+		return dao.getPersonDetails(dao.getPeopleAfter(key(), PAGE), true);
+	}
+
+	@Benchmark
+	public List<Person> autocompleteNames() throws SQLException {
+		return dao.autocompleteNames("Pe", 10);
+	}
+
+	@Benchmark
+	public SeparationPath findPath() throws SQLException {
+		return dao.findPath(key(), key());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		data.close();
+	}
+
+}
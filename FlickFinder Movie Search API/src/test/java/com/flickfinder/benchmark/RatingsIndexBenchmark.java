@@ -0,0 +1,96 @@
+package com.flickfinder.benchmark;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.index.RatingsIndex;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Compares the SQL query behind /movies/ratings/{year} with the in-memory
+ * ratings index.
+ *
+ * By default this runs against the full src/main/resources/movies.db; pass
+ * -p db=path/to/movies.db to use another copy. If the file is missing or
+ * empty it falls back to the small seeded test database, which only shows
+ * the fixed per-query overhead.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="RatingsIndex"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingsIndexBenchmark {
+
+	@Param("src/main/resources/movies.db")
+	public String db;
+
+	@Param({ "1994", "2010" })
+	public int year;
+
+	@Param({ "50" })
+	public int limit;
+
+	@Param({ "1000", "100000" })
+	public int votes;
+
+	private Seeder seeder;
+
+	private MovieDAO movieDAO;
+
+	private RatingsIndex index;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		File file = new File(db);
+		if (file.isFile() && file.length() > 0) {
+			Database.getInstance("jdbc:sqlite:" + file.getPath());
+		} else {
+			System.err.println(db + " is missing or empty, benchmarking the seeded test database instead");
+			seeder = new Seeder("jdbc:sqlite::memory:");
+			Database.getInstance(seeder.getConnection());
+		}
+		movieDAO = new MovieDAO();
+		index = movieDAO.buildRatingsIndex();
+	}
+
+	@Benchmark
+	public List<MovieRating> sql() throws SQLException {
+		return movieDAO.getRatingsByYear(year, limit, votes);
+	}
+
+	@Benchmark
+	public List<MovieRating> index() {
+		return index.getRatingsByYear(year, limit, votes);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (seeder != null) {
+			seeder.closeConnection();
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.flickfinder.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flickfinder.AppConfig;
+import com.flickfinder.ServerOptions;
+
+import io.javalin.Javalin;
+
+/**
+ * Times one request at a time through a server started in this JVM with
+ * {@link AppConfig#startServer(int, ServerOptions)} and its default options,
+ * so that routing, the controllers, the DAOs and JSON are all included. The
+ * client keeps its connection open, so this is the latency of a warm
+ * connection over loopback.
+ *
+ * In each route {movie} and {person} cycle through ids spread over the
+ * dataset. The movies parameter works as in {@link MovieDAOBenchmark}.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="Request"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+	@Param("src/main/resources/movies.db")
+	public String db;
+
+	@Param({ "0", "10000" })
+	public int movies;
+
+	@Param({ "/movies", "/movies/{movie}", "/movies/{movie}/stars", "/movies/ratings/1994",
+			"/movies/search?q=the", "/people/{person}", "/people/{person}/movies",
+			"/people/autocomplete?prefix=Pe" })
+	public String route;
+
+	private BenchmarkData data;
+
+	private Javalin app;
+
+	private HttpClient client;
+
+	private HttpRequest[] requests;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		data = BenchmarkData.open(db, movies);
+		app = AppConfig.startServer(0, new ServerOptions());
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		int[] movieIds = data.ids(256, false);
+		int[] personIds = data.ids(256, true);
+		requests = new HttpRequest[movieIds.length];
+		for (int i = 0; i < requests.length; i++) {
+			String path = route.replace("{movie}", Integer.toString(movieIds[i]))
+					.replace("{person}", Integer.toString(personIds[i]));
+			requests[i] = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + path)).build();
+		}
+	}
+
+	@Benchmark
+	public byte[] request() throws IOException, InterruptedException {
+		HttpRequest request = requests[next++ & (requests.length - 1)];
+		HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+		}
+		return response.body();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		app.stop();
+		data.close();
+	}
+
+}
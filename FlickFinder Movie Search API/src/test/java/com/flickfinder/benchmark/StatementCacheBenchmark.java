@@ -0,0 +1,109 @@
+package com.flickfinder.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Compares preparing a statement on every call, as the DAOs used to, with
+ * taking it from the connection's statement cache.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="StatementCache"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+	private static final String BY_ID = "select id, title, year from movies where id = ?";
+
+	private static final String BY_YEAR = "SELECT m.id, m.title, r.rating, r.votes,  m.year "
+			+ "FROM movies m JOIN ratings r ON m.id = r.movie_id "
+			+ "WHERE m.year = ? AND r.votes > ? ORDER BY r.rating DESC LIMIT ?";
+
+	private Seeder seeder;
+
+	private Connection connection;
+
+	private MovieDAO movieDAO;
+
+	private int id;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		connection = seeder.getConnection();
+		Database.getInstance(connection);
+		movieDAO = new MovieDAO();
+	}
+
+	/**
+	 * The old way: prepare, run and close a statement for every lookup.
+	 */
+	@Benchmark
+	public Movie getMovieByIdPreparedPerCall() throws SQLException {
+		id = id % 5 + 1;
+		try (PreparedStatement ps = connection.prepareStatement(BY_ID)) {
+			ps.setInt(1, id);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? new Movie(rs.getInt(1), rs.getString(2), rs.getInt(3)) : null;
+			}
+		}
+	}
+
+	@Benchmark
+	public Movie getMovieByIdCached() throws SQLException {
+		id = id % 5 + 1;
+		return movieDAO.getMovieById(id);
+	}
+
+	@Benchmark
+	public void getRatingsByYearPreparedPerCall(Blackhole blackhole) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(BY_YEAR)) {
+			ps.setInt(1, 1994);
+			ps.setInt(2, 1000);
+			ps.setInt(3, 50);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					blackhole.consume(rs.getInt(1));
+					blackhole.consume(rs.getString(2));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void getRatingsByYearCached(Blackhole blackhole) throws SQLException {
+		blackhole.consume(movieDAO.getRatingsByYear(1994, 50, 1000));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		seeder.closeConnection();
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.flickfinder.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flickfinder.index.TitleSearchIndex;
+import com.flickfinder.model.Movie;
+
+/**
+ * Measures title searches against a trigram index of generated titles, from
+ * a rare word to one that most titles contain.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.args="TitleSearch"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleSearchBenchmark {
+
+	private static final String[] WORDS = { "the", "of", "a", "love", "night", "man", "last", "house", "dead",
+			"story", "girl", "dark", "city", "blood", "king", "world", "return", "star", "war", "life", "secret",
+			"day", "black", "time", "lost", "dream", "road", "home", "ghost", "fire", "water", "moon" };
+
+	@Param({ "300000" })
+	public int titles;
+
+	@Param({ "the", "night", "moon", "ghost road", "xq" })
+	public String query;
+
+	private TitleSearchIndex index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		for (int id = 1; id <= titles; id++) {
+			StringBuilder title = new StringBuilder();
+			int words = 1 + random.nextInt(5);
+			for (int w = 0; w < words; w++) {
+				if (w > 0) {
+					title.append(' ');
+				}
+				// skewed towards the first words of the list
+				String word = WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 2))];
+				title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+			}
+			if (random.nextInt(10) == 0) {
+				title.append(' ').append(id);
+			}
+			builder.add(new Movie(id, title.toString(), 1900 + random.nextInt(125)));
+		}
+		index = builder.build();
+	}
+
+	@Benchmark
+	public List<Movie> search() {
+		return index.search(query, 50);
+	}
+
+}
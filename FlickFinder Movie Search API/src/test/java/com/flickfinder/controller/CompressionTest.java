@@ -0,0 +1,238 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tests for compressing responses.
+ */
+class CompressionTest {
+
+	private static final byte[] BODY = "[{\"id\":1,\"title\":\"The Godfather\",\"year\":1972}]".repeat(50)
+			.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void testPooledGzipRoundTripsAndReusesDeflaters() throws IOException {
+		DeflaterPool pool = new DeflaterPool(4);
+		byte[] first = gzip(pool, BODY);
+		assertEquals(1, pool.idleCount(6));
+		byte[] second = gzip(pool, BODY);
+
+		assertEquals(1, pool.idleCount(6), "The deflater should have been reused");
+		assertArrayEquals(first, second);
+		assertArrayEquals(BODY, new GZIPInputStream(new ByteArrayInputStream(first)).readAllBytes());
+	}
+
+	@Test
+	void testPooledGzipLeavesTargetOpen() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		OutputStream gzip = new PooledGzipOutputStream(target, new DeflaterPool(1), 1);
+		gzip.write(BODY);
+		gzip.close();
+		gzip.close();
+
+		assertArrayEquals(BODY, new GZIPInputStream(new ByteArrayInputStream(target.toByteArray())).readAllBytes());
+	}
+
+	@Test
+	void testPicksPreferredCoding() throws Exception {
+		Compression compression = new Compression(16, true);
+
+		assertEquals("br", picked(compression, "gzip, deflate, br", 6, 4));
+		assertEquals("gzip", picked(compression, "gzip;q=1.0, br;q=0.5", 6, 4));
+		assertEquals("gzip", picked(compression, "gzip, br", 6, -1));
+		assertEquals("br", picked(compression, "*", 6, 4));
+		assertEquals(null, picked(compression, "identity", 6, 4));
+		assertEquals(null, picked(compression, null, 6, 4));
+	}
+
+	@Test
+	void testRouteWithoutCodingsIsNotCompressed() throws Exception {
+		Compression compression = new Compression(16, true);
+		Handler handler = ctx -> {
+		};
+		Context ctx = mock(Context.class);
+		when(ctx.header("Accept-Encoding")).thenReturn("gzip, br");
+
+		compression.wrap(handler, -1, -1).handle(ctx);
+		verify(ctx).minSizeForCompression(Integer.MAX_VALUE);
+		verify(ctx, never()).attribute(anyString(), any());
+		assertThrows(IllegalArgumentException.class, () -> compression.wrap(handler, 10, 4));
+	}
+
+	@Test
+	void testWrappedRouteTurnsOffJavalinCompression() throws Exception {
+		Context ctx = mock(Context.class);
+		when(ctx.header("Accept-Encoding")).thenReturn("gzip");
+		new Compression(16, true).wrap(c -> {
+		}, 6, 4).handle(ctx);
+
+		verify(ctx).minSizeForCompression(Integer.MAX_VALUE);
+	}
+
+	@Test
+	void testCompressesLargeResults() throws Exception {
+		Compression compression = new Compression(16, true);
+		Context ctx = response(compression.new Coding("gzip", 6));
+		when(ctx.resultInputStream()).thenReturn(new ByteArrayInputStream(BODY));
+
+		compression.compressResult(ctx);
+
+		ArgumentCaptor<byte[]> result = ArgumentCaptor.forClass(byte[].class);
+		verify(ctx).result(result.capture());
+		verify(ctx).header("Content-Encoding", "gzip");
+		assertArrayEquals(BODY, new GZIPInputStream(new ByteArrayInputStream(result.getValue())).readAllBytes());
+	}
+
+	@Test
+	void testCompressesWithBrotli() throws Exception {
+		Compression compression = new Compression(16, true);
+		Context ctx = response(compression.new Coding("br", 4));
+		when(ctx.resultInputStream()).thenReturn(new ByteArrayInputStream(BODY));
+
+		compression.compressResult(ctx);
+
+		ArgumentCaptor<byte[]> result = ArgumentCaptor.forClass(byte[].class);
+		verify(ctx).result(result.capture());
+		verify(ctx).header("Content-Encoding", "br");
+		try (InputStream in = new BrotliInputStream(new ByteArrayInputStream(result.getValue()))) {
+			assertArrayEquals(BODY, in.readAllBytes());
+		}
+	}
+
+	@Test
+	void testLeavesSmallAndEncodedResults() throws Exception {
+		Compression compression = new Compression(BODY.length + 1, true);
+		Context small = response(compression.new Coding("gzip", 6));
+		when(small.resultInputStream()).thenReturn(new ByteArrayInputStream(BODY));
+		compression.compressResult(small);
+		verify(small, never()).header(eq("Content-Encoding"), anyString());
+
+		Context encoded = response(compression.new Coding("gzip", 6));
+		when(encoded.res().containsHeader("Content-Encoding")).thenReturn(true);
+		compression.compressResult(encoded);
+		verify(encoded, never()).result(any(byte[].class));
+	}
+
+	@Test
+	void testStreamsSmallBodiesUncompressed() throws IOException {
+		Compression compression = new Compression(BODY.length + 1, true);
+		ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		Context ctx = response(compression.new Coding("gzip", 6));
+		when(ctx.outputStream()).thenReturn(servletStream(sent));
+
+		try (OutputStream out = Compression.outputStream(ctx)) {
+			out.write(BODY);
+		}
+
+		verify(ctx, never()).header(eq("Content-Encoding"), anyString());
+		assertArrayEquals(BODY, sent.toByteArray());
+	}
+
+	@Test
+	void testStreamsLargeBodiesCompressed() throws IOException {
+		Compression compression = new Compression(64, true);
+		ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		Context ctx = response(compression.new Coding("gzip", 6));
+		when(ctx.outputStream()).thenReturn(servletStream(sent));
+
+		try (OutputStream out = Compression.outputStream(ctx)) {
+			for (byte b : BODY) {
+				out.write(b);
+			}
+		}
+
+		verify(ctx).header("Content-Encoding", "gzip");
+		assertArrayEquals(BODY, new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray())).readAllBytes());
+	}
+
+	@Test
+	void testQuality() {
+		assertEquals(1, Compression.quality("gzip, br", "gzip"));
+		assertEquals(0.5, Compression.quality("br, gzip;q=0.5", "gzip"));
+		assertEquals(0.2, Compression.quality("br, *;q=0.2", "gzip"));
+		assertEquals(0, Compression.quality("gzip;q=0, *", "gzip"));
+		assertEquals(0, Compression.quality("br", "gzip"));
+		assertEquals(0, Compression.quality(null, "gzip"));
+	}
+
+	private static byte[] gzip(DeflaterPool pool, byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OutputStream gzip = new PooledGzipOutputStream(out, pool, 6)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+
+	private static String picked(Compression compression, String acceptEncoding, int gzipLevel, int brotliLevel)
+			throws Exception {
+		Context ctx = mock(Context.class);
+		when(ctx.header("Accept-Encoding")).thenReturn(acceptEncoding);
+		ArgumentCaptor<Object> coding = ArgumentCaptor.forClass(Object.class);
+		compression.wrap(c -> {
+		}, gzipLevel, brotliLevel).handle(ctx);
+		verify(ctx).header("Vary", "Accept-Encoding");
+		try {
+			verify(ctx).attribute(eq(Compression.CODING_ATTRIBUTE), coding.capture());
+		} catch (AssertionError e) {
+			return null;
+		}
+		return ((Compression.Coding) coding.getValue()).name();
+	}
+
+	private static Context response(Compression.Coding coding) {
+		Context ctx = mock(Context.class);
+		HttpServletResponse res = mock(HttpServletResponse.class);
+		when(ctx.res()).thenReturn(res);
+		when(ctx.attribute(Compression.CODING_ATTRIBUTE)).thenReturn(coding);
+		return ctx;
+	}
+
+	private static ServletOutputStream servletStream(ByteArrayOutputStream target) {
+		return new ServletOutputStream() {
+
+			@Override
+			public void write(int b) {
+				target.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener) {
+			}
+
+		};
+	}
+
+}
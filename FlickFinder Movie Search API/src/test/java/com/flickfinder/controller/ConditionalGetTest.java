@@ -0,0 +1,107 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.DataVersion;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Tests for answering conditional GET requests from ETags.
+ */
+class ConditionalGetTest {
+
+	private ConditionalGet conditionalGet;
+
+	private Handler handler;
+
+	@BeforeEach
+	void setUp() {
+		conditionalGet = new ConditionalGet(DataVersion.fixed("v1"));
+		handler = mock(Handler.class);
+	}
+
+	@Test
+	void testRunsHandlerWithoutIfNoneMatch() throws Exception {
+		Context ctx = request("/movies", Map.of("limit", List.of("10")));
+		String etag = conditionalGet.etag(ctx);
+
+		conditionalGet.wrap(handler, "max-age=60").handle(ctx);
+
+		verify(ctx).header("ETag", etag);
+		verify(ctx).header("Cache-Control", "max-age=60");
+		verify(handler).handle(ctx);
+	}
+
+	@Test
+	void testAnswersMatchWithNotModified() throws Exception {
+		Context ctx = request("/movies", Map.of("limit", List.of("10")));
+		String etag = conditionalGet.etag(ctx);
+		when(ctx.header("If-None-Match")).thenReturn(etag);
+
+		conditionalGet.wrap(handler, null).handle(ctx);
+
+		verify(ctx).status(HttpStatus.NOT_MODIFIED);
+		verify(handler, never()).handle(ctx);
+	}
+
+	@Test
+	void testEtagDependsOnPathParametersAndVersion() {
+		String etag = conditionalGet.etag(request("/movies", Map.of("limit", List.of("10"))));
+
+		assertNotEquals(etag, conditionalGet.etag(request("/movies", Map.of("limit", List.of("20")))));
+		assertNotEquals(etag, conditionalGet.etag(request("/people", Map.of("limit", List.of("10")))));
+		assertNotEquals(etag, new ConditionalGet(DataVersion.fixed("v2"))
+				.etag(request("/movies", Map.of("limit", List.of("10")))));
+	}
+
+	@Test
+	void testEtagIgnoresParameterOrder() {
+		Context ab = request("/movies", Map.of("limit", List.of("10"), "cursor", List.of("5")));
+		Context ba = request("/movies", Map.of("cursor", List.of("5"), "limit", List.of("10")));
+
+		assertEquals(conditionalGet.etag(ab), conditionalGet.etag(ba));
+		assertTrue(conditionalGet.etag(ab).startsWith("\"v1-"));
+	}
+
+	@Test
+	void testMatches() {
+		assertTrue(ConditionalGet.matches("\"a\"", "\"a\""));
+		assertTrue(ConditionalGet.matches("\"b\", \"a\"", "\"a\""));
+		assertTrue(ConditionalGet.matches("W/\"a\"", "\"a\""));
+		assertTrue(ConditionalGet.matches("*", "\"a\""));
+		assertFalse(ConditionalGet.matches("\"b\"", "\"a\""));
+		assertFalse(ConditionalGet.matches(null, "\"a\""));
+	}
+
+	@Test
+	void testMatchesIgnoresTheCoding() {
+		assertTrue(ConditionalGet.matches("\"v1-ab-gzip\"", "\"v1-ab\""));
+		assertTrue(ConditionalGet.matches("W/\"v1-ab-br\"", "\"v1-ab\""));
+		assertEquals("\"v1-ab-br\"", ConditionalGet.match("\"x\", \"v1-ab-br\"", "\"v1-ab\""));
+		assertFalse(ConditionalGet.matches("\"v1-ab-deflate\"", "\"v1-ab\""));
+	}
+
+	private static Context request(String path, Map<String, List<String>> params) {
+		Context ctx = mock(Context.class);
+		when(ctx.path()).thenReturn(path);
+		when(ctx.queryParamMap()).thenReturn(params);
+		return ctx;
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+/**
+ * Tests for the DB executor that offloads handlers from Jetty's threads.
+ */
+class DbExecutorTest {
+
+	private DbExecutor executor;
+
+	private CountDownLatch release;
+
+	@BeforeEach
+	void setUp() {
+		executor = new DbExecutor(1, 1, 2);
+		release = new CountDownLatch(1);
+	}
+
+	@Test
+	void testRunsHandlerAndSuspendsRequest() throws Exception {
+		Context ctx = mock(Context.class);
+		executor.offload(c -> c.status(HttpStatus.OK)).handle(ctx);
+
+		CompletableFuture<?> done = capturedFuture(ctx);
+		done.get(5, TimeUnit.SECONDS);
+		verify(ctx).status(HttpStatus.OK);
+	}
+
+	@Test
+	void testRejectsWhenFull() throws Exception {
+		Handler blocking = c -> release.await();
+		Context running = mock(Context.class);
+		Context queued = mock(Context.class);
+		Context rejected = mock(Context.class);
+		executor.offload(blocking).handle(running);
+		executor.offload(blocking).handle(queued);
+		executor.offload(blocking).handle(rejected);
+
+		verify(rejected).status(HttpStatus.SERVICE_UNAVAILABLE);
+		verify(rejected).header("Retry-After", "2");
+		verify(rejected, never()).future(any());
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(1, executor.getQueuedCount());
+
+		release.countDown();
+		capturedFuture(running).get(5, TimeUnit.SECONDS);
+		capturedFuture(queued).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void testPassesOnExceptions() throws Exception {
+		IllegalStateException failure = new IllegalStateException("boom");
+		Context ctx = mock(Context.class);
+		executor.offload(c -> {
+			throw failure;
+		}).handle(ctx);
+
+		CompletionException thrown = assertThrows(CompletionException.class, () -> capturedFuture(ctx).join());
+		assertSame(failure, thrown.getCause());
+	}
+
+	@Test
+	void testNoQueue() throws Exception {
+		executor.close();
+		executor = new DbExecutor(1, 0, 1);
+		Context running = mock(Context.class);
+		Context rejected = mock(Context.class);
+		executor.offload(c -> release.await()).handle(running);
+		executor.offload(c -> release.await()).handle(rejected);
+
+		verify(rejected).status(HttpStatus.SERVICE_UNAVAILABLE);
+		release.countDown();
+		capturedFuture(running).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void testRejectsBadSizes() {
+		assertThrows(IllegalArgumentException.class, () -> new DbExecutor(0, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new DbExecutor(1, -1, 1));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static CompletableFuture<?> capturedFuture(Context ctx) {
+		ArgumentCaptor<Supplier<CompletableFuture<?>>> supplier = ArgumentCaptor.forClass(Supplier.class);
+		verify(ctx).future(supplier.capture());
+		CompletableFuture<?> future = supplier.getValue().get();
+		assertTrue(future != null);
+		return future;
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.close();
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flickfinder.json.ModelModule;
+import com.flickfinder.metrics.Metrics;
+import com.flickfinder.metrics.TimedJsonMapper;
+
+import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+
+/**
+ * Tests for finding the Jackson mapper the streamed lists write with.
+ */
+class JsonArrayStreamTest {
+
+	@Test
+	void testUsesJavalinsObjectMapper() {
+		ObjectMapper objectMapper = ModelModule.mapper();
+		Context ctx = mock(Context.class);
+		when(ctx.jsonMapper()).thenReturn(new JavalinJackson(objectMapper, false));
+		assertSame(objectMapper, JsonArrayStream.mapper(ctx));
+	}
+
+	@Test
+	void testUnwrapsTheTimedMapper() {
+		ObjectMapper objectMapper = ModelModule.mapper();
+		Context ctx = mock(Context.class);
+		when(ctx.jsonMapper()).thenReturn(new TimedJsonMapper(new JavalinJackson(objectMapper, false), new Metrics()));
+		assertSame(objectMapper, JsonArrayStream.mapper(ctx));
+	}
+
+}
@@ -12,8 +12,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
 import com.flickfinder.model.MovieRating;
 import com.flickfinder.model.Person;
+import com.flickfinder.util.Cursor;
 
 import io.javalin.http.Context;
 
@@ -79,6 +82,32 @@ class MovieControllerTest {
 		verify(ctx).status(400);
 		verify(ctx).result("Invalid limit");
 	}
+	@Test
+	void testGetAllMoviesAfterCursor() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn(Cursor.encode(3));
+		when(ctx.queryParam("limit")).thenReturn("2");
+		movieController.getAllMovies(ctx);
+		verify(movieDAO).getMoviesAfter(3, 2);
+	}
+
+	@Test
+	void testGetAllMoviesSetsNextCursorOnFullPage() throws SQLException {
+		when(ctx.queryParam("limit")).thenReturn("2");
+		when(ctx.path()).thenReturn("/movies");
+		when(movieDAO.getMoviesByLimit(2)).thenReturn(
+				List.of(new Movie(1, "The Shawshank Redemption", 1994), new Movie(2, "The Godfather", 1972)));
+		movieController.getAllMovies(ctx);
+		verify(ctx).header("X-Next-Cursor", Cursor.encode(2));
+	}
+
+	@Test
+	void testGetAllMoviesByInvalidCursor() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn("garbage");
+		when(ctx.status(400)).thenReturn(ctx);
+		movieController.getAllMovies(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Invalid cursor");
+	}
 	/**
 	 * Test that the controller returns a 500 status code when a database error
 	 * occurs
@@ -203,4 +232,69 @@ class MovieControllerTest {
 		verify(ctx).status(400);
 		verify(ctx).result("Invalid year, limit or minVotes");
 	}
+	@Test
+	void testSearchMovies() throws SQLException {
+		when(ctx.queryParam("q")).thenReturn("godfather");
+		List<Movie> movies = new ArrayList<>();
+		movies.add(new Movie(2, "The Godfather", 1972));
+		when(movieDAO.searchMovies("godfather", 50)).thenReturn(movies);
+		movieController.searchMovies(ctx);
+		verify(ctx).json(movies);
+	}
+	@Test
+	void testSearchMoviesWithoutQuery() throws SQLException {
+		when(ctx.status(400)).thenReturn(ctx);
+		movieController.searchMovies(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Missing search query");
+	}
+	@Test
+	void testGetAllMoviesByIds() throws SQLException {
+		when(ctx.queryParam("ids")).thenReturn("2, 1");
+		List<Movie> movies = new ArrayList<>();
+		movies.add(new Movie(2, "The Godfather", 1972));
+		movies.add(null);
+		when(movieDAO.getMoviesByIds(new int[] { 2, 1 })).thenReturn(movies);
+		movieController.getAllMovies(ctx);
+		verify(ctx).json(movies);
+	}
+	@Test
+	void testGetAllMoviesByInvalidIds() throws SQLException {
+		when(ctx.queryParam("ids")).thenReturn("1,two");
+		when(ctx.status(400)).thenReturn(ctx);
+		movieController.getAllMovies(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Invalid ids");
+	}
+	@Test
+	void testGetAllMoviesWithIncludes() throws SQLException {
+		when(ctx.queryParam("include")).thenReturn("stars,rating");
+		List<Movie> movies = new ArrayList<>();
+		movies.add(new Movie(1, "The Shawshank Redemption", 1994));
+		List<MovieDetails> details = new ArrayList<>();
+		details.add(new MovieDetails(movies.get(0)));
+		when(movieDAO.getMoviesByLimit(50)).thenReturn(movies);
+		when(movieDAO.getMovieDetails(movies, true, true)).thenReturn(details);
+		movieController.getAllMovies(ctx);
+		verify(ctx).json(details);
+	}
+	@Test
+	void testGetMovieByIdWithIncludes() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(ctx.queryParam("include")).thenReturn("rating");
+		Movie movie = new Movie(1, "The Shawshank Redemption", 1994);
+		MovieDetails detail = new MovieDetails(movie);
+		when(movieDAO.getMovieById(1)).thenReturn(movie);
+		when(movieDAO.getMovieDetails(List.of(movie), false, true)).thenReturn(List.of(detail));
+		movieController.getMovieById(ctx);
+		verify(ctx).json(detail);
+	}
+	@Test
+	void testGetAllMoviesWithInvalidInclude() throws SQLException {
+		when(ctx.queryParam("include")).thenReturn("directors");
+		when(ctx.status(400)).thenReturn(ctx);
+		movieController.getAllMovies(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Invalid include");
+	}
 }
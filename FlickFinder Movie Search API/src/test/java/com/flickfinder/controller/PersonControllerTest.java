@@ -15,6 +15,9 @@ import com.flickfinder.dao.MovieDAO;
 import com.flickfinder.dao.PersonDAO;
 import com.flickfinder.model.Movie;
 import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.SeparationPath;
+import com.flickfinder.util.Cursor;
 
 import io.javalin.http.Context;
 
@@ -62,6 +65,12 @@ class PersonControllerTest {
 		verify(ctx).result("Invalid limit");
 	}
 	@Test
+	void testGetAllPeopleAfterCursor() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn(Cursor.encode(2));
+		personController.getAllPeople(ctx);
+		verify(personDAO).getPeopleAfter(2, 50);
+	}
+	@Test
 	void testThrows500ExceptionWhenGetAllDatabaseError() throws SQLException {
 		when(personDAO.getPeopleByLimit(50)).thenThrow(new SQLException());
 		personController.getAllPeople(ctx);
@@ -120,4 +129,62 @@ class PersonControllerTest {
 		verify(ctx).status(404);
 		verify(ctx).result("No movie found for this Star");
 	}
+	@Test
+	void testAutocomplete() throws SQLException {
+		when(ctx.queryParam("prefix")).thenReturn("al");
+		List<Person> people = new ArrayList<>();
+		people.add(new Person(4, "Al Pacino", 1940));
+		when(personDAO.autocompleteNames("al", 10)).thenReturn(people);
+		personController.autocomplete(ctx);
+		verify(ctx).json(people);
+	}
+	@Test
+	void testAutocompleteWithoutPrefix() throws SQLException {
+		when(ctx.status(400)).thenReturn(ctx);
+		personController.autocomplete(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Missing prefix");
+	}
+	@Test
+	void testGetAllPeopleByIds() throws SQLException {
+		when(ctx.queryParam("ids")).thenReturn("4");
+		List<Person> people = new ArrayList<>();
+		people.add(new Person(4, "Al Pacino", 1940));
+		when(personDAO.getPeopleByIds(new int[] { 4 })).thenReturn(people);
+		personController.getAllPeople(ctx);
+		verify(ctx).json(people);
+	}
+	@Test
+	void testGetAllPeopleWithIncludes() throws SQLException {
+		when(ctx.queryParam("include")).thenReturn("movies");
+		List<Person> people = new ArrayList<>();
+		people.add(new Person(4, "Al Pacino", 1940));
+		List<PersonDetails> details = new ArrayList<>();
+		details.add(new PersonDetails(people.get(0)));
+		when(personDAO.getPeopleByLimit(50)).thenReturn(people);
+		when(personDAO.getPersonDetails(people, true)).thenReturn(details);
+		personController.getAllPeople(ctx);
+		verify(ctx).json(details);
+	}
+	@Test
+	void testGetPath() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(ctx.pathParam("otherId")).thenReturn("2");
+		SeparationPath path = new SeparationPath(
+				List.of(new Person(1, "Tim Robbins", 1958), new Person(2, "Morgan Freeman", 1937)),
+				List.of(new Movie(1, "The Shawshank Redemption", 1994)));
+		when(personDAO.findPath(1, 2)).thenReturn(path);
+		personController.getPath(ctx);
+		verify(ctx).json(path);
+	}
+	@Test
+	void testGetPathNotFound() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(ctx.pathParam("otherId")).thenReturn("4");
+		when(ctx.status(404)).thenReturn(ctx);
+		when(personDAO.findPath(1, 4)).thenReturn(null);
+		personController.getPath(ctx);
+		verify(ctx).status(404);
+		verify(ctx).result("No path found between these people");
+	}
 }
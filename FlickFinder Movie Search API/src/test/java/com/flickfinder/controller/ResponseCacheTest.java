@@ -0,0 +1,228 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.DataVersion;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tests for the cache of rendered responses.
+ */
+class ResponseCacheTest {
+
+	private static final byte[] BODY = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void testServesRenderedBytesWithoutRunningHandler() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 60_000, 60_000, false);
+		render(cache, "/movies", BODY, 200);
+
+		Context ctx = request("/movies");
+		Handler handler = mock(Handler.class);
+		cache.serve(handler).handle(ctx);
+
+		verify(handler, never()).handle(any());
+		verify(ctx).contentType("application/json");
+		verify(ctx).result(aryEq(BODY));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testRunsHandlerOnMiss() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 60_000, 60_000, false);
+		render(cache, "/movies", BODY, 200);
+
+		Context ctx = request("/people");
+		Handler handler = mock(Handler.class);
+		cache.serve(handler).handle(ctx);
+
+		verify(handler).handle(ctx);
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void testKeepsOnlySuccessfulResponses() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 60_000, 60_000, false);
+		render(cache, "/movies/1000", "Movie not found".getBytes(StandardCharsets.UTF_8), 404);
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testDropsEntriesAfterTheStaleWindow() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 0, 0, false);
+		render(cache, "/movies", BODY, 200);
+
+		Handler handler = mock(Handler.class);
+		Context ctx = request("/movies");
+		cache.serve(handler).handle(ctx);
+
+		verify(handler).handle(ctx);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testServesStaleEntriesWithinTheStaleWindow() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 0, 60_000, false);
+		render(cache, "/movies", BODY, 200);
+
+		Handler handler = mock(Handler.class);
+		Context ctx = request("/movies");
+		cache.serve(handler).handle(ctx);
+
+		verify(handler, never()).handle(any());
+		verify(ctx).result(aryEq(BODY));
+		assertEquals(1, cache.getStaleHitCount());
+	}
+
+	@Test
+	void testRefreshesStaleEntriesWithoutAnHttpRequest() throws Exception {
+		byte[] renamed = "[{\"id\":2}]".getBytes(StandardCharsets.UTF_8);
+		ResponseCache cache = new ResponseCache(1 << 20, 0, 60_000, false);
+		render(cache, "/movies", BODY, 200, c -> c.result(renamed));
+
+		cache.serve(mock(Handler.class)).handle(request("/movies"));
+		awaitRefreshes(cache, 1);
+
+		Context ctx = request("/movies");
+		cache.serve(mock(Handler.class)).handle(ctx);
+		verify(ctx).result(aryEq(renamed));
+	}
+
+	@Test
+	void testKeepsTheStaleEntryWhenARefreshFails() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 0, 60_000, false);
+		render(cache, "/movies", BODY, 200, c -> c.status(503));
+
+		cache.serve(mock(Handler.class)).handle(request("/movies"));
+		awaitRefreshes(cache, 1);
+
+		assertTrue(cache.getRefreshCount() > 1);
+		assertEquals(1, cache.size());
+		Handler handler = mock(Handler.class);
+		Context ctx = request("/movies");
+		cache.serve(handler).handle(ctx);
+		verify(handler, never()).handle(any());
+		verify(ctx).result(aryEq(BODY));
+	}
+
+	@Test
+	void testDropsEntriesRenderedFromAnOlderDataVersion() throws Exception {
+		ResponseCache cache = new ResponseCache(1 << 20, 60_000, 60_000, false);
+		DataVersion version = mock(DataVersion.class);
+		when(version.current()).thenReturn("1", "1", "2");
+		cache.setDataVersion(version);
+		render(cache, "/movies", BODY, 200);
+
+		Handler handler = mock(Handler.class);
+		cache.serve(handler).handle(request("/movies"));
+		verify(handler, never()).handle(any());
+		Context changed = request("/movies");
+		cache.serve(handler).handle(changed);
+
+		verify(handler).handle(changed);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsedWhenOverBudget() throws Exception {
+		byte[] body = new byte[1000];
+		ResponseCache cache = new ResponseCache(2500, 60_000, 60_000, false);
+		render(cache, "/a", body, 200);
+		render(cache, "/b", body, 200);
+		cache.serve(mock(Handler.class)).handle(request("/a"));
+		render(cache, "/c", body, 200);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		Handler handler = mock(Handler.class);
+		cache.serve(handler).handle(request("/a"));
+		verify(handler, never()).handle(any());
+		Context evicted = request("/b");
+		cache.serve(handler).handle(evicted);
+		verify(handler).handle(evicted);
+		assertTrue(cache.getUsedBytes() <= 2500);
+	}
+
+	@Test
+	void testServesGzippedBodyToClientsThatAcceptIt() throws Exception {
+		byte[] body = "[{\"id\":1,\"title\":\"The Godfather\"}]".repeat(20).getBytes(StandardCharsets.UTF_8);
+		ResponseCache cache = new ResponseCache(1 << 20, 60_000, 60_000, true);
+		render(cache, "/movies", body, 200);
+
+		Context gzip = request("/movies");
+		when(gzip.header("Accept-Encoding")).thenReturn("gzip, deflate");
+		cache.serve(mock(Handler.class)).handle(gzip);
+		verify(gzip).header("Content-Encoding", "gzip");
+
+		Context plain = request("/movies");
+		cache.serve(mock(Handler.class)).handle(plain);
+		verify(plain, never()).header("Content-Encoding", "gzip");
+		verify(plain).result(aryEq(body));
+	}
+
+	@Test
+	void testAcceptsGzip() {
+		assertTrue(ResponseCache.acceptsGzip("gzip"));
+		assertTrue(ResponseCache.acceptsGzip("br, gzip;q=0.8"));
+		assertTrue(ResponseCache.acceptsGzip("*"));
+		assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+		assertFalse(ResponseCache.acceptsGzip("br"));
+		assertFalse(ResponseCache.acceptsGzip(null));
+	}
+
+	private static void render(ResponseCache cache, String path, byte[] body, int status) throws Exception {
+		render(cache, path, body, status, c -> {
+		});
+	}
+
+	private static void render(ResponseCache cache, String path, byte[] body, int status, Handler handler)
+			throws Exception {
+		Context ctx = request(path);
+		when(ctx.statusCode()).thenReturn(status);
+		when(ctx.resultInputStream()).thenReturn(new ByteArrayInputStream(body));
+		cache.render(handler).handle(ctx);
+	}
+
+	/**
+	 * Waits for a number of refreshes to have finished, which a stale hit
+	 * shows by starting another one.
+	 */
+	private static void awaitRefreshes(ResponseCache cache, int count) throws Exception {
+		for (int i = 0; i < 200 && cache.getRefreshCount() <= count; i++) {
+			Thread.sleep(5);
+			cache.serve(mock(Handler.class)).handle(request("/movies"));
+		}
+	}
+
+	private static Context request(String path) {
+		Context ctx = mock(Context.class);
+		HttpServletResponse res = mock(HttpServletResponse.class);
+		when(ctx.path()).thenReturn(path);
+		when(ctx.queryParamMap()).thenReturn(Map.of());
+		when(ctx.res()).thenReturn(res);
+		when(res.getHeaderNames()).thenReturn(List.of());
+		when(res.getContentType()).thenReturn("application/json");
+		return ctx;
+	}
+
+}
@@ -3,20 +3,26 @@ package com.flickfinder.dao;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
 import com.flickfinder.model.MovieRating;
 import com.flickfinder.model.Person;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.EntityCache;
 import com.flickfinder.util.Seeder;
 
 /**
@@ -120,6 +126,113 @@ class MovieDAOTest {
 			e.printStackTrace();
 		}
 	}
+	@Test
+	void testGetMoviesAfter() throws SQLException {
+		List<Movie> movies = movieDAO.getMoviesAfter(2, 2);
+		assertEquals(2, movies.size(), "Expected 2 movies after id 2");
+		assertEquals(3, movies.get(0).getId());
+		assertEquals(4, movies.get(1).getId());
+	}
+	@Test
+	void testGetMoviesAfterLastId() throws SQLException {
+		List<Movie> movies = movieDAO.getMoviesAfter(5, 50);
+		assertTrue(movies.isEmpty(), "Expected no movies after the last id");
+	}
+	@Test
+	void testGetMoviesByIds() throws SQLException {
+		List<Movie> movies = movieDAO.getMoviesByIds(new int[] { 3, 1000, 1, 3 });
+		assertEquals(4, movies.size(), "Expected one entry per requested id");
+		assertEquals("The Godfather: Part II", movies.get(0).getTitle());
+		assertNull(movies.get(1), "Expected null for an id that does not exist");
+		assertEquals("The Shawshank Redemption", movies.get(2).getTitle());
+		assertSame(movies.get(0), movies.get(3), "Expected repeated ids to share the movie");
+	}
+	@Test
+	void testGetMoviesByIdsInChunks() throws SQLException {
+		int[] ids = new int[500];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = ids.length - i;
+		}
+		List<Movie> movies = movieDAO.getMoviesByIds(ids);
+		assertEquals(500, movies.size());
+		assertEquals(5, movies.stream().filter(movie -> movie != null).count());
+		assertEquals(5, movies.get(495).getId());
+		assertEquals(1, movies.get(499).getId());
+	}
+	@Test
+	void testGetMoviesByIdsThroughCache() throws SQLException {
+		EntityCache<Movie> cache = new EntityCache<>(10);
+		movieDAO.setMovieCache(cache);
+		Movie cached = movieDAO.getMovieById(2);
+		List<Movie> movies = movieDAO.getMoviesByIds(new int[] { 1, 2 });
+		assertSame(cached, movies.get(1), "Expected the cached movie to be reused");
+		assertSame(movies.get(0), movieDAO.getMovieById(1), "Expected the batch to fill the cache");
+	}
+	@Test
+	void testGetMovieDetails() throws SQLException {
+		List<Movie> movies = movieDAO.getMoviesByIds(new int[] { 1, 4, 1000 });
+		List<MovieDetails> details = movieDAO.getMovieDetails(movies, true, true);
+		assertEquals(3, details.size());
+		assertEquals("The Shawshank Redemption", details.get(0).getTitle());
+		assertEquals(2, details.get(0).getStars().size(), "Expected both stars of movie 1");
+		assertEquals(9.3f, details.get(0).getRating().getRating(), 0.001);
+		assertEquals(2200000, details.get(0).getRating().getVotes());
+		assertTrue(details.get(1).getStars().isEmpty(), "Expected an empty cast for movie 4");
+		assertNull(details.get(2), "Expected missing movies to stay null");
+	}
+	@Test
+	void testGetMovieDetailsOnlyWithRequestedRelations() throws SQLException {
+		List<MovieDetails> details = movieDAO.getMovieDetails(movieDAO.getMoviesByLimit(5), false, true);
+		assertEquals(5, details.size());
+		assertNull(details.get(0).getStars());
+		assertEquals(8.9f, details.get(4).getRating().getRating(), 0.001);
+	}
+	@Test
+	void testGetStarsByMovieIds() throws SQLException {
+		Map<Integer, List<Person>> stars = movieDAO.getStarsByMovieIds(new int[] { 1, 2, 3, 4 });
+		assertEquals(3, stars.size(), "Movie 4 has no stars");
+		assertEquals("Al Pacino", stars.get(2).get(0).getName());
+		assertEquals("Al Pacino", stars.get(3).get(0).getName());
+	}
+	@Test
+	void testStreamMoviesAfter() throws Exception {
+		List<Movie> streamed = new ArrayList<>();
+		int count = movieDAO.streamMoviesAfter(Integer.MIN_VALUE, 3, streamed::add);
+		assertEquals(3, count);
+		assertEquals(movieDAO.getMoviesByLimit(3).toString(), streamed.toString());
+	}
+	@Test
+	void testStreamPeopleByMovieId() throws Exception {
+		List<Person> streamed = new ArrayList<>();
+		assertEquals(2, movieDAO.streamPeopleByMovieId(1, streamed::add));
+		assertEquals("Tim Robbins", streamed.get(0).getName());
+	}
+	@Test
+	void testGetMovieByIdThroughCache() throws SQLException {
+		EntityCache<Movie> cache = new EntityCache<>(10);
+		movieDAO.setMovieCache(cache);
+		Movie first = movieDAO.getMovieById(1);
+		Movie second = movieDAO.getMovieById(1);
+		assertSame(first, second, "Expected the second lookup to come from the cache");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+	@Test
+	void testSearchMovies() throws SQLException {
+		List<Movie> movies = movieDAO.searchMovies("the", 10);
+		assertEquals(4, movies.size(), "12 Angry Men does not contain 'the'");
+		assertEquals("The Godfather", movies.get(0).getTitle(), "Shorter titles should rank first");
+		assertEquals("The Dark Knight", movies.get(1).getTitle());
+		assertEquals("The Godfather: Part II", movies.get(2).getTitle());
+		assertEquals("The Shawshank Redemption", movies.get(3).getTitle());
+	}
+	@Test
+	void testSearchMoviesThroughIndex() throws SQLException {
+		movieDAO.setTitleSearchIndex(movieDAO.buildTitleSearchIndex());
+		List<Movie> movies = movieDAO.searchMovies("GODFATHER", 1);
+		assertEquals(1, movies.size());
+		assertEquals(2, movies.get(0).getId());
+	}
 	/**
 	 * Tests the getMovieById method with an invalid id. Null should be returned.
 	 */
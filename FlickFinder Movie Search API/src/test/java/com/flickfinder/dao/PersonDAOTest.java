@@ -2,10 +2,12 @@ package com.flickfinder.dao;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -14,6 +16,8 @@ import org.junit.jupiter.api.Test;
 
 import com.flickfinder.model.Movie;
 import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.SeparationPath;
 import com.flickfinder.util.Database;
 import com.flickfinder.util.Seeder;
 
@@ -62,6 +66,19 @@ class PersonDAOTest {
 		assertNotNull(person, "Expected a not-null list");
 		assertEquals(5, person.size(), "Expected 5 movies from the database");
 	}
+	@Test
+	void testGetPeopleAfter() throws SQLException {
+		List<Person> people = personDAO.getPeopleAfter(3, 50);
+		assertEquals(2, people.size(), "Expected 2 people after id 3");
+		assertEquals(4, people.get(0).getId());
+		assertEquals(5, people.get(1).getId());
+	}
+	@Test
+	void testStreamMoviesStarringPerson() throws Exception {
+		List<Movie> streamed = new ArrayList<>();
+		assertEquals(2, personDAO.streamMoviesStarringPerson(4, streamed::add));
+		assertEquals("The Godfather", streamed.get(0).getTitle());
+	}
 	
 	@Test
 	void testGetPersonById() {
@@ -99,6 +116,54 @@ class PersonDAOTest {
 		}
 	}
 	@Test
+	void testGetPeopleByIds() throws SQLException {
+		List<Person> people = personDAO.getPeopleByIds(new int[] { 5, 42, 2 });
+		assertEquals(3, people.size(), "Expected one entry per requested id");
+		assertEquals("Henry Fonda", people.get(0).getName());
+		assertNull(people.get(1), "Expected null for an id that does not exist");
+		assertEquals("Morgan Freeman", people.get(2).getName());
+	}
+	@Test
+	void testGetPersonDetails() throws SQLException {
+		List<PersonDetails> details = personDAO.getPersonDetails(personDAO.getPeopleByIds(new int[] { 4, 3 }), true);
+		assertEquals("Al Pacino", details.get(0).getName());
+		assertEquals(2, details.get(0).getMovies().size(), "Expected both Godfather movies");
+		assertTrue(details.get(1).getMovies().isEmpty(), "Christopher Nolan only directs");
+	}
+	@Test
+	void testFindPath() throws SQLException {
+		SeparationPath path = personDAO.findPath(1, 2);
+		assertNotNull(path, "Tim Robbins and Morgan Freeman star in The Shawshank Redemption");
+		assertEquals(1, path.getDegrees());
+		assertEquals("Tim Robbins", path.getPeople().get(0).getName());
+		assertEquals("Morgan Freeman", path.getPeople().get(1).getName());
+		assertEquals("The Shawshank Redemption", path.getMovies().get(0).getTitle());
+	}
+	@Test
+	void testFindPathBetweenUnconnectedPeople() throws SQLException {
+		assertNull(personDAO.findPath(1, 4), "Al Pacino never starred with Tim Robbins");
+		assertNull(personDAO.findPath(1, 3), "Christopher Nolan stars in nothing");
+	}
+	@Test
+	void testAutocompleteNames() throws SQLException {
+		List<Person> people = personDAO.autocompleteNames("f", 10);
+		assertEquals(2, people.size(), "Expected Henry Fonda and Morgan Freeman");
+		assertEquals("Henry Fonda", people.get(0).getName(), "Equally popular people should be ordered by name");
+		assertEquals("Morgan Freeman", people.get(1).getName());
+	}
+	@Test
+	void testAutocompleteNamesTreatsWildcardsLiterally() throws SQLException {
+		assertTrue(personDAO.autocompleteNames("%", 10).isEmpty());
+		assertTrue(personDAO.autocompleteNames("_l", 10).isEmpty());
+	}
+	@Test
+	void testAutocompleteNamesThroughIndex() throws SQLException {
+		personDAO.setNameAutocompleteIndex(personDAO.buildNameAutocompleteIndex());
+		List<Person> people = personDAO.autocompleteNames("NOL", 10);
+		assertEquals(1, people.size());
+		assertEquals(3, people.get(0).getId());
+	}
+	@Test
 	void testGetMoviesStarringPersonInvalidPersonId() throws SQLException {
 		List<Movie> movies = personDAO.getMoviesStarringPerson(746384543);
 		assertNotNull(movies, "Expected not-null result even with invalid person ID");
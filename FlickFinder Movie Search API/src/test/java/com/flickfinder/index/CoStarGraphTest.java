@@ -0,0 +1,143 @@
+package com.flickfinder.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the in-memory co-star graph.
+ */
+class CoStarGraphTest {
+
+	/**
+	 * 1 - 100 - 2 - 200 - 3 - 300 - 4, plus 5 alone in 400 and a shortcut
+	 * 1 - 500 - 6 - 600 - 4 of the same length.
+	 */
+	private CoStarGraph sampleGraph() {
+		CoStarGraph.Builder builder = new CoStarGraph.Builder();
+		builder.add(100, 1);
+		builder.add(100, 2);
+		builder.add(200, 2);
+		builder.add(200, 3);
+		builder.add(300, 3);
+		builder.add(300, 4);
+		builder.add(400, 5);
+		builder.add(500, 1);
+		builder.add(500, 6);
+		builder.add(600, 6);
+		builder.add(600, 4);
+		return builder.build();
+	}
+
+	@Test
+	void testCountsPeopleMoviesAndEdges() {
+		CoStarGraph graph = sampleGraph();
+		assertEquals(6, graph.personCount());
+		assertEquals(6, graph.movieCount());
+		assertEquals(11, graph.edgeCount());
+	}
+
+	@Test
+	void testFindsDirectCoStar() {
+		CoStarGraph.Path path = sampleGraph().findPath(1, 2);
+		assertArrayEquals(new int[] { 1, 2 }, path.getPersonIds());
+		assertArrayEquals(new int[] { 100 }, path.getMovieIds());
+	}
+
+	@Test
+	void testFindsShortestChain() {
+		CoStarGraph.Path path = sampleGraph().findPath(1, 4);
+		assertArrayEquals(new int[] { 1, 6, 4 }, path.getPersonIds(), "The route through 6 is shorter");
+		assertArrayEquals(new int[] { 500, 600 }, path.getMovieIds());
+		path = sampleGraph().findPath(2, 4);
+		assertEquals(3, path.getPersonIds().length);
+	}
+
+	@Test
+	void testPathToSelfIsEmpty() {
+		CoStarGraph.Path path = sampleGraph().findPath(3, 3);
+		assertArrayEquals(new int[] { 3 }, path.getPersonIds());
+		assertEquals(0, path.getMovieIds().length);
+	}
+
+	@Test
+	void testUnconnectedOrUnknownPeopleHaveNoPath() {
+		assertNull(sampleGraph().findPath(1, 5));
+		assertNull(sampleGraph().findPath(1, 99));
+	}
+
+	@Test
+	void testMatchesPlainBreadthFirstSearch() {
+		Random random = new Random(11);
+		Map<Integer, Set<Integer>> moviesOf = new HashMap<>();
+		Map<Integer, Set<Integer>> peopleOf = new HashMap<>();
+		CoStarGraph.Builder builder = new CoStarGraph.Builder();
+		for (int i = 0; i < 3000; i++) {
+			int movie = 1000 + random.nextInt(1500);
+			int person = 1 + random.nextInt(2000);
+			if (moviesOf.computeIfAbsent(person, k -> new HashSet<>()).add(movie)) {
+				peopleOf.computeIfAbsent(movie, k -> new HashSet<>()).add(person);
+				builder.add(movie, person);
+			}
+		}
+		CoStarGraph graph = builder.build();
+		List<Integer> people = new ArrayList<>(moviesOf.keySet());
+		for (int i = 0; i < 200; i++) {
+			int from = people.get(random.nextInt(people.size()));
+			int to = people.get(random.nextInt(people.size()));
+			int expected = distance(moviesOf, peopleOf, from, to);
+			CoStarGraph.Path path = graph.findPath(from, to);
+			if (expected < 0) {
+				assertNull(path, from + " -> " + to);
+				continue;
+			}
+			assertNotNull(path, from + " -> " + to);
+			int[] chain = path.getPersonIds();
+			assertEquals(expected, path.getMovieIds().length, from + " -> " + to);
+			assertEquals(from, chain[0]);
+			assertEquals(to, chain[chain.length - 1]);
+			for (int step = 0; step < path.getMovieIds().length; step++) {
+				Set<Integer> cast = peopleOf.get(path.getMovieIds()[step]);
+				assertTrue(cast.contains(chain[step]) && cast.contains(chain[step + 1]), "Broken link in " + from
+						+ " -> " + to);
+			}
+		}
+	}
+
+	private static int distance(Map<Integer, Set<Integer>> moviesOf, Map<Integer, Set<Integer>> peopleOf, int from,
+			int to) {
+		Map<Integer, Integer> depth = new HashMap<>();
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		depth.put(from, 0);
+		queue.add(from);
+		while (!queue.isEmpty()) {
+			int person = queue.poll();
+			if (person == to) {
+				return depth.get(person);
+			}
+			for (int movie : moviesOf.get(person)) {
+				for (int costar : peopleOf.get(movie)) {
+					if (!depth.containsKey(costar)) {
+						depth.put(costar, depth.get(person) + 1);
+						queue.add(costar);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+}
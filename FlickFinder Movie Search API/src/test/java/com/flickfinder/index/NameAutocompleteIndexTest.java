@@ -0,0 +1,136 @@
+package com.flickfinder.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Tests for the in-memory name prefix index.
+ */
+class NameAutocompleteIndexTest {
+
+	private Seeder seeder;
+
+	private NameAutocompleteIndex sampleIndex() {
+		NameAutocompleteIndex.Builder builder = new NameAutocompleteIndex.Builder();
+		builder.add(new Person(1, "Tom Hanks", 1956));
+		builder.add(new Person(2, "Tom Cruise", 1962));
+		builder.add(new Person(3, "Tommy Lee Jones", 1946));
+		builder.add(new Person(4, "Thomas Tom", 1980));
+		builder.add(new Person(5, "Meryl Streep", 1949));
+		builder.add(new Person(6, "Tom Tomlinson", 1970));
+		builder.setPopularity(1, 80);
+		builder.setPopularity(2, 60);
+		builder.setPopularity(3, 60);
+		builder.setPopularity(4, 2);
+		builder.setPopularity(5, 90);
+		builder.setPopularity(6, 1);
+		builder.setPopularity(99, 1000);
+		return builder.build();
+	}
+
+	private static List<Integer> ids(List<Person> people) {
+		return people.stream().map(Person::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void testBuilderRejectsRowsOutOfOrder() {
+		NameAutocompleteIndex.Builder builder = new NameAutocompleteIndex.Builder();
+		builder.add(new Person(2, "Tom Cruise", 1962));
+		assertThrows(IllegalArgumentException.class, () -> builder.add(new Person(1, "Tom Hanks", 1956)));
+	}
+
+	@Test
+	void testReturnsMostPopularFirst() {
+		// Tom Cruise and Tommy Lee Jones tie, and are then ordered by name
+		assertEquals(List.of(1, 2, 3, 4, 6), ids(sampleIndex().complete("tom", 10)));
+	}
+
+	@Test
+	void testMatchesAnyWordOfTheName() {
+		assertEquals(List.of(5), ids(sampleIndex().complete("Stre", 10)));
+		assertEquals(List.of(3), ids(sampleIndex().complete("lee j", 10)));
+	}
+
+	@Test
+	void testReturnsPersonWithTwoMatchingWordsOnce() {
+		assertEquals(List.of(6), ids(sampleIndex().complete("tom tom", 10)));
+		assertEquals(List.of(1, 2, 3, 4, 6), ids(sampleIndex().complete("t", 10)));
+	}
+
+	@Test
+	void testStopsAtLimit() {
+		assertEquals(List.of(1, 2), ids(sampleIndex().complete("TOM", 2)));
+	}
+
+	@Test
+	void testUnknownPrefixIsEmpty() {
+		assertTrue(sampleIndex().complete("zz", 10).isEmpty());
+		assertTrue(sampleIndex().complete("", 10).isEmpty());
+	}
+
+	@Test
+	void testMatchesBruteForce() {
+		Random random = new Random(7);
+		String[] words = { "al", "alan", "alba", "albert", "ann", "anna", "bo", "bob", "bobby", "cy" };
+		NameAutocompleteIndex.Builder builder = new NameAutocompleteIndex.Builder();
+		Person[] people = new Person[500];
+		int[] popularity = new int[people.length];
+		for (int i = 0; i < people.length; i++) {
+			String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+			people[i] = new Person(i + 1, name, 1900);
+			popularity[i] = random.nextInt(20);
+			builder.add(people[i]);
+			builder.setPopularity(i + 1, popularity[i]);
+		}
+		NameAutocompleteIndex index = builder.build();
+
+		for (String prefix : words) {
+			List<Integer> expected = IntStream.range(0, people.length)
+					.filter(i -> people[i].getName().startsWith(prefix)
+							|| people[i].getName().contains(" " + prefix))
+					.boxed()
+					.sorted((a, b) -> popularity[a] != popularity[b] ? popularity[b] - popularity[a]
+							: people[a].getName().equals(people[b].getName()) ? a - b
+									: people[a].getName().compareTo(people[b].getName()))
+					.limit(15)
+					.map(i -> i + 1)
+					.collect(Collectors.toList());
+			assertEquals(expected, ids(index.complete(prefix, 15)), prefix);
+		}
+	}
+
+	@Test
+	void testMatchesDatabase() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		PersonDAO personDAO = new PersonDAO();
+		NameAutocompleteIndex index = personDAO.buildNameAutocompleteIndex();
+		assertEquals(5, index.size());
+		for (String prefix : List.of("a", "F", "mo", "nolan", "henry f", "x")) {
+			assertEquals(ids(personDAO.autocompleteNames(prefix, 10)), ids(index.complete(prefix, 10)), prefix);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (seeder != null) {
+			seeder.closeConnection();
+		}
+	}
+
+}
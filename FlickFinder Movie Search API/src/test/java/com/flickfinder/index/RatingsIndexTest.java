@@ -0,0 +1,111 @@
+package com.flickfinder.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Tests for the in-memory ratings index.
+ */
+class RatingsIndexTest {
+
+	private Seeder seeder;
+
+	private RatingsIndex index;
+
+	private RatingsIndex sampleIndex() {
+		RatingsIndex.Builder builder = new RatingsIndex.Builder();
+		builder.add(new MovieRating(1, "The Shawshank Redemption", 9.3f, 2200000, 1994));
+		builder.add(new MovieRating(11, "Se7en", 8.6f, 1800000, 1995));
+		builder.add(new MovieRating(10, "Heat", 8.3f, 700000, 1995));
+		builder.add(new MovieRating(12, "Toy Story", 8.3f, 1000000, 1995));
+		builder.add(new MovieRating(13, "Casino", 8.2f, 500000, 1995));
+		builder.add(new MovieRating(14, "Jumanji", 7.1f, 300, 1995));
+		return builder.build();
+	}
+
+	@Test
+	void testBuilderRejectsRowsOutOfOrder() {
+		RatingsIndex.Builder builder = new RatingsIndex.Builder();
+		builder.add(new MovieRating(10, "Heat", 8.3f, 700000, 1995));
+		assertThrows(IllegalArgumentException.class,
+				() -> builder.add(new MovieRating(11, "Se7en", 8.6f, 1800000, 1995)));
+		assertThrows(IllegalArgumentException.class,
+				() -> builder.add(new MovieRating(1, "The Shawshank Redemption", 9.3f, 2200000, 1994)));
+	}
+
+	@Test
+	void testReturnsHighestRatedFirst() {
+		index = sampleIndex();
+		List<MovieRating> movies = index.getRatingsByYear(1995, 10, 1000);
+		assertEquals(4, movies.size(), "Jumanji has too few votes");
+		assertEquals("Se7en", movies.get(0).getTitle());
+		assertEquals("Heat", movies.get(1).getTitle());
+		assertEquals("Toy Story", movies.get(2).getTitle());
+		assertEquals("Casino", movies.get(3).getTitle());
+	}
+
+	@Test
+	void testStopsAtLimit() {
+		index = sampleIndex();
+		List<MovieRating> movies = index.getRatingsByYear(1995, 2, 1000);
+		assertEquals(2, movies.size());
+		assertEquals(11, movies.get(0).getId());
+	}
+
+	@Test
+	void testSkipsMoviesUnderVoteThreshold() {
+		index = sampleIndex();
+		List<MovieRating> movies = index.getRatingsByYear(1995, 10, 800000);
+		assertEquals(2, movies.size());
+		assertEquals("Toy Story", movies.get(1).getTitle());
+	}
+
+	@Test
+	void testUnknownYearIsEmpty() {
+		index = sampleIndex();
+		assertTrue(index.getRatingsByYear(1800, 10, 0).isEmpty());
+		assertTrue(index.getRatingsByYear(2100, 10, 0).isEmpty());
+		assertEquals(2, index.yearCount());
+		assertEquals(6, index.size());
+	}
+
+	@Test
+	void testMatchesDatabase() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		MovieDAO movieDAO = new MovieDAO();
+		index = movieDAO.buildRatingsIndex();
+		assertEquals(5, index.size());
+		for (int year : new int[] { 1957, 1972, 1974, 1994, 2008 }) {
+			List<MovieRating> expected = movieDAO.getRatingsByYear(year, 50, 1000);
+			List<MovieRating> actual = index.getRatingsByYear(year, 50, 1000);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getId(), actual.get(i).getId());
+				assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+				assertEquals(expected.get(i).getRating(), actual.get(i).getRating());
+				assertEquals(expected.get(i).getVotes(), actual.get(i).getVotes());
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (seeder != null) {
+			seeder.closeConnection();
+		}
+	}
+
+}
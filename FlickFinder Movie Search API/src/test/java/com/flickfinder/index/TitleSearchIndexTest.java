@@ -0,0 +1,117 @@
+package com.flickfinder.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Tests for the in-memory trigram index over movie titles.
+ */
+class TitleSearchIndexTest {
+
+	private Seeder seeder;
+
+	private TitleSearchIndex sampleIndex() {
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		builder.add(new Movie(1, "Star Wars", 1977));
+		builder.add(new Movie(2, "Lone Star", 1996));
+		builder.add(new Movie(3, "Stargate", 1994));
+		builder.add(new Movie(4, "A Star Is Born", 1954));
+		builder.add(new Movie(5, "Mustard", 2001));
+		builder.add(new Movie(6, "Star", 2002));
+		builder.add(new Movie(7, "Abcd Bcde", 2003));
+		return builder.build();
+	}
+
+	private static List<Integer> ids(List<Movie> movies) {
+		return movies.stream().map(Movie::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void testBuilderRejectsRowsOutOfOrder() {
+		TitleSearchIndex.Builder builder = new TitleSearchIndex.Builder();
+		builder.add(new Movie(2, "Heat", 1995));
+		assertThrows(IllegalArgumentException.class, () -> builder.add(new Movie(1, "Se7en", 1995)));
+	}
+
+	@Test
+	void testRanksExactThenPrefixThenWordThenSubstring() {
+		List<Movie> movies = sampleIndex().search("star", 10);
+		// Star, then prefixes by length, then word starts by length, then Mustard
+		assertEquals(List.of(6, 3, 1, 2, 4, 5), ids(movies));
+	}
+
+	@Test
+	void testIgnoresCase() {
+		assertEquals(List.of(3), ids(sampleIndex().search("STARGATE", 10)));
+	}
+
+	@Test
+	void testStopsAtLimit() {
+		assertEquals(List.of(6, 3), ids(sampleIndex().search("star", 2)));
+	}
+
+	@Test
+	void testShortQueryScansAllTitles() {
+		// Lone Star has "ne" inside a word, as does nothing else
+		assertEquals(List.of(2), ids(sampleIndex().search("ne", 10)));
+		assertEquals(List.of(4), ids(sampleIndex().search("a ", 10)));
+	}
+
+	@Test
+	void testDropsCandidatesThatOnlyShareTrigrams() {
+		// "Abcd Bcde" holds abc, bcd and cde but not "abcde"
+		assertTrue(sampleIndex().search("abcde", 10).isEmpty());
+		assertEquals(List.of(7), ids(sampleIndex().search("bcd", 10)));
+	}
+
+	@Test
+	void testUnknownTrigramIsEmpty() {
+		assertTrue(sampleIndex().search("zzz", 10).isEmpty());
+	}
+
+	@Test
+	void testCompressesPostings() {
+		TitleSearchIndex index = sampleIndex();
+		assertEquals(7, index.size());
+		assertTrue(index.trigramCount() > 0);
+		// every gap in this small index fits in one byte
+		int postings = 0;
+		for (String title : List.of("star wars", "lone star", "stargate", "a star is born", "mustard", "star",
+				"abcd bcde")) {
+			postings += TitleSearchIndex.trigrams(title).length;
+		}
+		assertEquals(postings, index.postingBytes());
+	}
+
+	@Test
+	void testMatchesDatabase() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		MovieDAO movieDAO = new MovieDAO();
+		TitleSearchIndex index = movieDAO.buildTitleSearchIndex();
+		for (String query : List.of("the", "godfather", "GOD", "an", "e", "knight", "men", "nothing")) {
+			assertEquals(ids(movieDAO.searchMovies(query, 10)), ids(index.search(query, 10)), query);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (seeder != null) {
+			seeder.closeConnection();
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.flickfinder.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.model.PersonDetails;
+import com.flickfinder.model.Rating;
+import com.flickfinder.model.SeparationPath;
+
+import io.javalin.json.JavalinJackson;
+
+/**
+ * Tests that the hand-written serializers write exactly what Jackson's bean
+ * serializers write.
+ */
+class ModelModuleTest {
+
+	private final ObjectMapper beans = JavalinJackson.defaultMapper();
+
+	private final ObjectMapper model = ModelModule.mapper();
+
+	@Test
+	void testMovies() throws JsonProcessingException {
+		assertSame(new Movie(1, "The Shawshank Redemption", 1994));
+		assertSame(new Movie(2, null, 0));
+		assertSame(new Movie(-3, "Quotes \" back\\slash </script> \u00e9\u4e2d\ud83c\udfac \n\t\u0001", 2024));
+		assertSame(Arrays.asList(new Movie(1, "A", 1), null, new Movie(2, "B", 2)));
+	}
+
+	@Test
+	void testMovieRatings() throws JsonProcessingException {
+		assertSame(new MovieRating(1, "The Shawshank Redemption", 9.3f, 2_000_000, 1994));
+		assertSame(new MovieRating(2, null, Float.NaN, 0, 1972));
+		assertSame(new MovieRating(3, "x", Float.POSITIVE_INFINITY, -1, 1));
+		assertSame(new MovieRating(4, "x", 1e-10f, Integer.MAX_VALUE, Integer.MIN_VALUE));
+	}
+
+	@Test
+	void testPeople() throws JsonProcessingException {
+		assertSame(new Person(1, "Tim Robbins", 1958));
+		assertSame(new Person(2, null, 0));
+		assertSame(new Rating(8.7f, 12));
+	}
+
+	@Test
+	void testDetails() throws JsonProcessingException {
+		MovieDetails bare = new MovieDetails(new Movie(1, null, 1994));
+		assertSame(bare);
+
+		MovieDetails full = new MovieDetails(new Movie(1, "The Shawshank Redemption", 1994));
+		full.setStars(Arrays.asList(new Person(1, "Tim Robbins", 1958), null, new Person(2, null, 0)));
+		full.setRating(new Rating(Float.NaN, 3));
+		assertSame(full);
+
+		MovieDetails noStars = new MovieDetails(new Movie(2, "The Godfather", 1972));
+		noStars.setStars(List.of());
+		assertSame(noStars);
+
+		PersonDetails person = new PersonDetails(new Person(1, null, 1958));
+		assertSame(person);
+		person.setMovies(List.of(new Movie(1, "The Shawshank Redemption", 1994), full));
+		assertSame(person);
+	}
+
+	@Test
+	void testLeavesOtherClassesAlone() throws JsonProcessingException {
+		assertSame(new SeparationPath(List.of(new Person(1, "A", 1), new Person(2, "B", 2)),
+				List.of(new Movie(1, "M", 2000))));
+	}
+
+	@Test
+	void testRandomRatings() throws JsonProcessingException {
+		Random random = new Random(42);
+		List<MovieRating> ratings = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int c = random.nextInt(40); c > 0; c--) {
+				title.append((char) random.nextInt(0x3000));
+			}
+			ratings.add(new MovieRating(random.nextInt(), title.toString(), Float.intBitsToFloat(random.nextInt()),
+					random.nextInt(), random.nextInt()));
+		}
+		assertSame(ratings);
+	}
+
+	private void assertSame(Object value) throws JsonProcessingException {
+		assertEquals(beans.writeValueAsString(value), model.writeValueAsString(value));
+	}
+
+}
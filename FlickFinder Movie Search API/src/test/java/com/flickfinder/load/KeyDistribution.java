@@ -0,0 +1,46 @@
+package com.flickfinder.load;
+
+import java.util.Random;
+
+import com.flickfinder.util.ZipfSampler;
+
+/**
+ * Picks the keys that fill a route, e.g. movie ids, out of the keys that
+ * exist in the database.
+ *
+ * With a Zipfian skew the first key is the most requested, the second is
+ * requested half as often with an exponent of 1, and so on, like the few
+ * popular titles that take most of the traffic of a real site.
+ */
+class KeyDistribution {
+
+	private final int[] keys;
+
+	private final ZipfSampler zipf;
+
+	/**
+	 * Creates a distribution.
+	 *
+	 * @param keys     the keys, most popular first
+	 * @param exponent the Zipf exponent, or 0 to draw uniformly
+	 */
+	KeyDistribution(int[] keys, double exponent) {
+		if (keys.length == 0) {
+			throw new IllegalArgumentException("There are no keys to draw from");
+		}
+		this.keys = keys;
+		this.zipf = (exponent > 0) ? new ZipfSampler(keys.length, exponent) : null;
+	}
+
+	/**
+	 * Draws a key.
+	 *
+	 * @param random the source of randomness
+	 * @return the key
+	 */
+	int next(Random random) {
+		int index = (zipf == null) ? random.nextInt(keys.length) : zipf.sample(random) - 1;
+		return keys[index];
+	}
+
+}
@@ -0,0 +1,448 @@
+package com.flickfinder.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.flickfinder.AppConfig;
+import com.flickfinder.ServerOptions;
+import com.flickfinder.util.DatasetGenerator;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.PoolConfig;
+import com.flickfinder.util.SchemaOptimizer;
+
+import io.javalin.Javalin;
+
+/**
+ * Sends a mix of requests to a running server and reports the latency
+ * percentiles and throughput of each route.
+ *
+ * In closed-loop mode a fixed number of connections each send a request as
+ * soon as the last one is answered, which finds the throughput the server
+ * can sustain. In open-loop mode requests start at a constant rate whatever
+ * the server does, and each one is timed from when it was due to start
+ * rather than when it was sent. A server that stalls for a second is then
+ * charged a second for every request that should have gone out meanwhile,
+ * instead of the handful that were in flight: the coordinated omission a
+ * closed loop suffers from.
+ *
+ * Latencies are recorded in microseconds in an HdrHistogram per route. Only
+ * requests due after the warm-up and before the end are counted; requests
+ * still in flight at the end are waited for.
+ *
+ * Run from the command line, {@link #main(String[])} generates a dataset,
+ * starts the server in this JVM and runs the test against it, e.g.
+ * mvn -P load test-compile exec:exec -Dload.args="load.mode=open load.rate=2000"
+ */
+public class LoadGenerator {
+
+	private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class.getName());
+
+	/**
+	 * The longest latency the histograms track.
+	 */
+	private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private final LoadOptions options;
+
+	private final URI base;
+
+	private final RouteMix mix;
+
+	private final KeyDistribution movies;
+
+	private final KeyDistribution people;
+
+	private final KeyDistribution years;
+
+	private final ConcurrentHistogram[] histograms;
+
+	private final LongAdder[] errors;
+
+	private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+	private volatile long measureFrom;
+
+	private volatile long measureUntil;
+
+	/**
+	 * The latencies of one route.
+	 */
+	public static final class RouteResult {
+
+		private final String route;
+
+		private final Histogram histogram;
+
+		private final long errors;
+
+		private final double seconds;
+
+		RouteResult(String route, Histogram histogram, long errors, double seconds) {
+			this.route = route;
+			this.histogram = histogram;
+			this.errors = errors;
+			this.seconds = seconds;
+		}
+
+		public String getRoute() {
+			return route;
+		}
+
+		/**
+		 * Returns the latencies, in microseconds.
+		 *
+		 * @return the histogram
+		 */
+		public Histogram getHistogram() {
+			return histogram;
+		}
+
+		public long getCount() {
+			return histogram.getTotalCount();
+		}
+
+		/**
+		 * Returns the number of requests that failed or were not answered
+		 * with 200.
+		 *
+		 * @return the number of errors
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Returns the requests per second over the measured period.
+		 *
+		 * @return the throughput
+		 */
+		public double getThroughput() {
+			return histogram.getTotalCount() / seconds;
+		}
+
+	}
+
+	/**
+	 * Creates a load generator for a server.
+	 *
+	 * @param options  the settings
+	 * @param base     the server, e.g. http://localhost:8000
+	 * @param movieIds the movie ids {movie} is filled with, most popular first
+	 * @param personIds the person ids {person} is filled with, most popular
+	 *                 first
+	 * @param years    the years {year} is filled with, most popular first
+	 */
+	public LoadGenerator(LoadOptions options, URI base, int[] movieIds, int[] personIds, int[] years) {
+		this.options = options;
+		this.base = base;
+		this.mix = new RouteMix(options.getMix());
+		double exponent = options.isZipf() ? options.getZipfExponent() : 0;
+		this.movies = new KeyDistribution(movieIds, exponent);
+		this.people = new KeyDistribution(personIds, exponent);
+		this.years = new KeyDistribution(years, exponent);
+		int routes = mix.routes().size();
+		this.histograms = new ConcurrentHistogram[routes];
+		this.errors = new LongAdder[routes];
+		for (int i = 0; i < routes; i++) {
+			histograms[i] = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+			errors[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Runs the warm-up and the measured period.
+	 *
+	 * @return the results, one per route in mix order
+	 * @throws InterruptedException if interrupted while waiting for requests
+	 */
+	public List<RouteResult> run() throws InterruptedException {
+		long start = System.nanoTime();
+		measureFrom = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+		measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+		LOGGER.info("Sending " + options.getMode().name().toLowerCase() + "-loop load to " + base + " for "
+				+ options.getWarmupSeconds() + "s warm-up and " + options.getDurationSeconds() + "s measured");
+		if (options.getMode() == LoadOptions.Mode.OPEN) {
+			runOpen(start);
+		} else {
+			runClosed();
+		}
+		List<RouteResult> results = new ArrayList<>();
+		for (int i = 0; i < histograms.length; i++) {
+			results.add(new RouteResult(mix.routes().get(i), histograms[i].copy(), errors[i].sum(),
+					options.getDurationSeconds()));
+		}
+		return results;
+	}
+
+	private void runClosed() throws InterruptedException {
+		Thread[] workers = new Thread[options.getConnections()];
+		for (int w = 0; w < workers.length; w++) {
+			Random random = new Random(options.getSeed() + w);
+			workers[w] = new Thread(() -> {
+				while (System.nanoTime() < measureUntil) {
+					int route = mix.next(random);
+					HttpRequest request = request(route, random);
+					long start = System.nanoTime();
+					int status;
+					try {
+						status = client.send(request, BodyHandlers.discarding()).statusCode();
+					} catch (IOException e) {
+						status = -1;
+					} catch (InterruptedException e) {
+						return;
+					}
+					record(route, start, status);
+				}
+			}, "load-" + w);
+			workers[w].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+	private void runOpen(long start) throws InterruptedException {
+		Random random = new Random(options.getSeed());
+		Semaphore inFlight = new Semaphore(options.getMaxInFlight());
+		double interval = 1e9 / options.getRate();
+		for (long i = 0;; i++) {
+			long due = start + (long) (i * interval);
+			if (due >= measureUntil) {
+				break;
+			}
+			long wait = due - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			int route = mix.next(random);
+			HttpRequest request = request(route, random);
+			inFlight.acquire();
+			client.sendAsync(request, BodyHandlers.discarding()).whenComplete((response, error) -> {
+				record(route, due, (error == null) ? response.statusCode() : -1);
+				inFlight.release();
+			});
+		}
+		if (!inFlight.tryAcquire(options.getMaxInFlight(), 1, TimeUnit.MINUTES)) {
+			LOGGER.warning("Gave up waiting for requests still in flight after a minute");
+		}
+	}
+
+	private HttpRequest request(int route, Random random) {
+		String path = mix.routes().get(route);
+		if (path.contains("{movie}")) {
+			path = path.replace("{movie}", Integer.toString(movies.next(random)));
+		}
+		if (path.contains("{person}")) {
+			path = path.replace("{person}", Integer.toString(people.next(random)));
+		}
+		if (path.contains("{year}")) {
+			path = path.replace("{year}", Integer.toString(years.next(random)));
+		}
+		return HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+	}
+
+	/**
+	 * Records a request that was due at start and has just been answered, if
+	 * it was due in the measured period.
+	 */
+	private void record(int route, long start, int status) {
+		if (start < measureFrom || start >= measureUntil) {
+			return;
+		}
+		long micros = (System.nanoTime() - start) / 1000;
+		histograms[route].recordValue(Math.min(micros, HIGHEST_MICROS));
+		if (status != 200) {
+			errors[route].increment();
+		}
+	}
+
+	/**
+	 * Prints a table of the results and their total, in milliseconds.
+	 *
+	 * @param results the results
+	 * @param out     where to print
+	 */
+	public static void print(List<RouteResult> results, PrintStream out) {
+		String format = "%-32s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n";
+		out.printf(format, "route", "requests", "errors", "req/s", "mean ms", "p50", "p90", "p99", "p99.9", "max");
+		for (String[] row : rows(results)) {
+			out.printf(format, (Object[]) row);
+		}
+	}
+
+	/**
+	 * Writes the summary as CSV and the full percentile distribution of each
+	 * route, which HdrHistogram's plotter reads.
+	 *
+	 * @param results the results
+	 * @param dir     the directory to write to
+	 * @param mode    the mode of the run, which prefixes the file names
+	 * @throws IOException if a file cannot be written
+	 */
+	public static void write(List<RouteResult> results, Path dir, LoadOptions.Mode mode) throws IOException {
+		Files.createDirectories(dir);
+		String prefix = mode.name().toLowerCase();
+		try (PrintStream csv = new PrintStream(Files.newOutputStream(dir.resolve(prefix + "-summary.csv")))) {
+			csv.println("route,requests,errors,req_per_s,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+			for (String[] row : rows(results)) {
+				csv.println(String.join(",", row));
+			}
+		}
+		for (RouteResult result : results) {
+			String name = result.getRoute().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "");
+			Path file = dir.resolve(prefix + "-" + name + ".hgrm");
+			try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+				result.getHistogram().outputPercentileDistribution(out, 1000.0);
+			}
+		}
+	}
+
+	private static List<String[]> rows(List<RouteResult> results) {
+		List<String[]> rows = new ArrayList<>();
+		Histogram total = new Histogram(HIGHEST_MICROS, 3);
+		long totalErrors = 0;
+		double totalThroughput = 0;
+		for (RouteResult result : results) {
+			rows.add(row(result.getRoute(), result.getHistogram(), result.getErrors(), result.getThroughput()));
+			total.add(result.getHistogram());
+			totalErrors += result.getErrors();
+			totalThroughput += result.getThroughput();
+		}
+		rows.add(row("total", total, totalErrors, totalThroughput));
+		return rows;
+	}
+
+	private static String[] row(String route, Histogram h, long errors, double throughput) {
+		return new String[] { route, Long.toString(h.getTotalCount()), Long.toString(errors),
+				String.format("%.1f", throughput), millis(h.getMean()), millis(h.getValueAtPercentile(50)),
+				millis(h.getValueAtPercentile(90)), millis(h.getValueAtPercentile(99)),
+				millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()) };
+	}
+
+	private static String millis(double micros) {
+		return String.format("%.3f", micros / 1000);
+	}
+
+	/**
+	 * Reads the first column of a query into an array.
+	 *
+	 * @param conn the connection
+	 * @param sql  the query
+	 * @return the values
+	 * @throws SQLException if the query fails
+	 */
+	static int[] keys(Connection conn, String sql) throws SQLException {
+		List<Integer> keys = new ArrayList<>();
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			while (rs.next()) {
+				keys.add(rs.getInt(1));
+			}
+		}
+		return keys.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Returns the generated dataset for the options, generating it unless a
+	 * run with the same size and seed already did.
+	 */
+	private static Path dataset(LoadOptions options) throws SQLException, IOException {
+		Path file = Paths.get("target", "load-" + options.getMovies() + "-" + options.getSeed() + ".db");
+		if (Files.exists(file)) {
+			return file;
+		}
+		Files.createDirectories(file.getParent());
+		Path partial = Paths.get(file + ".partial");
+		Files.deleteIfExists(partial);
+		DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite:" + partial, options.getSeed());
+		try {
+			generator.setMovies(options.getMovies());
+			generator.generate();
+		} finally {
+			generator.closeConnection();
+		}
+		Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+		return file;
+	}
+
+	/**
+	 * Runs a load test against a server started in this JVM.
+	 *
+	 * Each argument is a system property, name=value. The load.* properties
+	 * are read by {@link LoadOptions#fromSystemProperties()}; the
+	 * flickfinder.* properties configure the server and its connection pool
+	 * as they would for {@link com.flickfinder.Main}.
+	 *
+	 * @param args system properties, e.g. load.mode=open load.rate=2000
+	 * @throws Exception if the dataset, server or test fails
+	 */
+	public static void main(String[] args) throws Exception {
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 1) {
+				System.err.println("Expected name=value, got " + arg);
+				System.exit(2);
+			}
+			System.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		LoadOptions options = LoadOptions.fromSystemProperties();
+		Path db = (options.getDb() != null) ? Paths.get(options.getDb()) : dataset(options);
+		String url = "jdbc:sqlite:" + db;
+
+		int[] movieIds;
+		int[] personIds;
+		int[] years;
+		try (Connection conn = DriverManager.getConnection(url)) {
+			movieIds = keys(conn, "SELECT id FROM movies ORDER BY id");
+			// only people with movies, so that /people/{person}/movies is never a 404
+			personIds = keys(conn, "SELECT DISTINCT person_id FROM stars ORDER BY person_id");
+			years = keys(conn, "SELECT DISTINCT year FROM movies WHERE year IS NOT NULL ORDER BY year DESC");
+		}
+
+		// as Main does, so that the server is measured with the indexes it gets
+		if (!"false".equals(System.getProperty("flickfinder.optimizeSchema"))) {
+			SchemaOptimizer.optimize(url);
+		}
+		if (Boolean.getBoolean("flickfinder.pool")) {
+			Database.getPooledInstance(url, PoolConfig.fromSystemProperties());
+		} else {
+			Database.getInstance(url);
+		}
+		Javalin app = AppConfig.startServer(0, ServerOptions.fromSystemProperties());
+		try {
+			URI base = URI.create("http://localhost:" + app.port());
+			List<RouteResult> results = new LoadGenerator(options, base, movieIds, personIds, years).run();
+			print(results, System.out);
+			if (options.getReportDir() != null) {
+				write(results, Paths.get(options.getReportDir()), options.getMode());
+			}
+		} finally {
+			app.stop();
+		}
+		System.exit(0);
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.flickfinder.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.AppConfig;
+import com.flickfinder.ServerOptions;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.Javalin;
+
+/**
+ * Tests for the load generator, run briefly against the seeded database.
+ */
+class LoadGeneratorTest {
+
+	private static final String MIX = "/movies:1,/movies/{movie}:2,/movies/ratings/{year}:1,/people/{person}/movies:1";
+
+	private Seeder seeder;
+
+	private Javalin app;
+
+	private URI base;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		app = AppConfig.startServer(0, new ServerOptions());
+		base = URI.create("http://localhost:" + app.port());
+	}
+
+	private LoadGenerator generator(LoadOptions options) {
+		options.setMix(MIX);
+		options.setWarmupSeconds(0);
+		options.setDurationSeconds(1);
+		return new LoadGenerator(options, base, new int[] { 1, 2, 3, 4, 5 }, new int[] { 1, 2, 4, 5 },
+				new int[] { 1994 });
+	}
+
+	@Test
+	void testClosedLoopRequestsEveryRoute() throws InterruptedException {
+		LoadOptions options = new LoadOptions();
+		options.setConnections(2);
+
+		List<LoadGenerator.RouteResult> results = generator(options).run();
+
+		assertEquals(4, results.size());
+		for (LoadGenerator.RouteResult result : results) {
+			assertTrue(result.getCount() > 0, result.getRoute());
+			assertEquals(0, result.getErrors(), result.getRoute());
+		}
+	}
+
+	@Test
+	void testOpenLoopSendsAtTheRate() throws InterruptedException {
+		LoadOptions options = new LoadOptions();
+		options.setMode(LoadOptions.Mode.OPEN);
+		options.setRate(100);
+
+		List<LoadGenerator.RouteResult> results = generator(options).run();
+
+		long total = results.stream().mapToLong(LoadGenerator.RouteResult::getCount).sum();
+		assertEquals(100, total);
+		assertEquals(0, results.stream().mapToLong(LoadGenerator.RouteResult::getErrors).sum());
+	}
+
+	@Test
+	void testRouteMixFollowsTheWeights() {
+		RouteMix mix = new RouteMix("/movies:3, /people/{person}/movies");
+		Random random = new Random(1);
+		int movies = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (mix.next(random) == 0) {
+				movies++;
+			}
+		}
+
+		assertEquals(List.of("/movies", "/people/{person}/movies"), mix.routes());
+		assertEquals(7500, movies, 300);
+	}
+
+	@Test
+	void testRouteMixRejectsBadWeights() {
+		assertThrows(IllegalArgumentException.class, () -> new RouteMix("/movies:0"));
+		assertThrows(IllegalArgumentException.class, () -> new RouteMix(" , "));
+		assertThrows(NumberFormatException.class, () -> new RouteMix("/movies:x"));
+	}
+
+	@Test
+	void testZipfianKeysFavourTheFirst() {
+		KeyDistribution keys = new KeyDistribution(new int[] { 10, 20, 30, 40 }, 1.0);
+		Random random = new Random(1);
+		int first = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (keys.next(random) == 10) {
+				first++;
+			}
+		}
+		// 1 / (1 + 1/2 + 1/3 + 1/4) = 48%
+		assertEquals(4800, first, 300);
+	}
+
+	@AfterEach
+	void tearDown() {
+		app.stop();
+		seeder.closeConnection();
+	}
+
+}
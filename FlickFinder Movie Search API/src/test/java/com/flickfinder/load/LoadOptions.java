@@ -0,0 +1,212 @@
+package com.flickfinder.load;
+
+/**
+ * The settings of a load test run by {@link LoadGenerator}.
+ *
+ */
+public class LoadOptions {
+
+	/**
+	 * How requests are sent.
+	 */
+	public enum Mode {
+
+		/**
+		 * A fixed number of connections, each sending its next request as soon
+		 * as the last one is answered. Latency is the time each request took.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests start at a constant rate whether or not earlier ones have
+		 * been answered. Latency is measured from when a request was due to
+		 * start, so a stalled server is charged for every request it held up.
+		 */
+		OPEN
+
+	}
+
+	/**
+	 * The size of the generated dataset, when no database file is given.
+	 */
+	private int movies = 100_000;
+
+	/**
+	 * The database file to serve, or null to generate one.
+	 */
+	private String db;
+
+	/**
+	 * The seed of the generated dataset and of the requests.
+	 */
+	private long seed = 42;
+
+	private Mode mode = Mode.CLOSED;
+
+	/**
+	 * How many requests are sent at once in closed-loop mode.
+	 */
+	private int connections = 16;
+
+	/**
+	 * The requests per second in open-loop mode.
+	 */
+	private int rate = 500;
+
+	/**
+	 * How many requests may be unanswered at once in open-loop mode before
+	 * new ones wait. They are still timed from when they were due.
+	 */
+	private int maxInFlight = 1024;
+
+	private int warmupSeconds = 5;
+
+	private int durationSeconds = 30;
+
+	/**
+	 * The routes and their weights, see {@link RouteMix}.
+	 */
+	private String mix = "/movies:1,/movies/{movie}:5,/movies/ratings/{year}:2,/people/{person}/movies:2";
+
+	/**
+	 * Whether ids are drawn with a Zipfian skew rather than uniformly.
+	 */
+	private boolean zipf = true;
+
+	private double zipfExponent = 1.0;
+
+	/**
+	 * Where the percentile distribution of each route is written, or null to
+	 * only print the summary.
+	 */
+	private String reportDir = "target/load-report";
+
+	/**
+	 * Reads the options from system properties, e.g. -Dload.mode=open or
+	 * -Dload.rate=2000.
+	 *
+	 * @return the load options
+	 */
+	public static LoadOptions fromSystemProperties() {
+		LoadOptions options = new LoadOptions();
+		options.setMovies(Integer.getInteger("load.movies", options.getMovies()));
+		options.setDb(System.getProperty("load.db"));
+		options.setSeed(Long.getLong("load.seed", options.getSeed()));
+		options.setMode(Mode.valueOf(System.getProperty("load.mode", "closed").toUpperCase()));
+		options.setConnections(Integer.getInteger("load.connections", options.getConnections()));
+		options.setRate(Integer.getInteger("load.rate", options.getRate()));
+		options.setMaxInFlight(Integer.getInteger("load.maxInFlight", options.getMaxInFlight()));
+		options.setWarmupSeconds(Integer.getInteger("load.warmup", options.getWarmupSeconds()));
+		options.setDurationSeconds(Integer.getInteger("load.duration", options.getDurationSeconds()));
+		options.setMix(System.getProperty("load.mix", options.getMix()));
+		options.setZipf(!System.getProperty("load.keys", "zipf").equalsIgnoreCase("uniform"));
+		options.setZipfExponent(Double.parseDouble(System.getProperty("load.zipfExponent", "1.0")));
+		options.setReportDir(System.getProperty("load.reportDir", options.getReportDir()));
+		return options;
+	}
+
+	public int getMovies() {
+		return movies;
+	}
+
+	public void setMovies(int movies) {
+		this.movies = movies;
+	}
+
+	public String getDb() {
+		return db;
+	}
+
+	public void setDb(String db) {
+		this.db = db;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	public int getConnections() {
+		return connections;
+	}
+
+	public void setConnections(int connections) {
+		this.connections = connections;
+	}
+
+	public int getRate() {
+		return rate;
+	}
+
+	public void setRate(int rate) {
+		this.rate = rate;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public int getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public void setWarmupSeconds(int warmupSeconds) {
+		this.warmupSeconds = warmupSeconds;
+	}
+
+	public int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public void setDurationSeconds(int durationSeconds) {
+		this.durationSeconds = durationSeconds;
+	}
+
+	public String getMix() {
+		return mix;
+	}
+
+	public void setMix(String mix) {
+		this.mix = mix;
+	}
+
+	public boolean isZipf() {
+		return zipf;
+	}
+
+	public void setZipf(boolean zipf) {
+		this.zipf = zipf;
+	}
+
+	public double getZipfExponent() {
+		return zipfExponent;
+	}
+
+	public void setZipfExponent(double zipfExponent) {
+		this.zipfExponent = zipfExponent;
+	}
+
+	public String getReportDir() {
+		return reportDir;
+	}
+
+	public void setReportDir(String reportDir) {
+		this.reportDir = reportDir;
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.flickfinder.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The routes a load test requests and how often, parsed from e.g.
+ * "/movies:1,/movies/{movie}:5". Each route is a path that may hold
+ * {movie}, {person} and {year}, which are filled in with a key for every
+ * request, followed by its weight.
+ */
+class RouteMix {
+
+	private final List<String> routes = new ArrayList<>();
+
+	/**
+	 * The running totals of the weights, in route order.
+	 */
+	private final int[] cumulative;
+
+	/**
+	 * Parses a mix.
+	 *
+	 * @param mix the routes and weights, separated by commas
+	 * @throws IllegalArgumentException if the mix is empty or a weight is not
+	 *                                  a positive integer
+	 */
+	RouteMix(String mix) {
+		List<Integer> weights = new ArrayList<>();
+		for (String part : mix.split(",")) {
+			String entry = part.trim();
+			if (entry.isEmpty()) {
+				continue;
+			}
+			int colon = entry.lastIndexOf(':');
+			int weight = 1;
+			if (colon > 0) {
+				weight = Integer.parseInt(entry.substring(colon + 1).trim());
+				entry = entry.substring(0, colon).trim();
+			}
+			if (weight < 1 || !entry.startsWith("/")) {
+				throw new IllegalArgumentException("Invalid route in mix: " + part);
+			}
+			routes.add(entry);
+			weights.add(weight);
+		}
+		if (routes.isEmpty()) {
+			throw new IllegalArgumentException("The mix has no routes");
+		}
+		cumulative = new int[weights.size()];
+		int total = 0;
+		for (int i = 0; i < cumulative.length; i++) {
+			total += weights.get(i);
+			cumulative[i] = total;
+		}
+	}
+
+	/**
+	 * Draws a route by weight.
+	 *
+	 * @param random the source of randomness
+	 * @return the index of the route
+	 */
+	int next(Random random) {
+		int r = random.nextInt(cumulative[cumulative.length - 1]);
+		for (int i = 0; i < cumulative.length; i++) {
+			if (r < cumulative[i]) {
+				return i;
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * Returns the routes, in the order they were given.
+	 *
+	 * @return the routes
+	 */
+	List<String> routes() {
+		return routes;
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.flickfinder.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+
+class MetricsTest {
+
+	Metrics metrics;
+
+	@BeforeEach
+	void setUp() {
+		metrics = new Metrics();
+	}
+
+	@Test
+	void places_durations_in_cumulative_buckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+		histogram.record(TimeUnit.SECONDS.toNanos(20));
+		long[] counts = histogram.cumulativeCounts();
+		assertEquals(LatencyHistogram.BOUNDS.length + 1, counts.length);
+		// 0.0005 includes its bound; 0.005 is the first above 3ms
+		assertArrayEquals(new long[] { 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 4 }, counts);
+		assertEquals(4, histogram.getCount());
+		assertEquals(20.0036, histogram.sumSeconds(), 1e-9);
+	}
+
+	@Test
+	void writes_histograms_in_the_text_format() {
+		metrics.getJsonSerialization().record(TimeUnit.MILLISECONDS.toNanos(2));
+		String text = metrics.scrape();
+		assertTrue(text.contains("# TYPE flickfinder_json_serialization_seconds histogram\n"));
+		assertTrue(text.contains("flickfinder_json_serialization_seconds_bucket{le=\"0.001\"} 0\n"));
+		assertTrue(text.contains("flickfinder_json_serialization_seconds_bucket{le=\"0.0025\"} 1\n"));
+		assertTrue(text.contains("flickfinder_json_serialization_seconds_bucket{le=\"+Inf\"} 1\n"));
+		assertTrue(text.contains("flickfinder_json_serialization_seconds_sum 0.002\n"));
+		assertTrue(text.contains("flickfinder_json_serialization_seconds_count 1\n"));
+	}
+
+	@Test
+	void writes_gauges_with_labels() {
+		metrics.gauge("test_things", "Things.", () -> 3, "kind", "a\"b");
+		metrics.gauge("test_things", "Things.", () -> 0.5, "kind", "c");
+		String text = metrics.scrape();
+		assertTrue(text.contains("# HELP test_things Things.\n# TYPE test_things gauge\n"
+				+ "test_things{kind=\"a\\\"b\"} 3\ntest_things{kind=\"c\"} 0.5\n"));
+		assertTrue(text.contains("jvm_memory_used_bytes{area=\"heap\"} "));
+		assertTrue(text.contains("jvm_threads{kind=\"all\"} "));
+	}
+
+	@Test
+	void rejects_a_name_registered_as_another_type() {
+		metrics.gauge("test_things", "Things.", () -> 1);
+		assertThrows(IllegalArgumentException.class, () -> metrics.counter("test_things", "Things.", () -> 1));
+		assertThrows(IllegalArgumentException.class, () -> metrics.gauge("test_other", "Other.", () -> 1, "kind"));
+	}
+
+	@Test
+	void times_dao_calls_and_counts_rows() throws Exception {
+		MovieDAO dao = new MovieDAO(null) {
+
+			@Override
+			public List<Movie> getMoviesByLimit(int limit) {
+				return List.of(new Movie(1, "A", 2000), new Movie(2, "B", 2001));
+			}
+
+			@Override
+			public Movie getMovieById(int id) {
+				return null;
+			}
+
+		};
+		MovieDAO timed = new TimedMovieDAO(dao, metrics);
+		assertEquals(2, timed.getMoviesByLimit(2).size());
+		timed.getMoviesByLimit(2);
+		timed.getMovieById(1000);
+		String text = metrics.scrape();
+		assertTrue(text.contains(
+				"flickfinder_dao_call_duration_seconds_count{dao=\"MovieDAO\",method=\"getMoviesByLimit\"} 2\n"));
+		assertTrue(text.contains("flickfinder_dao_rows_total{dao=\"MovieDAO\",method=\"getMoviesByLimit\"} 4\n"));
+		assertTrue(text.contains("flickfinder_dao_rows_total{dao=\"MovieDAO\",method=\"getMovieById\"} 0\n"));
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.flickfinder.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MovieDetailsTest {
+
+	@Test
+	public void testCopiesMovie() {
+		MovieDetails details = new MovieDetails(new Movie(1, "The Shawshank Redemption", 1994));
+		assertEquals(1, details.getId(), "ID should be 1");
+		assertEquals("The Shawshank Redemption", details.getTitle());
+		assertEquals(1994, details.getYear(), "Year should be 1994");
+		assertNull(details.getStars(), "Stars should not be set");
+		assertNull(details.getRating(), "Rating should not be set");
+	}
+
+	@Test
+	public void testRelationSetters() {
+		MovieDetails details = new MovieDetails(new Movie(1, "The Shawshank Redemption", 1994));
+		details.setStars(List.of(new Person(1, "Tim Robbins", 1958)));
+		details.setRating(new Rating(9.3f, 2200000));
+		assertEquals("Tim Robbins", details.getStars().get(0).getName());
+		assertEquals(9.3f, details.getRating().getRating(), 0.01, "Rating should be 9.3");
+		assertEquals(2200000, details.getRating().getVotes(), "Votes should be 2,200,000");
+	}
+
+	@Test
+	public void testLeavesOutUnsetRelations() throws JsonProcessingException {
+		MovieDetails details = new MovieDetails(new Movie(1, "The Shawshank Redemption", 1994));
+		details.setRating(new Rating(9.3f, 2200000));
+		String json = new ObjectMapper().writeValueAsString(details);
+		assertFalse(json.contains("stars"), json);
+		assertTrue(json.contains("\"votes\":2200000"), json);
+	}
+}
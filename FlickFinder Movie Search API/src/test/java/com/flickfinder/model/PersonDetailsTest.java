@@ -0,0 +1,27 @@
+package com.flickfinder.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PersonDetailsTest {
+
+	@Test
+	public void testCopiesPerson() {
+		PersonDetails details = new PersonDetails(new Person(4, "Al Pacino", 1940));
+		assertEquals(4, details.getId(), "ID should be 4");
+		assertEquals("Al Pacino", details.getName());
+		assertEquals(1940, details.getBirth(), "Birth should be 1940");
+		assertNull(details.getMovies(), "Movies should not be set");
+	}
+
+	@Test
+	public void testMoviesSetter() {
+		PersonDetails details = new PersonDetails(new Person(4, "Al Pacino", 1940));
+		details.setMovies(List.of(new Movie(2, "The Godfather", 1972)));
+		assertEquals("The Godfather", details.getMovies().get(0).getTitle());
+	}
+}
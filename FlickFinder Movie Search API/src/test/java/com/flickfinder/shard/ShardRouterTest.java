@@ -0,0 +1,47 @@
+package com.flickfinder.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for routing years to shards.
+ */
+class ShardRouterTest {
+
+	@Test
+	void routes_each_year_to_the_shard_that_holds_it() {
+		ShardRouter router = new ShardRouter(new int[] { 1980, 2000 });
+		assertEquals(3, router.getShardCount());
+		assertEquals(0, router.shardOf(0));
+		assertEquals(0, router.shardOf(1979));
+		assertEquals(1, router.shardOf(1980));
+		assertEquals(1, router.shardOf(1999));
+		assertEquals(2, router.shardOf(2000));
+		assertEquals(2, router.shardOf(2024));
+	}
+
+	@Test
+	void writes_a_condition_per_shard() {
+		ShardRouter router = new ShardRouter(new int[] { 1980, 2000 });
+		assertEquals("(year IS NULL OR year < 1980)", router.condition(0, "year"));
+		assertEquals("(year >= 1980 AND year < 2000)", router.condition(1, "year"));
+		assertEquals("year >= 2000", router.condition(2, "year"));
+	}
+
+	@Test
+	void a_single_shard_holds_every_year() {
+		ShardRouter router = new ShardRouter(new int[0]);
+		assertEquals(1, router.getShardCount());
+		assertEquals(0, router.shardOf(1900));
+		assertEquals("1", router.condition(0, "year"));
+	}
+
+	@Test
+	void rejects_boundaries_out_of_order() {
+		assertThrows(IllegalArgumentException.class, () -> new ShardRouter(new int[] { 2000, 1980 }));
+		assertThrows(IllegalArgumentException.class, () -> new ShardRouter(new int[] { 1980, 1980 }));
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.flickfinder.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.QueryRunner;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieDetails;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.DatasetGenerator;
+import com.flickfinder.util.EntityCache;
+import com.flickfinder.util.PoolConfig;
+import com.flickfinder.util.SchemaOptimizer;
+
+/**
+ * Checks that a database split into year shards answers like the database
+ * itself.
+ */
+class ShardedMovieDAOTest {
+
+	private static final int[] BOUNDARIES = { 1980, 2000, 2015 };
+
+	@TempDir
+	Path dir;
+
+	Database home;
+
+	MovieDAO sqlDAO;
+
+	ShardedMovieDAO shardedDAO;
+
+	@BeforeEach
+	void setUp() throws SQLException, IOException {
+		Path file = dir.resolve("movies.db");
+		DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite:" + file, 11);
+		generator.setMovies(2000);
+		generator.generate();
+		generator.closeConnection();
+		// as Main does, so that both sides read through the same indexes and
+		// return rows the queries do not order in the same order
+		SchemaOptimizer.optimize("jdbc:sqlite:" + file);
+
+		home = Database.forPool(ConnectionPool.forSQLite("jdbc:sqlite:" + file, new PoolConfig()));
+		sqlDAO = new MovieDAO(new QueryRunner(home)) {
+		};
+		ShardSplitter.split(file, dir.resolve("shards"), new ShardRouter(BOUNDARIES));
+		shardedDAO = ShardedMovieDAO.open(dir.resolve("shards"), new PoolConfig());
+	}
+
+	@AfterEach
+	void tearDown() {
+		shardedDAO.close();
+		home.getPool().close();
+	}
+
+	@Test
+	void splits_the_movies_by_year() throws SQLException {
+		ShardManifest manifest = new ShardManifest(dir.resolve("shards"), new ShardRouter(BOUNDARIES), null);
+		int total = 0;
+		for (int shard = 0; shard < BOUNDARIES.length + 1; shard++) {
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + manifest.shardFile(shard));
+					Statement statement = connection.createStatement()) {
+				try (ResultSet rs = statement.executeQuery("SELECT count(*), min(year), max(year) FROM movies")) {
+					rs.next();
+					assertTrue(rs.getInt(1) > 0, "shard " + shard + " is empty");
+					total += rs.getInt(1);
+					assertEquals(shard, new ShardRouter(BOUNDARIES).shardOf(rs.getInt(2)));
+					assertEquals(shard, new ShardRouter(BOUNDARIES).shardOf(rs.getInt(3)));
+				}
+				try (ResultSet rs = statement.executeQuery(
+						"SELECT count(*) FROM stars WHERE movie_id NOT IN (SELECT id FROM movies)")) {
+					rs.next();
+					assertEquals(0, rs.getInt(1));
+				}
+			}
+		}
+		assertEquals(2000, total);
+	}
+
+	@Test
+	void pages_match_the_database() throws SQLException {
+		assertEquals(sqlDAO.getMoviesByLimit(50).toString(), shardedDAO.getMoviesByLimit(50).toString());
+		assertEquals(sqlDAO.getMoviesAfter(700, 25).toString(), shardedDAO.getMoviesAfter(700, 25).toString());
+		assertEquals(sqlDAO.getMoviesAfter(1990, 25).toString(), shardedDAO.getMoviesAfter(1990, 25).toString());
+		assertEquals(sqlDAO.getAllMovies().toString(), shardedDAO.getAllMovies().toString());
+	}
+
+	@Test
+	void streamed_pages_match_the_database() throws SQLException, IOException {
+		for (int afterId : new int[] { Integer.MIN_VALUE, 700, 1990, 2000 }) {
+			List<Movie> streamed = new ArrayList<>();
+			int count = shardedDAO.streamMoviesAfter(afterId, 25, streamed::add);
+			assertEquals(sqlDAO.getMoviesAfter(afterId, 25).toString(), streamed.toString());
+			assertEquals(streamed.size(), count);
+			assertEquals(sqlDAO.getLastMovieIdOfPage(afterId, 25), shardedDAO.getLastMovieIdOfPage(afterId, 25));
+		}
+		assertEquals(1025, shardedDAO.getLastMovieIdOfPage(1000, 25));
+		assertNull(shardedDAO.getLastMovieIdOfPage(1990, 25));
+	}
+
+	@Test
+	void streaming_returns_the_connections_when_the_callback_fails() throws SQLException, IOException {
+		shardedDAO.close();
+		PoolConfig config = new PoolConfig();
+		config.setMaxSize(1);
+		config.setAcquireTimeoutMillis(1000);
+		shardedDAO = ShardedMovieDAO.open(dir.resolve("shards"), config);
+		for (int i = 0; i < 3; i++) {
+			assertThrows(IOException.class, () -> shardedDAO.streamMoviesAfter(0, 25, movie -> {
+				throw new IOException("client went away");
+			}));
+		}
+		List<Movie> streamed = new ArrayList<>();
+		shardedDAO.streamMoviesAfter(0, 25, streamed::add);
+		assertEquals(25, streamed.size());
+	}
+
+	@Test
+	void lookups_by_id_match_the_database() throws SQLException {
+		for (int id : new int[] { 1, 5, 333, 1500, 2000 }) {
+			assertEquals(sqlDAO.getMovieById(id).toString(), shardedDAO.getMovieById(id).toString());
+		}
+		assertNull(shardedDAO.getMovieById(2001));
+		int[] ids = { 1500, 3, 9999, 3, 777 };
+		assertEquals(sqlDAO.getMoviesByIds(ids).toString(), shardedDAO.getMoviesByIds(ids).toString());
+	}
+
+	@Test
+	void lookups_by_id_fill_and_use_the_cache() throws SQLException {
+		shardedDAO.setMovieCache(new EntityCache<>(100));
+		int[] ids = { 42, 1200, 42 };
+		List<Movie> first = shardedDAO.getMoviesByIds(ids);
+		assertEquals(sqlDAO.getMoviesByIds(ids).toString(), first.toString());
+		assertEquals(first.get(0).toString(), shardedDAO.getMovieById(42).toString());
+		assertTrue(shardedDAO.getMovieCache().getHitCount() > 0);
+	}
+
+	@Test
+	void stars_and_ratings_match_the_database() throws SQLException, IOException {
+		for (int id : new int[] { 1, 2, 640, 1800 }) {
+			assertEquals(sqlDAO.getPeopleByMovieId(id).toString(), shardedDAO.getPeopleByMovieId(id).toString());
+		}
+		List<Person> streamed = new ArrayList<>();
+		shardedDAO.streamPeopleByMovieId(1, streamed::add);
+		assertEquals(sqlDAO.getPeopleByMovieId(1).toString(), streamed.toString());
+
+		int[] ids = { 1, 2, 640, 1800, 1999 };
+		assertEquals(new TreeMap<>(sqlDAO.getStarsByMovieIds(ids)).toString(),
+				new TreeMap<>(shardedDAO.getStarsByMovieIds(ids)).toString());
+		assertEquals(new TreeMap<>(sqlDAO.getRatingsByMovieIds(ids)).toString(),
+				new TreeMap<>(shardedDAO.getRatingsByMovieIds(ids)).toString());
+	}
+
+	@Test
+	void ratings_by_year_match_the_database() throws SQLException {
+		for (int year : new int[] { 1950, 1980, 1999, 2000, 2020 }) {
+			assertEquals(ratings(sqlDAO.getRatingsByYear(year, 50, 0)),
+					ratings(shardedDAO.getRatingsByYear(year, 50, 0)));
+		}
+	}
+
+	@Test
+	void search_matches_the_database() throws SQLException {
+		String word = sqlDAO.getMovieById(1).getTitle().split(" ")[0].toLowerCase(Locale.ROOT);
+		for (String query : new String[] { word, "the", "a", "zzz" }) {
+			assertEquals(sqlDAO.searchMovies(query, 20).toString(), shardedDAO.searchMovies(query, 20).toString(),
+					query);
+		}
+	}
+
+	@Test
+	void indexes_match_the_database() throws SQLException {
+		String word = sqlDAO.getMovieById(7).getTitle().split(" ")[0];
+		assertEquals(sqlDAO.buildTitleSearchIndex().search(word, 30).toString(),
+				shardedDAO.buildTitleSearchIndex().search(word, 30).toString());
+		sqlDAO.setRatingsIndex(sqlDAO.buildRatingsIndex());
+		shardedDAO.setRatingsIndex(shardedDAO.buildRatingsIndex());
+		for (int year : new int[] { 1960, 1999, 2016 }) {
+			assertEquals(ratings(sqlDAO.getRatingsByYear(year, 20, 0)),
+					ratings(shardedDAO.getRatingsByYear(year, 20, 0)));
+		}
+	}
+
+	@Test
+	void the_movie_details_join_across_shards() throws SQLException {
+		List<MovieDetails> expected = sqlDAO.getMovieDetails(sqlDAO.getMoviesAfter(990, 20), true, true);
+		List<MovieDetails> details = shardedDAO.getMovieDetails(shardedDAO.getMoviesAfter(990, 20), true, true);
+		assertEquals(expected.size(), details.size());
+		for (int i = 0; i < details.size(); i++) {
+			assertEquals(expected.get(i).toString(), details.get(i).toString());
+			assertEquals(expected.get(i).getStars().toString(), details.get(i).getStars().toString());
+			assertEquals(String.valueOf(expected.get(i).getRating()), String.valueOf(details.get(i).getRating()));
+		}
+	}
+
+	private static List<String> ratings(List<MovieRating> movies) {
+		List<String> ratings = new ArrayList<>();
+		for (MovieRating movie : movies) {
+			ratings.add(movie.getId() + ":" + movie.getRating() + ":" + movie.getVotes());
+		}
+		return ratings;
+	}
+
+}
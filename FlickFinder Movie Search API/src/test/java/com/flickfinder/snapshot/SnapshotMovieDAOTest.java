@@ -0,0 +1,131 @@
+package com.flickfinder.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Checks that the snapshot-backed MovieDAO answers like the SQL one.
+ */
+class SnapshotMovieDAOTest {
+
+	@TempDir
+	Path dir;
+
+	Seeder seeder;
+
+	MovieDAO sqlDAO;
+
+	SnapshotMovieDAO snapshotDAO;
+
+	@BeforeEach
+	void setUp() throws SQLException, IOException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database database = Database.getInstance(seeder.getConnection());
+		sqlDAO = new MovieDAO();
+		Path file = dir.resolve("movies.snapshot");
+		new SnapshotWriter(database).write(file);
+		snapshotDAO = new SnapshotMovieDAO(Snapshot.open(file));
+	}
+
+	@Test
+	void testPagesMatchSQL() throws SQLException {
+		assertEquals(sqlDAO.getAllMovies().toString(), snapshotDAO.getAllMovies().toString());
+		assertEquals(sqlDAO.getMoviesByLimit(3).toString(), snapshotDAO.getMoviesByLimit(3).toString());
+		assertEquals(sqlDAO.getMoviesAfter(3, 50).toString(), snapshotDAO.getMoviesAfter(3, 50).toString());
+		assertEquals(0, snapshotDAO.getMoviesAfter(5, 50).size());
+		assertEquals(0, snapshotDAO.getMoviesByLimit(0).size());
+	}
+
+	@Test
+	void testStreamMatchesSQL() throws SQLException, IOException {
+		List<Movie> streamed = new ArrayList<>();
+		assertEquals(3, snapshotDAO.streamMoviesAfter(1, 3, streamed::add));
+		assertEquals(sqlDAO.getMoviesAfter(1, 3).toString(), streamed.toString());
+	}
+
+	@Test
+	void testGetMovieById() throws SQLException {
+		assertEquals(sqlDAO.getMovieById(3).toString(), snapshotDAO.getMovieById(3).toString());
+		assertNull(snapshotDAO.getMovieById(1000));
+	}
+
+	@Test
+	void testGetMoviesByIds() throws SQLException {
+		int[] ids = { 4, 1000, 2 };
+		assertEquals(sqlDAO.getMoviesByIds(ids).toString(), snapshotDAO.getMoviesByIds(ids).toString());
+	}
+
+	@Test
+	void testStarsMatchSQL() throws SQLException, IOException {
+		for (int id = 1; id <= 6; id++) {
+			assertEquals(sqlDAO.getPeopleByMovieId(id).toString(), snapshotDAO.getPeopleByMovieId(id).toString());
+		}
+		assertEquals(2, snapshotDAO.streamPeopleByMovieId(1, person -> {
+		}));
+		int[] ids = { 1, 2, 4 };
+		assertEquals(sqlDAO.getStarsByMovieIds(ids).toString(), snapshotDAO.getStarsByMovieIds(ids).toString());
+	}
+
+	@Test
+	void testRatingsMatchSQL() throws SQLException {
+		int[] ids = { 1, 5, 1000 };
+		assertEquals(sqlDAO.getRatingsByMovieIds(ids).toString(), snapshotDAO.getRatingsByMovieIds(ids).toString());
+		for (int year : new int[] { 1957, 1972, 1994, 2008, 2020 }) {
+			assertRatingsEqual(sqlDAO.getRatingsByYear(year, 10, 1000), snapshotDAO.getRatingsByYear(year, 10, 1000));
+		}
+		assertEquals(0, snapshotDAO.getRatingsByYear(1994, 10, 3000000).size());
+	}
+
+	@Test
+	void testRatingsIndexFromSnapshot() throws SQLException {
+		snapshotDAO.setRatingsIndex(snapshotDAO.buildRatingsIndex());
+		assertRatingsEqual(sqlDAO.getRatingsByYear(1972, 10, 1000), snapshotDAO.getRatingsByYear(1972, 10, 1000));
+	}
+
+	@Test
+	void testSearchMatchesSQL() throws SQLException {
+		assertEquals(sqlDAO.searchMovies("god", 10).toString(), snapshotDAO.searchMovies("god", 10).toString());
+		assertEquals(sqlDAO.searchMovies("the", 2).toString(), snapshotDAO.searchMovies("the", 2).toString());
+		assertNotNull(snapshotDAO.getTitleSearchIndex(), "Expected the index to be built on the first search");
+	}
+
+	@Test
+	void testGetMovieDetails() throws SQLException {
+		List<Movie> movies = snapshotDAO.getMoviesByLimit(2);
+		assertEquals(2, snapshotDAO.getMovieDetails(movies, true, true).get(0).getStars().size());
+		assertEquals(9.3f, snapshotDAO.getMovieDetails(movies, false, true).get(0).getRating().getRating());
+	}
+
+	private static void assertRatingsEqual(List<MovieRating> expected, List<MovieRating> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+			assertEquals(expected.get(i).getRating(), actual.get(i).getRating());
+			assertEquals(expected.get(i).getVotes(), actual.get(i).getVotes());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+
+}
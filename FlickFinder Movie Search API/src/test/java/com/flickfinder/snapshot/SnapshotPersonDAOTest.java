@@ -0,0 +1,99 @@
+package com.flickfinder.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.SeparationPath;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Checks that the snapshot-backed PersonDAO answers like the SQL one.
+ */
+class SnapshotPersonDAOTest {
+
+	@TempDir
+	Path dir;
+
+	Seeder seeder;
+
+	PersonDAO sqlDAO;
+
+	SnapshotPersonDAO snapshotDAO;
+
+	@BeforeEach
+	void setUp() throws SQLException, IOException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database database = Database.getInstance(seeder.getConnection());
+		sqlDAO = new PersonDAO();
+		Path file = dir.resolve("movies.snapshot");
+		new SnapshotWriter(database).write(file);
+		snapshotDAO = new SnapshotPersonDAO(Snapshot.open(file));
+	}
+
+	@Test
+	void testPagesMatchSQL() throws SQLException, IOException {
+		assertEquals(sqlDAO.getAllPeople().toString(), snapshotDAO.getAllPeople().toString());
+		assertEquals(sqlDAO.getPeopleAfter(2, 2).toString(), snapshotDAO.getPeopleAfter(2, 2).toString());
+		assertEquals(3, snapshotDAO.streamPeopleAfter(2, 50, person -> {
+		}));
+	}
+
+	@Test
+	void testGetPersonById() throws SQLException {
+		assertEquals(sqlDAO.getPersonById(2).toString(), snapshotDAO.getPersonById(2).toString());
+		assertNull(snapshotDAO.getPersonById(1000));
+		int[] ids = { 5, 1000, 1 };
+		assertEquals(sqlDAO.getPeopleByIds(ids).toString(), snapshotDAO.getPeopleByIds(ids).toString());
+	}
+
+	@Test
+	void testMoviesMatchSQL() throws SQLException, IOException {
+		for (int id = 1; id <= 6; id++) {
+			assertEquals(sqlDAO.getMoviesStarringPerson(id).toString(),
+					snapshotDAO.getMoviesStarringPerson(id).toString());
+		}
+		List<Movie> streamed = new ArrayList<>();
+		assertEquals(2, snapshotDAO.streamMoviesStarringPerson(4, streamed::add));
+		assertEquals(sqlDAO.getMoviesStarringPerson(4).toString(), streamed.toString());
+		int[] ids = { 1, 3, 4 };
+		assertEquals(sqlDAO.getMoviesByPersonIds(ids).toString(), snapshotDAO.getMoviesByPersonIds(ids).toString());
+	}
+
+	@Test
+	void testAutocompleteMatchesSQL() throws SQLException {
+		for (String prefix : new String[] { "f", "mor", "Al", "x" }) {
+			assertEquals(sqlDAO.autocompleteNames(prefix, 10).toString(),
+					snapshotDAO.autocompleteNames(prefix, 10).toString());
+		}
+	}
+
+	@Test
+	void testFindPathMatchesSQL() throws SQLException {
+		SeparationPath expected = sqlDAO.findPath(1, 2);
+		SeparationPath actual = snapshotDAO.findPath(1, 2);
+		assertEquals(expected.getDegrees(), actual.getDegrees());
+		assertEquals(expected.getPeople().toString(), actual.getPeople().toString());
+		assertEquals(expected.getMovies().toString(), actual.getMovies().toString());
+		assertNull(snapshotDAO.findPath(1, 4));
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+
+}
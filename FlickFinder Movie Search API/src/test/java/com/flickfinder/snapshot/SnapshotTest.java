@@ -0,0 +1,157 @@
+package com.flickfinder.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Tests writing the seeded database to a snapshot and reading it back.
+ */
+class SnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	Seeder seeder;
+
+	Snapshot snapshot;
+
+	@BeforeEach
+	void setUp() throws SQLException, IOException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(9, 'Am\u00e9lie', 2001)");
+			// a star whose person does not exist is left out
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(9, 99)");
+		}
+		Path file = dir.resolve("movies.snapshot");
+		new SnapshotWriter(Database.getInstance(seeder.getConnection())).write(file);
+		snapshot = Snapshot.open(file);
+	}
+
+	@Test
+	void testCounts() {
+		assertEquals(6, snapshot.getMovieCount());
+		assertEquals(5, snapshot.getPersonCount());
+		assertEquals(5, snapshot.getStarCount());
+		assertEquals(5, snapshot.getRatedCount());
+	}
+
+	@Test
+	void testMovieColumns() {
+		int row = snapshot.findMovie(2);
+		assertEquals(1, row);
+		assertEquals(2, snapshot.movieId(row));
+		assertEquals("The Godfather", snapshot.movieTitle(row));
+		assertEquals(1972, snapshot.movieYear(row));
+		assertEquals(9.2f, snapshot.movieRating(row));
+		assertEquals(1500000, snapshot.movieVotes(row));
+	}
+
+	@Test
+	void testUnicodeTitleAndMissingRating() {
+		int row = snapshot.findMovie(9);
+		assertEquals("Am\u00e9lie", snapshot.movieTitle(row));
+		assertTrue(Float.isNaN(snapshot.movieRating(row)));
+		assertEquals(snapshot.movieStarsStart(row), snapshot.movieStarsStart(row + 1));
+	}
+
+	@Test
+	void testPersonColumns() {
+		int row = snapshot.findPerson(4);
+		assertEquals("Al Pacino", snapshot.personName(row));
+		assertEquals(1940, snapshot.personBirth(row));
+	}
+
+	@Test
+	void testFindMissingIds() {
+		assertEquals(-1, snapshot.findMovie(6));
+		assertEquals(-1, snapshot.findMovie(0));
+		assertEquals(-1, snapshot.findPerson(99));
+	}
+
+	@Test
+	void testFirstAfter() {
+		assertEquals(0, snapshot.firstMovieAfter(Integer.MIN_VALUE));
+		assertEquals(2, snapshot.firstMovieAfter(2));
+		assertEquals(5, snapshot.firstMovieAfter(5));
+		assertEquals(6, snapshot.firstMovieAfter(9));
+		assertEquals(6, snapshot.firstMovieAfter(Integer.MAX_VALUE));
+		assertEquals(5, snapshot.firstPersonAfter(5));
+	}
+
+	@Test
+	void testStarsBothWays() {
+		int movie = snapshot.findMovie(1);
+		assertEquals(2, snapshot.movieStarsStart(movie + 1) - snapshot.movieStarsStart(movie));
+		assertEquals(1, snapshot.personId(snapshot.movieStar(snapshot.movieStarsStart(movie))));
+		assertEquals(2, snapshot.personId(snapshot.movieStar(snapshot.movieStarsStart(movie) + 1)));
+
+		int person = snapshot.findPerson(4);
+		assertEquals(2, snapshot.personStarsStart(person + 1) - snapshot.personStarsStart(person));
+		assertEquals(2, snapshot.movieId(snapshot.personStar(snapshot.personStarsStart(person))));
+		assertEquals(3, snapshot.movieId(snapshot.personStar(snapshot.personStarsStart(person) + 1)));
+	}
+
+	@Test
+	void testRatedByYear() {
+		int previousYear = Integer.MIN_VALUE;
+		for (int i = 0; i < snapshot.getRatedCount(); i++) {
+			int year = snapshot.movieYear(snapshot.ratedMovie(i));
+			assertTrue(year >= previousYear);
+			previousYear = year;
+		}
+		int first = snapshot.firstRatedFrom(1972);
+		assertEquals(2, snapshot.movieId(snapshot.ratedMovie(first)));
+		assertEquals(snapshot.getRatedCount(), snapshot.firstRatedFrom(2009));
+	}
+
+	@Test
+	void testRewriteReplacesFile() throws SQLException, IOException {
+		Path file = snapshot.getFile();
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("DELETE FROM movies WHERE id = 9");
+		}
+		new SnapshotWriter(Database.getInstance(seeder.getConnection())).write(file);
+		assertEquals(5, Snapshot.open(file).getMovieCount());
+		try (var files = Files.list(dir)) {
+			assertEquals(1, files.count(), "Expected the temporary file to be moved into place");
+		}
+	}
+
+	@Test
+	void testRejectsOtherFiles() throws IOException {
+		Path file = dir.resolve("not.snapshot");
+		Files.write(file, "not a snapshot at all".getBytes());
+		assertThrows(IOException.class, () -> Snapshot.open(file));
+	}
+
+	@Test
+	void testRejectsTruncatedFiles() throws IOException {
+		Path file = dir.resolve("truncated.snapshot");
+		byte[] bytes = Files.readAllBytes(snapshot.getFile());
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		assertThrows(IOException.class, () -> Snapshot.open(file));
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+
+}
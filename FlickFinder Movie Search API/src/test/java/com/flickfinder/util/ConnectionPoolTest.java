@@ -0,0 +1,187 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.MovieDAO;
+
+/**
+ * Tests for the connection pool.
+ * These use a temporary database file, as every connection to an in-memory
+ * database would see a different, empty database.
+ */
+class ConnectionPoolTest {
+
+	private Path dbFile;
+
+	private String url;
+
+	private ConnectionPool pool;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		dbFile = Files.createTempFile("flickfinder-pool", ".db");
+		url = "jdbc:sqlite:" + dbFile;
+		new Seeder(url).closeConnection();
+	}
+
+	private ConnectionPool open(int min, int max, long acquireTimeout, long leakThreshold) throws SQLException {
+		PoolConfig config = new PoolConfig();
+		config.setMinSize(min);
+		config.setMaxSize(max);
+		config.setAcquireTimeoutMillis(acquireTimeout);
+		config.setLeakDetectionThresholdMillis(leakThreshold);
+		pool = ConnectionPool.forSQLite(url, config);
+		return pool;
+	}
+
+	@Test
+	void testOpensMinimumConnectionsUpFront() throws SQLException {
+		open(2, 4, 1000, 0);
+		assertEquals(2, pool.getTotalCount());
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(0, pool.getActiveCount());
+	}
+
+	@Test
+	void testCountsActiveAndIdleConnections() throws SQLException {
+		open(1, 4, 1000, 0);
+		try (PooledConnection first = pool.acquire(); PooledConnection second = pool.acquire()) {
+			assertNotSame(first.getConnection(), second.getConnection());
+			assertEquals(2, pool.getActiveCount());
+			assertEquals(0, pool.getIdleCount());
+		}
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@Test
+	void testReusesReturnedConnection() throws SQLException {
+		open(1, 4, 1000, 0);
+		PooledConnection first = pool.acquire();
+		first.close();
+		try (PooledConnection second = pool.acquire()) {
+			assertSame(first.getConnection(), second.getConnection());
+		}
+		assertEquals(1, pool.getTotalCount());
+	}
+
+	@Test
+	void testLateCloseDoesNotReturnConnectionBorrowedAgain() throws SQLException {
+		open(1, 1, 50, 0);
+		PooledConnection first = pool.acquire();
+		first.close();
+		try (PooledConnection second = pool.acquire()) {
+			assertSame(first.getConnection(), second.getConnection());
+			first.close();
+			assertEquals(1, pool.getActiveCount());
+			assertEquals(0, pool.getIdleCount());
+			assertThrows(SQLTimeoutException.class, pool::acquire);
+		}
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	void testTimesOutWhenExhausted() throws SQLException {
+		open(1, 1, 50, 0);
+		try (PooledConnection held = pool.acquire()) {
+			assertThrows(SQLTimeoutException.class, pool::acquire);
+		}
+	}
+
+	@Test
+	void testWaiterGetsReturnedConnection() throws Exception {
+		open(1, 1, 5000, 0);
+		PooledConnection held = pool.acquire();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> waiter = executor.submit(() -> {
+				try (PooledConnection lease = pool.acquire()) {
+					return true;
+				}
+			});
+			while (pool.getWaitingCount() == 0) {
+				Thread.sleep(5);
+			}
+			held.close();
+			assertTrue(waiter.get());
+			assertEquals(0, pool.getWaitingCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testConnectionsAreReadOnlyAndInWalMode() throws SQLException {
+		open(1, 2, 1000, 0);
+		try (PooledConnection lease = pool.acquire(); Statement statement = lease.getConnection().createStatement()) {
+			ResultSet rs = statement.executeQuery("PRAGMA journal_mode");
+			rs.next();
+			assertEquals("wal", rs.getString(1));
+			assertThrows(SQLException.class,
+					() -> statement.execute("INSERT INTO movies (id, title, year) VALUES(6, 'Heat', 1995)"));
+		}
+	}
+
+	@Test
+	void testReportsLeakedConnection() throws Exception {
+		open(1, 2, 1000, 20);
+		try (PooledConnection leaked = pool.acquire()) {
+			long deadline = System.currentTimeMillis() + 2000;
+			while (pool.getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, pool.getLeakCount());
+		}
+	}
+
+	@Test
+	void testConcurrentReadsThroughDao() throws Exception {
+		Database.getPooledInstance(url, new PoolConfig());
+		pool = Database.getInstance().getPool();
+		MovieDAO movieDAO = new MovieDAO();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				results.add(executor.submit(() -> movieDAO.getAllMovies().size()));
+			}
+			for (Future<Integer> result : results) {
+				assertEquals(5, result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(0, pool.getActiveCount());
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (pool != null) {
+			pool.close();
+		}
+		Files.deleteIfExists(dbFile);
+		Files.deleteIfExists(Path.of(dbFile + "-wal"));
+		Files.deleteIfExists(Path.of(dbFile + "-shm"));
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CursorTest {
+
+	@Test
+	void testRoundTrip() {
+		assertEquals(0, Cursor.decode(Cursor.encode(0)));
+		assertEquals(15239678, Cursor.decode(Cursor.encode(15239678)));
+		assertEquals(-1, Cursor.decode(Cursor.encode(-1)));
+	}
+
+	@Test
+	void testTokenIsOpaque() {
+		assertFalse(Cursor.encode(42).contains("42"), "The id should not be visible in the token");
+	}
+
+	@Test
+	void testRejectsInvalidTokens() {
+		assertThrows(IllegalArgumentException.class, () -> Cursor.decode("42"));
+		assertThrows(IllegalArgumentException.class, () -> Cursor.decode("not a cursor!"));
+		assertThrows(IllegalArgumentException.class, () -> Cursor.decode(""));
+	}
+
+}
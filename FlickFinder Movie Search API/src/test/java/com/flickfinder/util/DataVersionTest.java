@@ -0,0 +1,96 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the data version that ETags are built from.
+ */
+class DataVersionTest {
+
+	@TempDir
+	Path dir;
+
+	private String url;
+
+	private Connection reader;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		url = "jdbc:sqlite:" + dir.resolve("version.db");
+		reader = DriverManager.getConnection(url);
+		write("CREATE TABLE movies (id INTEGER PRIMARY KEY, title TEXT)");
+	}
+
+	@Test
+	void testStaysTheSameWithoutCommits() {
+		DataVersion version = DataVersion.forDatabase(Database.getInstance(reader), 0);
+		String first = version.current();
+
+		assertEquals(first, version.current());
+		assertEquals(first, version.current());
+	}
+
+	@Test
+	void testChangesWhenAnotherConnectionCommits() throws SQLException {
+		DataVersion version = DataVersion.forDatabase(Database.getInstance(reader), 0);
+		String before = version.current();
+
+		write("INSERT INTO movies VALUES (1, 'The Shawshank Redemption')");
+		String after = version.current();
+
+		assertNotEquals(before, after);
+		assertEquals(after, version.current());
+	}
+
+	@Test
+	void testWaitsForTheCheckInterval() throws SQLException {
+		DataVersion version = DataVersion.forDatabase(Database.getInstance(reader), 60_000);
+		String before = version.current();
+
+		write("INSERT INTO movies VALUES (1, 'The Shawshank Redemption')");
+
+		assertEquals(before, version.current(), "The commit should not be seen until the interval has passed");
+	}
+
+	@Test
+	void testSameFileGivesTheSameStampAfterARestart() throws SQLException {
+		String first = DataVersion.forDatabase(Database.getInstance(reader), 0).current();
+		assertTrue(first.contains("-"), "Expected a stamp of the file, got " + first);
+		try (Connection restarted = DriverManager.getConnection(url)) {
+			assertEquals(first, DataVersion.forDatabase(Database.getInstance(restarted), 0).current());
+		}
+	}
+
+	@Test
+	void testFixedNeverChanges() {
+		DataVersion version = DataVersion.fixed("abc");
+
+		assertEquals("abc", version.current());
+		assertEquals("abc", version.current());
+	}
+
+	private void write(String sql) throws SQLException {
+		try (Connection writer = DriverManager.getConnection(url); Statement statement = writer.createStatement()) {
+			statement.executeUpdate(sql);
+		}
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,386 @@
+package com.flickfinder.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Fills the seeded tables with a synthetic dataset of any size, for
+ * performance work where movies.db is too small, not available, or both.
+ *
+ * The tables are created by the {@link Seeder}, so the schema is the same,
+ * and its five movies and people are kept as ids 1 to 5. Generated rows
+ * follow them, skewed roughly like the real data:
+ * <ul>
+ * <li>cast sizes are Zipfian up to the maximum cast, so most movies have one
+ * or two stars and a few have many, about 4.7 on average with the default
+ * of 16;</li>
+ * <li>every person stars in at least one movie when there are no more people
+ * than movies, and the rest of each cast is drawn from a Zipfian popularity
+ * ranking, so a few people star in thousands of movies;</li>
+ * <li>years grow more common towards the present;</li>
+ * <li>votes are log-normal, from a handful to a few million, and ratings
+ * cluster around 6.3; about one movie in seven has no rating;</li>
+ * <li>most movies have one director, drawn from the same popularity ranking;
+ * about a third of people have no birth year.</li>
+ * </ul>
+ *
+ * Everything is drawn from one Random with the given seed, in a fixed
+ * order, so the same seed and sizes always produce the same rows. The rows
+ * are inserted in batches in a single transaction.
+ *
+ * Scale is set by the number of movies and people; 10 million of each
+ * gives about 47 million stars. To write a database file, run with the dataset profile, e.g.
+ * mvn -P dataset test-compile exec:exec -Ddataset.args="target/movies-1m.db 1000000"
+ */
+public class DatasetGenerator extends Seeder {
+
+	private static final Logger LOGGER = Logger.getLogger(DatasetGenerator.class.getName());
+
+	/**
+	 * The number of rows the seeder inserts into movies and people.
+	 */
+	public static final int SEEDED = 5;
+
+	/**
+	 * Rows per batch.
+	 */
+	private static final int BATCH = 10_000;
+
+	/**
+	 * The Zipf exponent of cast sizes; 1 with a maximum of 16 averages 4.7.
+	 */
+	private static final double CAST_EXPONENT = 1.0;
+
+	/**
+	 * The Zipf exponent of popularity, which decides how often the same people
+	 * are cast.
+	 */
+	private static final double POPULARITY_EXPONENT = 0.6;
+
+	private static final int FIRST_YEAR = 1900;
+
+	private static final int LAST_YEAR = 2025;
+
+	/**
+	 * The mean of how many years before the last year a movie is made.
+	 */
+	private static final double MEAN_AGE = 25;
+
+	private static final String[] ADJECTIVES = { "Dark", "Silent", "Last", "Lost", "Red", "Broken", "Hidden",
+			"Golden", "Wild", "Secret", "Final", "Endless", "Cold", "Burning", "Little", "Great", "Long", "Black",
+			"Empty", "Midnight", "Savage", "Quiet", "Forgotten", "Crimson", "Electric", "Distant", "Perfect", "Blue" };
+
+	private static final String[] NOUNS = { "Night", "Road", "River", "King", "City", "Heart", "Storm", "Shadow",
+			"Moon", "Garden", "House", "War", "Dream", "Summer", "Ghost", "Island", "Fire", "Mirror", "Stranger",
+			"Empire", "Letter", "Journey", "Kingdom", "Winter", "Promise", "Harbor", "Signal", "Crown", "Station",
+			"Horizon", "Secret", "Daughter", "Son", "Machine", "Circle", "Dance" };
+
+	private static final String[] SEQUELS = { "II", "III", "IV", "2", "3", "Part II" };
+
+	private static final String[] FIRST_NAMES = { "James", "Mary", "John", "Patricia", "Robert", "Jennifer",
+			"Michael", "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+			"Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark",
+			"Margaret", "Paul", "Sandra", "Steven", "Ashley", "Andrew", "Emily", "Kenneth", "Donna", "Kevin", "Michelle",
+			"Brian", "Carol", "Akira", "Ingrid", "Pedro", "Sofia", "Hiro", "Amara", "Luca", "Chiara", "Ravi", "Mei" };
+
+	private static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+			"Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+			"Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez",
+			"Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres",
+			"Nguyen", "Hill", "Flores", "Kurosawa", "Bergman", "Almodovar", "Rossi", "Kapoor", "Chen", "Okafor",
+			"Novak", "Schmidt", "Dubois" };
+
+	private final long seed;
+
+	private int movies = 100_000;
+
+	private int people;
+
+	private int maxCast = 16;
+
+	/**
+	 * A batch of inserts, executed whenever it is full.
+	 */
+	private static final class Batch implements AutoCloseable {
+
+		final PreparedStatement statement;
+
+		private int size;
+
+		Batch(Connection conn, String sql) throws SQLException {
+			this.statement = conn.prepareStatement(sql);
+		}
+
+		void add() throws SQLException {
+			statement.addBatch();
+			if (++size == BATCH) {
+				statement.executeBatch();
+				size = 0;
+			}
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				if (size > 0) {
+					statement.executeBatch();
+				}
+			} finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Creates the seeded tables. Call {@link #generate()} to add the
+	 * generated rows.
+	 *
+	 * @param url  the URL of the database
+	 * @param seed the seed the rows are drawn from
+	 */
+	public DatasetGenerator(String url, long seed) {
+		super(url);
+		this.seed = seed;
+	}
+
+	/**
+	 * Adds the generated rows, after the seeded ones.
+	 *
+	 * @throws SQLException if a row cannot be inserted, in which case none are
+	 */
+	public void generate() throws SQLException {
+		int people = getPeople();
+		if (movies <= SEEDED || people <= SEEDED || maxCast < 1) {
+			throw new IllegalArgumentException(
+					"A generated dataset needs more than " + SEEDED + " movies and people, and a cast of at least 1");
+		}
+		long start = System.nanoTime();
+		Random random = new Random(seed);
+		int generatedPeople = people - SEEDED;
+		ZipfSampler castSize = new ZipfSampler(maxCast, CAST_EXPONENT);
+		ZipfSampler popularity = new ZipfSampler(generatedPeople, POPULARITY_EXPONENT);
+		long shuffle = coprime(generatedPeople);
+		int[] cast = new int[maxCast];
+		long stars = 0;
+
+		conn.setAutoCommit(false);
+		try (Batch personRows = new Batch(conn, "INSERT INTO people (id, name, birth) VALUES (?, ?, ?)");
+				Batch movieRows = new Batch(conn, "INSERT INTO movies (id, title, year) VALUES (?, ?, ?)");
+				Batch starRows = new Batch(conn, "INSERT INTO stars (movie_id, person_id) VALUES (?, ?)");
+				Batch directorRows = new Batch(conn, "INSERT INTO directors (movie_id, person_id) VALUES (?, ?)");
+				Batch ratingRows = new Batch(conn,
+						"INSERT INTO ratings (movie_id, rating, votes) VALUES (?, ?, ?)")) {
+			for (int id = SEEDED + 1; id <= people; id++) {
+				personRows.statement.setInt(1, id);
+				personRows.statement.setString(2, name(random));
+				if (random.nextInt(3) == 0) {
+					personRows.statement.setNull(3, Types.NUMERIC);
+				} else {
+					personRows.statement.setInt(3, 1880 + random.nextInt(LAST_YEAR - 1880 - 10));
+				}
+				personRows.add();
+			}
+
+			for (int id = SEEDED + 1; id <= movies; id++) {
+				movieRows.statement.setInt(1, id);
+				movieRows.statement.setString(2, title(random));
+				movieRows.statement.setInt(3, year(random));
+				movieRows.add();
+
+				// the first star goes round everyone, so that nobody is left out
+				int size = Math.min(castSize.sample(random), generatedPeople);
+				int count = 0;
+				if (id - SEEDED <= generatedPeople) {
+					cast[count++] = id;
+				}
+				while (count < size) {
+					int person = popular(popularity, shuffle, random);
+					if (!contains(cast, count, person)) {
+						cast[count++] = person;
+					}
+				}
+				for (int i = 0; i < count; i++) {
+					starRows.statement.setInt(1, id);
+					starRows.statement.setInt(2, cast[i]);
+					starRows.add();
+				}
+				stars += count;
+
+				int directors = (random.nextInt(10) == 0) ? 2 : 1;
+				for (int i = 0; i < directors; i++) {
+					directorRows.statement.setInt(1, id);
+					directorRows.statement.setInt(2, popular(popularity, shuffle, random));
+					directorRows.add();
+				}
+
+				if (random.nextInt(7) != 0) {
+					double votes = Math.exp(4 + 2 * random.nextGaussian());
+					double rating = Math.max(1, Math.min(10, 6.3 + 1.2 * random.nextGaussian()));
+					ratingRows.statement.setInt(1, id);
+					ratingRows.statement.setDouble(2, Math.round(rating * 10) / 10.0);
+					ratingRows.statement.setInt(3, (int) Math.min(3_000_000, Math.max(5, votes)));
+					ratingRows.add();
+				}
+
+				if (id % 1_000_000 == 0) {
+					LOGGER.info("Generated " + id + " of " + movies + " movies");
+				}
+			}
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(true);
+		}
+		LOGGER.info("Generated " + movies + " movies, " + people + " people and " + stars + " stars in "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+
+	/**
+	 * Draws a person by popularity. Ranks are spread over the ids, so that
+	 * the most popular people are not all next to each other.
+	 */
+	private int popular(ZipfSampler popularity, long shuffle, Random random) {
+		long rank = popularity.sample(random) - 1;
+		return SEEDED + 1 + (int) (rank * shuffle % (getPeople() - SEEDED));
+	}
+
+	/**
+	 * Returns a multiplier that has no factor in common with n, so that
+	 * multiplying by it modulo n reorders 0 to n - 1 without repeats.
+	 */
+	private static long coprime(int n) {
+		long multiplier = 2_654_435_761L % Math.max(n, 2);
+		while (gcd(multiplier, n) != 1) {
+			multiplier++;
+		}
+		return multiplier;
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String name(Random random) {
+		return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+	}
+
+	private static String title(Random random) {
+		String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+		String noun = NOUNS[random.nextInt(NOUNS.length)];
+		String title;
+		switch (random.nextInt(5)) {
+		case 0:
+			title = "The " + adjective + " " + noun;
+			break;
+		case 1:
+			title = "The " + noun + " of the " + NOUNS[random.nextInt(NOUNS.length)];
+			break;
+		case 2:
+			title = adjective + " " + noun;
+			break;
+		case 3:
+			title = "The " + noun;
+			break;
+		default:
+			title = noun + " " + (1 + random.nextInt(99));
+		}
+		if (random.nextInt(20) == 0) {
+			title += " " + SEQUELS[random.nextInt(SEQUELS.length)];
+		}
+		return title;
+	}
+
+	/**
+	 * Draws a year, with more movies the closer it is to the last year.
+	 */
+	private static int year(Random random) {
+		int age = (int) (-MEAN_AGE * Math.log(1 - random.nextDouble()));
+		return Math.max(FIRST_YEAR, LAST_YEAR - age);
+	}
+
+	/**
+	 * Writes a generated dataset to a database.
+	 *
+	 * @param args the database file or JDBC URL, the number of movies, and
+	 *             optionally the number of people and the seed
+	 * @throws SQLException if the dataset cannot be written
+	 */
+	public static void main(String[] args) throws SQLException {
+		if (args.length < 2) {
+			System.err.println("Usage: DatasetGenerator <file or jdbc url> <movies> [people] [seed]");
+			System.exit(2);
+		}
+		String url = args[0].startsWith("jdbc:") ? args[0] : "jdbc:sqlite:" + args[0];
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : 42;
+		DatasetGenerator generator = new DatasetGenerator(url, seed);
+		generator.setMovies(Integer.parseInt(args[1]));
+		if (args.length > 2) {
+			generator.setPeople(Integer.parseInt(args[2]));
+		}
+		try {
+			generator.generate();
+		} finally {
+			generator.closeConnection();
+		}
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getMovies() {
+		return movies;
+	}
+
+	/**
+	 * Sets the number of movies, including the seeded ones.
+	 *
+	 * @param movies the number of movies
+	 */
+	public void setMovies(int movies) {
+		this.movies = movies;
+	}
+
+	/**
+	 * Returns the number of people, which is the number of movies unless it
+	 * was set.
+	 *
+	 * @return the number of people, including the seeded ones
+	 */
+	public int getPeople() {
+		return (people > 0) ? people : movies;
+	}
+
+	public void setPeople(int people) {
+		this.people = people;
+	}
+
+	public int getMaxCast() {
+		return maxCast;
+	}
+
+	public void setMaxCast(int maxCast) {
+		this.maxCast = maxCast;
+	}
+
+}
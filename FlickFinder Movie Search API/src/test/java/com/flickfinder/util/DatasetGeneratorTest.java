@@ -0,0 +1,138 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the generated datasets used in performance work.
+ */
+class DatasetGeneratorTest {
+
+	private DatasetGenerator generator;
+
+	private DatasetGenerator generate(int movies, long seed) throws SQLException {
+		DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite::memory:", seed);
+		generator.setMovies(movies);
+		generator.generate();
+		return generator;
+	}
+
+	private static long count(Connection conn, String sql) throws SQLException {
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	/**
+	 * A checksum over every row of every table.
+	 */
+	private static long checksum(Connection conn) throws SQLException {
+		String[] queries = { "SELECT id, title, year FROM movies ORDER BY id",
+				"SELECT id, name, birth FROM people ORDER BY id", "SELECT movie_id, person_id FROM stars",
+				"SELECT movie_id, person_id FROM directors", "SELECT movie_id, rating, votes FROM ratings" };
+		long hash = 17;
+		try (Statement stmt = conn.createStatement()) {
+			for (String query : queries) {
+				try (ResultSet rs = stmt.executeQuery(query)) {
+					int columns = rs.getMetaData().getColumnCount();
+					while (rs.next()) {
+						for (int i = 1; i <= columns; i++) {
+							hash = 31 * hash + String.valueOf(rs.getString(i)).hashCode();
+						}
+					}
+				}
+			}
+		}
+		return hash;
+	}
+
+	@Test
+	void testKeepsTheSeededRowsAndAddsTheRest() throws SQLException {
+		generator = generate(2000, 1);
+		Connection conn = generator.getConnection();
+
+		assertEquals(2000, count(conn, "SELECT COUNT(*) FROM movies"));
+		assertEquals(2000, count(conn, "SELECT COUNT(*) FROM people"));
+		assertEquals(1, count(conn, "SELECT COUNT(*) FROM movies WHERE id = 1 AND title = 'The Shawshank Redemption'"));
+		assertEquals(0, count(conn, "SELECT COUNT(*) FROM stars WHERE person_id NOT IN (SELECT id FROM people)"));
+		assertEquals(0, count(conn, "SELECT COUNT(*) FROM directors WHERE person_id NOT IN (SELECT id FROM people)"));
+	}
+
+	@Test
+	void testEveryGeneratedMovieAndPersonHasAStar() throws SQLException {
+		generator = generate(2000, 1);
+		Connection conn = generator.getConnection();
+
+		assertEquals(0, count(conn, "SELECT COUNT(*) FROM movies WHERE id > 5 AND id NOT IN (SELECT movie_id FROM stars)"));
+		assertEquals(0, count(conn, "SELECT COUNT(*) FROM people WHERE id > 5 AND id NOT IN (SELECT person_id FROM stars)"));
+		assertEquals(0, count(conn,
+				"SELECT COUNT(*) FROM (SELECT movie_id, person_id FROM stars GROUP BY movie_id, person_id HAVING COUNT(*) > 1)"));
+	}
+
+	@Test
+	void testCastSizesAndPopularityAreSkewed() throws SQLException {
+		generator = generate(5000, 1);
+		Connection conn = generator.getConnection();
+
+		long single = count(conn, "SELECT COUNT(*) FROM (SELECT movie_id FROM stars WHERE movie_id > 5"
+				+ " GROUP BY movie_id HAVING COUNT(*) = 1)");
+		long largest = count(conn, "SELECT MAX(n) FROM (SELECT COUNT(*) AS n FROM stars GROUP BY movie_id)");
+		long busiest = count(conn, "SELECT MAX(n) FROM (SELECT COUNT(*) AS n FROM stars GROUP BY person_id)");
+		double mean = count(conn, "SELECT COUNT(*) FROM stars WHERE movie_id > 5") / 4995.0;
+
+		assertTrue(single > 1000, "most casts are small: " + single);
+		assertTrue(largest > 10 && largest <= 16, "a few casts are large: " + largest);
+		assertTrue(mean > 4 && mean < 5.5, "about 4.7 stars a movie: " + mean);
+		assertTrue(busiest > 100, "a few people star in many movies: " + busiest);
+	}
+
+	@Test
+	void testRecentYearsAreMoreCommon() throws SQLException {
+		generator = generate(5000, 1);
+		Connection conn = generator.getConnection();
+
+		long recent = count(conn, "SELECT COUNT(*) FROM movies WHERE year BETWEEN 2000 AND 2025");
+		long early = count(conn, "SELECT COUNT(*) FROM movies WHERE year BETWEEN 1925 AND 1950");
+
+		assertTrue(recent > 3 * early, recent + " recent, " + early + " early");
+	}
+
+	@Test
+	void testTheSameSeedGivesTheSameRows() throws SQLException {
+		generator = generate(1000, 7);
+		DatasetGenerator same = generate(1000, 7);
+		DatasetGenerator other = generate(1000, 8);
+		try {
+			assertEquals(checksum(generator.getConnection()), checksum(same.getConnection()));
+			assertNotEquals(checksum(generator.getConnection()), checksum(other.getConnection()));
+		} finally {
+			same.closeConnection();
+			other.closeConnection();
+		}
+	}
+
+	@Test
+	void testRejectsADatasetSmallerThanTheSeed() {
+		generator = new DatasetGenerator("jdbc:sqlite::memory:", 1);
+		generator.setMovies(5);
+
+		assertThrows(IllegalArgumentException.class, generator::generate);
+	}
+
+	@AfterEach
+	void tearDown() {
+		generator.closeConnection();
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the W-TinyLFU entity cache.
+ */
+class EntityCacheTest {
+
+	@Test
+	void testLoadsOnMissAndServesHitsFromCache() {
+		EntityCache<String> cache = new EntityCache<>(100);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertEquals("movie 1", cache.get(1, id -> {
+			loads.incrementAndGet();
+			return "movie " + id;
+		}));
+		assertEquals("movie 1", cache.get(1, id -> {
+			loads.incrementAndGet();
+			return "movie " + id;
+		}));
+
+		assertEquals(1, loads.get(), "Second lookup should not reach the loader");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void testDoesNotCacheMissingEntities() {
+		EntityCache<String> cache = new EntityCache<>(100);
+		assertNull(cache.get(1, id -> null));
+		assertNull(cache.getIfPresent(1));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testNeverExceedsCapacity() {
+		EntityCache<Integer> cache = new EntityCache<>(200);
+		for (int i = 0; i < 10_000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 200, "Cache grew to " + cache.size());
+		assertEquals(10_000 - cache.size(), cache.getEvictionCount());
+	}
+
+	@Test
+	void testPopularEntitiesSurviveAScan() {
+		EntityCache<Integer> cache = new EntityCache<>(1000);
+		for (int round = 0; round < 10; round++) {
+			for (int id = 0; id < 200; id++) {
+				cache.get(id, key -> key);
+			}
+		}
+		// a crawler walking through ids that are only requested once
+		for (int id = 1_000_000; id < 1_020_000; id++) {
+			cache.get(id, key -> key);
+		}
+
+		int survivors = 0;
+		for (int id = 0; id < 200; id++) {
+			if (cache.getIfPresent(id) != null) {
+				survivors++;
+			}
+		}
+		assertTrue(survivors >= 180, "Only " + survivors + " of 200 popular entries survived the scan");
+	}
+
+	@Test
+	void testConcurrentReaders() throws Exception {
+		EntityCache<Integer> cache = new EntityCache<>(500);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; i++) {
+						int id = (i * 31 + seed) % 2000;
+						assertEquals(id, cache.get(id, key -> key));
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(cache.size() <= 500);
+		assertEquals(160_000, cache.getHitCount() + cache.getMissCount());
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for provisioning the indexes the DAOs need.
+ */
+class SchemaOptimizerTest {
+
+	private DatasetGenerator generator;
+
+	private Connection conn;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		generator = new DatasetGenerator("jdbc:sqlite::memory:", 7);
+		generator.setMovies(2000);
+		generator.generate();
+		conn = generator.getConnection();
+	}
+
+	@Test
+	void creates_the_missing_indexes_and_analyzes() throws SQLException {
+		SchemaOptimizer.Report report = new SchemaOptimizer(conn).optimize();
+		assertEquals(List.of("idx_stars_movie_id_person_id", "idx_stars_person_id_movie_id",
+				"idx_ratings_movie_id_rating_votes", "idx_movies_year_title"), report.getCreatedIndexes());
+		assertTrue(report.isAnalyzed());
+
+		List<String> before = report.getPlansBefore().get("stars by person");
+		List<String> after = report.getPlansAfter().get("stars by person");
+		assertTrue(before.stream().anyMatch(step -> step.startsWith("SCAN s")), before.toString());
+		assertTrue(after.stream().anyMatch(step -> step.contains("USING COVERING INDEX idx_stars_person_id_movie_id")),
+				after.toString());
+		assertTrue(report.getPlansAfter().get("movies by year").stream()
+				.anyMatch(step -> step.contains("idx_movies_year_title")));
+	}
+
+	@Test
+	void does_nothing_the_second_time() throws SQLException {
+		new SchemaOptimizer(conn).optimize();
+		SchemaOptimizer.Report report = new SchemaOptimizer(conn).optimize();
+		assertTrue(report.getCreatedIndexes().isEmpty());
+		assertFalse(report.isAnalyzed());
+		assertEquals(report.getPlansBefore(), report.getPlansAfter());
+	}
+
+	@Test
+	void keeps_an_existing_index_with_the_same_leading_columns() throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE INDEX stars_by_movie ON stars (movie_id, person_id)");
+		}
+		SchemaOptimizer optimizer = new SchemaOptimizer(conn);
+		assertTrue(optimizer.hasIndex("stars", List.of("movie_id", "person_id")));
+		assertTrue(optimizer.hasIndex("stars", List.of("movie_id")));
+		assertFalse(optimizer.hasIndex("stars", List.of("person_id")));
+		assertFalse(optimizer.optimize().getCreatedIndexes().contains("idx_stars_movie_id_person_id"));
+	}
+
+	@Test
+	void skips_missing_tables() throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP TABLE ratings");
+		}
+		SchemaOptimizer.Report report = new SchemaOptimizer(conn).optimize();
+		assertEquals(List.of("idx_stars_movie_id_person_id", "idx_stars_person_id_movie_id"),
+				report.getCreatedIndexes());
+		assertFalse(report.getPlansAfter().containsKey("ratings by movie"));
+		assertFalse(report.getPlansAfter().containsKey("movies by year"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		generator.closeConnection();
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.flickfinder.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * The seeded test data in a temporary database file, served from a
+ * connection pool that becomes the database instance. Use this for features
+ * that need more than the one in-memory connection, e.g. streaming.
+ */
+public class SeededPool implements AutoCloseable {
+
+	private final Path file;
+
+	private final Database database;
+
+	/**
+	 * Seeds a new database file and opens a pool on it.
+	 *
+	 * @throws IOException  if the file cannot be created
+	 * @throws SQLException if the pool cannot be opened
+	 */
+	public SeededPool() throws IOException, SQLException {
+		file = Files.createTempFile("flickfinder-seeded", ".db");
+		String url = "jdbc:sqlite:" + file;
+		new Seeder(url).closeConnection();
+		database = Database.getPooledInstance(url, new PoolConfig());
+	}
+
+	/**
+	 * Closes the pool and deletes the database file.
+	 */
+	@Override
+	public void close() throws IOException {
+		database.getPool().close();
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(Path.of(file + "-wal"));
+		Files.deleteIfExists(Path.of(file + "-shm"));
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.QueryRunner;
+
+/**
+ * Tests for logging slow statements with their query plans.
+ */
+class SlowQueryLogTest {
+
+	private static final String STARS = "SELECT p.name FROM people p INNER JOIN stars s ON s.person_id = p.id "
+			+ "WHERE s.movie_id = ?";
+
+	private Seeder seeder;
+
+	private Database database;
+
+	private QueryRunner queries;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		database = Database.getInstance(seeder.getConnection());
+		queries = new QueryRunner(database);
+	}
+
+	@Test
+	void records_each_sql_once_with_its_plan() throws Exception {
+		SlowQueryLog log = new SlowQueryLog(0);
+		database.setSlowQueryLog(log);
+		queries.query(STARS, rs -> rs.getString(1), 1);
+		queries.query(STARS, rs -> rs.getString(1), 2);
+		queries.queryOne("SELECT title FROM movies WHERE id = ?", rs -> rs.getString(1), 1);
+
+		List<SlowQueryLog.Shape> top = log.top(10);
+		assertEquals(2, top.size());
+		SlowQueryLog.Shape stars = top.stream().filter(shape -> shape.getSql().equals(STARS)).findFirst()
+				.orElseThrow();
+		assertEquals(2, stars.getCount());
+		assertTrue(stars.getMaxMillis() >= stars.getMeanMillis());
+		// the seeded schema has no index on stars, so SQLite scans it
+		assertTrue(stars.getPlan().stream().anyMatch(step -> step.startsWith("SCAN s")), stars.getPlan().toString());
+		assertTrue(stars.getSlowestParams().equals("[1]") || stars.getSlowestParams().equals("[2]"));
+		assertEquals(1, log.top(1).size());
+	}
+
+	@Test
+	void ignores_statements_under_the_threshold() throws Exception {
+		SlowQueryLog log = new SlowQueryLog(60_000);
+		database.setSlowQueryLog(log);
+		queries.query(STARS, rs -> rs.getString(1), 1);
+		assertTrue(log.top(10).isEmpty());
+	}
+
+	@Test
+	void does_not_count_time_spent_in_the_callback() throws Exception {
+		SlowQueryLog log = new SlowQueryLog(200);
+		database.setSlowQueryLog(log);
+		queries.forEach("SELECT id FROM movies", rs -> rs.getInt(1), id -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(log.top(10).isEmpty());
+	}
+
+	@Test
+	void indents_plan_steps_under_their_parent() throws Exception {
+		try (PooledConnection lease = database.acquire()) {
+			List<String> plan = SlowQueryLog.explain(lease,
+					"SELECT id FROM movies WHERE id IN (SELECT movie_id FROM stars WHERE person_id = ?)",
+					new Object[] { 1 });
+			assertTrue(plan.size() > 1, plan.toString());
+			assertTrue(plan.stream().anyMatch(step -> step.startsWith("  ")), plan.toString());
+		}
+	}
+
+	@Test
+	void rejects_a_negative_threshold() {
+		assertThrows(IllegalArgumentException.class, () -> new SlowQueryLog(-1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+
+}
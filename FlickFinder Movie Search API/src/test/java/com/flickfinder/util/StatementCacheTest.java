@@ -0,0 +1,66 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the per-connection statement cache.
+ */
+class StatementCacheTest {
+
+	private Seeder seeder;
+
+	private StatementCache cache;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		cache = new StatementCache(seeder.getConnection(), 2);
+	}
+
+	@Test
+	void testReusesStatementForSameSql() throws SQLException {
+		PreparedStatement first = cache.prepare("SELECT id FROM movies WHERE id = ?");
+		PreparedStatement second = cache.prepare("SELECT id FROM movies WHERE id = ?");
+		assertSame(first, second);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void testClosesLeastRecentlyUsedStatementWhenFull() throws SQLException {
+		PreparedStatement movies = cache.prepare("SELECT id FROM movies");
+		cache.prepare("SELECT id FROM people");
+		cache.prepare("SELECT id FROM movies");
+		cache.prepare("SELECT movie_id FROM ratings");
+
+		assertEquals(2, cache.size());
+		assertSame(movies, cache.prepare("SELECT id FROM movies"), "Recently used statement should be kept");
+		assertNotNull(cache.prepare("SELECT id FROM people"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testEvictClosesStatement() throws SQLException {
+		PreparedStatement statement = cache.prepare("SELECT id FROM movies");
+		cache.evict("SELECT id FROM movies");
+		assertTrue(statement.isClosed());
+		assertEquals(0, cache.size());
+	}
+
+	@AfterEach
+	void tearDown() {
+		cache.clear();
+		seeder.closeConnection();
+	}
+
+}
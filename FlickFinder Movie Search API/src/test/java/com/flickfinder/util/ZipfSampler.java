@@ -0,0 +1,101 @@
+package com.flickfinder.util;
+
+import java.util.Random;
+
+/**
+ * Draws integers from 1 to n with a Zipf distribution, where k comes up in
+ * proportion to 1 / k^exponent.
+ *
+ * Uses rejection-inversion sampling (Hormann and Derflinger, 1996), which
+ * takes constant time and memory however large n is, so it can pick among
+ * millions of people without a table of weights.
+ */
+public class ZipfSampler {
+
+	private final int n;
+
+	private final double exponent;
+
+	private final double hIntegralX1;
+
+	private final double hIntegralN;
+
+	private final double s;
+
+	/**
+	 * Creates a sampler.
+	 *
+	 * @param n        the largest value, at least 1
+	 * @param exponent how steeply the frequency falls with rank, above 0
+	 */
+	public ZipfSampler(int n, double exponent) {
+		if (n < 1 || exponent <= 0) {
+			throw new IllegalArgumentException("A Zipf distribution needs n >= 1 and an exponent > 0");
+		}
+		this.n = n;
+		this.exponent = exponent;
+		this.hIntegralX1 = hIntegral(1.5) - 1;
+		this.hIntegralN = hIntegral(n + 0.5);
+		this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+	}
+
+	/**
+	 * Draws a value.
+	 *
+	 * @param random the source of randomness
+	 * @return a value from 1 to n
+	 */
+	public int sample(Random random) {
+		while (true) {
+			double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+			double x = hIntegralInverse(u);
+			int k = (int) (x + 0.5);
+			if (k < 1) {
+				k = 1;
+			} else if (k > n) {
+				k = n;
+			}
+			if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+				return k;
+			}
+		}
+	}
+
+	private double h(double x) {
+		return Math.exp(-exponent * Math.log(x));
+	}
+
+	private double hIntegral(double x) {
+		double logX = Math.log(x);
+		return helper2((1 - exponent) * logX) * logX;
+	}
+
+	private double hIntegralInverse(double x) {
+		double t = x * (1 - exponent);
+		if (t < -1) {
+			t = -1;
+		}
+		return Math.exp(helper1(t) * x);
+	}
+
+	/**
+	 * log(1 + x) / x, kept accurate near 0.
+	 */
+	private static double helper1(double x) {
+		if (Math.abs(x) > 1e-8) {
+			return Math.log1p(x) / x;
+		}
+		return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+	}
+
+	/**
+	 * (exp(x) - 1) / x, kept accurate near 0.
+	 */
+	private static double helper2(double x) {
+		if (Math.abs(x) > 1e-8) {
+			return Math.expm1(x) / x;
+		}
+		return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+	}
+
+}
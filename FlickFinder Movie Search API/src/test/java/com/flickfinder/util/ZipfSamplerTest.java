@@ -0,0 +1,58 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the Zipf sampler behind the generated datasets.
+ */
+class ZipfSamplerTest {
+
+	@Test
+	void testFavoursLowRanks() {
+		ZipfSampler sampler = new ZipfSampler(1_000_000, 1.0);
+		Random random = new Random(1);
+		int first = 0;
+		int top = 0;
+		for (int i = 0; i < 100_000; i++) {
+			int k = sampler.sample(random);
+			assertTrue(k >= 1 && k <= 1_000_000);
+			if (k == 1) {
+				first++;
+			}
+			if (k <= 1000) {
+				top++;
+			}
+		}
+		// 1 / H(1e6) is about 6.95%, and the top 1000 take about half
+		assertTrue(first > 6000 && first < 8000, "rank 1 drawn " + first + " times");
+		assertTrue(top > 45_000 && top < 60_000, "top 1000 drawn " + top + " times");
+	}
+
+	@Test
+	void testMatchesTheExpectedFrequenciesOfASmallRange() {
+		ZipfSampler sampler = new ZipfSampler(4, 2.0);
+		Random random = new Random(1);
+		int[] counts = new int[5];
+		for (int i = 0; i < 100_000; i++) {
+			counts[sampler.sample(random)]++;
+		}
+		// weights 1, 1/4, 1/9, 1/16 of a total of about 1.4236
+		assertEquals(70_243, counts[1], 1000);
+		assertEquals(17_561, counts[2], 1000);
+		assertEquals(7_805, counts[3], 1000);
+		assertEquals(4_390, counts[4], 1000);
+	}
+
+	@Test
+	void testRejectsAnEmptyRange() {
+		assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(0, 1.0));
+		assertThrows(IllegalArgumentException.class, () -> new ZipfSampler(10, 0));
+	}
+
+}